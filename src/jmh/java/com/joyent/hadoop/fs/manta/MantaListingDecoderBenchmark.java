@@ -0,0 +1,85 @@
+package com.joyent.hadoop.fs.manta;
+
+import com.joyent.manta.client.MantaObjectConversionFunction;
+import org.apache.hadoop.fs.Path;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares decoding a page of directory listing entries through the SDK's
+ * {@code MantaObject} conversion with decoding them directly. Run with
+ * {@code -prof gc} to compare the allocation rate per entry.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MantaListingDecoderBenchmark {
+    private static final String DIR = "/user/stor/logs/2026/03/14";
+
+    @Param({"1024"})
+    private int entries;
+
+    private List<Map<String, Object>> page;
+
+    private MantaBlockSizePolicy blockSizes;
+
+    @Setup
+    public void setup() {
+        blockSizes = new MantaBlockSizePolicy(128L * 1024 * 1024,
+                Collections.singletonMap("/user/stor/logs", 256L * 1024 * 1024), "/user");
+        page = new ArrayList<>(entries);
+
+        for (int i = 0; i < entries; i++) {
+            final Map<String, Object> props = new LinkedHashMap<>();
+            final String name = String.format("host-%05d.log.gz", i);
+            props.put("name", name);
+            props.put("etag", "8cd2b4c4-0b3e-4d0e-a6ef-b1e0a1e3f2c" + (i % 10));
+            props.put("size", 1024L * i);
+            props.put("type", "object");
+            props.put("mtime", "2026-03-14T15:09:26.535Z");
+            props.put("durability", 2);
+            props.put("path", DIR + "/" + name);
+            page.add(props);
+        }
+    }
+
+    @Benchmark
+    public void convertToMantaObject(final Blackhole blackhole) {
+        final MantaObjectConversionFunction conversion = new MantaObjectConversionFunction();
+
+        for (Map<String, Object> props : page) {
+            final String path = props.get("path").toString();
+            blackhole.consume(new MantaFileStatus(conversion.apply(props), new Path(path),
+                    blockSizes.blockSizeFor(path)));
+        }
+    }
+
+    @Benchmark
+    public void decodeDirectly(final Blackhole blackhole) {
+        final MantaListingDecoder decoder = new MantaListingDecoder(DIR, blockSizes);
+
+        for (Map<String, Object> props : page) {
+            blackhole.consume(decoder.decode(props));
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.joyent.hadoop.fs.manta;
+
+import com.joyent.manta.client.MantaObjectResponse;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.text.DateFormat;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares parsing listing timestamps with the shared, synchronized
+ * {@link SimpleDateFormat} that {@link MantaFileStatus} used to rely on
+ * against {@link MantaTimestampParser}. Both run on four threads, which is
+ * how listings are decoded by the parallel walker.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(4)
+@Fork(1)
+public class MantaTimestampParserBenchmark {
+    private static final String TIMESTAMP = "2026-03-14T15:09:26.535Z";
+
+    private final DateFormat sharedFormat =
+            new SimpleDateFormat(MantaObjectResponse.PATTERN_ISO_8601);
+
+    @Benchmark
+    public long sharedSimpleDateFormat() throws ParseException {
+        synchronized (sharedFormat) {
+            return sharedFormat.parse(TIMESTAMP).getTime();
+        }
+    }
+
+    @Benchmark
+    public long timestampParser() {
+        return MantaTimestampParser.parse(TIMESTAMP);
+    }
+}
@@ -5,9 +5,14 @@ import com.joyent.manta.config.ConfigContext;
 import com.joyent.manta.config.EncryptionAuthenticationMode;
 import com.joyent.manta.config.MapConfigContext;
 import com.joyent.manta.util.MantaUtils;
+import org.apache.commons.lang.StringUtils;
 import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.util.StringUtils.TraditionalBinaryPrefix;
 
 import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 import static com.joyent.manta.config.DefaultsConfigContext.DEFAULT_HTTPS_CIPHERS;
 import static com.joyent.manta.config.DefaultsConfigContext.DEFAULT_HTTPS_PROTOCOLS;
@@ -17,6 +22,245 @@ import static com.joyent.manta.config.DefaultsConfigContext.DEFAULT_HTTPS_PROTOC
  * passed in the constructor.
  */
 public class HadoopConfigurationContext implements ConfigContext {
+    /**
+     * Configuration key for the number of worker threads used for parallel
+     * filesystem operations such as recursive listings.
+     */
+    public static final String PARALLELISM_KEY = "fs.manta.parallelism";
+
+    /**
+     * Default number of worker threads used for parallel filesystem operations.
+     */
+    public static final int DEFAULT_PARALLELISM = 8;
+
+    /**
+     * Configuration key for the number of listing results buffered ahead of
+     * the consumer of a recursive listing.
+     */
+    public static final String LIST_QUEUE_SIZE_KEY = "fs.manta.list.queue.size";
+
+    /**
+     * Default number of listing results buffered ahead of the consumer.
+     */
+    public static final int DEFAULT_LIST_QUEUE_SIZE = 1024;
+
+    /**
+     * Configuration key for the time a recursive listing waits for its
+     * consumer to make room in a full queue before the listing is abandoned.
+     */
+    public static final String LIST_CONSUMER_TIMEOUT_KEY = "fs.manta.list.consumer.timeout";
+
+    /**
+     * Default time in milliseconds a recursive listing waits for its consumer.
+     */
+    public static final long DEFAULT_LIST_CONSUMER_TIMEOUT = 600_000L;
+
+    /**
+     * Configuration key for the virtual block size reported for Manta objects.
+     */
+    public static final String BLOCK_SIZE_KEY = "fs.manta.block.size";
+
+    /**
+     * Default virtual block size reported for Manta objects (128 MiB).
+     */
+    public static final long DEFAULT_BLOCK_SIZE = 128L * 1024L * 1024L;
+
+    /**
+     * Configuration key for virtual block sizes overridden by path prefix. The
+     * value is a comma separated list of <code>prefix=size</code> pairs, such
+     * as <code>/~~/stor/logs=256m,/~~/stor/archive=1g</code>.
+     */
+    public static final String BLOCK_SIZE_PREFIXES_KEY = "fs.manta.block.size.prefixes";
+
+    /**
+     * Configuration key enabling the recording of the written length and MD5
+     * as object metadata after each upload.
+     */
+    public static final String WRITE_ATTRIBUTES_KEY = "fs.manta.write.attributes";
+
+    /**
+     * Configuration key for the number of status lookups under the same
+     * directory that cause the directory to be listed instead. A value of
+     * zero disables listing based status resolution.
+     */
+    public static final String STATUS_LISTING_THRESHOLD_KEY = "fs.manta.status.listing.threshold";
+
+    /**
+     * Configuration key for the time for which a directory listing answers
+     * status lookups. Accepts a time unit suffix, defaults to milliseconds.
+     */
+    public static final String STATUS_LISTING_VALIDITY_KEY = "fs.manta.status.listing.validity";
+
+    /**
+     * Default time in milliseconds for which a directory listing answers status lookups.
+     */
+    public static final long DEFAULT_STATUS_LISTING_VALIDITY = 1000L;
+
+    /**
+     * Configuration key for the largest directory that is listed to answer status lookups.
+     */
+    public static final String STATUS_LISTING_MAX_ENTRIES_KEY = "fs.manta.status.listing.max.entries";
+
+    /**
+     * Default largest directory that is listed to answer status lookups.
+     */
+    public static final int DEFAULT_STATUS_LISTING_MAX_ENTRIES = 10_000;
+
+    /**
+     * Configuration key for the number of times a request of a recursive
+     * delete, directory rename or tree copy that fails with a transient error
+     * is retried.
+     */
+    public static final String DELETE_RETRIES_KEY = "fs.manta.delete.retries";
+
+    /**
+     * Default number of times a request of a recursive delete is retried.
+     */
+    public static final int DEFAULT_DELETE_RETRIES = 3;
+
+    /**
+     * Configuration key for allocating compact listings with direct buffers
+     * outside of the garbage collected heap.
+     */
+    public static final String COMPACT_LISTING_OFF_HEAP_KEY = "fs.manta.compact.listing.off.heap";
+
+    /**
+     * Configuration key for renaming directories by linking and deleting
+     * their objects in parallel.
+     */
+    public static final String PARALLEL_RENAME_KEY = "fs.manta.rename.parallel";
+
+    /**
+     * Configuration key for deriving the results of deletes, moves and
+     * directory creations from the status of the mutation itself instead of
+     * surrounding existence checks.
+     */
+    public static final String LEAN_MUTATIONS_KEY = "fs.manta.lean.mutations";
+
+    /**
+     * Configuration key for the number of range checksums kept in memory.
+     */
+    public static final String CHECKSUM_CACHE_ENTRIES_KEY = "fs.manta.checksum.cache.entries";
+
+    /**
+     * Default number of range checksums kept in memory.
+     */
+    public static final int DEFAULT_CHECKSUM_CACHE_ENTRIES = 10_000;
+
+    /**
+     * Configuration key for the local file that range checksums are
+     * persisted to across processes.
+     */
+    public static final String CHECKSUM_CACHE_FILE_KEY = "fs.manta.checksum.cache.file";
+
+    /**
+     * Configuration key for recording the composite CRC32C of written files
+     * and returning it as their checksum, like HDFS does when its checksum
+     * combine mode is <code>COMPOSITE_CRC</code>.
+     */
+    public static final String COMPOSITE_CRC_KEY = "fs.manta.checksum.composite.crc";
+
+    /**
+     * Configuration key for the maximum number of concurrent metadata
+     * requests. A value of zero means unlimited.
+     */
+    public static final String METADATA_LANE_REQUESTS_KEY = "fs.manta.lane.metadata.requests";
+
+    /**
+     * Configuration key for the maximum number of concurrent reads of small
+     * files. A value of zero means unlimited.
+     */
+    public static final String SMALL_READ_LANE_REQUESTS_KEY = "fs.manta.lane.small.read.requests";
+
+    /**
+     * Configuration key for the maximum number of concurrent uploads, copies
+     * and reads of large files. A value of zero means unlimited.
+     */
+    public static final String BULK_LANE_REQUESTS_KEY = "fs.manta.lane.bulk.requests";
+
+    /**
+     * Configuration key for the maximum number of concurrent requests of all
+     * lanes together, above which waiting requests are granted in order of
+     * lane priority. A value of zero means unlimited.
+     */
+    public static final String LANE_MAX_REQUESTS_KEY = "fs.manta.lane.max.requests";
+
+    /**
+     * Configuration key for the time a request waits for a permit of its
+     * lane before it is rejected.
+     */
+    public static final String LANE_WAIT_KEY = "fs.manta.lane.wait";
+
+    /**
+     * Default time in milliseconds a request waits for a permit of its lane.
+     */
+    public static final long DEFAULT_LANE_WAIT = 60_000L;
+
+    /**
+     * Configuration key for the size of a dedicated connection pool for reads
+     * of small files. A value of zero shares the default connection pool.
+     */
+    public static final String SMALL_READ_LANE_POOL_SIZE_KEY = "fs.manta.lane.small.read.pool.size";
+
+    /**
+     * Configuration key for the size of a dedicated connection pool for
+     * uploads, copies and reads of large files. A value of zero shares the
+     * default connection pool.
+     */
+    public static final String BULK_LANE_POOL_SIZE_KEY = "fs.manta.lane.bulk.pool.size";
+
+    /**
+     * Configuration key for the largest file whose reads are sent in the
+     * small read lane instead of the bulk lane.
+     */
+    public static final String SMALL_READ_THRESHOLD_KEY = "fs.manta.lane.small.read.threshold";
+
+    /**
+     * Default largest file whose reads are sent in the small read lane (1 MiB).
+     */
+    public static final long DEFAULT_SMALL_READ_THRESHOLD = 1024L * 1024L;
+
+    /**
+     * Configuration key for the highest number of concurrent requests the
+     * adaptive concurrency limiter allows. A value of zero disables the limiter.
+     */
+    public static final String LIMITER_MAX_REQUESTS_KEY = "fs.manta.limiter.max.requests";
+
+    /**
+     * Configuration key for the lowest number of concurrent requests the
+     * adaptive concurrency limiter decreases to when Manta throttles requests.
+     */
+    public static final String LIMITER_MIN_REQUESTS_KEY = "fs.manta.limiter.min.requests";
+
+    /**
+     * Default lowest number of concurrent requests of the adaptive concurrency limiter.
+     */
+    public static final int DEFAULT_LIMITER_MIN_REQUESTS = 1;
+
+    /**
+     * Configuration key for the number of times a request throttled by Manta
+     * is retried by the adaptive concurrency limiter.
+     */
+    public static final String LIMITER_RETRIES_KEY = "fs.manta.limiter.retries";
+
+    /**
+     * Default number of times a throttled request is retried.
+     */
+    public static final int DEFAULT_LIMITER_RETRIES = 3;
+
+    /**
+     * Configuration key for the time a request waits for a permit of the
+     * adaptive concurrency limiter before it is rejected. Accepts a time unit
+     * suffix, defaults to milliseconds.
+     */
+    public static final String LIMITER_WAIT_KEY = "fs.manta.limiter.wait";
+
+    /**
+     * Default time in milliseconds a request waits for a permit of the
+     * adaptive concurrency limiter.
+     */
+    public static final long DEFAULT_LIMITER_WAIT = 60_000L;
+
     /**
      * Wrapped Hadoop configuration instance.
      */
@@ -185,6 +429,275 @@ public class HadoopConfigurationContext implements ConfigContext {
         return configuration.get(MapConfigContext.MANTA_ENCRYPTION_ALGORITHM_KEY);
     }
 
+    /**
+     * @return number of worker threads used for parallel filesystem operations
+     */
+    public int getParallelism() {
+        final int parallelism = configuration.getInt(PARALLELISM_KEY, DEFAULT_PARALLELISM);
+        Preconditions.checkArgument(parallelism > 0,
+                "%s must be greater than zero", PARALLELISM_KEY);
+        return parallelism;
+    }
+
+    /**
+     * @return number of listing results buffered ahead of the consumer of a recursive listing
+     */
+    public int getListQueueSize() {
+        final int size = configuration.getInt(LIST_QUEUE_SIZE_KEY, DEFAULT_LIST_QUEUE_SIZE);
+        Preconditions.checkArgument(size > 0,
+                "%s must be greater than zero", LIST_QUEUE_SIZE_KEY);
+        return size;
+    }
+
+    /**
+     * @return time in milliseconds a recursive listing waits for its consumer
+     *         to make room in a full queue before it is abandoned
+     */
+    public long getListConsumerTimeout() {
+        final long timeout = configuration.getTimeDuration(LIST_CONSUMER_TIMEOUT_KEY,
+                DEFAULT_LIST_CONSUMER_TIMEOUT, TimeUnit.MILLISECONDS);
+        Preconditions.checkArgument(timeout > 0,
+                "%s must be greater than zero", LIST_CONSUMER_TIMEOUT_KEY);
+        return timeout;
+    }
+
+    /**
+     * @return virtual block size reported for Manta objects
+     */
+    public long getBlockSize() {
+        return configuration.getLongBytes(BLOCK_SIZE_KEY, DEFAULT_BLOCK_SIZE);
+    }
+
+    /**
+     * @return virtual block sizes keyed by path prefix in the order configured
+     */
+    public Map<String, Long> getBlockSizePrefixes() {
+        final Map<String, Long> prefixes = new LinkedHashMap<>();
+
+        for (String pair : configuration.getTrimmedStrings(BLOCK_SIZE_PREFIXES_KEY)) {
+            final int separator = pair.lastIndexOf('=');
+            Preconditions.checkArgument(separator > 0 && separator < pair.length() - 1,
+                    "Invalid %s entry [%s], expected prefix=size", BLOCK_SIZE_PREFIXES_KEY, pair);
+
+            final String prefix = pair.substring(0, separator).trim();
+            final String size = pair.substring(separator + 1).trim();
+            prefixes.put(prefix, TraditionalBinaryPrefix.string2long(size));
+        }
+
+        return prefixes;
+    }
+
+    /**
+     * @return true if the written length and MD5 are recorded as object metadata
+     */
+    public boolean isWriteAttributesEnabled() {
+        return configuration.getBoolean(WRITE_ATTRIBUTES_KEY, false);
+    }
+
+    /**
+     * @return number of status lookups under a directory that cause it to be
+     *         listed, zero if listing based status resolution is disabled
+     */
+    public int getStatusListingThreshold() {
+        final int threshold = configuration.getInt(STATUS_LISTING_THRESHOLD_KEY, 0);
+        Preconditions.checkArgument(threshold >= 0,
+                "%s must not be negative", STATUS_LISTING_THRESHOLD_KEY);
+        return threshold;
+    }
+
+    /**
+     * @return time in milliseconds for which a directory listing answers status lookups
+     */
+    public long getStatusListingValidity() {
+        final long validity = configuration.getTimeDuration(STATUS_LISTING_VALIDITY_KEY,
+                DEFAULT_STATUS_LISTING_VALIDITY, TimeUnit.MILLISECONDS);
+        Preconditions.checkArgument(validity >= 0,
+                "%s must not be negative", STATUS_LISTING_VALIDITY_KEY);
+        return validity;
+    }
+
+    /**
+     * @return largest directory that is listed to answer status lookups
+     */
+    public int getStatusListingMaxEntries() {
+        final int maxEntries = configuration.getInt(STATUS_LISTING_MAX_ENTRIES_KEY,
+                DEFAULT_STATUS_LISTING_MAX_ENTRIES);
+        Preconditions.checkArgument(maxEntries > 0,
+                "%s must be greater than zero", STATUS_LISTING_MAX_ENTRIES_KEY);
+        return maxEntries;
+    }
+
+    /**
+     * @return number of times a request of a recursive delete, directory
+     *         rename or tree copy that fails with a transient error is retried
+     */
+    public int getDeleteRetries() {
+        final int retries = configuration.getInt(DELETE_RETRIES_KEY, DEFAULT_DELETE_RETRIES);
+        Preconditions.checkArgument(retries >= 0, "%s must not be negative", DELETE_RETRIES_KEY);
+        return retries;
+    }
+
+    /**
+     * @return true if compact listings are allocated off-heap
+     */
+    public boolean isCompactListingOffHeap() {
+        return configuration.getBoolean(COMPACT_LISTING_OFF_HEAP_KEY, false);
+    }
+
+    /**
+     * @return true if directories are renamed by linking and deleting their
+     *         objects in parallel
+     */
+    public boolean isParallelRename() {
+        return configuration.getBoolean(PARALLEL_RENAME_KEY, true);
+    }
+
+    /**
+     * @return true if deletes, moves and directory creations skip the
+     *         existence checks around the mutation
+     */
+    public boolean isLeanMutations() {
+        return configuration.getBoolean(LEAN_MUTATIONS_KEY, false);
+    }
+
+    /**
+     * @return number of range checksums kept in memory, zero if checksums
+     *         aren't cached
+     */
+    public int getChecksumCacheEntries() {
+        final int entries = configuration.getInt(CHECKSUM_CACHE_ENTRIES_KEY,
+                DEFAULT_CHECKSUM_CACHE_ENTRIES);
+        Preconditions.checkArgument(entries >= 0,
+                "%s must not be negative", CHECKSUM_CACHE_ENTRIES_KEY);
+        return entries;
+    }
+
+    /**
+     * @return local file that range checksums are persisted to, null if
+     *         checksums are only cached in memory
+     */
+    public String getChecksumCacheFile() {
+        return StringUtils.trimToNull(configuration.get(CHECKSUM_CACHE_FILE_KEY));
+    }
+
+    /**
+     * @return true if the composite CRC32C of written files is recorded as
+     *         object metadata and returned as their checksum
+     */
+    public boolean isCompositeCrcEnabled() {
+        return configuration.getBoolean(COMPOSITE_CRC_KEY, false);
+    }
+
+    /**
+     * @param lane lane of the requests
+     * @return maximum number of concurrent requests of the lane, zero if unlimited
+     */
+    public int getLaneRequests(final MantaRequestLane lane) {
+        switch (lane) {
+            case METADATA:
+                return getNonNegativeInt(METADATA_LANE_REQUESTS_KEY);
+            case SMALL_READ:
+                return getNonNegativeInt(SMALL_READ_LANE_REQUESTS_KEY);
+            default:
+                return getNonNegativeInt(BULK_LANE_REQUESTS_KEY);
+        }
+    }
+
+    /**
+     * @return maximum number of concurrent requests of all lanes together,
+     *         zero if unlimited
+     */
+    public int getLaneMaxRequests() {
+        return getNonNegativeInt(LANE_MAX_REQUESTS_KEY);
+    }
+
+    /**
+     * @return time in milliseconds a request waits for a permit of its lane
+     *         before it is rejected
+     */
+    public long getLaneWait() {
+        final long wait = configuration.getTimeDuration(LANE_WAIT_KEY,
+                DEFAULT_LANE_WAIT, TimeUnit.MILLISECONDS);
+        Preconditions.checkArgument(wait >= 0, "%s must not be negative", LANE_WAIT_KEY);
+        return wait;
+    }
+
+    /**
+     * @param lane lane of the requests
+     * @return size of the dedicated connection pool of the lane, zero if the
+     *         lane shares the default connection pool
+     */
+    public int getLanePoolSize(final MantaRequestLane lane) {
+        switch (lane) {
+            case SMALL_READ:
+                return getNonNegativeInt(SMALL_READ_LANE_POOL_SIZE_KEY);
+            case BULK:
+                return getNonNegativeInt(BULK_LANE_POOL_SIZE_KEY);
+            default:
+                return 0;
+        }
+    }
+
+    /**
+     * @return largest file whose reads are sent in the small read lane
+     */
+    public long getSmallReadThreshold() {
+        final long threshold = configuration.getLongBytes(SMALL_READ_THRESHOLD_KEY,
+                DEFAULT_SMALL_READ_THRESHOLD);
+        Preconditions.checkArgument(threshold >= 0,
+                "%s must not be negative", SMALL_READ_THRESHOLD_KEY);
+        return threshold;
+    }
+
+    /**
+     * @return highest number of concurrent requests of the adaptive
+     *         concurrency limiter, zero if the limiter is disabled
+     */
+    public int getLimiterMaxRequests() {
+        return getNonNegativeInt(LIMITER_MAX_REQUESTS_KEY);
+    }
+
+    /**
+     * @return lowest number of concurrent requests of the adaptive concurrency limiter
+     */
+    public int getLimiterMinRequests() {
+        final int min = configuration.getInt(LIMITER_MIN_REQUESTS_KEY, DEFAULT_LIMITER_MIN_REQUESTS);
+        Preconditions.checkArgument(min > 0,
+                "%s must be greater than zero", LIMITER_MIN_REQUESTS_KEY);
+        return min;
+    }
+
+    /**
+     * @return number of times a request throttled by Manta is retried by the
+     *         adaptive concurrency limiter
+     */
+    public int getLimiterRetries() {
+        final int retries = configuration.getInt(LIMITER_RETRIES_KEY, DEFAULT_LIMITER_RETRIES);
+        Preconditions.checkArgument(retries >= 0, "%s must not be negative", LIMITER_RETRIES_KEY);
+        return retries;
+    }
+
+    /**
+     * @return time in milliseconds a request waits for a permit of the
+     *         adaptive concurrency limiter before it is rejected
+     */
+    public long getLimiterWait() {
+        final long wait = configuration.getTimeDuration(LIMITER_WAIT_KEY,
+                DEFAULT_LIMITER_WAIT, TimeUnit.MILLISECONDS);
+        Preconditions.checkArgument(wait >= 0, "%s must not be negative", LIMITER_WAIT_KEY);
+        return wait;
+    }
+
+    /**
+     * @param key configuration key of an optional limit
+     * @return value of the key, zero if it isn't set
+     */
+    private int getNonNegativeInt(final String key) {
+        final int value = configuration.getInt(key, 0);
+        Preconditions.checkArgument(value >= 0, "%s must not be negative", key);
+        return value;
+    }
+
     /**
      * Get the value of the <code>name</code> property as an <code>int</code>.
      *
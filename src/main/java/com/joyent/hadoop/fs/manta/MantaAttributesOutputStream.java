@@ -0,0 +1,239 @@
+package com.joyent.hadoop.fs.manta;
+
+import com.google.common.base.Preconditions;
+import com.joyent.manta.client.MantaMetadata;
+import com.joyent.manta.exception.MantaClientHttpResponseException;
+import com.joyent.manta.http.MantaHttpHeaders;
+import org.apache.commons.codec.binary.Hex;
+import org.apache.hadoop.util.PureJavaCrc32C;
+import org.apache.http.HttpStatus;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.function.Supplier;
+
+/**
+ * An {@link OutputStream} wrapper that records the length and MD5 of the
+ * bytes written and stores them as Manta metadata once the wrapped upload
+ * has completed. This costs one additional metadata request per file. The
+ * update is conditional on the etag of the uploaded object, so that the
+ * attributes are never attached to an object written by a concurrent
+ * writer that replaced the upload.
+ *
+ * <p>Optionally the composite CRC32C of the bytes written is recorded too.
+ * It is computed one block at a time and the CRC of each block is combined
+ * into the CRC of the file when the block is complete.</p>
+ */
+public class MantaAttributesOutputStream extends FilterOutputStream {
+    /**
+     * Logger instance.
+     */
+    private static final Logger LOG = LoggerFactory.getLogger(MantaAttributesOutputStream.class);
+
+    /**
+     * Supplies the etag of the uploaded object once the upload completed.
+     */
+    private final Supplier<String> etag;
+
+    /**
+     * Requests used to update the metadata of the uploaded object.
+     */
+    private final MantaMetadataRequests requests;
+
+    /**
+     * Path of the object being uploaded.
+     */
+    private final String mantaPath;
+
+    /**
+     * Headers sent with the upload, resent so they are preserved.
+     */
+    private final MantaHttpHeaders headers;
+
+    /**
+     * Metadata sent with the upload, extended with the recorded attributes.
+     */
+    private final MantaMetadata metadata;
+
+    /**
+     * Digest of the bytes written.
+     */
+    private final MessageDigest md5 = newMd5Digest();
+
+    /**
+     * Number of bytes written.
+     */
+    private long length = 0L;
+
+    /**
+     * Number of bytes in a block that the composite CRC is computed for,
+     * zero if no composite CRC is recorded.
+     */
+    private final long crcBlockSize;
+
+    /**
+     * CRC of the bytes written in the current block, null if no composite
+     * CRC is recorded.
+     */
+    private final PureJavaCrc32C blockCrc;
+
+    /**
+     * Number of bytes written in the current block.
+     */
+    private long blockLength = 0L;
+
+    /**
+     * CRC of all completed blocks.
+     */
+    private int fileCrc = 0;
+
+    /**
+     * Flag indicating that the stream has been closed.
+     */
+    private boolean closed = false;
+
+    /**
+     * Creates a new instance that updates the metadata through the requests
+     * of a filesystem.
+     *
+     * @param wrapped output stream of the upload
+     * @param etag supplies the etag of the uploaded object once the upload
+     *             completed, or null if it isn't known
+     * @param requests requests used to update the metadata
+     * @param mantaPath path of the object being uploaded
+     * @param headers headers sent with the upload
+     * @param metadata metadata sent with the upload
+     * @param crcBlockSize number of bytes in a block that the composite CRC
+     *                     is computed for, zero to record no composite CRC
+     */
+    MantaAttributesOutputStream(final OutputStream wrapped,
+                                final Supplier<String> etag,
+                                final MantaMetadataRequests requests,
+                                final String mantaPath,
+                                final MantaHttpHeaders headers,
+                                final MantaMetadata metadata,
+                                final long crcBlockSize) {
+        super(wrapped);
+        Preconditions.checkArgument(crcBlockSize >= 0, "CRC block size must not be negative");
+        this.etag = Preconditions.checkNotNull(etag, "Etag supplier must not be null");
+        this.requests = Preconditions.checkNotNull(requests, "Requests must not be null");
+        this.mantaPath = Preconditions.checkNotNull(mantaPath, "Path must not be null");
+        this.headers = Preconditions.checkNotNull(headers, "Headers must not be null");
+        this.metadata = Preconditions.checkNotNull(metadata, "Metadata must not be null");
+        this.crcBlockSize = crcBlockSize;
+
+        if (crcBlockSize > 0) {
+            this.blockCrc = new PureJavaCrc32C();
+        } else {
+            this.blockCrc = null;
+        }
+    }
+
+    /**
+     * @return new MD5 digest instance
+     */
+    private static MessageDigest newMd5Digest() {
+        try {
+            return MessageDigest.getInstance("MD5");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("MD5 is required to be supported by the JVM", e);
+        }
+    }
+
+    @Override
+    public void write(final int b) throws IOException {
+        out.write(b);
+        md5.update((byte)b);
+        length++;
+
+        if (blockCrc != null) {
+            blockCrc.update(b);
+            blockLength++;
+
+            if (blockLength == crcBlockSize) {
+                completeBlock();
+            }
+        }
+    }
+
+    @Override
+    public void write(final byte[] b, final int off, final int len) throws IOException {
+        out.write(b, off, len);
+        md5.update(b, off, len);
+        length += len;
+
+        if (blockCrc == null) {
+            return;
+        }
+
+        int offset = off;
+        int remaining = len;
+
+        while (remaining > 0) {
+            final int count = (int)Math.min(remaining, crcBlockSize - blockLength);
+            blockCrc.update(b, offset, count);
+            blockLength += count;
+            offset += count;
+            remaining -= count;
+
+            if (blockLength == crcBlockSize) {
+                completeBlock();
+            }
+        }
+    }
+
+    /**
+     * Combines the CRC of the current block into the CRC of the file and
+     * starts a new block.
+     */
+    private void completeBlock() {
+        fileCrc = MantaCompositeCrc.combine(fileCrc, (int)blockCrc.getValue(), blockLength);
+        blockCrc.reset();
+        blockLength = 0L;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed) {
+            return;
+        }
+
+        closed = true;
+        out.close();
+
+        final MantaMetadata attributes = new MantaMetadata(metadata);
+        attributes.put(MantaFileAttributes.LENGTH_HEADER, Long.toString(length));
+        attributes.put(MantaFileAttributes.MD5_HEADER, Hex.encodeHexString(md5.digest()));
+
+        if (blockCrc != null) {
+            completeBlock();
+            attributes.put(MantaFileAttributes.COMPOSITE_CRC_HEADER, String.format("%08x", fileCrc));
+        }
+
+        final String uploaded = etag.get();
+
+        if (uploaded == null) {
+            LOG.warn("No etag returned for the upload of [{}], its attributes aren't recorded", mantaPath);
+            return;
+        }
+
+        // Attributes of an object that another writer has replaced in the meantime are dropped
+        headers.setIfMatch(uploaded);
+
+        try {
+            requests.call("metadata update of [" + mantaPath + "]",
+                    () -> requests.getClient().putMetadata(mantaPath, headers, attributes));
+        } catch (MantaClientHttpResponseException e) {
+            if (e.getStatusCode() != HttpStatus.SC_PRECONDITION_FAILED) {
+                throw e;
+            }
+
+            LOG.debug("Dropped attributes of [{}], the object was replaced after the upload", mantaPath);
+        }
+    }
+}
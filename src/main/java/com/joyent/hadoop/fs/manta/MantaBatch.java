@@ -0,0 +1,116 @@
+package com.joyent.hadoop.fs.manta;
+
+import com.google.common.base.Preconditions;
+import org.apache.hadoop.fs.Path;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Applies a remote operation to many paths concurrently on a bounded
+ * {@link ForkJoinPool}. Each path is processed by its own task, so the number
+ * of requests in flight is bounded by the parallelism of the pool rather
+ * than by the size of the batch.
+ */
+final class MantaBatch {
+    /**
+     * Operation applied to every path in a batch.
+     *
+     * @param <T> type of the value produced for each path
+     */
+    @FunctionalInterface
+    interface PathOperation<T> {
+        /**
+         * Processes a single path.
+         *
+         * @param path path to process
+         * @return value produced for the path
+         * @throws IOException thrown when the path can't be processed
+         */
+        T apply(Path path) throws IOException;
+    }
+
+    /**
+     * Utility class.
+     */
+    private MantaBatch() {
+    }
+
+    /**
+     * Applies an operation to every path concurrently and waits for all of
+     * them to finish. Errors are reported per path and don't stop the rest
+     * of the batch.
+     *
+     * @param pool pool that operations are executed on
+     * @param paths paths to process
+     * @param operation operation applied to each path
+     * @param <T> type of the value produced for each path
+     * @return one result per path, in the iteration order of the paths
+     * @throws InterruptedIOException thrown when interrupted while waiting
+     */
+    static <T> List<MantaBatchResult<T>> run(final ForkJoinPool pool,
+                                             final Collection<Path> paths,
+                                             final PathOperation<T> operation)
+            throws InterruptedIOException {
+        Preconditions.checkNotNull(pool, "Worker pool must not be null");
+        Preconditions.checkNotNull(paths, "Paths must not be null");
+        Preconditions.checkNotNull(operation, "Operation must not be null");
+
+        final List<ForkJoinTask<MantaBatchResult<T>>> tasks = new ArrayList<>(paths.size());
+
+        for (Path path : paths) {
+            Preconditions.checkNotNull(path, "Paths must not contain null");
+            tasks.add(pool.submit(() -> apply(path, operation)));
+        }
+
+        final List<MantaBatchResult<T>> results = new ArrayList<>(tasks.size());
+
+        try {
+            for (ForkJoinTask<MantaBatchResult<T>> task : tasks) {
+                results.add(task.get());
+            }
+        } catch (InterruptedException e) {
+            tasks.forEach(task -> task.cancel(false));
+            Thread.currentThread().interrupt();
+
+            final InterruptedIOException interrupted =
+                    new InterruptedIOException("Interrupted while waiting for batch");
+            interrupted.initCause(e);
+            throw interrupted;
+        } catch (ExecutionException e) {
+            // apply() never throws, so this indicates a bug
+            throw new AssertionError("Batch task failed unexpectedly", e.getCause());
+        }
+
+        return results;
+    }
+
+    /**
+     * Applies the operation to a single path, capturing any error in the result.
+     *
+     * @param path path to process
+     * @param operation operation to apply
+     * @param <T> type of the value produced
+     * @return result for the path
+     */
+    private static <T> MantaBatchResult<T> apply(final Path path,
+                                                 final PathOperation<T> operation) {
+        try {
+            return MantaBatchResult.success(path, operation.apply(path));
+        } catch (IOException e) {
+            return MantaBatchResult.failure(path, e);
+        } catch (UncheckedIOException e) {
+            return MantaBatchResult.failure(path, e.getCause());
+        } catch (RuntimeException e) {
+            return MantaBatchResult.failure(path,
+                    new IOException("Unexpected error processing " + path, e));
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package com.joyent.hadoop.fs.manta;
+
+import com.google.common.base.Preconditions;
+import org.apache.hadoop.fs.Path;
+
+import java.io.IOException;
+
+/**
+ * Outcome of a single path within a batch operation. A batch never fails as
+ * a whole because one of its paths failed, instead each path carries either
+ * its value or the error that was thrown while processing it.
+ *
+ * @param <T> type of the value produced for each path
+ */
+public final class MantaBatchResult<T> {
+    /**
+     * Path that was processed.
+     */
+    private final Path path;
+
+    /**
+     * Value produced for the path, null if processing failed.
+     */
+    private final T value;
+
+    /**
+     * Error thrown while processing the path, null if processing succeeded.
+     */
+    private final IOException error;
+
+    /**
+     * Creates a new instance.
+     *
+     * @param path path that was processed
+     * @param value value produced for the path
+     * @param error error thrown while processing the path
+     */
+    private MantaBatchResult(final Path path, final T value, final IOException error) {
+        this.path = Preconditions.checkNotNull(path, "Path must not be null");
+        this.value = value;
+        this.error = error;
+    }
+
+    /**
+     * Creates a result for a path that was processed successfully.
+     *
+     * @param path path that was processed
+     * @param value value produced for the path
+     * @param <T> type of the value
+     * @return new result instance
+     */
+    public static <T> MantaBatchResult<T> success(final Path path, final T value) {
+        return new MantaBatchResult<>(path, value, null);
+    }
+
+    /**
+     * Creates a result for a path that couldn't be processed.
+     *
+     * @param path path that was processed
+     * @param error error thrown while processing the path
+     * @param <T> type of the value
+     * @return new result instance
+     */
+    public static <T> MantaBatchResult<T> failure(final Path path, final IOException error) {
+        Preconditions.checkNotNull(error, "Error must not be null");
+        return new MantaBatchResult<>(path, null, error);
+    }
+
+    /**
+     * @return path that was processed
+     */
+    public Path getPath() {
+        return path;
+    }
+
+    /**
+     * @return true if the path was processed successfully
+     */
+    public boolean isSuccess() {
+        return error == null;
+    }
+
+    /**
+     * @return error thrown while processing the path or null if it succeeded
+     */
+    public IOException getError() {
+        return error;
+    }
+
+    /**
+     * Returns the value produced for the path or rethrows the error that
+     * occurred while processing it.
+     *
+     * @return value produced for the path
+     * @throws IOException error thrown while processing the path
+     */
+    public T get() throws IOException {
+        if (error != null) {
+            throw error;
+        }
+
+        return value;
+    }
+
+    @Override
+    public String toString() {
+        if (error != null) {
+            return "MantaBatchResult{path=" + path + ", error=" + error + "}";
+        }
+
+        return "MantaBatchResult{path=" + path + ", value=" + value + "}";
+    }
+}
@@ -0,0 +1,108 @@
+package com.joyent.hadoop.fs.manta;
+
+import org.apache.hadoop.fs.BlockLocation;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+
+/**
+ * Synthesizes the block locations of files stored in Manta. Manta has no
+ * notion of blocks, so files are split on their reported block size without
+ * making any remote calls. Manta doesn't expose data locality either, so
+ * like the default {@link FileSystem} implementation every block is
+ * reported on localhost.
+ */
+final class MantaBlockLocations {
+    /**
+     * Host reported for every block location.
+     */
+    private static final String BLOCK_HOST = "localhost";
+
+    /**
+     * Host and port name reported for every block location.
+     */
+    private static final String BLOCK_NAME = "localhost:50010";
+
+    /**
+     * Largest number of blocks a file is split into, the same as the default
+     * limit of HDFS. Files that would have more blocks are split into
+     * proportionally larger blocks.
+     */
+    static final long MAX_BLOCKS_PER_FILE = 1024L * 1024L;
+
+    /**
+     * Block locations returned for ranges that contain no data.
+     */
+    private static final BlockLocation[] NO_BLOCK_LOCATIONS = new BlockLocation[0];
+
+    /**
+     * Utility class.
+     */
+    private MantaBlockLocations() {
+    }
+
+    /**
+     * Computes the synthetic block locations of a file that overlap with the
+     * specified range. When the file has no known block size, the whole file
+     * is reported as a single block.
+     *
+     * @param file status of the file
+     * @param start offset of the range
+     * @param len length of the range
+     * @return block locations overlapping with the range
+     */
+    static BlockLocation[] of(final FileStatus file, final long start, final long len) {
+        if (file == null) {
+            return null;
+        }
+
+        if (start < 0 || len < 0) {
+            throw new IllegalArgumentException("Invalid start or len parameter");
+        }
+
+        final long fileLength = file.getLen();
+
+        if (file.isDirectory() || fileLength <= start) {
+            return NO_BLOCK_LOCATIONS;
+        }
+
+        final long blockSize = Math.max(file.getBlockSize(),
+                (fileLength - 1) / MAX_BLOCKS_PER_FILE + 1);
+
+        if (file.getBlockSize() <= 0 || blockSize >= fileLength) {
+            return new BlockLocation[] {newBlockLocation(0L, fileLength)};
+        }
+
+        final long end;
+
+        if (len >= fileLength - start) {
+            end = fileLength;
+        } else {
+            end = start + len;
+        }
+
+        final long firstBlock = start / blockSize;
+        final long lastBlock = Math.max(firstBlock, (end - 1) / blockSize);
+        final BlockLocation[] locations = new BlockLocation[(int)(lastBlock - firstBlock + 1)];
+
+        for (int i = 0; i < locations.length; i++) {
+            final long offset = (firstBlock + i) * blockSize;
+            final long length = Math.min(blockSize, fileLength - offset);
+            locations[i] = newBlockLocation(offset, length);
+        }
+
+        return locations;
+    }
+
+    /**
+     * Creates a block location with its own host arrays, since callers are
+     * free to modify the arrays returned by a {@link BlockLocation}.
+     *
+     * @param offset offset of the block in the file
+     * @param length length of the block
+     * @return new block location
+     */
+    private static BlockLocation newBlockLocation(final long offset, final long length) {
+        return new BlockLocation(new String[] {BLOCK_NAME}, new String[] {BLOCK_HOST},
+                offset, length);
+    }
+}
@@ -0,0 +1,182 @@
+package com.joyent.hadoop.fs.manta;
+
+import com.google.common.base.Preconditions;
+import org.apache.commons.lang.StringUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+import static com.joyent.manta.client.MantaClient.SEPARATOR;
+
+/**
+ * Determines the virtual block size reported for objects stored in Manta.
+ * Manta has no notion of blocks, but Hadoop consumers use the block size
+ * to decide how to split files into parallel units of work. A global block
+ * size can be overridden for individual directory trees by configuring a
+ * block size for a path prefix. The most specific matching prefix wins.
+ */
+public class MantaBlockSizePolicy {
+    /**
+     * Alias for the home directory that may be used at the start of a prefix.
+     */
+    private static final String HOME_ALIAS_PREFIX = SEPARATOR + MantaFileSystem.HOME_ALIAS;
+
+    /**
+     * Block size used for paths that don't match any prefix.
+     */
+    private final long defaultBlockSize;
+
+    /**
+     * Prefix overrides ordered from the most to the least specific prefix.
+     */
+    private final List<PrefixBlockSize> prefixes;
+
+    /**
+     * Creates a new policy.
+     *
+     * @param defaultBlockSize block size used for paths not matching any prefix
+     *                         or zero to report an unknown block size
+     * @param prefixBlockSizes block sizes keyed by path prefix
+     * @param homeDirectory Manta home directory that replaces the ~~ alias in prefixes
+     */
+    public MantaBlockSizePolicy(final long defaultBlockSize,
+                                final Map<String, Long> prefixBlockSizes,
+                                final String homeDirectory) {
+        Preconditions.checkArgument(defaultBlockSize >= 0,
+                "Block size must be zero or greater. Actual: %s", defaultBlockSize);
+        Preconditions.checkNotNull(prefixBlockSizes, "Prefix block sizes must not be null");
+
+        this.defaultBlockSize = defaultBlockSize;
+
+        final List<PrefixBlockSize> list = new ArrayList<>(prefixBlockSizes.size());
+
+        for (Map.Entry<String, Long> entry : prefixBlockSizes.entrySet()) {
+            final long size = entry.getValue();
+            Preconditions.checkArgument(size >= 0,
+                    "Block size for prefix [%s] must be zero or greater. Actual: %s",
+                    entry.getKey(), size);
+            list.add(new PrefixBlockSize(normalize(entry.getKey(), homeDirectory), size));
+        }
+
+        list.sort(Comparator.comparingInt((PrefixBlockSize p) -> p.prefix.length()).reversed());
+        this.prefixes = Collections.unmodifiableList(list);
+    }
+
+    /**
+     * @return block size used for paths that don't match any prefix
+     */
+    public long getDefaultBlockSize() {
+        return defaultBlockSize;
+    }
+
+    /**
+     * Finds the block size for a Manta path.
+     *
+     * @param mantaPath path to find the block size of
+     * @return block size of the most specific matching prefix or the default block size
+     */
+    public long blockSizeFor(final String mantaPath) {
+        for (PrefixBlockSize p : prefixes) {
+            if (p.matches(mantaPath)) {
+                return p.blockSize;
+            }
+        }
+
+        return defaultBlockSize;
+    }
+
+    /**
+     * Finds the block size shared by all direct children of a directory, so
+     * that it can be looked up once per listing rather than once per entry.
+     *
+     * @param mantaDirectory directory whose children are being listed
+     * @return block size of every child or -1 if a prefix below the
+     *         directory makes the block size vary between children
+     */
+    public long blockSizeForChildrenOf(final String mantaDirectory) {
+        final String dir = StringUtils.stripEnd(mantaDirectory, SEPARATOR);
+        final String childPrefix = dir + SEPARATOR;
+
+        for (PrefixBlockSize p : prefixes) {
+            if (p.prefix.startsWith(childPrefix)) {
+                return -1L;
+            }
+        }
+
+        return blockSizeFor(childPrefix);
+    }
+
+    /**
+     * Normalizes a configured prefix by substituting the home directory alias
+     * and removing trailing separators.
+     *
+     * @param rawPrefix prefix as configured
+     * @param homeDirectory Manta home directory
+     * @return normalized prefix
+     */
+    private static String normalize(final String rawPrefix, final String homeDirectory) {
+        String prefix = rawPrefix.trim();
+
+        if (!prefix.startsWith(SEPARATOR)) {
+            prefix = SEPARATOR + prefix;
+        }
+
+        if (prefix.equals(HOME_ALIAS_PREFIX) || prefix.startsWith(HOME_ALIAS_PREFIX + SEPARATOR)) {
+            prefix = homeDirectory + prefix.substring(HOME_ALIAS_PREFIX.length());
+        }
+
+        final String stripped = StringUtils.stripEnd(prefix, SEPARATOR);
+
+        if (stripped.isEmpty()) {
+            return SEPARATOR;
+        }
+
+        return stripped;
+    }
+
+    /**
+     * Block size override for a single path prefix.
+     */
+    private static final class PrefixBlockSize {
+        /**
+         * Normalized path prefix without trailing separator.
+         */
+        private final String prefix;
+
+        /**
+         * Block size for paths below the prefix.
+         */
+        private final long blockSize;
+
+        /**
+         * Creates a new override.
+         *
+         * @param prefix normalized path prefix
+         * @param blockSize block size for paths below the prefix
+         */
+        PrefixBlockSize(final String prefix, final long blockSize) {
+            this.prefix = prefix;
+            this.blockSize = blockSize;
+        }
+
+        /**
+         * Checks whether a path is the prefix or is below it. Only whole path
+         * components are matched.
+         *
+         * @param mantaPath path to check
+         * @return true if the prefix applies to the path
+         */
+        boolean matches(final String mantaPath) {
+            if (!mantaPath.startsWith(prefix)) {
+                return false;
+            }
+
+            return prefix.equals(SEPARATOR)
+                    || mantaPath.length() == prefix.length()
+                    || mantaPath.charAt(prefix.length()) == SEPARATOR.charAt(0);
+        }
+    }
+}
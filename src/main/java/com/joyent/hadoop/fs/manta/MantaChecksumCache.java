@@ -0,0 +1,259 @@
+package com.joyent.hadoop.fs.manta;
+
+import com.google.common.base.Preconditions;
+import org.apache.commons.codec.DecoderException;
+import org.apache.commons.codec.binary.Hex;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.StandardCopyOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Cache of range checksums keyed by path, etag and range length. Manta
+ * objects are immutable and every write of an object gives it a new etag,
+ * so a checksum stays valid for as long as the object it was computed from
+ * has the same etag.
+ *
+ * <p>The most recently used checksums are kept in memory. When a file is
+ * configured, every computed checksum is also appended to it as a line of
+ * the form <code>md5 TAB length TAB etag TAB path</code> so that later
+ * processes start with the checksums of earlier ones. The file is read
+ * when the cache is first used and rewritten with only the entries in
+ * memory whenever it holds many more lines than that, so that it doesn't
+ * grow without bound in a long running process.</p>
+ */
+final class MantaChecksumCache {
+    /**
+     * Logger instance.
+     */
+    private static final Logger LOG = LoggerFactory.getLogger(MantaChecksumCache.class);
+
+    /**
+     * Separator of the fields of a line of the file.
+     */
+    private static final char SEPARATOR = '\t';
+
+    /**
+     * Number of fields of a key.
+     */
+    private static final int KEY_FIELDS = 3;
+
+    /**
+     * Ratio of lines in the file to entries in memory above which the file
+     * is rewritten.
+     */
+    private static final int COMPACTION_RATIO = 2;
+
+    /**
+     * Initial capacity of the map of entries.
+     */
+    private static final int INITIAL_CAPACITY = 16;
+
+    /**
+     * Load factor of the map of entries.
+     */
+    private static final float LOAD_FACTOR = 0.75f;
+
+    /**
+     * Maximum number of entries kept in memory.
+     */
+    private final int maxEntries;
+
+    /**
+     * File checksums are persisted to, null if they are only kept in memory.
+     */
+    private File file;
+
+    /**
+     * Checksums by key in least recently used order.
+     */
+    private final Map<String, MantaChecksum> entries;
+
+    /**
+     * Flag indicating that the file was read.
+     */
+    private boolean loaded;
+
+    /**
+     * Number of lines in the file, not counting lines appended by other
+     * processes since it was read.
+     */
+    private long lines;
+
+    /**
+     * Creates a new instance.
+     *
+     * @param maxEntries maximum number of entries kept in memory, zero disables the cache
+     * @param file file checksums are persisted to, null if they are only kept in memory
+     */
+    MantaChecksumCache(final int maxEntries, final File file) {
+        Preconditions.checkArgument(maxEntries >= 0, "Maximum entries must not be negative");
+
+        this.maxEntries = maxEntries;
+        this.file = file;
+        this.entries = new LinkedHashMap<String, MantaChecksum>(INITIAL_CAPACITY, LOAD_FACTOR, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<String, MantaChecksum> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Looks up the checksum of a range of an object.
+     *
+     * @param mantaPath absolute Manta path of the object
+     * @param etag etag of the object
+     * @param length length of the range from the start of the object
+     * @return cached checksum, or null if there is none
+     */
+    synchronized MantaChecksum get(final String mantaPath, final String etag, final long length) {
+        if (!isCacheable(mantaPath, etag)) {
+            return null;
+        }
+
+        load();
+
+        return entries.get(key(mantaPath, etag, length));
+    }
+
+    /**
+     * Caches the checksum of a range of an object.
+     *
+     * @param mantaPath absolute Manta path of the object
+     * @param etag etag of the object
+     * @param length length of the range from the start of the object
+     * @param checksum checksum of the range
+     */
+    synchronized void put(final String mantaPath, final String etag, final long length,
+                          final MantaChecksum checksum) {
+        if (!isCacheable(mantaPath, etag)) {
+            return;
+        }
+
+        load();
+
+        final String key = key(mantaPath, etag, length);
+        entries.put(key, checksum);
+
+        if (file == null) {
+            return;
+        }
+
+        final String line = Hex.encodeHexString(checksum.getBytes()) + SEPARATOR + key + '\n';
+
+        // A single write keeps lines appended by concurrent processes whole
+        try (OutputStream out = new FileOutputStream(file, true)) {
+            out.write(line.getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            LOG.warn("Unable to persist checksums to {}, caching them in memory only", file, e);
+            file = null;
+            return;
+        }
+
+        lines++;
+        compactIfNeeded();
+    }
+
+    /**
+     * @param mantaPath absolute Manta path of the object
+     * @param etag etag of the object
+     * @return true if the checksums of the object can be cached
+     */
+    private boolean isCacheable(final String mantaPath, final String etag) {
+        return maxEntries > 0 && etag != null
+                && etag.indexOf(SEPARATOR) < 0 && mantaPath.indexOf('\n') < 0;
+    }
+
+    /**
+     * @param mantaPath absolute Manta path of the object
+     * @param etag etag of the object
+     * @param length length of the range from the start of the object
+     * @return key of the checksum, which is also the end of its line in the file
+     */
+    private static String key(final String mantaPath, final String etag, final long length) {
+        return Long.toString(length) + SEPARATOR + etag + SEPARATOR + mantaPath;
+    }
+
+    /**
+     * Reads the file the first time the cache is used, compacting it when
+     * it holds many more lines than entries kept in memory.
+     */
+    private void load() {
+        if (loaded || file == null) {
+            return;
+        }
+
+        loaded = true;
+
+        try (BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+            String line;
+
+            while ((line = reader.readLine()) != null) {
+                lines++;
+                final int separator = line.indexOf(SEPARATOR);
+                final String key = line.substring(separator + 1);
+                final String[] fields = key.split(String.valueOf(SEPARATOR), KEY_FIELDS);
+
+                try {
+                    Preconditions.checkArgument(separator > 0 && fields.length == KEY_FIELDS);
+                    Long.parseLong(fields[0]);
+                    entries.put(key, new MantaChecksum(line.substring(0, separator)));
+                } catch (DecoderException | IllegalArgumentException e) {
+                    LOG.debug("Skipping malformed checksum in {}: {}", file, line);
+                }
+            }
+        } catch (FileNotFoundException | NoSuchFileException e) {
+            return;
+        } catch (IOException e) {
+            LOG.warn("Unable to read checksums from {}, caching them in memory only", file, e);
+            file = null;
+            return;
+        }
+
+        LOG.debug("Loaded {} checksums from {} lines of {}", entries.size(), lines, file);
+
+        compactIfNeeded();
+    }
+
+    /**
+     * Replaces the file with one holding only the entries in memory once it
+     * holds many more lines than that.
+     */
+    private void compactIfNeeded() {
+        if (lines <= (long) maxEntries * COMPACTION_RATIO) {
+            return;
+        }
+
+        final File compacted = new File(file.getPath() + ".tmp");
+
+        try {
+            try (Writer writer = Files.newBufferedWriter(compacted.toPath(), StandardCharsets.UTF_8)) {
+                for (Map.Entry<String, MantaChecksum> entry : entries.entrySet()) {
+                    writer.write(Hex.encodeHexString(entry.getValue().getBytes()) + SEPARATOR
+                            + entry.getKey() + '\n');
+                }
+            }
+
+            Files.move(compacted.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+            lines = entries.size();
+        } catch (IOException e) {
+            LOG.warn("Unable to compact checksums in {}", file, e);
+        }
+    }
+}
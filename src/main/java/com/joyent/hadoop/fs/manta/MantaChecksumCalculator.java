@@ -0,0 +1,204 @@
+package com.joyent.hadoop.fs.manta;
+
+import com.google.common.base.Preconditions;
+import com.joyent.manta.client.MantaObject;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.io.input.BoundedInputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Calculates the MD5 of ranges at the start of files. Small files are
+ * downloaded and hashed locally while large files are hashed remotely by a
+ * job, and calculated checksums are cached by the etag of the file.
+ */
+final class MantaChecksumCalculator {
+    /**
+     * Logger instance.
+     */
+    private static final Logger LOG = LoggerFactory.getLogger(MantaChecksumCalculator.class);
+
+    /**
+     * Lanes that small files are downloaded in.
+     */
+    private final MantaRequestLanes lanes;
+
+    /**
+     * Requests used to check if a file was replaced while its checksum was
+     * calculated remotely.
+     */
+    private final MantaMetadataRequests requests;
+
+    /**
+     * Executor that runs the checksum jobs of large files.
+     */
+    private final MantaJobExecutor executor;
+
+    /**
+     * Cache of calculated checksums.
+     */
+    private final MantaChecksumCache cache;
+
+    /**
+     * Creates a new instance.
+     *
+     * @param lanes lanes that small files are downloaded in
+     * @param requests requests used to check if a file was replaced while checksummed remotely
+     * @param executor executor that runs the checksum jobs of large files
+     * @param cache cache of calculated checksums
+     */
+    MantaChecksumCalculator(final MantaRequestLanes lanes, final MantaMetadataRequests requests,
+                            final MantaJobExecutor executor, final MantaChecksumCache cache) {
+        this.lanes = Preconditions.checkNotNull(lanes, "Lanes must not be null");
+        this.requests = Preconditions.checkNotNull(requests, "Requests must not be null");
+        this.executor = Preconditions.checkNotNull(executor, "Job executor must not be null");
+        this.cache = Preconditions.checkNotNull(cache, "Checksum cache must not be null");
+    }
+
+    /**
+     * Creates the cache of range checksums.
+     *
+     * @param hadoopContext Hadoop specific configuration
+     * @return new checksum cache
+     */
+    static MantaChecksumCache newCache(final HadoopConfigurationContext hadoopContext) {
+        final String file = hadoopContext.getChecksumCacheFile();
+
+        if (file == null) {
+            return new MantaChecksumCache(hadoopContext.getChecksumCacheEntries(), null);
+        }
+
+        return new MantaChecksumCache(hadoopContext.getChecksumCacheEntries(), new File(file));
+    }
+
+    /**
+     * @param jobExecutor executor that runs the checksum jobs of large files
+     * @return calculator with the same lanes and cache using another executor
+     */
+    MantaChecksumCalculator withExecutor(final MantaJobExecutor jobExecutor) {
+        return new MantaChecksumCalculator(lanes, requests, jobExecutor, cache);
+    }
+
+    /**
+     * Gets the checksum of a range of a file from the cache, or calculates it.
+     * A calculated checksum is only cached when the file that was read has
+     * the etag of the HEAD, since the file may have been replaced in between.
+     *
+     * @param file response of a HEAD of the file
+     * @param length The length of the file range for checksum calculation
+     * @return the checksum of an arbitrary amount of bytes from the start of a file
+     * @throws IOException thrown when unable to compute the checksum
+     */
+    MantaChecksum checksum(final MantaObject file, final long length) throws IOException {
+        final String mantaPath = file.getPath();
+        final MantaChecksum cached = cache.get(mantaPath, file.getEtag(), length);
+
+        if (cached != null) {
+            LOG.debug("Using cached checksum for file {}", mantaPath);
+            return cached;
+        }
+
+        if (file.getContentLength() > MantaFileSystem.DEFAULT_THRESHOLD_FOR_REMOTE_CHECKSUM_CALC) {
+            final MantaChecksum checksum = remotely(mantaPath, length);
+            // Objects are immutable, so an unchanged etag means the job read the same object
+            cacheIfUnchanged(file, length, checksum, requests.head(mantaPath).getEtag());
+            return checksum;
+        }
+
+        LOG.debug("Calculating checksum for file {} locally by downloading all content",
+                mantaPath);
+
+        return lanes.download(mantaPath, in -> {
+            final MantaChecksum checksum = digest(in, length);
+            cacheIfUnchanged(file, length, checksum, in.getEtag());
+            return checksum;
+        });
+    }
+
+    /**
+     * Caches a calculated checksum if the file that was read is the file
+     * whose checksum was asked for.
+     *
+     * @param file response of the HEAD of the file the checksum was asked for
+     * @param length length of the file range of the checksum
+     * @param checksum calculated checksum
+     * @param readEtag etag of the file that was read
+     */
+    private void cacheIfUnchanged(final MantaObject file, final long length,
+                                  final MantaChecksum checksum, final String readEtag) {
+        if (Objects.equals(file.getEtag(), readEtag)) {
+            cache.put(file.getPath(), file.getEtag(), length, checksum);
+        } else {
+            LOG.debug("Not caching checksum of {} because it was replaced while reading it",
+                    file.getPath());
+        }
+    }
+
+    /**
+     * @param in content of a file
+     * @param length length of the file range for checksum calculation
+     * @return checksum of the range
+     * @throws IOException thrown when the content can't be read
+     */
+    private static MantaChecksum digest(final InputStream in, final long length) throws IOException {
+        try (BoundedInputStream bin = new BoundedInputStream(in, length)) {
+            return new MantaChecksum(DigestUtils.md5(bin));
+        }
+    }
+
+    /**
+     * Get the checksum of a file, from the beginning of the file till the
+     * specific length. Warning this operation is slow because we have to
+     * download the entire file in order to calculate the checksum.
+     *
+     * @param mantaPath The file path
+     * @param length The length of the file range for checksum calculation
+     * @return the checksum of an arbitrary amount of bytes from the start of a file
+     * @throws IOException thrown when unable to compute the checksum
+     */
+    MantaChecksum locally(final String mantaPath, final long length) throws IOException {
+        LOG.debug("Calculating checksum for file {} locally by downloading all content",
+                mantaPath);
+
+        return lanes.download(mantaPath, in -> digest(in, length));
+    }
+
+    /**
+     * Get the checksum of a file, from the beginning of the file till the
+     * specific length. Warning this operation is slow because we have to
+     * execute a remote job in order to perform it.
+     *
+     * @param mantaPath The file path
+     * @param length The length of the file range for checksum calculation
+     * @return the checksum of an arbitrary amount of bytes from the start of a file
+     * @throws IOException thrown when unable to compute the checksum
+     */
+    MantaChecksum remotely(final String mantaPath, final long length) throws IOException {
+        LOG.debug("Calculating checksum for file {} remotely using Manta job",
+                mantaPath);
+
+        return remotely(Collections.singletonList(mantaPath), length).get(mantaPath);
+    }
+
+    /**
+     * Get the checksums of many files, from the beginning of each file till
+     * the specific length, with a single remote job.
+     *
+     * @param mantaPaths The file paths
+     * @param length The length of the file range for checksum calculation
+     * @return the checksum of each distinct path in the iteration order of the paths
+     * @throws IOException thrown when the job fails or can't checksum every file
+     */
+    Map<String, MantaChecksum> remotely(final Collection<String> mantaPaths, final long length)
+            throws IOException {
+        return new MantaChecksumJob(executor).run(mantaPaths, length);
+    }
+}
@@ -0,0 +1,139 @@
+package com.joyent.hadoop.fs.manta;
+
+import com.google.common.base.Preconditions;
+import com.joyent.manta.client.jobs.MantaJobPhase;
+import org.apache.commons.codec.DecoderException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Computes the MD5 of the start of many objects with a single job. Each
+ * input is hashed by a map task that prints the MD5 followed by the path of
+ * the input, and a single reduce task concatenates those lines so that all
+ * checksums are read back from one output.
+ */
+final class MantaChecksumJob {
+    /**
+     * Logger instance.
+     */
+    private static final Logger LOG = LoggerFactory.getLogger(MantaChecksumJob.class);
+
+    /**
+     * Command of the map phase, formatted with the number of bytes to hash.
+     */
+    private static final String MAP_EXEC = "printf '%%s %%s\\n' "
+            + "\"$(head -c %d | md5sum -b | cut -d' ' -f1)\" \"$MANTA_INPUT_OBJECT\"";
+
+    /**
+     * Command of the reduce phase.
+     */
+    private static final String REDUCE_EXEC = "cat";
+
+    /**
+     * Executor that runs the jobs.
+     */
+    private final MantaJobExecutor executor;
+
+    /**
+     * Creates a new instance.
+     *
+     * @param executor executor that runs the jobs
+     */
+    MantaChecksumJob(final MantaJobExecutor executor) {
+        this.executor = Preconditions.checkNotNull(executor, "Job executor must not be null");
+    }
+
+    /**
+     * Computes the MD5 of the start of objects.
+     *
+     * @param mantaPaths absolute Manta paths of the objects
+     * @param length number of bytes to hash from the start of each object
+     * @return checksum of each distinct path in the iteration order of the paths
+     * @throws IOException thrown when the job fails or doesn't output a checksum for every object
+     */
+    Map<String, MantaChecksum> run(final Collection<String> mantaPaths, final long length)
+            throws IOException {
+        Preconditions.checkArgument(length >= 0,
+                "File range length must be greater than or equal to zero");
+
+        final List<String> inputs = new ArrayList<>(new LinkedHashSet<>(mantaPaths));
+        final Map<String, MantaChecksum> checksums = new LinkedHashMap<>(inputs.size());
+
+        if (inputs.isEmpty()) {
+            return checksums;
+        }
+
+        final String name = String.format("hadoop-range-checksum-%s", UUID.randomUUID());
+        final List<MantaJobPhase> phases = Arrays.asList(
+                new MantaJobPhase().setType("map").setExec(String.format(MAP_EXEC, length)),
+                new MantaJobPhase().setType("reduce").setExec(REDUCE_EXEC));
+
+        LOG.debug("Calculating checksums of {} files remotely using Manta job {}",
+                inputs.size(), name);
+
+        final Map<String, MantaChecksum> outputted = new LinkedHashMap<>(inputs.size());
+
+        for (String output : executor.run(name, inputs, phases)) {
+            for (String line : output.split("\n")) {
+                parse(name, line, outputted);
+            }
+        }
+
+        for (String input : inputs) {
+            final MantaChecksum checksum = outputted.get(input);
+
+            if (checksum == null) {
+                String msg = String.format("No md5 outputted for [%s] from calculation job [%s]",
+                        input, name);
+                throw new IOException(msg);
+            }
+
+            checksums.put(input, checksum);
+        }
+
+        return checksums;
+    }
+
+    /**
+     * Parses a line of output into a checksum.
+     *
+     * @param name name of the job
+     * @param line line of the form <code>md5 path</code>
+     * @param checksums checksums by path that the parsed checksum is added to
+     * @throws IOException thrown when the line can't be parsed
+     */
+    private static void parse(final String name, final String line,
+                              final Map<String, MantaChecksum> checksums) throws IOException {
+        if (line.isEmpty()) {
+            return;
+        }
+
+        final int separator = line.indexOf(' ');
+
+        if (separator < 0) {
+            String msg = String.format("Unexpected output from calculation job [%s]: %s",
+                    name, line);
+            throw new IOException(msg);
+        }
+
+        final String hexString = line.substring(0, separator);
+
+        try {
+            checksums.put(line.substring(separator + 1), new MantaChecksum(hexString));
+        } catch (DecoderException | IllegalArgumentException e) {
+            String msg = String.format("Unable to decode hex string as md5: %s",
+                    hexString);
+            throw new IOException(msg, e);
+        }
+    }
+}
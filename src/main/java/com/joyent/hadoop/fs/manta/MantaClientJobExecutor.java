@@ -0,0 +1,80 @@
+package com.joyent.hadoop.fs.manta;
+
+import com.google.common.base.Preconditions;
+import com.joyent.manta.client.MantaClient;
+import com.joyent.manta.client.jobs.MantaJobBuilder;
+import com.joyent.manta.client.jobs.MantaJobPhase;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * {@link MantaJobExecutor} that runs jobs remotely with Manta compute.
+ */
+final class MantaClientJobExecutor implements MantaJobExecutor {
+    /**
+     * Logger instance.
+     */
+    private static final Logger LOG = LoggerFactory.getLogger(MantaClientJobExecutor.class);
+
+    /**
+     * Manta client used to create and poll jobs.
+     */
+    private final MantaClient client;
+
+    /**
+     * Creates a new instance.
+     *
+     * @param client Manta client used to create and poll jobs
+     */
+    MantaClientJobExecutor(final MantaClient client) {
+        this.client = Preconditions.checkNotNull(client, "Manta client must not be null");
+    }
+
+    @Override
+    public List<String> run(final String name, final List<String> inputs,
+                            final List<MantaJobPhase> phases) throws IOException {
+        final MantaJobBuilder.Done finishedJob = start(name, inputs, phases).waitUntilDone()
+                .validateJobsSucceeded();
+
+        try (Stream<String> outputs = finishedJob.outputs()) {
+            return outputs.collect(Collectors.toList());
+        }
+    }
+
+    @Override
+    public List<String> runToObjects(final String name, final List<String> inputs,
+                                     final List<MantaJobPhase> phases) throws IOException {
+        final MantaJobBuilder.Run runningJob = start(name, inputs, phases);
+        runningJob.waitUntilDone().validateJobsSucceeded();
+
+        try (Stream<String> outputs = client.getJobOutputs(runningJob.getId())) {
+            return outputs.collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * Starts a job.
+     *
+     * @param name name of the job
+     * @param inputs absolute Manta paths of the objects the job reads
+     * @param phases phases of the job in the order they run
+     * @return running job
+     * @throws IOException thrown when the job can't be created
+     */
+    private MantaJobBuilder.Run start(final String name, final List<String> inputs,
+                                      final List<MantaJobPhase> phases) throws IOException {
+        final MantaJobBuilder.Run runningJob = client.jobBuilder().newJob(name)
+                .addInputs(inputs)
+                .addPhases(phases)
+                .run();
+
+        LOG.debug("Started job {} [{}] with {} inputs", name, runningJob.getId(), inputs.size());
+
+        return runningJob;
+    }
+}
@@ -0,0 +1,485 @@
+package com.joyent.hadoop.fs.manta;
+
+import com.google.common.base.Preconditions;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
+import com.joyent.manta.exception.MantaClientHttpResponseException;
+import org.apache.commons.io.FilenameUtils;
+import org.apache.hadoop.classification.InterfaceAudience;
+import org.apache.hadoop.fs.FileAlreadyExistsException;
+import org.apache.hadoop.fs.LocatedFileStatus;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.fs.RemoteIterator;
+import org.apache.http.HttpStatus;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.Set;
+
+import static com.joyent.manta.client.MantaClient.SEPARATOR;
+
+/**
+ * Commits the output of a job written to Manta without moving any data.
+ * This implements the steps of an output committer so that a MapReduce
+ * <code>OutputCommitter</code> or a Spark commit protocol can delegate to it:
+ *
+ * <ul>
+ *     <li>Task attempts write their files below their own staging directory,
+ *         returned by {@link #getTaskAttemptPath(String)}.</li>
+ *     <li>Committing a task lists its attempt directory and stores the
+ *         relative paths of its files in a manifest object named after the
+ *         task. The last committed attempt of a task wins.</li>
+ *     <li>Committing the job reads all manifests and snaplinks every file
+ *         into the output directory in parallel. Snaplinks are metadata
+ *         only, so the cost of a job commit depends on the number of files
+ *         and not on their size.</li>
+ *     <li>Finally a <code>_SUCCESS</code> marker listing the committed files
+ *         is written and the staging tree is deleted in parallel.</li>
+ * </ul>
+ *
+ * <p>Staging data is kept below <code>_temporary/&lt;job id&gt;</code> of the
+ * output directory, which Hadoop input formats skip as a hidden path. Like
+ * with <code>FileOutputCommitter</code>, a job can't be committed to an
+ * output directory that already holds anything else unless the protocol
+ * was created to overwrite it, in which case committed files replace
+ * existing files of the same name. {@link MantaOutputCommitter} adapts the
+ * protocol to MapReduce.</p>
+ */
+@InterfaceAudience.Public
+public class MantaCommitProtocol {
+    /**
+     * Logger instance.
+     */
+    private static final Logger LOG = LoggerFactory.getLogger(MantaCommitProtocol.class);
+
+    /**
+     * Name of the directory below the output that holds staging data.
+     */
+    public static final String TEMPORARY_DIR = "_temporary";
+
+    /**
+     * Name of the marker written to the output once the job is committed.
+     */
+    public static final String SUCCESS_MARKER = "_SUCCESS";
+
+    /**
+     * Name of the directory below the job staging directory that holds
+     * the manifests of committed tasks.
+     */
+    static final String MANIFESTS_DIR = "_manifests";
+
+    /**
+     * Serializer for manifests. Hive style partition directories contain
+     * <code>=</code>, so HTML escaping is disabled to keep paths readable.
+     */
+    private static final Gson GSON = new GsonBuilder().disableHtmlEscaping().create();
+
+    /**
+     * Filesystem the output is written to.
+     */
+    private final MantaFileSystem fs;
+
+    /**
+     * Requests of the filesystem.
+     */
+    private final MantaMetadataRequests requests;
+
+    /**
+     * Output directory of the job as a Manta path.
+     */
+    private final String output;
+
+    /**
+     * Staging directory of the job as a Manta path.
+     */
+    private final String jobStaging;
+
+    /**
+     * True if the job may be committed to an output that already holds files.
+     */
+    private final boolean overwrite;
+
+    /**
+     * Creates a new instance for a single job that fails to commit to an
+     * output directory holding files.
+     *
+     * @param fs filesystem the output is written to
+     * @param outputPath output directory of the job
+     * @param jobId unique identifier of the job
+     */
+    public MantaCommitProtocol(final MantaFileSystem fs, final Path outputPath,
+                               final String jobId) {
+        this(fs, outputPath, jobId, false);
+    }
+
+    /**
+     * Creates a new instance for a single job.
+     *
+     * @param fs filesystem the output is written to
+     * @param outputPath output directory of the job
+     * @param jobId unique identifier of the job
+     * @param overwrite true to commit even if the output directory already holds files
+     */
+    public MantaCommitProtocol(final MantaFileSystem fs, final Path outputPath,
+                               final String jobId, final boolean overwrite) {
+        Preconditions.checkNotNull(outputPath, "Output path must not be null");
+        Preconditions.checkArgument(isValidName(jobId), "Invalid job id: %s", jobId);
+
+        this.fs = Preconditions.checkNotNull(fs, "Filesystem must not be null");
+        this.requests = fs.getMetadataRequests();
+        this.output = fs.mantaPath(outputPath);
+        this.jobStaging = output + SEPARATOR + TEMPORARY_DIR + SEPARATOR + jobId;
+        this.overwrite = overwrite;
+    }
+
+    /**
+     * @return staging directory of the job
+     */
+    public Path getJobStagingPath() {
+        return new Path(jobStaging);
+    }
+
+    /**
+     * @param attemptId unique identifier of a task attempt
+     * @return directory that the task attempt writes its files to
+     */
+    public Path getTaskAttemptPath(final String attemptId) {
+        Preconditions.checkArgument(isValidName(attemptId), "Invalid attempt id: %s", attemptId);
+        return new Path(jobStaging + SEPARATOR + attemptId);
+    }
+
+    /**
+     * Creates the staging directories of the job.
+     *
+     * @throws IOException thrown when the directories can't be created
+     */
+    public void setupJob() throws IOException {
+        requests.putDirectory(jobStaging + SEPARATOR + MANIFESTS_DIR, true);
+    }
+
+    /**
+     * Creates the staging directory of a task attempt.
+     *
+     * @param attemptId unique identifier of the task attempt
+     * @throws IOException thrown when the directory can't be created
+     */
+    public void setupTask(final String attemptId) throws IOException {
+        requests.putDirectory(fs.mantaPath(getTaskAttemptPath(attemptId)), true);
+    }
+
+    /**
+     * Commits a task attempt by recording the files it wrote in the manifest
+     * of its task. No data is moved.
+     *
+     * @param taskId identifier of the task, shared by all of its attempts
+     * @param attemptId unique identifier of the task attempt
+     * @return number of files committed
+     * @throws IOException thrown when the attempt can't be listed or the
+     *                     manifest can't be written
+     */
+    public int commitTask(final String taskId, final String attemptId) throws IOException {
+        Preconditions.checkArgument(isValidName(taskId), "Invalid task id: %s", taskId);
+
+        final Path attemptPath = getTaskAttemptPath(attemptId);
+        final String prefix = fs.mantaPath(attemptPath) + SEPARATOR;
+        final List<String> files = new ArrayList<>();
+
+        try {
+            final RemoteIterator<LocatedFileStatus> itr = fs.listFiles(attemptPath, true);
+
+            while (itr.hasNext()) {
+                final String path = fs.mantaPath(itr.next().getPath());
+                files.add(path.substring(prefix.length()));
+            }
+        } catch (FileNotFoundException e) {
+            LOG.debug("Task attempt [{}] didn't write any files", attemptId);
+        }
+
+        final Manifest manifest = new Manifest(attemptId, files);
+        put(manifestPath(taskId), GSON.toJson(manifest));
+
+        LOG.debug("Committed {} files of task attempt [{}]", files.size(), attemptId);
+
+        return files.size();
+    }
+
+    /**
+     * Discards the files written by a task attempt.
+     *
+     * @param attemptId unique identifier of the task attempt
+     * @throws IOException thrown when the files can't be deleted
+     */
+    public void abortTask(final String attemptId) throws IOException {
+        fs.delete(getTaskAttemptPath(attemptId), true);
+    }
+
+    /**
+     * Commits the job by snaplinking the files of every committed task into
+     * the output directory, writing the success marker and deleting the
+     * staging tree.
+     *
+     * @return number of files committed
+     * @throws FileAlreadyExistsException thrown when the output directory
+     *                                    already holds files and the protocol
+     *                                    doesn't overwrite them
+     * @throws IOException thrown when a manifest can't be read or a file
+     *                     can't be linked, the staging tree is kept so that
+     *                     the commit can be retried by a protocol that
+     *                     overwrites the output
+     */
+    public int commitJob() throws IOException {
+        if (!overwrite) {
+            checkOutputIsEmpty();
+        }
+
+        final Map<String, String> links = new TreeMap<>();
+
+        for (Manifest manifest : readManifests()) {
+            final String attempt = jobStaging + SEPARATOR + manifest.attempt + SEPARATOR;
+
+            for (String file : manifest.files) {
+                if (links.put(file, attempt + file) != null) {
+                    throw new IOException("More than one task committed " + file);
+                }
+            }
+        }
+
+        final List<Path> destinations = new ArrayList<>(links.size());
+
+        for (String file : links.keySet()) {
+            destinations.add(new Path(output + SEPARATOR + file));
+        }
+
+        createParentDirectories(destinations);
+
+        throwFirstFailure(MantaBatch.run(fs.getWorkers(), destinations, path -> {
+            final String destination = path.toUri().getPath();
+            requests.putSnapLink(destination, links.get(destination.substring(output.length() + 1)),
+                    null);
+            return null;
+        }));
+
+        final Manifest success = new Manifest(null, new ArrayList<>(links.keySet()));
+        put(output + SEPARATOR + SUCCESS_MARKER, GSON.toJson(success));
+
+        abortJob();
+
+        LOG.info("Committed {} files to [{}]", links.size(), output);
+
+        return links.size();
+    }
+
+    /**
+     * Discards all files written by the job.
+     *
+     * @throws IOException thrown when the staging tree can't be deleted
+     */
+    public void abortJob() throws IOException {
+        fs.delete(new Path(jobStaging), true);
+
+        // Remove the shared temporary directory once no other job is using it
+        try {
+            requests.delete(output + SEPARATOR + TEMPORARY_DIR);
+        } catch (MantaClientHttpResponseException e) {
+            LOG.trace("Kept temporary directory of [{}]: {}", output, e.getMessage());
+        }
+    }
+
+    /**
+     * Checks that the output directory holds nothing but staging data.
+     *
+     * @throws FileAlreadyExistsException thrown when the output holds any other entry
+     * @throws IOException thrown when the output can't be listed
+     */
+    private void checkOutputIsEmpty() throws IOException {
+        try (MantaDirectoryListing itr = requests.list(output, MantaTreeWalker.LISTING_PAGE_SIZE)) {
+            while (itr.hasNext()) {
+                final Object name = itr.next().get("name");
+
+                if (!TEMPORARY_DIR.equals(name)) {
+                    throw new FileAlreadyExistsException(String.format(
+                            "Output directory %s already holds %s", output, name));
+                }
+            }
+        } catch (UncheckedIOException e) {
+            if (!isNotFound(e.getCause())) {
+                throw e.getCause();
+            }
+        }
+    }
+
+    /**
+     * @param taskId identifier of a task
+     * @return path of the manifest of the task
+     */
+    private String manifestPath(final String taskId) {
+        return jobStaging + SEPARATOR + MANIFESTS_DIR + SEPARATOR + taskId;
+    }
+
+    /**
+     * Writes a small JSON document.
+     *
+     * @param path path of the document
+     * @param json content of the document
+     * @throws IOException thrown when the document can't be written
+     */
+    private void put(final String path, final String json) throws IOException {
+        requests.call("write of [" + path + "]", () -> requests.getClient().put(path, json));
+    }
+
+    /**
+     * Reads the manifests of all committed tasks concurrently.
+     *
+     * @return manifests of the committed tasks
+     * @throws IOException thrown when a manifest can't be read
+     */
+    private List<Manifest> readManifests() throws IOException {
+        final String manifestsDir = jobStaging + SEPARATOR + MANIFESTS_DIR;
+        final List<Path> paths = new ArrayList<>();
+
+        try (MantaDirectoryListing itr = requests.list(manifestsDir, MantaTreeWalker.LISTING_PAGE_SIZE)) {
+            while (itr.hasNext()) {
+                paths.add(new Path(manifestsDir + SEPARATOR + itr.next().get("name")));
+            }
+        } catch (UncheckedIOException e) {
+            if (!isNotFound(e.getCause())) {
+                throw e.getCause();
+            }
+
+            LOG.debug("No task of job staged in [{}] was committed", jobStaging);
+        }
+
+        final List<Manifest> manifests = new ArrayList<>(paths.size());
+
+        for (MantaBatchResult<Manifest> result : MantaBatch.run(fs.getWorkers(), paths,
+                path -> readManifest(path.toUri().getPath()))) {
+            manifests.add(result.get());
+        }
+
+        return manifests;
+    }
+
+    /**
+     * Reads a single manifest.
+     *
+     * @param path path of the manifest
+     * @return manifest
+     * @throws IOException thrown when the manifest can't be read or parsed
+     */
+    private Manifest readManifest(final String path) throws IOException {
+        final Manifest manifest;
+
+        try {
+            manifest = GSON.fromJson(requests.call("read of [" + path + "]",
+                    () -> requests.getClient().getAsString(path)), Manifest.class);
+        } catch (JsonParseException e) {
+            throw new IOException("Corrupt task manifest: " + path, e);
+        }
+
+        if (manifest == null || !isValidName(manifest.attempt) || manifest.files == null) {
+            throw new IOException("Corrupt task manifest: " + path);
+        }
+
+        return manifest;
+    }
+
+    /**
+     * Creates the parent directories of the committed files, creating each
+     * directory once and the directories of each level concurrently.
+     *
+     * @param files paths of the committed files in the output directory
+     * @throws IOException thrown when a directory can't be created
+     */
+    private void createParentDirectories(final Collection<Path> files) throws IOException {
+        final Set<String> dirs = new LinkedHashSet<>();
+        dirs.add(output);
+
+        for (Path file : files) {
+            dirs.add(FilenameUtils.getFullPathNoEndSeparator(file.toUri().getPath()));
+        }
+
+        throwFirstFailure(new MantaDirectoryCreator(requests, fs.getWorkers()).mkdirs(dirs));
+    }
+
+    /**
+     * Rethrows the first failure of a batch with the others suppressed.
+     *
+     * @param results results of the batch
+     * @throws IOException first failure of the batch
+     */
+    private static void throwFirstFailure(final List<? extends MantaBatchResult<?>> results)
+            throws IOException {
+        IOException first = null;
+
+        for (MantaBatchResult<?> result : results) {
+            if (result.isSuccess()) {
+                continue;
+            }
+
+            if (first == null) {
+                first = result.getError();
+            } else {
+                first.addSuppressed(result.getError());
+            }
+        }
+
+        if (first != null) {
+            throw first;
+        }
+    }
+
+    /**
+     * @param e error thrown by a request
+     * @return true if the error indicates that the path doesn't exist
+     */
+    private static boolean isNotFound(final IOException e) {
+        return e instanceof MantaClientHttpResponseException
+                && ((MantaClientHttpResponseException)e).getStatusCode() == HttpStatus.SC_NOT_FOUND;
+    }
+
+    /**
+     * @param name job, task or attempt identifier
+     * @return true if the identifier can be used as a single path component
+     */
+    private static boolean isValidName(final String name) {
+        return name != null && !name.isEmpty() && !name.contains(SEPARATOR)
+                && !name.equals(".") && !name.equals("..");
+    }
+
+    /**
+     * Files committed by a task attempt, or by the whole job for the
+     * success marker.
+     */
+    static final class Manifest {
+        /**
+         * Task attempt that wrote the files, null for the success marker.
+         */
+        private final String attempt;
+
+        /**
+         * Paths of the files relative to the attempt or output directory.
+         */
+        private final List<String> files;
+
+        /**
+         * Creates a new manifest.
+         *
+         * @param attempt task attempt that wrote the files
+         * @param files paths of the files relative to the attempt or output directory
+         */
+        Manifest(final String attempt, final List<String> files) {
+            this.attempt = attempt;
+            this.files = files;
+        }
+    }
+}
@@ -0,0 +1,206 @@
+package com.joyent.hadoop.fs.manta;
+
+import com.google.common.base.Preconditions;
+import org.apache.hadoop.fs.FileChecksum;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Composite CRC32C of a whole file, compatible with the
+ * <code>COMPOSITE-CRC32C</code> checksums HDFS returns when
+ * <code>dfs.checksum.combine.mode</code> is <code>COMPOSITE_CRC</code>.
+ * A composite CRC is the CRC32C of the content of the file, so it doesn't
+ * depend on the block or chunk sizes used to compute it and files can be
+ * compared across filesystems.
+ *
+ * <p>CRCs of consecutive ranges can be combined into the CRC of the
+ * concatenated ranges with {@link #combine(int, int, long)}, which lets
+ * the CRC of a file be computed one block at a time.</p>
+ */
+public class MantaCompositeCrc extends FileChecksum {
+    /**
+     * Plain-text name of checksum algorithm, as named by HDFS.
+     */
+    private static final String ALGO_NAME = "COMPOSITE-CRC32C";
+
+    /**
+     * Number of bytes in a CRC32C.
+     */
+    private static final int CRC_LENGTH = 4;
+
+    /**
+     * Number of bits in a CRC32C.
+     */
+    private static final int CRC_BITS = 32;
+
+    /**
+     * Reversed Castagnoli polynomial.
+     */
+    private static final int POLYNOMIAL = 0x82F63B78;
+
+    /**
+     * CRC32C value.
+     */
+    private int crc;
+
+    /**
+     * Creates a new checksum.
+     *
+     * @param crc CRC32C of the content of the file
+     */
+    public MantaCompositeCrc(final int crc) {
+        this.crc = crc;
+    }
+
+    /**
+     * @return CRC32C of the content of the file
+     */
+    public int getCrc() {
+        return crc;
+    }
+
+    /**
+     * Combines the CRCs of two consecutive ranges.
+     *
+     * @param crcA CRC32C of the first range
+     * @param crcB CRC32C of the second range
+     * @param lengthB number of bytes in the second range
+     * @return CRC32C of the first range followed by the second range
+     */
+    public static int combine(final int crcA, final int crcB, final long lengthB) {
+        Preconditions.checkArgument(lengthB >= 0, "Length must not be negative");
+
+        if (lengthB == 0) {
+            return crcA;
+        }
+
+        // Operators that append one, two, four and so on zero bits to a CRC,
+        // applied to the first CRC for each set bit of the byte length
+        final int[] even = new int[CRC_BITS];
+        final int[] odd = new int[CRC_BITS];
+
+        odd[0] = POLYNOMIAL;
+        int row = 1;
+
+        for (int n = 1; n < CRC_BITS; n++) {
+            odd[n] = row;
+            row <<= 1;
+        }
+
+        square(even, odd);
+        square(odd, even);
+
+        int crc = crcA;
+        long remaining = lengthB;
+
+        do {
+            square(even, odd);
+
+            if ((remaining & 1) != 0) {
+                crc = times(even, crc);
+            }
+
+            remaining >>>= 1;
+
+            if (remaining == 0) {
+                break;
+            }
+
+            square(odd, even);
+
+            if ((remaining & 1) != 0) {
+                crc = times(odd, crc);
+            }
+
+            remaining >>>= 1;
+        } while (remaining != 0);
+
+        return crc ^ crcB;
+    }
+
+    /**
+     * Multiplies a vector by a matrix over GF(2).
+     *
+     * @param matrix matrix with one row per bit of the vector
+     * @param vector vector
+     * @return product of the matrix and the vector
+     */
+    private static int times(final int[] matrix, final int vector) {
+        int sum = 0;
+        int remaining = vector;
+
+        for (int i = 0; remaining != 0; i++, remaining >>>= 1) {
+            if ((remaining & 1) != 0) {
+                sum ^= matrix[i];
+            }
+        }
+
+        return sum;
+    }
+
+    /**
+     * Squares a matrix over GF(2).
+     *
+     * @param square matrix the square is stored in
+     * @param matrix matrix to square
+     */
+    private static void square(final int[] square, final int[] matrix) {
+        for (int n = 0; n < CRC_BITS; n++) {
+            square[n] = times(matrix, matrix[n]);
+        }
+    }
+
+    /**
+     * The checksum algorithm name - COMPOSITE-CRC32C.
+     */
+    @Override
+    public String getAlgorithmName() {
+        return ALGO_NAME;
+    }
+
+    /**
+     * The length of the checksum in bytes - always 4.
+     */
+    @Override
+    public int getLength() {
+        return CRC_LENGTH;
+    }
+
+    /**
+     * The value of the CRC in big-endian bytes, like HDFS.
+     */
+    @Override
+    public byte[] getBytes() {
+        return ByteBuffer.allocate(CRC_LENGTH).putInt(crc).array();
+    }
+
+    /**
+     * Serialize the fields of this object to <code>out</code>.
+     *
+     * @param out <code>DataOuput</code> to serialize this object into.
+     * @throws IOException thrown when bytes can be written
+     */
+    @Override
+    public void write(final DataOutput out) throws IOException {
+        out.writeInt(crc);
+    }
+
+    /**
+     * Deserialize the fields of this object from <code>in</code>.
+     *
+     * @param in <code>DataInput</code> to deseriablize this object from.
+     * @throws IOException thrown when bytes can be read
+     */
+    @Override
+    public void readFields(final DataInput in) throws IOException {
+        this.crc = in.readInt();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s:0x%08x", ALGO_NAME, crc);
+    }
+}
@@ -0,0 +1,328 @@
+package com.joyent.hadoop.fs.manta;
+
+import com.google.common.base.Preconditions;
+import com.joyent.manta.exception.MantaClientHttpResponseException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Adapts the number of concurrent requests a {@link MantaFileSystem} sends
+ * to the load Manta accepts. The limit follows an additive increase,
+ * multiplicative decrease policy: a request that Manta throttles with a 503
+ * or 429 response halves the limit, and every request that completes while
+ * the limit is saturated raises it by the reciprocal of the limit, so that
+ * it grows by about one request per round trip. Only one decrease is applied
+ * per round trip, so a burst of throttled requests that were sent together
+ * halves the limit once.
+ *
+ * <p>Throttled requests are retried after a jittered exponential backoff
+ * once their permit has been released, so that the callers sharing the
+ * filesystem slow down together instead of retrying in lockstep. Callers
+ * that wait longer than the configured time for a permit are rejected.</p>
+ *
+ * <p>A limiter with a maximum of zero is disabled and runs requests
+ * directly.</p>
+ */
+public final class MantaConcurrencyLimiter {
+    /**
+     * Logger instance.
+     */
+    private static final Logger LOG = LoggerFactory.getLogger(MantaConcurrencyLimiter.class);
+
+    /**
+     * Factor the limit is multiplied with when a request is throttled.
+     */
+    private static final double DECREASE_FACTOR = 0.5;
+
+    /**
+     * Request that may fail with an {@link IOException}.
+     *
+     * @param <T> type of the result of the request
+     */
+    @FunctionalInterface
+    interface IOCallable<T> {
+        /**
+         * Sends the request.
+         *
+         * @return result of the request
+         * @throws IOException thrown when the request fails
+         */
+        T call() throws IOException;
+    }
+
+    /**
+     * Highest limit, 0 if the limiter is disabled.
+     */
+    private final int maxLimit;
+
+    /**
+     * Lowest limit.
+     */
+    private final int minLimit;
+
+    /**
+     * Number of times a throttled request is retried.
+     */
+    private final int retries;
+
+    /**
+     * Time in nanoseconds a caller waits for a permit before it is rejected.
+     */
+    private final long waitNanos;
+
+    /**
+     * Current limit, fractional so that it can grow by less than one.
+     */
+    private double limit;
+
+    /**
+     * Number of requests in flight.
+     */
+    private int inFlight;
+
+    /**
+     * Number of callers waiting for a permit.
+     */
+    private int waiting;
+
+    /**
+     * Incremented with every decrease, so that requests sent before the
+     * last decrease don't decrease the limit again.
+     */
+    private long epoch;
+
+    /**
+     * Lock guarding the limit and the counters of requests.
+     */
+    private final ReentrantLock lock = new ReentrantLock();
+
+    /**
+     * Condition signalled whenever a permit is released or the limit grows.
+     */
+    private final Condition released = lock.newCondition();
+
+    /**
+     * Number of requests that Manta throttled.
+     */
+    private final LongAdder throttled = new LongAdder();
+
+    /**
+     * Number of callers rejected because they waited too long for a permit.
+     */
+    private final LongAdder rejections = new LongAdder();
+
+    /**
+     * Number of throttled requests that were retried.
+     */
+    private final LongAdder retried = new LongAdder();
+
+    /**
+     * Creates a new instance.
+     *
+     * @param maxLimit highest and initial limit, 0 to disable the limiter
+     * @param minLimit lowest limit
+     * @param retries number of times a throttled request is retried
+     * @param waitMillis time in milliseconds a caller waits for a permit before it is rejected
+     */
+    MantaConcurrencyLimiter(final int maxLimit, final int minLimit, final int retries,
+                            final long waitMillis) {
+        Preconditions.checkArgument(maxLimit >= 0, "Maximum limit must not be negative");
+        Preconditions.checkArgument(minLimit > 0, "Minimum limit must be greater than zero");
+        Preconditions.checkArgument(retries >= 0, "Retries must not be negative");
+        Preconditions.checkArgument(waitMillis >= 0, "Wait time must not be negative");
+
+        this.maxLimit = maxLimit;
+        this.minLimit = Math.min(minLimit, Math.max(maxLimit, 1));
+        this.retries = retries;
+        this.waitNanos = TimeUnit.MILLISECONDS.toNanos(waitMillis);
+        this.limit = maxLimit;
+    }
+
+    /**
+     * Creates a limiter from the configuration of a filesystem.
+     *
+     * @param hadoopConfig Hadoop specific configuration
+     * @return new limiter, disabled unless a maximum is configured
+     */
+    static MantaConcurrencyLimiter newInstance(final HadoopConfigurationContext hadoopConfig) {
+        return new MantaConcurrencyLimiter(hadoopConfig.getLimiterMaxRequests(),
+                hadoopConfig.getLimiterMinRequests(), hadoopConfig.getLimiterRetries(),
+                hadoopConfig.getLimiterWait());
+    }
+
+    /**
+     * Sends a request once a permit is available, retrying it while Manta
+     * throttles it.
+     *
+     * @param description description of the request used in messages
+     * @param request request to send
+     * @param <T> type of the result of the request
+     * @return result of the request
+     * @throws IOException thrown when the request fails, is still throttled
+     *                     after all retries or waited too long for a permit
+     */
+    <T> T run(final String description, final IOCallable<T> request) throws IOException {
+        if (maxLimit == 0) {
+            return request.call();
+        }
+
+        for (int attempt = 0;; attempt++) {
+            final long sentEpoch = acquire(description);
+            MantaClientHttpResponseException throttle = null;
+
+            try {
+                return request.call();
+            } catch (MantaClientHttpResponseException e) {
+                if (!MantaRetrier.isThrottled(e)) {
+                    throw e;
+                }
+
+                throttle = e;
+
+                if (attempt >= retries) {
+                    throw e;
+                }
+            } finally {
+                release(sentEpoch, throttle != null);
+            }
+
+            retried.increment();
+            MantaRetrier.pause(description, attempt, throttle);
+        }
+    }
+
+    /**
+     * Waits for a permit.
+     *
+     * @param description description of the request used in messages
+     * @return epoch the request is sent in
+     * @throws IOException thrown when interrupted or waiting too long
+     */
+    private long acquire(final String description) throws IOException {
+        lock.lock();
+        try {
+            long remaining = waitNanos;
+            waiting++;
+
+            try {
+                while (inFlight >= currentLimit()) {
+                    if (remaining <= 0L) {
+                        rejections.increment();
+                        throw new IOException(String.format(
+                                "Rejected %s after waiting %d ms for one of %d concurrent requests",
+                                description, TimeUnit.NANOSECONDS.toMillis(waitNanos), currentLimit()));
+                    }
+
+                    remaining = released.awaitNanos(remaining);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting to send " + description);
+            } finally {
+                waiting--;
+            }
+
+            inFlight++;
+            return epoch;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Releases a permit and adapts the limit to the outcome of the request.
+     *
+     * @param sentEpoch epoch the request was sent in
+     * @param wasThrottled true if Manta throttled the request
+     */
+    private void release(final long sentEpoch, final boolean wasThrottled) {
+        lock.lock();
+        try {
+            if (wasThrottled) {
+                throttled.increment();
+
+                if (sentEpoch == epoch) {
+                    epoch++;
+                    limit = Math.max(minLimit, limit * DECREASE_FACTOR);
+                    LOG.debug("Manta throttled requests, decreased concurrency limit to {}",
+                            currentLimit());
+                }
+            } else if (inFlight >= currentLimit() || waiting > 0) {
+                limit = Math.min(maxLimit, limit + 1.0 / limit);
+            }
+
+            inFlight--;
+            released.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Must be called while holding the lock.
+     *
+     * @return current limit rounded down to whole requests
+     */
+    private int currentLimit() {
+        return (int)limit;
+    }
+
+    /**
+     * @return true if the number of concurrent requests is limited
+     */
+    public boolean isEnabled() {
+        return maxLimit > 0;
+    }
+
+    /**
+     * @return current maximum number of concurrent requests, 0 if disabled
+     */
+    public int getLimit() {
+        lock.lock();
+        try {
+            return currentLimit();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return number of requests in flight
+     */
+    public int getInFlight() {
+        lock.lock();
+        try {
+            return inFlight;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return number of requests that Manta throttled so far
+     */
+    public long getThrottled() {
+        return throttled.sum();
+    }
+
+    /**
+     * @return number of callers rejected so far because they waited too long for a permit
+     */
+    public long getRejections() {
+        return rejections.sum();
+    }
+
+    /**
+     * @return number of throttled requests that were retried so far
+     */
+    public long getRetries() {
+        return retried.sum();
+    }
+}
@@ -0,0 +1,223 @@
+package com.joyent.hadoop.fs.manta;
+
+import com.google.common.base.Preconditions;
+import org.apache.hadoop.fs.Path;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+import static com.joyent.manta.client.MantaClient.SEPARATOR;
+
+/**
+ * Creates many directories with as few requests as possible. The requested
+ * paths are merged into a trie so that a parent shared by many paths is
+ * created exactly once. The trie is then created one level at a time with
+ * all directories of a level created concurrently, so a directory is only
+ * created once its parent exists and no request is needed to check the
+ * result.
+ *
+ * <p>The top two levels of a Manta path, the account and a top level
+ * directory like <code>stor</code> or <code>public</code>, always exist
+ * and are never created.</p>
+ */
+final class MantaDirectoryCreator {
+    /**
+     * Logger instance.
+     */
+    private static final Logger LOG = LoggerFactory.getLogger(MantaDirectoryCreator.class);
+
+    /**
+     * Number of leading path components that always exist in Manta.
+     */
+    private static final int EXISTING_DEPTH = 2;
+
+    /**
+     * Requests used to create directories.
+     */
+    private final MantaMetadataRequests requests;
+
+    /**
+     * Pool that directories are created on.
+     */
+    private final ForkJoinPool pool;
+
+    /**
+     * Creates a new instance.
+     *
+     * @param requests requests used to create directories
+     * @param pool pool that directories are created on
+     */
+    MantaDirectoryCreator(final MantaMetadataRequests requests, final ForkJoinPool pool) {
+        this.requests = Preconditions.checkNotNull(requests, "Requests must not be null");
+        this.pool = Preconditions.checkNotNull(pool, "Worker pool must not be null");
+    }
+
+    /**
+     * Creates directories and all of their missing parents.
+     *
+     * @param mantaPaths normalized absolute Manta paths of the directories
+     * @return one result per path in the iteration order of the paths, a
+     *         directory fails when it or one of its parents couldn't be created
+     * @throws IOException thrown when interrupted while waiting for results
+     */
+    List<MantaBatchResult<Boolean>> mkdirs(final Collection<String> mantaPaths)
+            throws IOException {
+        // The root has an empty path so that paths of its children start with a separator
+        final Node root = new Node(null, "");
+        final List<Node> requested = new ArrayList<>(mantaPaths.size());
+
+        for (String mantaPath : mantaPaths) {
+            requested.add(root.add(mantaPath));
+        }
+
+        int sent = 0;
+        List<Node> level = root.descendantsAt(EXISTING_DEPTH + 1);
+
+        while (!level.isEmpty()) {
+            final Map<Path, Node> nodes = new LinkedHashMap<>(level.size());
+
+            for (Node node : level) {
+                if (node.parent.error == null) {
+                    nodes.put(new Path(node.path), node);
+                } else {
+                    node.error = node.parent.error;
+                }
+            }
+
+            sent += nodes.size();
+
+            for (MantaBatchResult<Boolean> result : MantaBatch.run(pool, nodes.keySet(),
+                    path -> putDirectory(path.toUri().getPath()))) {
+                nodes.get(result.getPath()).error = result.getError();
+            }
+
+            final List<Node> next = new ArrayList<>();
+
+            for (Node node : level) {
+                next.addAll(node.children.values());
+            }
+
+            level = next;
+        }
+
+        LOG.debug("Created {} requested directories with {} requests", mantaPaths.size(), sent);
+
+        final List<MantaBatchResult<Boolean>> results = new ArrayList<>(requested.size());
+
+        int i = 0;
+
+        for (String mantaPath : mantaPaths) {
+            final Node node = requested.get(i++);
+            final Path path = new Path(mantaPath);
+
+            if (node.error == null) {
+                results.add(MantaBatchResult.success(path, true));
+            } else {
+                results.add(MantaBatchResult.failure(path, node.error));
+            }
+        }
+
+        return results;
+    }
+
+    /**
+     * Creates a directory whose parent exists.
+     *
+     * @param mantaPath directory to create
+     * @return true if the directory was created, false if it already existed
+     * @throws IOException thrown when the directory can't be created
+     */
+    private boolean putDirectory(final String mantaPath) throws IOException {
+        return requests.call("creation of [" + mantaPath + "]",
+                () -> requests.getClient().putDirectory(mantaPath));
+    }
+
+    /**
+     * Directory in the trie of requested paths.
+     */
+    private static final class Node {
+        /**
+         * Parent directory, null for the root.
+         */
+        private final Node parent;
+
+        /**
+         * Absolute Manta path of the directory, empty for the root.
+         */
+        private final String path;
+
+        /**
+         * Subdirectories by name in the order they were first requested.
+         */
+        private final Map<String, Node> children = new LinkedHashMap<>();
+
+        /**
+         * Error thrown when creating the directory or one of its parents.
+         */
+        private IOException error;
+
+        /**
+         * Creates a new node.
+         *
+         * @param parent parent directory, null for the root
+         * @param path absolute Manta path of the directory
+         */
+        Node(final Node parent, final String path) {
+            this.parent = parent;
+            this.path = path;
+        }
+
+        /**
+         * Adds a path below this node.
+         *
+         * @param mantaPath normalized absolute Manta path
+         * @return node of the path
+         */
+        Node add(final String mantaPath) {
+            Preconditions.checkArgument(mantaPath.startsWith(SEPARATOR),
+                    "Path must be absolute: %s", mantaPath);
+
+            Node node = this;
+
+            for (String name : mantaPath.split(SEPARATOR)) {
+                if (name.isEmpty()) {
+                    continue;
+                }
+
+                final Node parentNode = node;
+                node = node.children.computeIfAbsent(name,
+                        n -> new Node(parentNode, parentNode.path + SEPARATOR + n));
+            }
+
+            return node;
+        }
+
+        /**
+         * @param depth number of levels below this node
+         * @return nodes the given number of levels below this node
+         */
+        List<Node> descendantsAt(final int depth) {
+            List<Node> level = new ArrayList<>();
+            level.add(this);
+
+            for (int i = 0; i < depth; i++) {
+                final List<Node> next = new ArrayList<>();
+
+                for (Node node : level) {
+                    next.addAll(node.children.values());
+                }
+
+                level = next;
+            }
+
+            return level;
+        }
+    }
+}
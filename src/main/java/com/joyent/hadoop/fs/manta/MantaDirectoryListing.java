@@ -0,0 +1,122 @@
+package com.joyent.hadoop.fs.manta;
+
+import com.google.common.base.Preconditions;
+import com.joyent.manta.client.MantaDirectoryListingIterator;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * Lists a Manta directory one page at a time through
+ * {@link MantaMetadataRequests}. Each page is read from the streaming
+ * listing of the SDK as a single request and buffered, so that callers
+ * sending further requests for the entries of a page don't hold on to the
+ * request slot of the listing while doing so.
+ *
+ * <p>Like {@link MantaDirectoryListingIterator}, errors are thrown as
+ * {@link UncheckedIOException}. Instances aren't thread-safe.</p>
+ */
+final class MantaDirectoryListing implements Iterator<Map<String, Object>>, AutoCloseable {
+    /**
+     * Requests the pages are read with.
+     */
+    private final MantaMetadataRequests requests;
+
+    /**
+     * Directory that is listed.
+     */
+    private final String mantaPath;
+
+    /**
+     * Number of entries requested per page.
+     */
+    private final int pageSize;
+
+    /**
+     * Streaming listing of the SDK.
+     */
+    private final MantaDirectoryListingIterator listing;
+
+    /**
+     * Entries of the current page that haven't been returned yet.
+     */
+    private final Deque<Map<String, Object>> page;
+
+    /**
+     * True once the last page has been read.
+     */
+    private boolean exhausted;
+
+    /**
+     * Creates a new instance.
+     *
+     * @param requests requests the pages are read with
+     * @param mantaPath directory to list
+     * @param pageSize number of entries requested per page
+     */
+    MantaDirectoryListing(final MantaMetadataRequests requests, final String mantaPath,
+                          final int pageSize) {
+        Preconditions.checkArgument(pageSize > 0, "Page size must be greater than zero");
+        this.requests = Preconditions.checkNotNull(requests, "Requests must not be null");
+        this.mantaPath = Preconditions.checkNotNull(mantaPath, "Path must not be null");
+        this.pageSize = pageSize;
+        this.listing = requests.getClient().streamingIterator(mantaPath, pageSize);
+        this.page = new ArrayDeque<>(pageSize);
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (page.isEmpty() && !exhausted) {
+            try {
+                requests.call("listing of " + mantaPath, this::readPage);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        return !page.isEmpty();
+    }
+
+    @Override
+    public Map<String, Object> next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+
+        return page.poll();
+    }
+
+    /**
+     * Reads the next page of entries. A page that fails part way is
+     * continued where it stopped when it is read again.
+     *
+     * @return nothing
+     * @throws IOException thrown when the page can't be read
+     */
+    private Void readPage() throws IOException {
+        try {
+            while (page.size() < pageSize) {
+                if (!listing.hasNext()) {
+                    exhausted = true;
+                    break;
+                }
+
+                page.add(listing.next());
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+
+        return null;
+    }
+
+    @Override
+    public void close() {
+        listing.close();
+    }
+}
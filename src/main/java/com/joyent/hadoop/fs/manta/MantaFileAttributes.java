@@ -0,0 +1,197 @@
+package com.joyent.hadoop.fs.manta;
+
+import com.joyent.manta.client.MantaMetadata;
+import com.joyent.manta.client.MantaObject;
+import org.apache.commons.codec.DecoderException;
+import org.apache.commons.codec.binary.Hex;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Hadoop file attributes that are persisted as Manta metadata headers when
+ * files are written through {@link MantaFileSystem}. Manta doesn't keep
+ * track of attributes like the checksum of the written bytes, so we store
+ * them alongside the object and read them back when they are needed.
+ */
+public final class MantaFileAttributes {
+    /**
+     * Metadata header storing the block size requested when the file was
+     * created. It is only recorded, {@link MantaFileStatus} reports the
+     * configured virtual block size because listings can't carry it.
+     */
+    public static final String BLOCK_SIZE_HEADER = "m-hadoop-block-size";
+
+    /**
+     * Metadata header storing the number of bytes written by the writer.
+     */
+    public static final String LENGTH_HEADER = "m-hadoop-length";
+
+    /**
+     * Metadata header storing the hex encoded MD5 of the bytes written by the writer.
+     */
+    public static final String MD5_HEADER = "m-hadoop-md5";
+
+    /**
+     * Metadata header storing the hex encoded composite CRC32C of the bytes
+     * written by the writer.
+     */
+    public static final String COMPOSITE_CRC_HEADER = "m-hadoop-composite-crc32c";
+
+    /**
+     * Radix of hex encoded values.
+     */
+    private static final int HEX_RADIX = 16;
+
+    /**
+     * Logger instance.
+     */
+    private static final Logger LOG = LoggerFactory.getLogger(MantaFileAttributes.class);
+
+    /**
+     * Utility class.
+     */
+    private MantaFileAttributes() {
+    }
+
+    /**
+     * Creates the metadata sent with the initial PUT of a new file.
+     *
+     * @param blockSize block size requested by the writer
+     * @return new metadata instance
+     */
+    public static MantaMetadata newMetadata(final long blockSize) {
+        final MantaMetadata metadata = new MantaMetadata();
+
+        if (blockSize > 0) {
+            metadata.put(BLOCK_SIZE_HEADER, Long.toString(blockSize));
+        }
+
+        return metadata;
+    }
+
+    /**
+     * Finds the block size persisted when the file was written.
+     *
+     * @param mantaObject Manta response object
+     * @return block size or null if none was persisted
+     */
+    public static Long blockSize(final MantaObject mantaObject) {
+        final Long blockSize = longValue(mantaObject, BLOCK_SIZE_HEADER);
+
+        if (blockSize == null || blockSize <= 0) {
+            return null;
+        }
+
+        return blockSize;
+    }
+
+    /**
+     * Finds the length of the file as written by the writer. The length only
+     * qualifies the recorded MD5, the Content-Length of the object is always
+     * the length of the file.
+     *
+     * @param mantaObject Manta response object
+     * @return length or null if none was persisted
+     */
+    public static Long length(final MantaObject mantaObject) {
+        final Long length = longValue(mantaObject, LENGTH_HEADER);
+
+        if (length == null || length < 0) {
+            return null;
+        }
+
+        return length;
+    }
+
+    /**
+     * Finds the MD5 of the file as calculated by the writer. Unlike the MD5
+     * computed by Manta, it covers the plaintext of client-side encrypted
+     * files. It is only returned while the length recorded with it matches
+     * the Content-Length of the object, so that metadata left behind by a
+     * different writer isn't mistaken for the checksum of the content.
+     *
+     * @param mantaObject Manta response object
+     * @return MD5 bytes or null if none was persisted for the current content
+     */
+    public static byte[] md5(final MantaObject mantaObject) {
+        final String hex = stringValue(mantaObject, MD5_HEADER);
+        final Long length = length(mantaObject);
+
+        if (hex == null || length == null || !length.equals(mantaObject.getContentLength())) {
+            return null;
+        }
+
+        try {
+            return Hex.decodeHex(hex.toCharArray());
+        } catch (DecoderException e) {
+            LOG.warn("Unable to decode {} [{}] of {}", MD5_HEADER, hex, mantaObject.getPath());
+            return null;
+        }
+    }
+
+    /**
+     * Finds the composite CRC32C of the file as calculated by the writer.
+     *
+     * @param mantaObject Manta response object
+     * @return CRC or null if none was persisted
+     */
+    public static MantaCompositeCrc compositeCrc(final MantaObject mantaObject) {
+        final String hex = stringValue(mantaObject, COMPOSITE_CRC_HEADER);
+
+        if (hex == null) {
+            return null;
+        }
+
+        try {
+            return new MantaCompositeCrc(Integer.parseUnsignedInt(hex, HEX_RADIX));
+        } catch (NumberFormatException e) {
+            LOG.warn("Unable to decode {} [{}] of {}", COMPOSITE_CRC_HEADER, hex, mantaObject.getPath());
+            return null;
+        }
+    }
+
+    /**
+     * Reads a metadata value as a string.
+     *
+     * @param mantaObject Manta response object
+     * @param key metadata key
+     * @return trimmed value or null if not present
+     */
+    static String stringValue(final MantaObject mantaObject, final String key) {
+        final MantaMetadata metadata = mantaObject.getMetadata();
+
+        if (metadata == null) {
+            return null;
+        }
+
+        final String value = metadata.get(key);
+
+        if (value == null || value.trim().isEmpty()) {
+            return null;
+        }
+
+        return value.trim();
+    }
+
+    /**
+     * Reads a metadata value as a long.
+     *
+     * @param mantaObject Manta response object
+     * @param key metadata key
+     * @return value or null if not present or not parseable
+     */
+    private static Long longValue(final MantaObject mantaObject, final String key) {
+        final String value = stringValue(mantaObject, key);
+
+        if (value == null) {
+            return null;
+        }
+
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            LOG.warn("Unable to parse {} [{}] of {}", key, value, mantaObject.getPath());
+            return null;
+        }
+    }
+}
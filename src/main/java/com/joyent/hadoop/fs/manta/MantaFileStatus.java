@@ -9,10 +9,6 @@ import org.apache.hadoop.fs.Path;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.text.DateFormat;
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
-import java.util.Date;
 import java.util.Map;
 
 /**
@@ -47,12 +43,6 @@ public class MantaFileStatus extends FileStatus {
      */
     private static final short UNKNOWN_REPLICATION_FACTOR = 1;
 
-    /**
-     * File timestamp parser instance.
-     */
-    private static final DateFormat TIMESTAMP_PARSER =
-            new SimpleDateFormat(MantaObjectResponse.PATTERN_ISO_8601);
-
     /**
      * Status for filesystem root. This is a reserved value in Manta and is
      * not normally queried via the REST API. We allow it for compatibility
@@ -71,6 +61,22 @@ public class MantaFileStatus extends FileStatus {
                 UNKNOWN_MOD_TIME, path);
     }
 
+    /**
+     * Package default constructor for creating a status from values that
+     * were already decoded from a directory listing.
+     *
+     * @param length length of the file in bytes
+     * @param isDir true if status is for directory
+     * @param replication replication factor
+     * @param blockSize virtual block size reported if the resource is a file
+     * @param modificationTime modification time in milliseconds since the epoch
+     * @param path path to resource
+     */
+    MantaFileStatus(final long length, final boolean isDir, final short replication,
+                    final long blockSize, final long modificationTime, final Path path) {
+        super(length, isDir, replication, fileBlockSize(isDir, blockSize), modificationTime, path);
+    }
+
     /**
      * Creates a new instance based off of a Manta response object.
      *
@@ -88,8 +94,22 @@ public class MantaFileStatus extends FileStatus {
      * @param path path to resource
      */
     public MantaFileStatus(final MantaObject mantaObject, final Path path) {
+        this(mantaObject, path, UNKNOWN_BLOCK_SIZE);
+    }
+
+    /**
+     * Creates a new instance based off of a Manta response object, an
+     * explicit path and the virtual block size to report for files.
+     *
+     * @param mantaObject Manta response object
+     * @param path path to resource
+     * @param blockSize virtual block size reported if the resource is a file
+     */
+    public MantaFileStatus(final MantaObject mantaObject, final Path path,
+                           final long blockSize) {
         super(length(mantaObject), mantaObject.isDirectory(),
-              replicationFactor(mantaObject), UNKNOWN_BLOCK_SIZE,
+              replicationFactor(mantaObject),
+              fileBlockSize(mantaObject.isDirectory(), blockSize),
               modificationTime(mantaObject), path);
     }
 
@@ -100,8 +120,41 @@ public class MantaFileStatus extends FileStatus {
      * @param path path to resource
      */
     public MantaFileStatus(final Map<String, Object> props, final Path path) {
+        this(props, path, UNKNOWN_BLOCK_SIZE);
+    }
+
+    /**
+     * Creates a new instance based off of a set of {@link Map} properties
+     * and the virtual block size to report for files.
+     *
+     * @param props Map with keys set by a Manta response
+     * @param path path to resource
+     * @param blockSize virtual block size reported if the resource is a file
+     */
+    public MantaFileStatus(final Map<String, Object> props, final Path path,
+                           final long blockSize) {
         super(length(props), isDirectory(props), replicationFactor(props),
-                UNKNOWN_BLOCK_SIZE, modificationTime(props), path);
+                fileBlockSize(isDirectory(props), blockSize),
+                modificationTime(props), path);
+    }
+
+    /**
+     * Determines the block size to report. Directories have no blocks. Files
+     * always report the virtual block size, even if a block size was
+     * persisted when they were written, because directory listings don't
+     * carry metadata and statuses built from a listing have to agree with
+     * statuses built from a HEAD request.
+     *
+     * @param isDirectory true if the resource is a directory
+     * @param blockSize virtual block size for files
+     * @return block size to report
+     */
+    private static long fileBlockSize(final boolean isDirectory, final long blockSize) {
+        if (isDirectory) {
+            return UNKNOWN_BLOCK_SIZE;
+        }
+
+        return blockSize;
     }
 
     /**
@@ -118,20 +171,21 @@ public class MantaFileStatus extends FileStatus {
 
     /**
      * Finds the size of a file based on a Manta response as a {@link Map}.
+     * Also used by {@link MantaListingDecoder} for listing entries.
      *
      * @param props properties to parse for file size
      * @return size of file
      */
-    private static long length(final Map<String, Object> props) {
+    static long length(final Map<String, Object> props) {
         Preconditions.checkNotNull(props);
 
-        @SuppressWarnings("unchecked")
-        Number number = (Number)props.get("size");
+        final Object size = props.get("size");
 
-        if (number == null) {
-            return UNKNOWN_LENGTH;
+        if (size instanceof Number) {
+            return ((Number)size).longValue();
         }
-        return number.longValue();
+
+        return UNKNOWN_LENGTH;
     }
 
     /**
@@ -140,7 +194,7 @@ public class MantaFileStatus extends FileStatus {
      * @param props properties to parse for directory informations
      * @return true if a directory
      */
-    private static boolean isDirectory(final Map<String, Object> props) {
+    static boolean isDirectory(final Map<String, Object> props) {
         Preconditions.checkNotNull(props);
 
         Object type = props.get("type");
@@ -176,16 +230,16 @@ public class MantaFileStatus extends FileStatus {
      * @param props properties to parse for durability level
      * @return replication factor as represented by durability level
      */
-    private static short replicationFactor(final Map<String, Object> props) {
+    static short replicationFactor(final Map<String, Object> props) {
         Preconditions.checkNotNull(props);
 
-        @SuppressWarnings("unchecked")
-        Number number = (Number)props.get("durability");
+        final Object durability = props.get("durability");
 
-        if (number == null) {
-            return UNKNOWN_REPLICATION_FACTOR;
+        if (durability instanceof Number) {
+            return ((Number)durability).shortValue();
         }
-        return number.shortValue();
+
+        return UNKNOWN_REPLICATION_FACTOR;
     }
 
     /**
@@ -210,19 +264,28 @@ public class MantaFileStatus extends FileStatus {
      * @param props properties to parse for modification time
      * @return last modification time of object
      */
-    private static long modificationTime(final Map<String, Object> props) {
+    static long modificationTime(final Map<String, Object> props) {
         Preconditions.checkNotNull(props);
 
-        if (!props.containsKey("mtime")) {
+        final Object mtime = props.get("mtime");
+
+        if (mtime == null) {
             return UNKNOWN_MOD_TIME;
         }
 
-        final String mtime = props.get("mtime").toString();
+        return modificationTime(mtime.toString());
+    }
 
+    /**
+     * Parses the modification time reported in a directory listing.
+     *
+     * @param mtime ISO-8601 timestamp
+     * @return modification time in milliseconds since the epoch
+     */
+    static long modificationTime(final String mtime) {
         try {
-            final Date date = TIMESTAMP_PARSER.parse(mtime);
-            return date.getTime();
-        } catch (ParseException e) {
+            return MantaTimestampParser.parse(mtime);
+        } catch (IllegalArgumentException e) {
             String msg = String.format("Unable to parse modification time [%s] "
                     + "with pattern [%s]", mtime, MantaObjectResponse.PATTERN_ISO_8601);
             LOG.warn(msg, e);
@@ -0,0 +1,539 @@
+package com.joyent.hadoop.fs.manta;
+
+import com.google.common.base.Preconditions;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.Path;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import static com.joyent.manta.client.MantaClient.SEPARATOR;
+
+/**
+ * Compact, column oriented container of file statuses for callers such as
+ * query planners that need to hold the statuses of millions of files.
+ *
+ * <p>A {@link MantaFileStatus} with its {@link Path} and {@code URI} costs
+ * a few hundred bytes of heap. This store keeps every attribute in its own
+ * primitive column instead and only needs about 28 bytes per entry plus the
+ * UTF-8 bytes of its name:</p>
+ *
+ * <ul>
+ *     <li>lengths and modification times are packed longs;</li>
+ *     <li>parent directories and block sizes are interned, so entries only
+ *         keep an index into a shared table;</li>
+ *     <li>the directory flag and replication factor share one int with the
+ *         block size index;</li>
+ *     <li>names are appended to a single byte pool.</li>
+ * </ul>
+ *
+ * <p>Columns can be allocated off-heap with direct buffers, which keeps
+ * large listings out of the garbage collected heap entirely. {@link FileStatus}
+ * instances are only materialized when an entry is read with {@link #get(int)}.</p>
+ *
+ * <p>Writes are not thread safe. A store that has been fully built and safely
+ * published can be read concurrently.</p>
+ */
+public final class MantaFileStatusStore implements Iterable<FileStatus> {
+    /**
+     * Number of entries the columns are sized for initially.
+     */
+    private static final int INITIAL_CAPACITY = 64;
+
+    /**
+     * Number of bytes the name pool is sized for initially.
+     */
+    private static final int INITIAL_NAME_CAPACITY = 2048;
+
+    /**
+     * Largest buffer that can be allocated.
+     */
+    private static final int MAX_BUFFER_SIZE = Integer.MAX_VALUE - 8;
+
+    /**
+     * Bit flagging an entry as a directory in the attributes column.
+     */
+    private static final int DIRECTORY_FLAG = 1;
+
+    /**
+     * Shift of the replication factor in the attributes column.
+     */
+    private static final int REPLICATION_SHIFT = 1;
+
+    /**
+     * Mask of the replication factor after shifting.
+     */
+    private static final int REPLICATION_MASK = 0x7FFF;
+
+    /**
+     * Shift of the block size index in the attributes column.
+     */
+    private static final int BLOCK_SIZE_SHIFT = 16;
+
+    /**
+     * Maximum number of distinct block sizes.
+     */
+    private static final int MAX_BLOCK_SIZES = 0xFFFF;
+
+    /**
+     * Flag indicating that columns are allocated off-heap.
+     */
+    private final boolean offHeap;
+
+    /**
+     * Interned parent directories by index.
+     */
+    private final List<String> parents = new ArrayList<>();
+
+    /**
+     * Indexes of the interned parent directories.
+     */
+    private final Map<String, Integer> parentIndexes = new HashMap<>();
+
+    /**
+     * Interned block sizes by index.
+     */
+    private final List<Long> blockSizes = new ArrayList<>();
+
+    /**
+     * Column of lengths in bytes.
+     */
+    private ByteBuffer lengths;
+
+    /**
+     * Column of modification times in milliseconds.
+     */
+    private ByteBuffer modificationTimes;
+
+    /**
+     * Column of parent directory indexes.
+     */
+    private ByteBuffer parentColumn;
+
+    /**
+     * Column of packed directory flag, replication factor and block size index.
+     */
+    private ByteBuffer attributes;
+
+    /**
+     * Column of offsets into the name pool at which each name ends.
+     */
+    private ByteBuffer nameEnds;
+
+    /**
+     * UTF-8 bytes of all names.
+     */
+    private ByteBuffer names;
+
+    /**
+     * Number of entries that fit in the columns.
+     */
+    private int capacity;
+
+    /**
+     * Number of entries stored.
+     */
+    private int size = 0;
+
+    /**
+     * Number of bytes used in the name pool.
+     */
+    private int namesSize = 0;
+
+    /**
+     * Creates a new empty store.
+     *
+     * @param offHeap true to allocate columns with direct buffers
+     */
+    public MantaFileStatusStore(final boolean offHeap) {
+        this.offHeap = offHeap;
+        this.capacity = INITIAL_CAPACITY;
+        this.lengths = allocate(capacity * Long.BYTES);
+        this.modificationTimes = allocate(capacity * Long.BYTES);
+        this.parentColumn = allocate(capacity * Integer.BYTES);
+        this.attributes = allocate(capacity * Integer.BYTES);
+        this.nameEnds = allocate(capacity * Integer.BYTES);
+        this.names = allocate(INITIAL_NAME_CAPACITY);
+    }
+
+    /**
+     * @return true if the columns are allocated off-heap
+     */
+    public boolean isOffHeap() {
+        return offHeap;
+    }
+
+    /**
+     * @return number of entries stored
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return true if no entries are stored
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * @return number of distinct parent directories
+     */
+    public int parentCount() {
+        return parents.size();
+    }
+
+    /**
+     * Estimates the number of bytes held by the columns and name pool,
+     * excluding the interned parent directories.
+     *
+     * @return bytes allocated for entries
+     */
+    public long allocatedBytes() {
+        return (long)lengths.capacity() + modificationTimes.capacity() + parentColumn.capacity()
+                + attributes.capacity() + nameEnds.capacity() + names.capacity();
+    }
+
+    /**
+     * Interns a parent directory.
+     *
+     * @param parent parent directory as it should prefix the path of its entries
+     * @return index of the parent to pass to {@link #add(int, String, boolean, long, short, long, long)}
+     */
+    public int parent(final String parent) {
+        Preconditions.checkNotNull(parent, "Parent must not be null");
+
+        final Integer existing = parentIndexes.get(parent);
+
+        if (existing != null) {
+            return existing;
+        }
+
+        final int index = parents.size();
+        parents.add(parent);
+        parentIndexes.put(parent, index);
+
+        return index;
+    }
+
+    /**
+     * Adds an entry from its decoded attributes.
+     *
+     * @param parent index of the interned parent directory
+     * @param name name of the entry within the parent
+     * @param isDirectory true if the entry is a directory
+     * @param length length in bytes
+     * @param replication replication factor
+     * @param blockSize block size reported for files
+     * @param modificationTime modification time in milliseconds since the epoch
+     */
+    public void add(final int parent, final String name, final boolean isDirectory,
+                    final long length, final short replication, final long blockSize,
+                    final long modificationTime) {
+        Preconditions.checkElementIndex(parent, parents.size(), "Parent index");
+        Preconditions.checkNotNull(name, "Name must not be null");
+
+        if (size == capacity) {
+            growColumns();
+        }
+
+        final byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+
+        if (names.capacity() - namesSize < nameBytes.length) {
+            growNames(nameBytes.length);
+        }
+
+        final ByteBuffer nameTarget = names.duplicate();
+        nameTarget.position(namesSize);
+        nameTarget.put(nameBytes);
+        namesSize += nameBytes.length;
+
+        int packed = (blockSizeIndex(blockSize) << BLOCK_SIZE_SHIFT)
+                | ((replication & REPLICATION_MASK) << REPLICATION_SHIFT);
+
+        if (isDirectory) {
+            packed |= DIRECTORY_FLAG;
+        }
+
+        lengths.putLong(size * Long.BYTES, length);
+        modificationTimes.putLong(size * Long.BYTES, modificationTime);
+        parentColumn.putInt(size * Integer.BYTES, parent);
+        attributes.putInt(size * Integer.BYTES, packed);
+        nameEnds.putInt(size * Integer.BYTES, namesSize);
+
+        size++;
+    }
+
+    /**
+     * Adds an entry from an existing status.
+     *
+     * @param status status to add
+     */
+    public void add(final FileStatus status) {
+        Preconditions.checkNotNull(status, "Status must not be null");
+
+        final Path path = status.getPath();
+        final Path parentPath = path.getParent();
+        final int parent;
+        final String name;
+
+        if (parentPath == null) {
+            parent = parent("");
+            name = path.toString();
+        } else {
+            parent = parent(parentPath.toString());
+            name = path.getName();
+        }
+
+        add(parent, name, status.isDirectory(), status.getLen(), status.getReplication(),
+                status.getBlockSize(), status.getModificationTime());
+    }
+
+    /**
+     * Materializes an entry.
+     *
+     * @param index index of the entry
+     * @return new status instance for the entry
+     */
+    public FileStatus get(final int index) {
+        checkIndex(index);
+
+        return new MantaFileStatus(getLen(index), isDirectory(index), getReplication(index),
+                getBlockSize(index), getModificationTime(index), getPath(index));
+    }
+
+    /**
+     * @param index index of the entry
+     * @return path of the entry
+     */
+    public Path getPath(final int index) {
+        checkIndex(index);
+
+        final String parent = parents.get(parentColumn.getInt(index * Integer.BYTES));
+        final String name = getName(index);
+
+        if (parent.isEmpty()) {
+            return new Path(name);
+        } else if (parent.endsWith(SEPARATOR)) {
+            return new Path(parent + name);
+        }
+
+        return new Path(parent + SEPARATOR + name);
+    }
+
+    /**
+     * @param index index of the entry
+     * @return name of the entry within its parent directory
+     */
+    public String getName(final int index) {
+        checkIndex(index);
+
+        final int start;
+
+        if (index == 0) {
+            start = 0;
+        } else {
+            start = nameEnds.getInt((index - 1) * Integer.BYTES);
+        }
+
+        final int end = nameEnds.getInt(index * Integer.BYTES);
+        final byte[] bytes = new byte[end - start];
+        final ByteBuffer source = names.duplicate();
+        source.position(start);
+        source.get(bytes);
+
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @param index index of the entry
+     * @return length in bytes
+     */
+    public long getLen(final int index) {
+        checkIndex(index);
+        return lengths.getLong(index * Long.BYTES);
+    }
+
+    /**
+     * @param index index of the entry
+     * @return modification time in milliseconds since the epoch
+     */
+    public long getModificationTime(final int index) {
+        checkIndex(index);
+        return modificationTimes.getLong(index * Long.BYTES);
+    }
+
+    /**
+     * @param index index of the entry
+     * @return true if the entry is a directory
+     */
+    public boolean isDirectory(final int index) {
+        checkIndex(index);
+        return (attributes.getInt(index * Integer.BYTES) & DIRECTORY_FLAG) != 0;
+    }
+
+    /**
+     * @param index index of the entry
+     * @return replication factor
+     */
+    public short getReplication(final int index) {
+        checkIndex(index);
+        return (short)((attributes.getInt(index * Integer.BYTES) >>> REPLICATION_SHIFT)
+                & REPLICATION_MASK);
+    }
+
+    /**
+     * @param index index of the entry
+     * @return block size
+     */
+    public long getBlockSize(final int index) {
+        checkIndex(index);
+        return blockSizes.get(attributes.getInt(index * Integer.BYTES) >>> BLOCK_SIZE_SHIFT);
+    }
+
+    /**
+     * Materializes all entries.
+     *
+     * @return new status instances in insertion order
+     */
+    public FileStatus[] toArray() {
+        final FileStatus[] statuses = new FileStatus[size];
+
+        for (int i = 0; i < size; i++) {
+            statuses[i] = get(i);
+        }
+
+        return statuses;
+    }
+
+    /**
+     * Iterates over the entries, materializing each as it is returned.
+     *
+     * @return iterator of status instances in insertion order
+     */
+    @Override
+    public Iterator<FileStatus> iterator() {
+        return new Iterator<FileStatus>() {
+            private int next = 0;
+
+            @Override
+            public boolean hasNext() {
+                return next < size;
+            }
+
+            @Override
+            public FileStatus next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+
+                return get(next++);
+            }
+        };
+    }
+
+    /**
+     * Finds or interns a block size.
+     *
+     * @param blockSize block size
+     * @return index of the block size
+     */
+    private int blockSizeIndex(final long blockSize) {
+        // Listings rarely use more than a couple of distinct block sizes
+        for (int i = blockSizes.size() - 1; i >= 0; i--) {
+            if (blockSizes.get(i) == blockSize) {
+                return i;
+            }
+        }
+
+        if (blockSizes.size() > MAX_BLOCK_SIZES) {
+            throw new IllegalStateException("Too many distinct block sizes");
+        }
+
+        blockSizes.add(blockSize);
+        return blockSizes.size() - 1;
+    }
+
+    /**
+     * @param index index to check
+     */
+    private void checkIndex(final int index) {
+        Preconditions.checkElementIndex(index, size, "Entry index");
+    }
+
+    /**
+     * Doubles the capacity of all per entry columns.
+     */
+    private void growColumns() {
+        final int maxCapacity = MAX_BUFFER_SIZE / Long.BYTES;
+
+        if (capacity >= maxCapacity) {
+            throw new IllegalStateException("Store can't hold more than " + maxCapacity + " entries");
+        }
+
+        final int newCapacity = (int)Math.min((long)capacity * 2, maxCapacity);
+
+        lengths = copy(lengths, size * Long.BYTES, newCapacity * Long.BYTES);
+        modificationTimes = copy(modificationTimes, size * Long.BYTES, newCapacity * Long.BYTES);
+        parentColumn = copy(parentColumn, size * Integer.BYTES, newCapacity * Integer.BYTES);
+        attributes = copy(attributes, size * Integer.BYTES, newCapacity * Integer.BYTES);
+        nameEnds = copy(nameEnds, size * Integer.BYTES, newCapacity * Integer.BYTES);
+        capacity = newCapacity;
+    }
+
+    /**
+     * Grows the name pool so that it fits additional bytes.
+     *
+     * @param required number of additional bytes needed
+     */
+    private void growNames(final int required) {
+        final long needed = (long)namesSize + required;
+
+        if (needed > MAX_BUFFER_SIZE) {
+            throw new IllegalStateException("Store can't hold more than "
+                    + MAX_BUFFER_SIZE + " bytes of names");
+        }
+
+        final long newCapacity = Math.min(Math.max((long)names.capacity() * 2, needed),
+                MAX_BUFFER_SIZE);
+        names = copy(names, namesSize, (int)newCapacity);
+    }
+
+    /**
+     * Copies the used part of a buffer into a larger buffer.
+     *
+     * @param buffer buffer to copy
+     * @param used number of bytes in use
+     * @param newCapacity capacity of the new buffer
+     * @return new buffer
+     */
+    private ByteBuffer copy(final ByteBuffer buffer, final int used, final int newCapacity) {
+        final ByteBuffer source = buffer.duplicate();
+        source.position(0);
+        source.limit(used);
+
+        final ByteBuffer target = allocate(newCapacity);
+        target.put(source);
+
+        return target;
+    }
+
+    /**
+     * @param bytes capacity in bytes
+     * @return new buffer on or off heap
+     */
+    private ByteBuffer allocate(final int bytes) {
+        if (offHeap) {
+            return ByteBuffer.allocateDirect(bytes);
+        }
+
+        return ByteBuffer.allocate(bytes);
+    }
+}
@@ -4,28 +4,25 @@ import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Preconditions;
 import com.google.gson.Gson;
 import com.joyent.manta.client.MantaClient;
+import com.joyent.manta.client.MantaMetadata;
 import com.joyent.manta.client.MantaObject;
-import com.joyent.manta.client.MantaObjectInputStream;
-import com.joyent.manta.client.MantaObjectOutputStream;
 import com.joyent.manta.client.MantaObjectResponse;
-import com.joyent.manta.client.MantaSeekableByteChannel;
-import com.joyent.manta.client.jobs.MantaJobBuilder;
-import com.joyent.manta.client.jobs.MantaJobPhase;
 import com.joyent.manta.config.ChainedConfigContext;
 import com.joyent.manta.config.ConfigContext;
 import com.joyent.manta.config.DefaultsConfigContext;
 import com.joyent.manta.config.EnvVarConfigContext;
 import com.joyent.manta.config.MapConfigContext;
 import com.joyent.manta.exception.MantaClientHttpResponseException;
+import com.joyent.manta.exception.MantaErrorCode;
 import com.joyent.manta.http.MantaHttpHeaders;
 import com.joyent.manta.util.MantaUtils;
-import org.apache.commons.codec.DecoderException;
-import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.commons.io.FilenameUtils;
-import org.apache.commons.io.input.BoundedInputStream;
+import org.apache.commons.io.output.ProxyOutputStream;
 import org.apache.commons.lang.StringUtils;
 import org.apache.hadoop.classification.InterfaceAudience;
 import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.BlockLocation;
+import org.apache.hadoop.fs.ContentSummary;
 import org.apache.hadoop.fs.FSDataInputStream;
 import org.apache.hadoop.fs.FSDataOutputStream;
 import org.apache.hadoop.fs.FSInputStream;
@@ -33,6 +30,7 @@ import org.apache.hadoop.fs.FileAlreadyExistsException;
 import org.apache.hadoop.fs.FileChecksum;
 import org.apache.hadoop.fs.FileStatus;
 import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.FileUtil;
 import org.apache.hadoop.fs.LocalFileSystem;
 import org.apache.hadoop.fs.LocatedFileStatus;
 import org.apache.hadoop.fs.Path;
@@ -47,17 +45,21 @@ import org.slf4j.LoggerFactory;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.nio.file.Files;
-import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
-import java.util.Optional;
-import java.util.UUID;
-import java.util.function.Function;
-import java.util.stream.Stream;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
 
 import static com.joyent.manta.client.MantaClient.SEPARATOR;
 
@@ -101,6 +103,11 @@ public class MantaFileSystem extends FileSystem implements AutoCloseable {
      */
     private static final URI ROOT_MANTA_URI = URI.create(SCHEME + ":///");
 
+    /**
+     * Filter that accepts every path.
+     */
+    private static final PathFilter ACCEPT_ALL = path -> true;
+
     /**
      * Path to the current working directory.
      */
@@ -116,6 +123,46 @@ public class MantaFileSystem extends FileSystem implements AutoCloseable {
      */
     private MantaClient client;
 
+    /**
+     * Hadoop specific configuration of the filesystem driver.
+     */
+    private HadoopConfigurationContext hadoopConfig;
+
+    /**
+     * Pool of worker threads used for parallel operations like recursive listings.
+     */
+    private ForkJoinPool workers;
+
+    /**
+     * Policy determining the virtual block size reported for files.
+     */
+    private MantaBlockSizePolicy blockSizes;
+
+    /**
+     * Resolver that answers clustered status lookups from directory listings.
+     */
+    private MantaListingStatusResolver statusResolver;
+
+    /**
+     * Metadata requests sent by this filesystem.
+     */
+    private MantaMetadataRequests requests;
+
+    /**
+     * Lanes that data transfers are sent in.
+     */
+    private MantaRequestLanes lanes;
+
+    /**
+     * Executor that runs compute jobs like remote checksums.
+     */
+    private MantaJobExecutor jobExecutor;
+
+    /**
+     * Calculator of range checksums.
+     */
+    private MantaChecksumCalculator checksums;
+
     static {
         /* Log class load in order to provide debugging information to
          * users that are attempting to embed the library.
@@ -141,8 +188,39 @@ public class MantaFileSystem extends FileSystem implements AutoCloseable {
      */
     @VisibleForTesting
     void initialize(final URI name, final ConfigContext customConfig) throws IOException {
+        initialize(name, customConfig, new MantaClient(customConfig));
+    }
+
+    /**
+     * Method used for initializing the class directly with the Manta SDK
+     * configuration and an existing client. This is used for testing.
+     *
+     * @param name a uri whose authority section names the host, port, etc.
+     *             for this FileSystem. [Not used for Manta implementation]
+     * @param customConfig custom configuration
+     * @param customClient client used for all remote operations
+     */
+    @VisibleForTesting
+    void initialize(final URI name, final ConfigContext customConfig,
+                    final MantaClient customClient) {
         this.config = customConfig;
-        this.client = new MantaClient(customConfig);
+        this.client = customClient;
+
+        if (customConfig instanceof HadoopConfigurationContext) {
+            this.hadoopConfig = (HadoopConfigurationContext)customConfig;
+        } else {
+            this.hadoopConfig = new HadoopConfigurationContext(new Configuration(false));
+        }
+
+        this.workers = newWorkerPool(customConfig, this.hadoopConfig);
+        this.blockSizes = newBlockSizePolicy(customConfig, this.hadoopConfig);
+        this.lanes = MantaRequestLanes.newInstance(this.config, this.hadoopConfig, this.client);
+        this.requests = new MantaMetadataRequests(this.client, this.lanes.getScheduler(),
+                this.lanes.getLimiter());
+        this.statusResolver = newStatusResolver(this.requests, this.blockSizes, this.hadoopConfig);
+        this.jobExecutor = new MantaClientJobExecutor(this.client);
+        this.checksums = new MantaChecksumCalculator(this.lanes, this.requests,
+                this.jobExecutor, MantaChecksumCalculator.newCache(this.hadoopConfig));
     }
 
     /**
@@ -168,6 +246,16 @@ public class MantaFileSystem extends FileSystem implements AutoCloseable {
 
         this.config = chained;
         this.client = new MantaClient(this.config);
+        this.hadoopConfig = new HadoopConfigurationContext(conf);
+        this.workers = newWorkerPool(this.config, this.hadoopConfig);
+        this.blockSizes = newBlockSizePolicy(this.config, this.hadoopConfig);
+        this.lanes = MantaRequestLanes.newInstance(this.config, this.hadoopConfig, this.client);
+        this.requests = new MantaMetadataRequests(this.client, this.lanes.getScheduler(),
+                this.lanes.getLimiter());
+        this.statusResolver = newStatusResolver(this.requests, this.blockSizes, this.hadoopConfig);
+        this.jobExecutor = new MantaClientJobExecutor(this.client);
+        this.checksums = new MantaChecksumCalculator(this.lanes, this.requests,
+                this.jobExecutor, MantaChecksumCalculator.newCache(this.hadoopConfig));
 
         this.workingDir = getInitialWorkingDirectory();
     }
@@ -194,6 +282,69 @@ public class MantaFileSystem extends FileSystem implements AutoCloseable {
         }
     }
 
+    /**
+     * Creates the pool of worker threads used for parallel operations. The
+     * parallelism is capped by the size of the HTTP connection pool, so that
+     * workers never wait on each other for a connection.
+     *
+     * @param context Manta SDK configuration
+     * @param hadoopContext Hadoop specific configuration
+     * @return new worker pool
+     */
+    private static ForkJoinPool newWorkerPool(final ConfigContext context,
+                                              final HadoopConfigurationContext hadoopContext) {
+        int maxConnections = DefaultsConfigContext.DEFAULT_MAX_CONNS;
+
+        if (context.getMaximumConnections() != null) {
+            maxConnections = context.getMaximumConnections();
+        }
+
+        final int parallelism = Math.max(1, Math.min(hadoopContext.getParallelism(), maxConnections));
+        final AtomicInteger threadCount = new AtomicInteger();
+
+        final ForkJoinPool.ForkJoinWorkerThreadFactory factory = pool -> {
+            final ForkJoinWorkerThread thread =
+                    ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            thread.setName("manta-fs-worker-" + threadCount.incrementAndGet());
+            return thread;
+        };
+
+        LOG.debug("Creating worker pool with a parallelism of {}", parallelism);
+
+        return new ForkJoinPool(parallelism, factory, null, false);
+    }
+
+    /**
+     * Creates the policy that determines the virtual block size of files.
+     *
+     * @param context Manta SDK configuration
+     * @param hadoopContext Hadoop specific configuration
+     * @return new block size policy
+     */
+    private static MantaBlockSizePolicy newBlockSizePolicy(final ConfigContext context,
+                                                           final HadoopConfigurationContext hadoopContext) {
+        return new MantaBlockSizePolicy(hadoopContext.getBlockSize(),
+                hadoopContext.getBlockSizePrefixes(), context.getMantaHomeDirectory());
+    }
+
+    /**
+     * Creates the resolver that answers clustered status lookups from
+     * directory listings.
+     *
+     * @param requests requests used to list directories
+     * @param blockSizes policy used to determine the block size reported for files
+     * @param hadoopContext Hadoop specific configuration
+     * @return new status resolver
+     */
+    private static MantaListingStatusResolver newStatusResolver(final MantaMetadataRequests requests,
+                                                                final MantaBlockSizePolicy blockSizes,
+                                                                final HadoopConfigurationContext hadoopContext) {
+        return new MantaListingStatusResolver(requests, blockSizes,
+                hadoopContext.getStatusListingThreshold(),
+                hadoopContext.getStatusListingValidity(),
+                hadoopContext.getStatusListingMaxEntries());
+    }
+
     /**
      * Return the protocol scheme for the FileSystem.
      *
@@ -221,8 +372,7 @@ public class MantaFileSystem extends FileSystem implements AutoCloseable {
 
         String mantaPath = mantaPath(path);
 
-        MantaSeekableByteChannel channel = client.getSeekableByteChannel(mantaPath);
-        FSInputStream fsInput = new MantaSeekableInputStream(channel);
+        FSInputStream fsInput = lanes.open(mantaPath, fileStatus.getLen());
 
         return new FSDataInputStream(fsInput);
     }
@@ -242,7 +392,7 @@ public class MantaFileSystem extends FileSystem implements AutoCloseable {
     public boolean createNewFile(final Path path) throws IOException {
         String mantaPath = mantaPath(path);
 
-        return !client.existsAndIsAccessible(mantaPath);
+        return !requests.existsAndIsAccessible(mantaPath);
     }
 
     @Override
@@ -254,27 +404,44 @@ public class MantaFileSystem extends FileSystem implements AutoCloseable {
                                      final Progressable progressable) throws IOException {
         String mantaPath = mantaPath(path);
 
-        if (!overwrite && client.existsAndIsAccessible(mantaPath)) {
+        if (!overwrite && requests.existsAndIsAccessible(mantaPath)) {
             String msg = String.format("File already exists at path: %s", path);
             throw new FileAlreadyExistsException(msg);
         }
 
-        MantaHttpHeaders headers = new MantaHttpHeaders();
-
-        if (replication > 0) {
-            headers.setDurabilityLevel(replication);
-        }
+        MantaHttpHeaders headers = durabilityHeaders(replication);
+        MantaMetadata metadata = MantaFileAttributes.newMetadata(blockSize);
 
         LOG.debug("Creating new file with {} replicas at path: {}", replication, path);
 
         String dir = FilenameUtils.getFullPath(mantaPath);
 
-        if (!client.existsAndIsAccessible(dir)) {
+        if (!requests.existsAndIsAccessible(dir)) {
             LOG.debug("Directory path to file didn't exist. Creating path: {}", dir);
-            client.putDirectory(dir, true);
+            requests.putDirectory(dir, true);
+        }
+
+        final MantaRequestLanes.Upload upload = lanes.create(mantaPath, headers, metadata);
+        final OutputStream written;
+
+        if (hadoopConfig.isWriteAttributesEnabled() || hadoopConfig.isCompositeCrcEnabled()) {
+            written = new MantaAttributesOutputStream(upload, upload::getETag, requests, mantaPath,
+                    durabilityHeaders(replication), metadata, crcBlockSize(mantaPath, blockSize));
+        } else {
+            written = upload;
         }
 
-        MantaObjectOutputStream out = client.putAsOutputStream(mantaPath, headers);
+        // The file only appears in listings once the upload completes
+        final OutputStream out = new ProxyOutputStream(written) {
+            @Override
+            public void close() throws IOException {
+                try {
+                    super.close();
+                } finally {
+                    statusResolver.invalidate(mantaPath);
+                }
+            }
+        };
 
         if (progressable != null) {
             ProgressingOutputStream pout = new ProgressingOutputStream(progressable, out);
@@ -284,6 +451,48 @@ public class MantaFileSystem extends FileSystem implements AutoCloseable {
         }
     }
 
+    /**
+     * Determines the size of the blocks that the composite CRC of a new
+     * file is computed for. The size doesn't change the resulting CRC.
+     *
+     * @param mantaPath path of the new file
+     * @param blockSize block size requested by the writer
+     * @return block size, or zero if no composite CRC is recorded
+     */
+    private long crcBlockSize(final String mantaPath, final long blockSize) {
+        if (!hadoopConfig.isCompositeCrcEnabled()) {
+            return 0L;
+        }
+
+        if (blockSize > 0) {
+            return blockSize;
+        }
+
+        final long defaultBlockSize = blockSizes.blockSizeFor(mantaPath);
+
+        if (defaultBlockSize > 0) {
+            return defaultBlockSize;
+        }
+
+        return HadoopConfigurationContext.DEFAULT_BLOCK_SIZE;
+    }
+
+    /**
+     * Creates the headers that set the durability level of a new object.
+     *
+     * @param replication requested replication factor
+     * @return new headers instance
+     */
+    private static MantaHttpHeaders durabilityHeaders(final short replication) {
+        final MantaHttpHeaders headers = new MantaHttpHeaders();
+
+        if (replication > 0) {
+            headers.setDurabilityLevel(replication);
+        }
+
+        return headers;
+    }
+
     @Override
     public FSDataOutputStream append(final Path path, final int i,
                                      final Progressable progressable) throws IOException {
@@ -298,6 +507,26 @@ public class MantaFileSystem extends FileSystem implements AutoCloseable {
 
     @Override
     public boolean delete(final Path path, final boolean recursive) throws IOException {
+        return delete(path, recursive, null);
+    }
+
+    /**
+     * Deletes a file or directory, reporting progress while deleting.
+     * Recursive deletes of directories list and delete the tree in parallel
+     * and remove each directory as soon as everything below it is gone.
+     *
+     * @param path path to delete
+     * @param recursive true to delete directories that aren't empty
+     * @param progress callback notified concurrently after every deletion, may be null
+     * @return true if the path was deleted, false if it didn't exist
+     * @throws IOException thrown when the path can't be deleted
+     */
+    public boolean delete(final Path path, final boolean recursive, final Progressable progress)
+            throws IOException {
+        if (hadoopConfig.isLeanMutations()) {
+            return deleteUnchecked(path, recursive, progress);
+        }
+
         String mantaPath = mantaPath(path);
 
         // We don't bother deleting something that doesn't exist
@@ -305,7 +534,7 @@ public class MantaFileSystem extends FileSystem implements AutoCloseable {
         final MantaObjectResponse head;
 
         try {
-             head = client.head(mantaPath);
+             head = requests.head(mantaPath);
         } catch (MantaClientHttpResponseException e) {
             if (e.getStatusCode() == HttpStatus.SC_NOT_FOUND) {
                 return false;
@@ -314,15 +543,86 @@ public class MantaFileSystem extends FileSystem implements AutoCloseable {
             throw e;
         }
 
-        if (recursive && head.isDirectory()) {
-            LOG.debug("Recursively deleting path: {}", mantaPath);
-            client.deleteRecursive(mantaPath);
-        } else {
-            LOG.debug("Deleting path: {}", mantaPath);
-            client.delete(mantaPath);
+        try {
+            if (recursive && head.isDirectory()) {
+                LOG.debug("Recursively deleting path: {}", mantaPath);
+                new MantaTreeDeleter(requests, workers, hadoopConfig.getDeleteRetries(), progress)
+                        .delete(mantaPath);
+            } else {
+                LOG.debug("Deleting path: {}", mantaPath);
+                requests.delete(mantaPath);
+
+                if (progress != null) {
+                    progress.progress();
+                }
+            }
+        } finally {
+            statusResolver.invalidate(mantaPath);
         }
 
-        return !client.existsAndIsAccessible(mantaPath);
+        // Failed deletes throw, so there is no need to check that the path is gone
+        return true;
+    }
+
+    /**
+     * Deletes many unrelated paths concurrently. Unlike {@link #delete(Path, boolean)}
+     * each path is deleted without checking whether it exists beforehand,
+     * so a file or an empty directory costs a single request. Directories
+     * that aren't empty are deleted in parallel like a recursive delete.
+     *
+     * @param paths paths to delete
+     * @param recursive true to delete directories that aren't empty
+     * @return one result per path in the iteration order of the paths, true
+     *         if the path was deleted and false if it didn't exist
+     * @throws IOException thrown when interrupted while waiting for results
+     */
+    public List<MantaBatchResult<Boolean>> delete(final Collection<Path> paths,
+                                                  final boolean recursive)
+            throws IOException {
+        LOG.debug("Deleting {} paths", paths.size());
+
+        return MantaBatch.run(workers, paths, path -> deleteUnchecked(path, recursive, null));
+    }
+
+    /**
+     * Deletes a path without checking whether it exists first, so that a
+     * file or empty directory costs a single request.
+     *
+     * @param path path to delete
+     * @param recursive true to delete the directory when it isn't empty
+     * @param progress callback notified concurrently after every deletion, may be null
+     * @return true if the path was deleted, false if it didn't exist
+     * @throws IOException thrown when the path can't be deleted
+     */
+    private boolean deleteUnchecked(final Path path, final boolean recursive,
+                                    final Progressable progress) throws IOException {
+        final String mantaPath = mantaPath(path);
+
+        try {
+            requests.delete(mantaPath);
+
+            if (progress != null) {
+                progress.progress();
+            }
+
+            return true;
+        } catch (MantaClientHttpResponseException e) {
+            if (e.getStatusCode() == HttpStatus.SC_NOT_FOUND) {
+                return false;
+            }
+
+            if (!recursive || e.getServerCode() != MantaErrorCode.DIRECTORY_NOT_EMPTY_ERROR) {
+                throw e;
+            }
+
+            LOG.debug("Recursively deleting path: {}", mantaPath);
+            new MantaTreeDeleter(requests, workers, hadoopConfig.getDeleteRetries(), progress)
+                    .delete(mantaPath);
+
+            return true;
+        } finally {
+            statusResolver.invalidate(mantaPath);
+        }
     }
 
     /**
@@ -342,7 +642,7 @@ public class MantaFileSystem extends FileSystem implements AutoCloseable {
 
         if (!overwrite) {
             try {
-                MantaObject head = client.head(mantaPath);
+                MantaObject head = requests.head(mantaPath);
                 if (!head.isDirectory()) {
                     throw new IOException("Can't copy file because destination "
                             + "already exists: " + dst);
@@ -357,7 +657,7 @@ public class MantaFileSystem extends FileSystem implements AutoCloseable {
                 // Make any missing parent paths
                 Path parent = dst.getParent();
                 LOG.debug("Creating parent directory: {}", parent);
-                client.putDirectory(mantaPath(parent), true);
+                requests.putDirectory(mantaPath(parent), true);
             }
         }
 
@@ -371,7 +671,11 @@ public class MantaFileSystem extends FileSystem implements AutoCloseable {
             return;
         }
 
-        client.put(mantaPath, localFile);
+        try {
+            lanes.put(mantaPath, localFile);
+        } finally {
+            statusResolver.invalidate(mantaPath);
+        }
 
         if (delSrc) {
             Files.delete(localFile.toPath());
@@ -408,7 +712,7 @@ public class MantaFileSystem extends FileSystem implements AutoCloseable {
         String mantaPath = mantaPath(src);
 
         try {
-            MantaObject head = client.head(mantaPath);
+            MantaObject head = requests.head(mantaPath);
 
             /* We don't support wildcard copy yet, so we rely on the default
              * implementation of this method. */
@@ -425,12 +729,14 @@ public class MantaFileSystem extends FileSystem implements AutoCloseable {
             throw e;
         }
 
-        try (MantaObjectInputStream in = client.getAsInputStream(mantaPath)) {
-            Files.copy(in, localFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
-        }
+        lanes.copy(mantaPath, localFile.toPath());
 
         if (delSrc) {
-            client.delete(mantaPath);
+            try {
+                requests.delete(mantaPath);
+            } finally {
+                statusResolver.invalidate(mantaPath);
+            }
         }
     }
 
@@ -445,13 +751,192 @@ public class MantaFileSystem extends FileSystem implements AutoCloseable {
             return new FileStatus[] {new MantaFileStatus(true, getHomeDirectory())};
         }
 
-        if (!client.existsAndIsAccessible(mantaPath)) {
+        final List<FileStatus> statuses = new ArrayList<>();
+
+        try (MantaStatusIterator itr = listDirectory(mantaPath, path)) {
+            while (itr.hasNext()) {
+                statuses.add(itr.next());
+            }
+        }
+
+        return statuses.toArray(new FileStatus[statuses.size()]);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>Entries are streamed one listing page at a time, so memory use is
+     * bounded by the page size rather than by the size of the directory.</p>
+     */
+    @Override
+    public RemoteIterator<FileStatus> listStatusIterator(final Path path) throws IOException {
+        LOG.debug("List status iterator for path: {}", path);
+        String mantaPath = mantaPath(path);
+
+        if (mantaPath.equals(SEPARATOR)) {
+            return new SingleEntryRemoteIterator<>(new MantaFileStatus(true, getHomeDirectory()));
+        }
+
+        return listDirectory(mantaPath, path);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>Directory trees are walked with listings of sibling directories
+     * running in parallel, rather than one directory at a time. The space
+     * consumed accounts for the durability level of each object.</p>
+     */
+    @Override
+    public ContentSummary getContentSummary(final Path path) throws IOException {
+        String mantaPath = mantaPath(path);
+
+        // The emulated root is summarized by the generic implementation
+        if (mantaPath.equals(SEPARATOR)) {
+            return super.getContentSummary(path);
+        }
+
+        final FileStatus status = getFileStatus(path);
+
+        if (status.isFile()) {
+            return new ContentSummary.Builder()
+                    .length(status.getLen())
+                    .fileCount(1L)
+                    .directoryCount(0L)
+                    .spaceConsumed(status.getLen() * status.getReplication())
+                    .build();
+        }
+
+        LOG.debug("Summarizing content of: {}", mantaPath);
+
+        final LongAdder length = new LongAdder();
+        final LongAdder fileCount = new LongAdder();
+        final LongAdder directoryCount = new LongAdder();
+        final LongAdder spaceConsumed = new LongAdder();
+
+        final MantaTreeWalker walker = new MantaTreeWalker(requests, workers, blockSizes);
+        walker.walk(mantaPath, entry -> {
+            if (entry.isDirectory()) {
+                directoryCount.increment();
+            } else {
+                length.add(entry.getLen());
+                fileCount.increment();
+                spaceConsumed.add(entry.getLen() * entry.getReplication());
+            }
+        });
+
+        // The summarized directory counts itself
+        return new ContentSummary.Builder()
+                .length(length.sum())
+                .fileCount(fileCount.sum())
+                .directoryCount(directoryCount.sum() + 1L)
+                .spaceConsumed(spaceConsumed.sum())
+                .build();
+    }
+
+    /**
+     * Lists a directory into a compact, column oriented store rather than
+     * an array of statuses. This is meant for callers that need to hold
+     * the statuses of very large listings in memory. Statuses are only
+     * materialized when read from the store.
+     *
+     * @param path directory to list
+     * @param recursive true to include the entries of all subdirectories
+     * @return store of the listed entries, allocated off-heap if configured
+     * @throws IOException thrown when the directory doesn't exist or can't be listed
+     */
+    public MantaFileStatusStore listStatusCompact(final Path path, final boolean recursive)
+            throws IOException {
+        LOG.debug("List compact status for path: {}", path);
+        String mantaPath = mantaPath(path);
+
+        final MantaFileStatusStore store = new MantaFileStatusStore(
+                hadoopConfig.isCompactListingOffHeap());
+
+        if (mantaPath.equals(SEPARATOR)) {
+            store.add(new MantaFileStatus(true, getHomeDirectory()));
+            return store;
+        }
+
+        if (!requests.existsAndIsAccessible(mantaPath)) {
+            throw new FileNotFoundException(mantaPath);
+        }
+
+        if (recursive) {
+            final MantaTreeWalker walker = new MantaTreeWalker(requests, workers, blockSizes);
+            walker.walk(mantaPath, status -> {
+                synchronized (store) {
+                    store.add(status);
+                }
+            });
+
+            return store;
+        }
+
+        final MantaListingDecoder decoder = new MantaListingDecoder(mantaPath, blockSizes);
+        final int parent = store.parent(mantaPath);
+
+        try (MantaDirectoryListing itr = requests.list(mantaPath, MantaTreeWalker.LISTING_PAGE_SIZE)) {
+            while (itr.hasNext()) {
+                decoder.decodeInto(itr.next(), store, parent);
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+
+        return store;
+    }
+
+    /**
+     * Opens a streaming listing of a directory.
+     *
+     * @param mantaPath directory to list
+     * @param path Hadoop path of the directory
+     * @return iterator of the statuses of the directory's entries
+     * @throws IOException thrown when the directory doesn't exist or can't be listed
+     */
+    private MantaStatusIterator listDirectory(final String mantaPath, final Path path)
+            throws IOException {
+        if (!requests.existsAndIsAccessible(mantaPath)) {
             throw new FileNotFoundException(mantaPath);
         }
 
-        return client.listObjects(mantaPath)
-                .map((Function<MantaObject, FileStatus>) MantaFileStatus::new)
-                .toArray(FileStatus[]::new);
+        return new MantaStatusIterator(requests.list(mantaPath, MantaTreeWalker.LISTING_PAGE_SIZE),
+                new MantaListingDecoder(mantaPath, blockSizes), path);
+    }
+
+    @Override
+    public FileStatus[] globStatus(final Path pathPattern) throws IOException {
+        return globStatus(pathPattern, ACCEPT_ALL);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>Literal path components are resolved without listing and directories
+     * matched by wildcards are expanded concurrently. Patterns using brace
+     * alternation or escapes are expanded by the generic Hadoop globber.</p>
+     */
+    @Override
+    public FileStatus[] globStatus(final Path pathPattern, final PathFilter filter)
+            throws IOException {
+        final String mantaPattern = mantaPath(pathPattern);
+
+        if (!MantaGlobber.isSupported(mantaPattern)) {
+            LOG.debug("Using generic globber for pattern: {}", pathPattern);
+            return super.globStatus(pathPattern, filter);
+        }
+
+        LOG.debug("Glob status for pattern: {}", mantaPattern);
+
+        final MantaGlobber globber = new MantaGlobber(this, requests, workers, blockSizes);
+
+        // Like the generic globber, return matches in the form the pattern was given in
+        if (usesHomeAlias(pathPattern.toUri().getPath())) {
+            return globber.globStatus(mantaPattern, config.getMantaHomeDirectory(), filter);
+        }
+
+        return globber.globStatus(mantaPattern, null, filter);
     }
 
     @Override
@@ -461,7 +946,7 @@ public class MantaFileSystem extends FileSystem implements AutoCloseable {
 
         String mantaPath = mantaPath(path);
 
-        if (!client.existsAndIsAccessible(mantaPath)) {
+        if (!requests.existsAndIsAccessible(mantaPath)) {
             throw new FileNotFoundException(mantaPath);
         }
 
@@ -472,12 +957,12 @@ public class MantaFileSystem extends FileSystem implements AutoCloseable {
             return new SingleEntryRemoteIterator<>(singleEntry);
         }
 
-        if (!client.existsAndIsAccessible(mantaPath)) {
+        if (!requests.existsAndIsAccessible(mantaPath)) {
             throw new FileNotFoundException(mantaPath);
         }
 
-        Stream<MantaObject> stream = client.listObjects(mantaPath);
-        return new MantaRemoteIterator(filter, stream, path, this, true);
+        return new MantaRemoteIterator(filter, requests.list(mantaPath, MantaTreeWalker.LISTING_PAGE_SIZE),
+                new MantaListingDecoder(mantaPath, blockSizes), path, this, true);
     }
 
     @Override
@@ -487,19 +972,32 @@ public class MantaFileSystem extends FileSystem implements AutoCloseable {
 
         String mantaPath = mantaPath(path);
 
-        if (!client.existsAndIsAccessible(mantaPath)) {
+        if (!requests.existsAndIsAccessible(mantaPath)) {
             throw new FileNotFoundException(mantaPath);
         }
 
-        final Stream stream;
-
         if (recursive) {
-            stream = client.find(mantaPath).filter(obj -> !obj.isDirectory());
-        } else {
-            stream = client.listObjects(mantaPath).filter(obj -> !obj.isDirectory());
+            final MantaTreeWalker walker = new MantaTreeWalker(requests, workers, blockSizes);
+            return new MantaTreeRemoteIterator(walker, mantaPath, new Path(mantaPath),
+                    this, hadoopConfig.getListQueueSize(), hadoopConfig.getListConsumerTimeout());
         }
 
-        return new MantaRemoteIterator(null, stream, new Path(mantaPath), this, true);
+        return MantaRemoteIterator.files(requests.list(mantaPath, MantaTreeWalker.LISTING_PAGE_SIZE),
+                new MantaListingDecoder(mantaPath, blockSizes), new Path(mantaPath), this);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>Manta has no notion of blocks, so we synthesize block locations by
+     * splitting the file on its reported block size without making any
+     * remote calls, see {@link MantaBlockLocations}.</p>
+     */
+    @Override
+    public BlockLocation[] getFileBlockLocations(final FileStatus file,
+                                                 final long start,
+                                                 final long len) {
+        return MantaBlockLocations.of(file, start, len);
     }
 
     @Override
@@ -526,23 +1024,96 @@ public class MantaFileSystem extends FileSystem implements AutoCloseable {
     public boolean mkdirs(final Path path, final FsPermission fsPermission) throws IOException {
         String mantaPath = mantaPath(path);
 
-        client.putDirectory(mantaPath, true);
-        return client.existsAndIsAccessible(mantaPath);
-    }
+        try {
+            if (!hadoopConfig.isLeanMutations()) {
+                requests.putDirectory(mantaPath, true);
+                return requests.existsAndIsAccessible(mantaPath);
+            }
 
-    @Override
-    public FileStatus getFileStatus(final Path path) throws IOException {
-        String mantaPath = mantaPath(path);
-        LOG.debug("Getting path status for: {}", mantaPath);
+            // Usually the parent exists, so a single request is enough
+            try {
+                requests.putDirectory(mantaPath);
+            } catch (MantaClientHttpResponseException e) {
+                if (e.getStatusCode() != HttpStatus.SC_NOT_FOUND) {
+                    throw e;
+                }
 
-        if (mantaPath.equals(SEPARATOR)) {
-            return MantaFileStatus.ROOT;
+                requests.putDirectory(mantaPath, true);
+            }
+        } finally {
+            statusResolver.invalidate(mantaPath);
         }
 
-        final MantaObjectResponse response;
+        // Failed creations throw, so there is no need to check that the directory exists
+        return true;
+    }
+
+    /**
+     * Creates many directories and their missing parents. Every directory
+     * shared by the requested paths is created exactly once, the directories
+     * of each level are created concurrently and, unlike
+     * {@link #mkdirs(Path, FsPermission)}, no request is made to check the
+     * result.
+     *
+     * @param paths directories to create
+     * @return one result per path in the iteration order of the paths, a
+     *         directory fails when it or one of its parents couldn't be created
+     * @throws IOException thrown when interrupted while waiting for results
+     */
+    public List<MantaBatchResult<Boolean>> mkdirs(final Collection<Path> paths)
+            throws IOException {
+        LOG.debug("Creating {} directories", paths.size());
+
+        final List<String> mantaPaths = new ArrayList<>(paths.size());
+
+        for (Path path : paths) {
+            mantaPaths.add(mantaPath(path));
+        }
+
+        final List<MantaBatchResult<Boolean>> created;
+
+        try {
+            created = new MantaDirectoryCreator(requests, workers).mkdirs(mantaPaths);
+        } finally {
+            mantaPaths.forEach(statusResolver::invalidate);
+        }
+
+        final List<MantaBatchResult<Boolean>> results = new ArrayList<>(created.size());
+        int i = 0;
+
+        // Report the paths as they were passed in rather than as Manta paths
+        for (Path path : paths) {
+            final MantaBatchResult<Boolean> result = created.get(i++);
+
+            if (result.isSuccess()) {
+                results.add(MantaBatchResult.success(path, true));
+            } else {
+                results.add(MantaBatchResult.failure(path, result.getError()));
+            }
+        }
+
+        return results;
+    }
+
+    @Override
+    public FileStatus getFileStatus(final Path path) throws IOException {
+        String mantaPath = mantaPath(path);
+        LOG.debug("Getting path status for: {}", mantaPath);
+
+        if (mantaPath.equals(SEPARATOR)) {
+            return MantaFileStatus.ROOT;
+        }
+
+        final MantaFileStatus listed = statusResolver.resolve(mantaPath, path);
+
+        if (listed != null) {
+            return listed;
+        }
+
+        final MantaObjectResponse response;
 
         try {
-            response = client.head(mantaPath);
+            response = requests.head(mantaPath);
         } catch (MantaClientHttpResponseException e) {
             if (e.getStatusCode() == HttpStatus.SC_NOT_FOUND) {
                 throw new FileNotFoundException(mantaPath);
@@ -551,20 +1122,38 @@ public class MantaFileSystem extends FileSystem implements AutoCloseable {
             throw e;
         }
 
-        MantaFileStatus status = new MantaFileStatus(response, path);
+        MantaFileStatus status = new MantaFileStatus(response, path,
+                blockSizes.blockSizeFor(mantaPath));
 
         return status;
     }
 
+    /**
+     * Gets the status of many paths concurrently. Each path is resolved with
+     * {@link #getFileStatus(Path)} on the worker pool, so the number of
+     * requests in flight is bounded by <code>fs.manta.parallelism</code>.
+     *
+     * @param paths paths to resolve
+     * @return one result per path in the iteration order of the paths, paths
+     *         that don't exist fail with a {@link FileNotFoundException}
+     * @throws IOException thrown when interrupted while waiting for results
+     */
+    public List<MantaBatchResult<FileStatus>> getFileStatuses(final Collection<Path> paths)
+            throws IOException {
+        LOG.debug("Getting path status for {} paths", paths.size());
+
+        return MantaBatch.run(workers, paths, this::getFileStatus);
+    }
+
     @Override
     public boolean exists(final Path path) throws IOException {
-        return client.existsAndIsAccessible(mantaPath(path));
+        return requests.existsAndIsAccessible(mantaPath(path));
     }
 
     @Override
     public boolean isDirectory(final Path path) throws IOException {
         try {
-            return client.head(mantaPath(path)).isDirectory();
+            return requests.head(mantaPath(path)).isDirectory();
         } catch (MantaClientHttpResponseException e) {
             /* We imitate the behavior of FileSystem.isDirectory, by changing a
              * FileNotFoundException into a false return value. */
@@ -578,7 +1167,16 @@ public class MantaFileSystem extends FileSystem implements AutoCloseable {
 
     @Override
     public boolean isFile(final Path path) throws IOException {
-        return !isDirectory(path);
+        try {
+            return !requests.head(mantaPath(path)).isDirectory();
+        } catch (MantaClientHttpResponseException e) {
+            // Paths that don't exist are neither files nor directories
+            if (e.getStatusCode() == HttpStatus.SC_NOT_FOUND) {
+                return false;
+            }
+
+            throw e;
+        }
     }
 
     @Override
@@ -588,7 +1186,7 @@ public class MantaFileSystem extends FileSystem implements AutoCloseable {
         final String contentType;
 
         try {
-            MantaObject head = client.head(mantaPath);
+            MantaObject head = requests.head(mantaPath);
             contentType = head.getContentType();
         } catch (MantaClientHttpResponseException e) {
             if (e.getStatusCode() == HttpStatus.SC_NOT_FOUND) {
@@ -602,7 +1200,13 @@ public class MantaFileSystem extends FileSystem implements AutoCloseable {
             MantaHttpHeaders headers = new MantaHttpHeaders()
                     .setContentType(contentType);
 
-            client.put(mantaPath, "", headers, null);
+            try {
+                requests.call("truncate of [" + mantaPath + "]",
+                        () -> client.put(mantaPath, "", headers, null));
+            } finally {
+                statusResolver.invalidate(mantaPath);
+            }
+
             return true;
         }
 
@@ -623,14 +1227,29 @@ public class MantaFileSystem extends FileSystem implements AutoCloseable {
         final String mantaPath = mantaPath(file);
 
         try {
-            final MantaObject head = client.head(mantaPath);
+            final MantaObject head = requests.head(mantaPath);
 
             if (head.isDirectory()) {
                 throw new IOException("Can't get checksum of directory");
             }
 
-            byte[] md5bytes = head.getMd5Bytes();
-            return new MantaChecksum(md5bytes);
+            if (hadoopConfig.isCompositeCrcEnabled()) {
+                final MantaCompositeCrc crc = MantaFileAttributes.compositeCrc(head);
+
+                if (crc != null) {
+                    return crc;
+                }
+
+                LOG.debug("No composite CRC recorded for {}, falling back to MD5", mantaPath);
+            }
+
+            final byte[] written = MantaFileAttributes.md5(head);
+
+            if (written != null) {
+                return new MantaChecksum(written);
+            }
+
+            return new MantaChecksum(head.getMd5Bytes());
         } catch (MantaClientHttpResponseException e) {
             if (e.getStatusCode() == HttpStatus.SC_NOT_FOUND) {
                 throw new FileNotFoundException(mantaPath);
@@ -643,6 +1262,8 @@ public class MantaFileSystem extends FileSystem implements AutoCloseable {
      * Get the checksum of a file, from the beginning of the file till the
      * specific length. Warning this operation is slow because we either have to
      * download the entire file or run a remote job in order to calculate the checksum.
+     * Checksums are cached by the etag of the file, so asking again for the
+     * same range of an unchanged file only costs a HEAD request.
      *
      * @param file The file path
      * @param length The length of the file range for checksum calculation*
@@ -656,17 +1277,13 @@ public class MantaFileSystem extends FileSystem implements AutoCloseable {
         final String mantaPath = mantaPath(file);
 
         try {
-            final MantaObject head = client.head(mantaPath);
+            final MantaObject head = requests.head(mantaPath);
 
             if (head.isDirectory()) {
                 throw new IOException("Can't get checksum of directory");
             }
 
-            if (head.getContentLength() > DEFAULT_THRESHOLD_FOR_REMOTE_CHECKSUM_CALC) {
-                return getFileChecksumRemotely(mantaPath, length);
-            } else {
-                return getFileChecksumLocally(mantaPath, length);
-            }
+            return checksums.checksum(head, length);
         } catch (MantaClientHttpResponseException e) {
             if (e.getStatusCode() == HttpStatus.SC_NOT_FOUND) {
                 throw new FileNotFoundException(mantaPath);
@@ -686,15 +1303,8 @@ public class MantaFileSystem extends FileSystem implements AutoCloseable {
      * @return the checksum of an arbitrary amount of bytes from the start of a file
      * @throws IOException thrown when unable to compute the checksum
      */
-    FileChecksum getFileChecksumLocally(final String mantaPath, final long length) throws IOException {
-        LOG.debug("Calculating checksum for file {} locally by downloading all content",
-                mantaPath);
-
-        try (InputStream in = client.getAsInputStream(mantaPath);
-             BoundedInputStream bin = new BoundedInputStream(in, length)) {
-            byte[] bytes = DigestUtils.md5(bin);
-            return new MantaChecksum(bytes);
-        }
+    MantaChecksum getFileChecksumLocally(final String mantaPath, final long length) throws IOException {
+        return checksums.locally(mantaPath, length);
     }
 
     /**
@@ -707,45 +1317,40 @@ public class MantaFileSystem extends FileSystem implements AutoCloseable {
      * @return the checksum of an arbitrary amount of bytes from the start of a file
      * @throws IOException thrown when unable to compute the checksum
      */
-    FileChecksum getFileChecksumRemotely(final String mantaPath, final long length) throws IOException {
-        LOG.debug("Calculating checksum for file {} remotely using Manta job",
-                mantaPath);
-
-        MantaJobBuilder builder = client.jobBuilder();
-        String jobName = String.format("hadoop-range-checksum-%s",
-                UUID.randomUUID());
-
-        MantaJobBuilder.Run runningJob = builder.newJob(jobName)
-                .addInput(mantaPath)
-                .addPhase(new MantaJobPhase()
-                .setType("reduce")
-                .setExec(String.format("head -c %d | md5sum -b | cut -d' ' -f1", length)))
-                .validateInputs()
-                .run();
+    MantaChecksum getFileChecksumRemotely(final String mantaPath, final long length) throws IOException {
+        return checksums.remotely(mantaPath, length);
+    }
 
-        MantaJobBuilder.Done finishedJob = runningJob.waitUntilDone()
-                .validateJobsSucceeded();
+    /**
+     * Get the checksums of many files, from the beginning of each file till
+     * the specific length, with a single remote job. This is much faster
+     * than getting the checksum of each file on its own when there are many
+     * files, but still slow because the job has to read every file.
+     *
+     * @param files the file paths
+     * @param length The length of the file range for checksum calculation
+     * @return the checksum of each distinct file in the iteration order of the files
+     * @throws IOException thrown when the job fails or can't checksum every file
+     */
+    public Map<Path, MantaChecksum> getFileChecksums(final Collection<Path> files,
+                                                     final long length) throws IOException {
+        Preconditions.checkNotNull(files, "Files must not be null");
 
-        String hexString = null;
+        final Map<String, Path> paths = new LinkedHashMap<>(files.size());
 
-        try (Stream<String> outputs = finishedJob.outputs()) {
-            Optional<String> first = outputs.findFirst();
+        for (Path file : files) {
+            paths.putIfAbsent(mantaPath(file), file);
+        }
 
-            if (!first.isPresent()) {
-                String msg = String.format("No md5 outputted from calculation job [%s]",
-                        runningJob.getJob().getId());
-                throw new IOException(msg);
-            }
+        final Map<Path, MantaChecksum> results = new LinkedHashMap<>(paths.size());
 
-            hexString = first.get().trim();
-            return new MantaChecksum(hexString);
-        } catch (DecoderException e) {
-            String msg = String.format("Unable to decode hex string as md5: %s",
-                    hexString);
-            throw new IOException(msg, e);
+        for (Map.Entry<String, MantaChecksum> entry
+                : checksums.remotely(paths.keySet(), length).entrySet()) {
+            results.put(paths.get(entry.getKey()), entry.getValue());
         }
-    }
 
+        return results;
+    }
 
     /**
      * Return the total size of all files in the filesystem.
@@ -758,7 +1363,8 @@ public class MantaFileSystem extends FileSystem implements AutoCloseable {
         String json = null;
 
         try {
-             json = client.getAsString(usageFilePath);
+             json = requests.call("read of [" + usageFilePath + "]",
+                     () -> client.getAsString(usageFilePath));
         } catch (MantaClientHttpResponseException e) {
             if (e.getStatusCode() == HttpStatus.SC_NOT_FOUND) {
                 String msg = "Usage report file not found. Typically it will take"
@@ -779,6 +1385,31 @@ public class MantaFileSystem extends FileSystem implements AutoCloseable {
                 .sum();
     }
 
+    /**
+     * Return the virtual block size reported for files that don't match a
+     * configured path prefix.
+     *
+     * @deprecated use {@link #getDefaultBlockSize(Path)} instead
+     */
+    @Override
+    @Deprecated
+    public long getDefaultBlockSize() {
+        return blockSizes.getDefaultBlockSize();
+    }
+
+    /**
+     * Return the virtual block size reported for files at the specified path.
+     * Manta has no notion of blocks, the block size is only used to split
+     * large files into parallel units of work.
+     *
+     * @param path path of the file
+     * @return virtual block size for the path
+     */
+    @Override
+    public long getDefaultBlockSize(final Path path) {
+        return blockSizes.blockSizeFor(mantaPath(path));
+    }
+
     /**
      * Get the default replication.
      *
@@ -806,12 +1437,23 @@ public class MantaFileSystem extends FileSystem implements AutoCloseable {
         try {
             super.close();
         } finally {
+            if (workers != null) {
+                workers.shutdownNow();
+            }
+
+            if (lanes != null) {
+                lanes.close();
+            }
+
             client.closeQuietly();
         }
     }
 
     /**
-     * Moves an object from one path to another.
+     * Moves an object from one path to another. Directories are renamed in
+     * parallel by a {@link MantaTreeRenamer} when the destination doesn't
+     * exist and <code>fs.manta.rename.parallel</code> is enabled.
+     *
      * @param original path to move from
      * @param newName path to move to
      * @return true if moved successfully
@@ -821,15 +1463,344 @@ public class MantaFileSystem extends FileSystem implements AutoCloseable {
         String source = mantaPath(original);
         String destination = mantaPath(newName);
 
-        if (!client.existsAndIsAccessible(source)) {
-            throw new FileNotFoundException(source);
+        if (destination.startsWith(source + SEPARATOR)) {
+            LOG.debug("Can't move [{}] into its own subtree [{}]", original, newName);
+            return false;
+        }
+
+        try {
+            return move(original, newName, source, destination);
+        } finally {
+            statusResolver.invalidate(source);
+            statusResolver.invalidate(destination);
+        }
+    }
+
+    /**
+     * Moves an object from one path to another without invalidating the
+     * cached listings of the paths.
+     *
+     * @param original path to move from
+     * @param newName path to move to
+     * @param source Manta path to move from
+     * @param destination Manta path to move to
+     * @return true if moved successfully
+     * @throws IOException thrown when we can't move paths
+     */
+    private boolean move(final Path original, final Path newName,
+                         final String source, final String destination) throws IOException {
+        if (hadoopConfig.isLeanMutations()) {
+            if (moveObjectByLink(source, destination, true)) {
+                return true;
+            }
+
+            // The source is a directory
+            if (hadoopConfig.isParallelRename() && !requests.existsAndIsAccessible(destination)) {
+                LOG.debug("Renaming directory [{}] to [{}] in parallel", original, newName);
+                newTreeRenamer(null).rename(source, destination);
+            } else {
+                LOG.debug("Moving [{}] to [{}]", original, newName);
+                requests.move(source, destination, true);
+            }
+
+            return true;
+        }
+
+        if (!hadoopConfig.isParallelRename()) {
+            if (!requests.existsAndIsAccessible(source)) {
+                throw new FileNotFoundException(source);
+            }
+
+            LOG.debug("Moving [{}] to [{}]", original, newName);
+
+            requests.move(source, destination, true);
+
+            return requests.existsAndIsAccessible(destination);
+        }
+
+        final MantaObjectResponse head;
+
+        try {
+            head = requests.head(source);
+        } catch (MantaClientHttpResponseException e) {
+            if (e.getStatusCode() == HttpStatus.SC_NOT_FOUND) {
+                throw new FileNotFoundException(source);
+            }
+
+            throw e;
+        }
+
+        if (head.isDirectory() && !requests.existsAndIsAccessible(destination)) {
+            LOG.debug("Renaming directory [{}] to [{}] in parallel", original, newName);
+            newTreeRenamer(null).rename(source, destination);
+        } else {
+            LOG.debug("Moving [{}] to [{}]", original, newName);
+            requests.move(source, destination, true);
+        }
+
+        // Failed moves throw, so there is no need to check that the destination exists
+        return true;
+    }
+
+    /**
+     * Moves an object by linking it to its new path and deleting the old
+     * path, without checking the source beforehand. The outcome is derived
+     * from the error codes returned by Manta.
+     *
+     * @param source path to move
+     * @param destination path to move to
+     * @param createParents true to create missing parents of the destination
+     * @return true if the object was moved, false if the source is a directory
+     * @throws IOException thrown when the source doesn't exist or can't be moved
+     */
+    private boolean moveObjectByLink(final String source, final String destination,
+                                     final boolean createParents) throws IOException {
+        try {
+            requests.putSnapLink(destination, source, null);
+        } catch (MantaClientHttpResponseException e) {
+            final MantaErrorCode code = e.getServerCode();
+
+            if (code == MantaErrorCode.LINK_NOT_OBJECT_ERROR) {
+                return false;
+            }
+
+            if (code == MantaErrorCode.DIRECTORY_DOES_NOT_EXIST_ERROR && createParents) {
+                requests.putDirectory(FilenameUtils.getFullPathNoEndSeparator(destination), true);
+                return moveObjectByLink(source, destination, false);
+            }
+
+            if (e.getStatusCode() == HttpStatus.SC_NOT_FOUND) {
+                throw new FileNotFoundException(source);
+            }
+
+            throw e;
+        }
+
+        LOG.debug("Moved [{}] to [{}] with a snaplink", source, destination);
+        requests.delete(source);
+        return true;
+    }
+
+    /**
+     * Finishes a parallel directory rename that was interrupted, for example
+     * because the process renaming it died.
+     *
+     * @param destination destination of the rename
+     * @param progress callback notified concurrently after every request, may be null
+     * @return true if a rename was finished, false if there was no unfinished
+     *         rename to the destination
+     * @throws IOException thrown when the rename fails again
+     */
+    public boolean resumeRename(final Path destination, final Progressable progress)
+            throws IOException {
+        return newTreeRenamer(progress).resume(mantaPath(destination));
+    }
+
+    /**
+     * Undoes a parallel directory rename that was interrupted while its
+     * objects were being linked, leaving the source as it was before the
+     * rename.
+     *
+     * @param destination destination of the rename
+     * @param progress callback notified concurrently after every request, may be null
+     * @return true if a rename was rolled back, false if there was no unfinished
+     *         rename to the destination
+     * @throws IOException thrown when the rename already started deleting
+     *                     the source or the destination can't be deleted
+     */
+    public boolean rollbackRename(final Path destination, final Progressable progress)
+            throws IOException {
+        return newTreeRenamer(progress).rollback(mantaPath(destination));
+    }
+
+    /**
+     * Copies a file or directory tree within Manta without transferring any
+     * data. Files are copied with a single snaplink request and directory
+     * trees are linked in parallel by a {@link MantaTreeLinker}. Like
+     * {@link FileUtil#copy(FileSystem, Path, FileSystem, Path, boolean, boolean, Configuration)}
+     * a copy to an existing directory is made inside of it, and missing
+     * parents of the destination are created.
+     *
+     * @param src path to copy
+     * @param dst path to copy to
+     * @param overwrite true to replace an existing destination file
+     * @param progress callback notified concurrently after every link, may be null
+     * @return true once the copy has been made
+     * @throws IOException thrown when the source doesn't exist, the destination
+     *                     exists and can't be replaced or a link fails
+     */
+    public boolean copy(final Path src, final Path dst, final boolean overwrite,
+                        final Progressable progress) throws IOException {
+        final String source = mantaPath(src);
+        final MantaObjectResponse head;
+
+        try {
+            head = requests.head(source);
+        } catch (MantaClientHttpResponseException e) {
+            if (e.getStatusCode() == HttpStatus.SC_NOT_FOUND) {
+                throw new FileNotFoundException(source);
+            }
+
+            throw e;
+        }
+
+        final String destination = copyDestination(FilenameUtils.getName(source),
+                mantaPath(dst), overwrite);
+
+        if (destination.equals(source) || destination.startsWith(source + SEPARATOR)) {
+            throw new IOException(String.format("Can't copy %s to itself or its subtree %s",
+                    source, destination));
+        }
+
+        try {
+            if (head.isDirectory()) {
+                // The linker creates the destination, but not its parents
+                requests.putDirectory(FilenameUtils.getFullPathNoEndSeparator(destination), true);
+
+                LOG.debug("Copying directory [{}] to [{}] with snaplinks", source, destination);
+                new MantaTreeLinker(requests, workers,
+                        new MantaRetrier(hadoopConfig.getDeleteRetries(), requests), progress)
+                        .link(source, destination);
+            } else {
+                LOG.debug("Copying [{}] to [{}] with a snaplink", source, destination);
+                copyObjectByLink(source, destination, true);
+
+                if (progress != null) {
+                    progress.progress();
+                }
+            }
+        } finally {
+            statusResolver.invalidate(destination);
+        }
+
+        return true;
+    }
+
+    /**
+     * Links an object to a new path. Usually the parent of the destination
+     * exists, so it is only created when Manta reports it missing.
+     *
+     * @param source object to link
+     * @param destination path to link to
+     * @param createParents true to create missing parents of the destination
+     * @throws IOException thrown when the link fails
+     */
+    private void copyObjectByLink(final String source, final String destination,
+                                  final boolean createParents) throws IOException {
+        try {
+            requests.putSnapLink(destination, source, null);
+        } catch (MantaClientHttpResponseException e) {
+            if (e.getServerCode() == MantaErrorCode.DIRECTORY_DOES_NOT_EXIST_ERROR && createParents) {
+                requests.putDirectory(FilenameUtils.getFullPathNoEndSeparator(destination), true);
+                copyObjectByLink(source, destination, false);
+                return;
+            }
+
+            throw e;
+        }
+    }
+
+    /**
+     * Copies between two filesystems, using snaplinks when both paths are
+     * stored in the same Manta account and
+     * {@link FileUtil#copy(FileSystem, Path, FileSystem, Path, boolean, boolean, Configuration)}
+     * otherwise. Hadoop has no hook that lets a filesystem replace the
+     * copies done by <code>hadoop fs -cp</code> or distcp, so tools that copy
+     * within Manta should call this method instead.
+     *
+     * @param srcFS filesystem to copy from
+     * @param src path to copy
+     * @param dstFS filesystem to copy to
+     * @param dst path to copy to
+     * @param deleteSource true to delete the source once it has been copied
+     * @param overwrite true to replace an existing destination file
+     * @param conf configuration used when data has to be transferred
+     * @return true if the copy was made
+     * @throws IOException thrown when the copy fails
+     */
+    public static boolean copy(final FileSystem srcFS, final Path src,
+                               final FileSystem dstFS, final Path dst,
+                               final boolean deleteSource, final boolean overwrite,
+                               final Configuration conf) throws IOException {
+        if (!(srcFS instanceof MantaFileSystem && dstFS instanceof MantaFileSystem)
+                || !((MantaFileSystem)srcFS).isSameAccount((MantaFileSystem)dstFS)) {
+            return FileUtil.copy(srcFS, src, dstFS, dst, deleteSource, overwrite, conf);
+        }
+
+        // The working directories of the filesystems may differ
+        final Path source = srcFS.makeQualified(src);
+        final MantaFileSystem manta = (MantaFileSystem)dstFS;
+        manta.copy(source, dst, overwrite, null);
+
+        if (!deleteSource) {
+            return true;
         }
 
-        LOG.debug("Moving [{}] to [{}]", original, newName);
+        // Deleting through the source filesystem discards its cached listings
+        try {
+            return srcFS.delete(source, true);
+        } finally {
+            manta.statusResolver.invalidate(manta.mantaPath(source));
+        }
+    }
+
+    /**
+     * @param other another Manta filesystem
+     * @return true if both filesystems store their data in the same Manta
+     *         account, so that objects can be linked between them
+     */
+    private boolean isSameAccount(final MantaFileSystem other) {
+        return this == other
+                || (Objects.equals(config.getMantaURL(), other.config.getMantaURL())
+                && Objects.equals(config.getMantaUser(), other.config.getMantaUser()));
+    }
 
-        client.move(source, destination, true);
+    /**
+     * Resolves the destination of a copy the same way as {@link FileUtil}:
+     * copies to an existing directory are made inside of it.
+     *
+     * @param srcName name of the path being copied, or null if the copy is
+     *                already being made inside of a directory
+     * @param destination requested destination
+     * @param overwrite true to replace an existing destination file
+     * @return resolved destination
+     * @throws IOException thrown when the destination exists and can't be replaced
+     */
+    private String copyDestination(final String srcName, final String destination,
+                                   final boolean overwrite) throws IOException {
+        final MantaObjectResponse head;
 
-        return client.existsAndIsAccessible(destination);
+        try {
+            head = requests.head(destination);
+        } catch (MantaClientHttpResponseException e) {
+            if (e.getStatusCode() == HttpStatus.SC_NOT_FOUND) {
+                return destination;
+            }
+
+            throw e;
+        }
+
+        if (head.isDirectory()) {
+            if (srcName == null) {
+                throw new FileAlreadyExistsException("Target " + destination + " is a directory");
+            }
+
+            return copyDestination(null, destination + SEPARATOR + srcName, overwrite);
+        }
+
+        if (!overwrite) {
+            throw new FileAlreadyExistsException("Target " + destination + " already exists");
+        }
+
+        return destination;
+    }
+
+    /**
+     * @param progress callback notified concurrently after every request, may be null
+     * @return new renamer for a single directory rename
+     */
+    private MantaTreeRenamer newTreeRenamer(final Progressable progress) {
+        return new MantaTreeRenamer(requests, workers, hadoopConfig.getDeleteRetries(), progress);
     }
 
     @Override
@@ -862,15 +1833,43 @@ public class MantaFileSystem extends FileSystem implements AutoCloseable {
     private String substituteHomeDirectory(final String rawPath) {
         Objects.requireNonNull(rawPath, "Manta path is null");
 
-        final String withoutPrefix = StringUtils.removeStart(rawPath, SEPARATOR);
-
-        if (withoutPrefix.startsWith(HOME_ALIAS)) {
+        if (usesHomeAlias(rawPath)) {
             return config.getMantaHomeDirectory() + rawPath.substring(HOME_ALIAS.length() + 1);
         }
 
         return rawPath;
     }
 
+    /**
+     * @param rawPath path to check
+     * @return true if the path starts with the Manta home directory alias
+     */
+    private static boolean usesHomeAlias(final String rawPath) {
+        return StringUtils.removeStart(rawPath, SEPARATOR).startsWith(HOME_ALIAS);
+    }
+
+    /**
+     * @return counters of the metadata requests sent by this filesystem
+     */
+    public MantaRequestCounters getRequestCounters() {
+        return requests.getCounters();
+    }
+
+    /**
+     * @return limiter that adapts the number of concurrent requests of this
+     *         filesystem to throttling by Manta
+     */
+    public MantaConcurrencyLimiter getConcurrencyLimiter() {
+        return lanes.getLimiter();
+    }
+
+    /**
+     * @return lanes the data transfers of this filesystem are sent in
+     */
+    MantaRequestLanes getRequestLanes() {
+        return lanes;
+    }
+
     /**
      * Converts a Hadoop {@link Path} object to a path String that the Manta
      * client understands.
@@ -878,7 +1877,7 @@ public class MantaFileSystem extends FileSystem implements AutoCloseable {
      * @param path Hadoop path object to convert
      * @return String representation of path on Manta
      */
-    private String mantaPath(final Path path) {
+    String mantaPath(final Path path) {
         final String mantaPath;
 
         if (path.toUri() == null) {
@@ -916,6 +1915,38 @@ public class MantaFileSystem extends FileSystem implements AutoCloseable {
         return this.client;
     }
 
+    /**
+     * @return metadata requests that are limited together with the rest of the filesystem
+     */
+    MantaMetadataRequests getMetadataRequests() {
+        return this.requests;
+    }
+
+    /**
+     * @return executor that runs compute jobs
+     */
+    MantaJobExecutor getJobExecutor() {
+        return this.jobExecutor;
+    }
+
+    /**
+     * Replaces the executor that runs compute jobs.
+     *
+     * @param executor executor used instead of Manta compute
+     */
+    @VisibleForTesting
+    void setJobExecutor(final MantaJobExecutor executor) {
+        this.jobExecutor = Preconditions.checkNotNull(executor, "Job executor must not be null");
+        this.checksums = this.checksums.withExecutor(executor);
+    }
+
+    /**
+     * @return pool of worker threads used for parallel operations
+     */
+    ForkJoinPool getWorkers() {
+        return this.workers;
+    }
+
     /**
      * Package private visibility method for getting the Manta SDK configuration
      * used for test.
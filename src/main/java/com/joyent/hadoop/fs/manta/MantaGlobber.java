@@ -0,0 +1,410 @@
+package com.joyent.hadoop.fs.manta;
+
+import com.google.common.base.Preconditions;
+import com.joyent.manta.exception.MantaClientHttpResponseException;
+import com.joyent.manta.exception.MantaObjectException;
+import org.apache.commons.lang.StringUtils;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.GlobFilter;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.fs.PathFilter;
+import org.apache.http.HttpStatus;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountedCompleter;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+import static com.joyent.manta.client.MantaClient.SEPARATOR;
+
+/**
+ * Expands glob patterns against Manta without listing every directory level
+ * one after another like the generic Hadoop globber does.
+ *
+ * <ul>
+ *     <li>Literal path components are appended without any request.</li>
+ *     <li>Each directory matched by a wildcard component is expanded by its
+ *         own task, so sibling directories are listed concurrently on a
+ *         bounded {@link ForkJoinPool}.</li>
+ *     <li>Only patterns that end in literal components need a status lookup
+ *         to confirm that the match exists.</li>
+ * </ul>
+ *
+ * <p>Brace alternation and escaped characters can span or change component
+ * boundaries, so patterns using them are left to the generic globber.</p>
+ *
+ * <p>An instance of this class represents a single glob and is not reusable.</p>
+ */
+class MantaGlobber {
+    /**
+     * Logger instance.
+     */
+    private static final Logger LOG = LoggerFactory.getLogger(MantaGlobber.class);
+
+    /**
+     * Filesystem used to build listing iterators and to look up literal paths.
+     */
+    private final MantaFileSystem fs;
+
+    /**
+     * Requests used to list directories.
+     */
+    private final MantaMetadataRequests requests;
+
+    /**
+     * Pool that expansion tasks are executed on.
+     */
+    private final ForkJoinPool pool;
+
+    /**
+     * Policy used to determine the block size reported for files.
+     */
+    private final MantaBlockSizePolicy blockSizes;
+
+    /**
+     * Flag indicating that no further directories should be expanded.
+     */
+    private final AtomicBoolean cancelled = new AtomicBoolean(false);
+
+    /**
+     * First error encountered while expanding.
+     */
+    private final AtomicReference<IOException> failure = new AtomicReference<>();
+
+    /**
+     * Creates a new globber.
+     *
+     * @param fs filesystem used to build listing iterators and to look up literal paths
+     * @param requests requests used to list directories
+     * @param pool pool that expansion tasks are executed on
+     * @param blockSizes policy used to determine the block size reported for files
+     */
+    MantaGlobber(final MantaFileSystem fs, final MantaMetadataRequests requests, final ForkJoinPool pool,
+                 final MantaBlockSizePolicy blockSizes) {
+        this.fs = Preconditions.checkNotNull(fs, "Filesystem must not be null");
+        this.requests = Preconditions.checkNotNull(requests, "Requests must not be null");
+        this.pool = Preconditions.checkNotNull(pool, "Worker pool must not be null");
+        this.blockSizes = Preconditions.checkNotNull(blockSizes, "Block size policy must not be null");
+    }
+
+    /**
+     * Determines if a pattern can be expanded by this globber.
+     *
+     * @param mantaPattern absolute Manta path pattern
+     * @return true if supported, false if the generic globber should be used
+     */
+    static boolean isSupported(final String mantaPattern) {
+        if (!mantaPattern.startsWith(SEPARATOR)) {
+            return false;
+        }
+
+        if (mantaPattern.indexOf('{') >= 0 || mantaPattern.indexOf('\\') >= 0) {
+            return false;
+        }
+
+        final String[] components = components(mantaPattern);
+
+        // The root is emulated by MantaFileSystem.listStatus() and can't be listed
+        return components.length > 0 && !hasWildcard(components[0]);
+    }
+
+    /**
+     * Expands a pattern and passes every match to a consumer as soon as it
+     * is found.
+     *
+     * @param mantaPattern absolute Manta path pattern
+     * @param consumer callback invoked concurrently for every match
+     * @return true if the pattern contained a wildcard
+     * @throws IOException thrown when a listing or lookup fails
+     */
+    boolean glob(final String mantaPattern, final Consumer<FileStatus> consumer) throws IOException {
+        Preconditions.checkArgument(isSupported(mantaPattern),
+                "Unsupported glob pattern: %s", mantaPattern);
+        Preconditions.checkNotNull(consumer, "Consumer must not be null");
+
+        final String[] components = components(mantaPattern);
+        final GlobFilter[] filters = new GlobFilter[components.length];
+        boolean sawWildcard = false;
+
+        for (int i = 0; i < components.length; i++) {
+            if (hasWildcard(components[i])) {
+                filters[i] = new GlobFilter(components[i]);
+                sawWildcard = true;
+            }
+        }
+
+        final ForkJoinTask<Void> task = pool.submit(
+                new ExpansionTask(null, "", 0, components, filters, consumer));
+
+        try {
+            task.get();
+        } catch (InterruptedException e) {
+            cancelled.set(true);
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while expanding " + mantaPattern, e);
+        } catch (ExecutionException e) {
+            throw new IOException("Unable to expand " + mantaPattern, e.getCause());
+        }
+
+        final IOException e = failure.get();
+
+        if (e != null) {
+            throw e;
+        }
+
+        return sawWildcard;
+    }
+
+    /**
+     * Expands a pattern and collects all matches that pass a filter.
+     *
+     * @param mantaPattern absolute Manta path pattern
+     * @param home home directory whose matches are returned below the
+     *             <code>~~</code> alias, or null if the pattern didn't use it
+     * @param filter user supplied filter, may be null
+     * @return matches with qualified paths sorted by path or null if the
+     *         pattern has no wildcard and the path doesn't exist
+     * @throws IOException thrown when a listing or lookup fails
+     */
+    FileStatus[] globStatus(final String mantaPattern, final String home, final PathFilter filter)
+            throws IOException {
+        final List<FileStatus> matches = new ArrayList<>();
+
+        final boolean sawWildcard = glob(mantaPattern, status -> {
+            // Match the generic globber, which returns fully qualified paths
+            status.setPath(fs.makeQualified(aliased(status.getPath(), home)));
+
+            if (filter == null || filter.accept(status.getPath())) {
+                synchronized (matches) {
+                    matches.add(status);
+                }
+            }
+        });
+
+        if (!sawWildcard && matches.isEmpty()) {
+            return null;
+        }
+
+        final FileStatus[] results = matches.toArray(new FileStatus[0]);
+        Arrays.sort(results);
+
+        return results;
+    }
+
+    /**
+     * Replaces the home directory at the start of a path with its alias.
+     *
+     * @param path path of a match
+     * @param home home directory to replace, or null to keep the path
+     * @return path below the alias or the unchanged path
+     */
+    private static Path aliased(final Path path, final String home) {
+        final String mantaPath = path.toUri().getPath();
+
+        if (home == null || !(mantaPath.equals(home) || mantaPath.startsWith(home + SEPARATOR))) {
+            return path;
+        }
+
+        return new Path(SEPARATOR + MantaFileSystem.HOME_ALIAS + mantaPath.substring(home.length()));
+    }
+
+    /**
+     * Splits a pattern into its non-empty path components.
+     *
+     * @param mantaPattern pattern to split
+     * @return path components
+     */
+    private static String[] components(final String mantaPattern) {
+        return StringUtils.split(mantaPattern, SEPARATOR);
+    }
+
+    /**
+     * @param component single path component
+     * @return true if the component contains glob characters
+     */
+    private static boolean hasWildcard(final String component) {
+        for (int i = 0; i < component.length(); i++) {
+            final char c = component.charAt(i);
+
+            if (c == '*' || c == '?' || c == '[') {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Records an error and aborts the rest of the expansion.
+     *
+     * @param e error to record
+     */
+    private void fail(final IOException e) {
+        if (!failure.compareAndSet(null, e)) {
+            failure.get().addSuppressed(e);
+        }
+
+        cancelled.set(true);
+    }
+
+    /**
+     * Task that expands the remaining components of a pattern below a
+     * directory and forks a task per matching subdirectory.
+     */
+    private final class ExpansionTask extends CountedCompleter<Void> {
+        private static final long serialVersionUID = -3409841366710926614L;
+
+        /**
+         * Directory that was matched so far, empty for the root.
+         */
+        private final String dir;
+
+        /**
+         * Index of the next component to expand.
+         */
+        private final int index;
+
+        /**
+         * All components of the pattern.
+         */
+        private final String[] components;
+
+        /**
+         * Filters of the wildcard components, null for literal components.
+         */
+        private final transient GlobFilter[] filters;
+
+        /**
+         * Callback invoked for every match.
+         */
+        private final transient Consumer<FileStatus> consumer;
+
+        /**
+         * Creates a new task.
+         *
+         * @param parent completer to notify when this task finishes
+         * @param dir directory matched so far
+         * @param index index of the next component to expand
+         * @param components all components of the pattern
+         * @param filters filters of the wildcard components
+         * @param consumer callback invoked for every match
+         */
+        ExpansionTask(final CountedCompleter<?> parent, final String dir, final int index,
+                      final String[] components, final GlobFilter[] filters,
+                      final Consumer<FileStatus> consumer) {
+            super(parent);
+            this.dir = dir;
+            this.index = index;
+            this.components = components;
+            this.filters = filters;
+            this.consumer = consumer;
+        }
+
+        @Override
+        public void compute() {
+            try {
+                if (!cancelled.get()) {
+                    expand();
+                }
+            } catch (IOException e) {
+                fail(e);
+            } catch (UncheckedIOException e) {
+                fail(e.getCause());
+            } catch (RuntimeException e) {
+                fail(new IOException("Unexpected error expanding " + dir, e));
+            }
+
+            tryComplete();
+        }
+
+        /**
+         * Appends literal components and then either looks up the resulting
+         * path or lists it to expand the next wildcard component.
+         *
+         * @throws IOException thrown when a listing or lookup fails
+         */
+        private void expand() throws IOException {
+            final StringBuilder builder = new StringBuilder(dir);
+            int next = index;
+
+            while (next < components.length && filters[next] == null) {
+                builder.append(SEPARATOR).append(components[next]);
+                next++;
+            }
+
+            final String prefix = builder.toString();
+
+            if (next == components.length) {
+                lookup(prefix);
+                return;
+            }
+
+            final boolean last = next == components.length - 1;
+
+            try (MantaRemoteIterator itr = new MantaRemoteIterator(filters[next],
+                    requests.list(prefix, MantaTreeWalker.LISTING_PAGE_SIZE),
+                    new MantaListingDecoder(prefix, blockSizes), new Path(prefix), fs, true)) {
+                while (!cancelled.get() && itr.hasNext()) {
+                    final FileStatus status = itr.next();
+
+                    if (last) {
+                        consumer.accept(status);
+                    } else if (status.isDirectory()) {
+                        addToPendingCount(1);
+                        new ExpansionTask(this, status.getPath().toUri().getPath(), next + 1,
+                                components, filters, consumer).fork();
+                    }
+                }
+            } catch (UncheckedIOException e) {
+                skipIfNotFound(prefix, e.getCause());
+            } catch (MantaClientHttpResponseException e) {
+                skipIfNotFound(prefix, e);
+            } catch (MantaObjectException e) {
+                // Literal components can name a file, which nothing below can match
+                LOG.trace("Glob directory [{}] is a file", prefix);
+            }
+        }
+
+        /**
+         * Passes the status of a fully literal path to the consumer if it exists.
+         *
+         * @param mantaPath path to look up
+         * @throws IOException thrown when the lookup fails
+         */
+        private void lookup(final String mantaPath) throws IOException {
+            try {
+                consumer.accept(fs.getFileStatus(new Path(mantaPath)));
+            } catch (FileNotFoundException e) {
+                LOG.trace("Glob candidate [{}] doesn't exist", mantaPath);
+            }
+        }
+
+        /**
+         * Treats directories that don't exist as having no matches.
+         *
+         * @param mantaPath directory that was listed
+         * @param e error thrown while listing
+         * @throws IOException rethrown error if it isn't a not found error
+         */
+        private void skipIfNotFound(final String mantaPath, final IOException e) throws IOException {
+            if (e instanceof MantaClientHttpResponseException
+                    && ((MantaClientHttpResponseException)e).getStatusCode() == HttpStatus.SC_NOT_FOUND) {
+                LOG.trace("Glob directory [{}] doesn't exist", mantaPath);
+                return;
+            }
+
+            throw e;
+        }
+    }
+}
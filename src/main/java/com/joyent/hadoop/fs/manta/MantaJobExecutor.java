@@ -0,0 +1,46 @@
+package com.joyent.hadoop.fs.manta;
+
+import com.joyent.manta.client.jobs.MantaJobPhase;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Runs compute jobs over Manta objects. Jobs are normally run remotely by
+ * Manta, next to the data, but the abstraction allows them to be run by
+ * anything that can execute the shell commands of the phases.
+ *
+ * <p>A job runs its phases in order. Each map phase runs its command once
+ * per input with the content of the input on standard input and its path in
+ * the <code>MANTA_INPUT_OBJECT</code> environment variable. A reduce phase
+ * runs its command once with the content of all inputs concatenated on
+ * standard input. The standard output of each command becomes an input of
+ * the next phase.</p>
+ */
+public interface MantaJobExecutor {
+    /**
+     * Runs a job and waits until it is done.
+     *
+     * @param name name of the job
+     * @param inputs absolute Manta paths of the objects the job reads
+     * @param phases phases of the job in the order they run
+     * @return content of each output of the last phase, in no particular order
+     * @throws IOException thrown when the job can't be run or any of its tasks failed
+     */
+    List<String> run(String name, List<String> inputs, List<MantaJobPhase> phases)
+            throws IOException;
+
+    /**
+     * Runs a job and waits until it is done, leaving its outputs in Manta
+     * rather than reading them. Outputs are kept as they were written, so
+     * they may hold binary data.
+     *
+     * @param name name of the job
+     * @param inputs absolute Manta paths of the objects the job reads
+     * @param phases phases of the job in the order they run
+     * @return absolute Manta paths of the outputs of the last phase, in no particular order
+     * @throws IOException thrown when the job can't be run or any of its tasks failed
+     */
+    List<String> runToObjects(String name, List<String> inputs, List<MantaJobPhase> phases)
+            throws IOException;
+}
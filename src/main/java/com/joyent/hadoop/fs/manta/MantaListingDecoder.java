@@ -0,0 +1,117 @@
+package com.joyent.hadoop.fs.manta;
+
+import com.google.common.base.Preconditions;
+import org.apache.hadoop.fs.Path;
+
+import java.util.Map;
+
+import static com.joyent.manta.client.MantaClient.SEPARATOR;
+
+/**
+ * Decodes the entries of a single directory listing straight into
+ * {@link MantaFileStatus} instances.
+ *
+ * <p>The SDK's {@code listObjects()} turns every entry into a
+ * {@code MantaObjectResponse}, complete with HTTP headers, metadata and a
+ * parsed {@code Date}, only for us to read a handful of values back out of
+ * it. This decoder reads the values directly from the parsed listing line
+ * and reuses everything that is shared by all entries of the directory: the
+ * path prefix of the children and, unless a configured prefix lies below the
+ * directory, their block size.</p>
+ *
+ * <p>Instances are bound to one directory and are not thread safe.</p>
+ */
+final class MantaListingDecoder {
+    /**
+     * Path of the listed directory followed by a separator.
+     */
+    private final String prefix;
+
+    /**
+     * Policy used to determine the block size reported for files.
+     */
+    private final MantaBlockSizePolicy blockSizes;
+
+    /**
+     * Block size shared by all children or -1 if it must be resolved per entry.
+     */
+    private final long childBlockSize;
+
+    /**
+     * Creates a decoder for the entries of a directory.
+     *
+     * @param mantaDirectory directory being listed
+     * @param blockSizes policy used to determine the block size reported for files
+     */
+    MantaListingDecoder(final String mantaDirectory, final MantaBlockSizePolicy blockSizes) {
+        Preconditions.checkNotNull(mantaDirectory, "Directory must not be null");
+        this.blockSizes = Preconditions.checkNotNull(blockSizes, "Block size policy must not be null");
+
+        if (mantaDirectory.endsWith(SEPARATOR)) {
+            this.prefix = mantaDirectory;
+        } else {
+            this.prefix = mantaDirectory + SEPARATOR;
+        }
+
+        this.childBlockSize = blockSizes.blockSizeForChildrenOf(mantaDirectory);
+    }
+
+    /**
+     * Decodes a single listing entry.
+     *
+     * @param props parsed listing line as returned by the SDK's streaming iterator
+     * @return status of the entry
+     */
+    MantaFileStatus decode(final Map<String, Object> props) {
+        final String childPath = prefix + props.get("name");
+        final boolean isDirectory = MantaFileStatus.isDirectory(props);
+
+        return new MantaFileStatus(MantaFileStatus.length(props), isDirectory,
+                MantaFileStatus.replicationFactor(props), blockSize(childPath, isDirectory),
+                MantaFileStatus.modificationTime(props), new Path(childPath));
+    }
+
+    /**
+     * Decodes a single listing entry into a compact store without building
+     * a path or status for it.
+     *
+     * @param props parsed listing line as returned by the SDK's streaming iterator
+     * @param store store to add the entry to
+     * @param parent index of the listed directory interned in the store
+     */
+    void decodeInto(final Map<String, Object> props, final MantaFileStatusStore store,
+                    final int parent) {
+        final String name = String.valueOf(props.get("name"));
+        final boolean isDirectory = MantaFileStatus.isDirectory(props);
+        final long blockSize;
+
+        // Only build the child path if its block size must be resolved individually
+        if (isDirectory || childBlockSize >= 0) {
+            blockSize = blockSize(null, isDirectory);
+        } else {
+            blockSize = blockSize(prefix + name, false);
+        }
+
+        store.add(parent, name, isDirectory, MantaFileStatus.length(props),
+                MantaFileStatus.replicationFactor(props), blockSize,
+                MantaFileStatus.modificationTime(props));
+    }
+
+    /**
+     * Determines the block size of an entry.
+     *
+     * @param childPath path of the entry, only needed for files if the block
+     *                  size isn't shared by all children
+     * @param isDirectory true if the entry is a directory
+     * @return block size to report
+     */
+    private long blockSize(final String childPath, final boolean isDirectory) {
+        if (isDirectory) {
+            return 0L;
+        } else if (childBlockSize >= 0) {
+            return childBlockSize;
+        }
+
+        return blockSizes.blockSizeFor(childPath);
+    }
+}
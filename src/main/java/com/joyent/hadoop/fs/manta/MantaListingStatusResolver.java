@@ -0,0 +1,367 @@
+package com.joyent.hadoop.fs.manta;
+
+import com.google.common.base.Preconditions;
+import com.joyent.manta.exception.MantaClientHttpResponseException;
+import org.apache.commons.io.FilenameUtils;
+import org.apache.hadoop.fs.Path;
+import org.apache.http.HttpStatus;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+
+import static com.joyent.manta.client.MantaClient.SEPARATOR;
+
+/**
+ * Answers status lookups from a listing of the parent directory when many
+ * lookups target siblings in the same directory. A single paged listing is
+ * far cheaper than a HEAD request per sibling, which is the access pattern
+ * of partition pruning and similar planning work.
+ *
+ * <p>Lookups are counted per parent directory. Once the number of lookups
+ * under a parent within the validity window reaches the threshold, the
+ * parent is listed once and the listing answers lookups until the window
+ * expires. Directories with more entries than the configured maximum are
+ * never cached and keep being resolved with HEAD requests.</p>
+ *
+ * <p>Listings are a point in time view. Changes made through the owning
+ * {@link MantaFileSystem} invalidate the affected listings, but changes made
+ * by other clients may not be visible until the validity window expires.</p>
+ */
+class MantaListingStatusResolver {
+    /**
+     * Logger instance.
+     */
+    private static final Logger LOG = LoggerFactory.getLogger(MantaListingStatusResolver.class);
+
+    /**
+     * Number of tracked parents above which expired entries are purged.
+     */
+    private static final int PURGE_THRESHOLD = 1024;
+
+    /**
+     * Requests used to list directories.
+     */
+    private final MantaMetadataRequests requests;
+
+    /**
+     * Policy used to determine the block size reported for files.
+     */
+    private final MantaBlockSizePolicy blockSizes;
+
+    /**
+     * Number of lookups under a parent that trigger a listing, 0 to disable.
+     */
+    private final int threshold;
+
+    /**
+     * Time in nanoseconds for which lookup counts and listings are valid.
+     */
+    private final long validityNanos;
+
+    /**
+     * Maximum number of entries of a listing that is cached.
+     */
+    private final int maxEntries;
+
+    /**
+     * Source of the current time in nanoseconds.
+     */
+    private final LongSupplier clock;
+
+    /**
+     * Lookup counters by parent directory.
+     */
+    private final Map<String, LookupWindow> lookups = new ConcurrentHashMap<>();
+
+    /**
+     * Cached listings by parent directory.
+     */
+    private final Map<String, Listing> listings = new ConcurrentHashMap<>();
+
+    /**
+     * Creates a new instance.
+     *
+     * @param requests requests used to list directories
+     * @param blockSizes policy used to determine the block size reported for files
+     * @param threshold number of lookups under a parent that trigger a listing, 0 to disable
+     * @param validityMillis time in milliseconds for which listings are valid
+     * @param maxEntries maximum number of entries of a listing that is cached
+     */
+    MantaListingStatusResolver(final MantaMetadataRequests requests, final MantaBlockSizePolicy blockSizes,
+                               final int threshold, final long validityMillis,
+                               final int maxEntries) {
+        this(requests, blockSizes, threshold, validityMillis, maxEntries, System::nanoTime);
+    }
+
+    /**
+     * Creates a new instance with a custom clock.
+     *
+     * @param requests requests used to list directories
+     * @param blockSizes policy used to determine the block size reported for files
+     * @param threshold number of lookups under a parent that trigger a listing, 0 to disable
+     * @param validityMillis time in milliseconds for which listings are valid
+     * @param maxEntries maximum number of entries of a listing that is cached
+     * @param clock source of the current time in nanoseconds
+     */
+    MantaListingStatusResolver(final MantaMetadataRequests requests, final MantaBlockSizePolicy blockSizes,
+                               final int threshold, final long validityMillis,
+                               final int maxEntries, final LongSupplier clock) {
+        Preconditions.checkArgument(threshold >= 0, "Threshold must not be negative");
+        Preconditions.checkArgument(validityMillis >= 0, "Validity must not be negative");
+        Preconditions.checkArgument(maxEntries > 0, "Maximum entries must be positive");
+
+        this.requests = Preconditions.checkNotNull(requests, "Requests must not be null");
+        this.blockSizes = Preconditions.checkNotNull(blockSizes, "Block size policy must not be null");
+        this.threshold = threshold;
+        this.validityNanos = TimeUnit.MILLISECONDS.toNanos(validityMillis);
+        this.maxEntries = maxEntries;
+        this.clock = Preconditions.checkNotNull(clock, "Clock must not be null");
+    }
+
+    /**
+     * @return true if lookups may be answered from listings
+     */
+    boolean isEnabled() {
+        return threshold > 0 && validityNanos > 0;
+    }
+
+    /**
+     * Attempts to answer a status lookup from a listing of the parent.
+     *
+     * @param mantaPath path to look up
+     * @param path Hadoop path reported in the status
+     * @return status built from the listing or null if the lookup should
+     *         be answered with a HEAD request
+     * @throws FileNotFoundException thrown when a valid listing of the parent
+     *                               doesn't contain the path
+     */
+    MantaFileStatus resolve(final String mantaPath, final Path path) throws FileNotFoundException {
+        if (!isEnabled()) {
+            return null;
+        }
+
+        final String parent = FilenameUtils.getFullPathNoEndSeparator(mantaPath);
+
+        // Listing the root or a top level directory is either impossible or pointless
+        if (parent.isEmpty() || parent.equals(SEPARATOR) || parent.equals(mantaPath)) {
+            return null;
+        }
+
+        final long now = clock.getAsLong();
+        Listing listing = listings.get(parent);
+
+        if (listing == null || listing.isExpired(now)) {
+            if (countLookup(parent, now) < threshold) {
+                return null;
+            }
+
+            listing = listings.compute(parent, (key, existing) -> {
+                if (existing == null || existing.isExpired(now)) {
+                    return new Listing(key);
+                }
+
+                return existing;
+            });
+        }
+
+        final Map<String, Map<String, Object>> entries = listing.entries();
+
+        if (entries == null) {
+            return null;
+        }
+
+        final Map<String, Object> props = entries.get(FilenameUtils.getName(mantaPath));
+
+        if (props == null) {
+            throw new FileNotFoundException(mantaPath);
+        }
+
+        return new MantaFileStatus(props, path, blockSizes.blockSizeFor(mantaPath));
+    }
+
+    /**
+     * Discards listings that may no longer reflect a path after it was
+     * modified. This covers the listings of all ancestors, of the path
+     * itself and of everything below it.
+     *
+     * @param mantaPath path that was modified
+     */
+    void invalidate(final String mantaPath) {
+        if (listings.isEmpty()) {
+            return;
+        }
+
+        final String prefix;
+
+        if (mantaPath.endsWith(SEPARATOR)) {
+            prefix = mantaPath;
+        } else {
+            prefix = mantaPath + SEPARATOR;
+        }
+
+        listings.keySet().removeIf(dir -> dir.equals(mantaPath) || dir.startsWith(prefix)
+                || prefix.startsWith(dir + SEPARATOR));
+    }
+
+    /**
+     * Records a lookup under a parent directory.
+     *
+     * @param parent parent directory
+     * @param now current time in nanoseconds
+     * @return number of lookups under the parent within the current window
+     */
+    private int countLookup(final String parent, final long now) {
+        if (lookups.size() > PURGE_THRESHOLD) {
+            lookups.values().removeIf(window -> now - window.start > validityNanos);
+            listings.values().removeIf(listing -> listing.isExpired(now));
+        }
+
+        final LookupWindow window = lookups.compute(parent, (key, existing) -> {
+            if (existing == null || now - existing.start > validityNanos) {
+                return new LookupWindow(now);
+            }
+
+            return existing;
+        });
+
+        return window.count.incrementAndGet();
+    }
+
+    /**
+     * Number of lookups under a parent since the start of a window.
+     */
+    private static final class LookupWindow {
+        /**
+         * Start of the window in nanoseconds.
+         */
+        private final long start;
+
+        /**
+         * Number of lookups in the window.
+         */
+        private final AtomicInteger count = new AtomicInteger();
+
+        /**
+         * Creates a new window.
+         *
+         * @param start start of the window in nanoseconds
+         */
+        LookupWindow(final long start) {
+            this.start = start;
+        }
+    }
+
+    /**
+     * Listing of a single directory that is loaded once, by the first
+     * thread that needs it, while other threads wait for the result.
+     */
+    private final class Listing {
+        /**
+         * Directory that is listed.
+         */
+        private final String dir;
+
+        /**
+         * Entries by name, null if the listing couldn't be used.
+         */
+        private Map<String, Map<String, Object>> entries;
+
+        /**
+         * Flag indicating that the directory has been listed.
+         */
+        private boolean loaded = false;
+
+        /**
+         * Time at which the listing was loaded in nanoseconds.
+         */
+        private volatile long loadedAt;
+
+        /**
+         * Creates a listing that hasn't been loaded yet.
+         *
+         * @param dir directory to list
+         */
+        Listing(final String dir) {
+            this.dir = dir;
+            this.loadedAt = clock.getAsLong();
+        }
+
+        /**
+         * @param now current time in nanoseconds
+         * @return true if the listing is no longer valid
+         */
+        boolean isExpired(final long now) {
+            return now - loadedAt > validityNanos;
+        }
+
+        /**
+         * Loads the listing if needed and returns its entries.
+         *
+         * @return entries by name or null if the listing couldn't be used
+         */
+        synchronized Map<String, Map<String, Object>> entries() {
+            if (!loaded) {
+                entries = load();
+                loaded = true;
+                loadedAt = clock.getAsLong();
+            }
+
+            return entries;
+        }
+
+        /**
+         * Lists the directory.
+         *
+         * @return entries by name or null if the listing couldn't be used
+         */
+        private Map<String, Map<String, Object>> load() {
+            LOG.debug("Resolving statuses under [{}] from a directory listing", dir);
+
+            final Map<String, Map<String, Object>> result = new HashMap<>();
+
+            try (MantaDirectoryListing itr = requests.list(dir, MantaTreeWalker.LISTING_PAGE_SIZE)) {
+                while (itr.hasNext()) {
+                    if (result.size() >= maxEntries) {
+                        LOG.debug("Directory [{}] has more than {} entries, not caching listing",
+                                dir, maxEntries);
+                        return null;
+                    }
+
+                    final Map<String, Object> props = itr.next();
+                    result.put(String.valueOf(props.get("name")), props);
+                }
+            } catch (UncheckedIOException e) {
+                return handleListingError(e.getCause());
+            }
+
+            return result;
+        }
+
+        /**
+         * Handles an error thrown while listing. A missing parent means that
+         * none of its children exist, any other error falls back to HEAD
+         * requests.
+         *
+         * @param e error thrown while listing
+         * @return entries to use for the listing
+         */
+        private Map<String, Map<String, Object>> handleListingError(final IOException e) {
+            if (e instanceof MantaClientHttpResponseException
+                    && ((MantaClientHttpResponseException)e).getStatusCode() == HttpStatus.SC_NOT_FOUND) {
+                return new HashMap<>();
+            }
+
+            LOG.debug("Unable to list [{}], falling back to HEAD requests", dir, e);
+            return null;
+        }
+    }
+}
@@ -0,0 +1,227 @@
+package com.joyent.hadoop.fs.manta;
+
+import com.google.common.base.Preconditions;
+import com.joyent.hadoop.fs.manta.MantaRequestCounters.Request;
+import com.joyent.manta.client.MantaClient;
+import com.joyent.manta.client.MantaObjectResponse;
+import com.joyent.manta.http.MantaHttpHeaders;
+
+import java.io.IOException;
+import java.util.Collections;
+
+/**
+ * Metadata requests sent by {@link MantaFileSystem} and the tree operations
+ * it runs. Every request waits for a permit of the metadata lane before it
+ * is sent, so that metadata requests are scheduled ahead of bulk transfers,
+ * and is then sent through the {@link MantaConcurrencyLimiter} of the
+ * filesystem. Requests sent by the filesystem itself are also counted.
+ */
+final class MantaMetadataRequests {
+    /**
+     * Manta client the requests are sent with.
+     */
+    private final MantaClient client;
+
+    /**
+     * Scheduler that grants permits to send requests.
+     */
+    private final MantaRequestScheduler scheduler;
+
+    /**
+     * Limiter that adapts the number of concurrent requests to throttling.
+     */
+    private final MantaConcurrencyLimiter limiter;
+
+    /**
+     * Counters of the requests sent.
+     */
+    private final MantaRequestCounters counters = new MantaRequestCounters();
+
+    /**
+     * Creates a new instance.
+     *
+     * @param client Manta client the requests are sent with
+     * @param scheduler scheduler that grants permits to send requests
+     * @param limiter limiter that adapts the number of concurrent requests to throttling
+     */
+    MantaMetadataRequests(final MantaClient client, final MantaRequestScheduler scheduler,
+                          final MantaConcurrencyLimiter limiter) {
+        this.client = Preconditions.checkNotNull(client, "Manta client must not be null");
+        this.scheduler = Preconditions.checkNotNull(scheduler, "Scheduler must not be null");
+        this.limiter = Preconditions.checkNotNull(limiter, "Limiter must not be null");
+    }
+
+    /**
+     * Creates an instance that sends requests without any limit.
+     *
+     * @param client Manta client the requests are sent with
+     */
+    MantaMetadataRequests(final MantaClient client) {
+        this(client, new MantaRequestScheduler(Collections.emptyMap(), 0, 0L),
+                new MantaConcurrencyLimiter(0, 1, 0, 0L));
+    }
+
+    /**
+     * @return Manta client the requests are sent with
+     */
+    MantaClient getClient() {
+        return client;
+    }
+
+    /**
+     * @return limiter that adapts the number of concurrent requests to throttling
+     */
+    MantaConcurrencyLimiter getLimiter() {
+        return limiter;
+    }
+
+    /**
+     * @return counters of the requests sent
+     */
+    MantaRequestCounters getCounters() {
+        return counters;
+    }
+
+    /**
+     * Counts a request, waits for a permit of the metadata lane and sends it
+     * through the limiter.
+     *
+     * @param request type of the request
+     * @param mantaPath path the request targets
+     * @param call sends the request
+     * @param <T> type of the result of the request
+     * @return result of the request
+     * @throws IOException thrown when the request fails or is interrupted while waiting
+     */
+    private <T> T send(final Request request, final String mantaPath,
+                       final MantaConcurrencyLimiter.IOCallable<T> call) throws IOException {
+        counters.increment(request);
+
+        return call(request + " of " + mantaPath, call);
+    }
+
+    /**
+     * Waits for a permit of the metadata lane and sends a request through
+     * the limiter without counting it. Used for listing pages and for the
+     * requests of tree operations.
+     *
+     * @param description description of the request used in messages
+     * @param call sends the request
+     * @param <T> type of the result of the request
+     * @return result of the request
+     * @throws IOException thrown when the request fails or is interrupted while waiting
+     */
+    <T> T call(final String description, final MantaConcurrencyLimiter.IOCallable<T> call)
+            throws IOException {
+        final MantaRequestScheduler.Permit permit = scheduler.acquire(MantaRequestLane.METADATA);
+
+        try {
+            return limiter.run(description, call);
+        } finally {
+            permit.close();
+        }
+    }
+
+    /**
+     * Lists a directory one page at a time.
+     *
+     * @param mantaPath directory to list
+     * @param pageSize number of entries requested per page
+     * @return listing that must be closed by the caller
+     */
+    MantaDirectoryListing list(final String mantaPath, final int pageSize) {
+        return new MantaDirectoryListing(this, mantaPath, pageSize);
+    }
+
+    /**
+     * Gets the metadata of an object or directory.
+     *
+     * @param mantaPath path on Manta
+     * @return metadata of the path
+     * @throws IOException thrown when the request fails
+     */
+    MantaObjectResponse head(final String mantaPath) throws IOException {
+        return send(Request.HEAD, mantaPath, () -> client.head(mantaPath));
+    }
+
+    /**
+     * Checks whether an object or directory exists.
+     *
+     * @param mantaPath path on Manta
+     * @return true if the path exists and can be accessed
+     * @throws IOException thrown when the request fails
+     */
+    boolean existsAndIsAccessible(final String mantaPath) throws IOException {
+        return send(Request.HEAD, mantaPath, () -> client.existsAndIsAccessible(mantaPath));
+    }
+
+    /**
+     * Deletes an object or empty directory.
+     *
+     * @param mantaPath path on Manta
+     * @throws IOException thrown when the request fails
+     */
+    void delete(final String mantaPath) throws IOException {
+        send(Request.DELETE, mantaPath, () -> {
+            client.delete(mantaPath);
+            return null;
+        });
+    }
+
+    /**
+     * Creates a directory whose parent exists.
+     *
+     * @param mantaPath path on Manta
+     * @return true if the directory was created, false if it already existed
+     * @throws IOException thrown when the request fails
+     */
+    boolean putDirectory(final String mantaPath) throws IOException {
+        return send(Request.PUT_DIRECTORY, mantaPath, () -> client.putDirectory(mantaPath));
+    }
+
+    /**
+     * Creates a directory and, when requested, its missing parents.
+     *
+     * @param mantaPath path on Manta
+     * @param recursive true to create missing parents
+     * @throws IOException thrown when the request fails
+     */
+    void putDirectory(final String mantaPath, final boolean recursive) throws IOException {
+        send(Request.PUT_DIRECTORY, mantaPath, () -> {
+            client.putDirectory(mantaPath, recursive);
+            return null;
+        });
+    }
+
+    /**
+     * Links an object to a new path.
+     *
+     * @param linkPath new path of the object
+     * @param objectPath existing path of the object
+     * @param headers additional headers of the request, may be null
+     * @throws IOException thrown when the request fails
+     */
+    void putSnapLink(final String linkPath, final String objectPath,
+                     final MantaHttpHeaders headers) throws IOException {
+        send(Request.SNAPLINK, linkPath, () -> {
+            client.putSnapLink(linkPath, objectPath, headers);
+            return null;
+        });
+    }
+
+    /**
+     * Moves an object or directory with the Manta SDK.
+     *
+     * @param source path to move
+     * @param destination path to move to
+     * @param createParentDirs true to create missing parents of the destination
+     * @throws IOException thrown when the move fails
+     */
+    void move(final String source, final String destination,
+              final boolean createParentDirs) throws IOException {
+        send(Request.MOVE, source, () -> {
+            client.move(source, destination, createParentDirs);
+            return null;
+        });
+    }
+}
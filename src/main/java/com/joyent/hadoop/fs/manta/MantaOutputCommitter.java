@@ -0,0 +1,160 @@
+package com.joyent.hadoop.fs.manta;
+
+import com.google.common.base.Preconditions;
+import org.apache.hadoop.classification.InterfaceAudience;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.mapreduce.JobContext;
+import org.apache.hadoop.mapreduce.JobStatus;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.apache.hadoop.mapreduce.TaskAttemptID;
+import org.apache.hadoop.mapreduce.lib.output.FileOutputCommitter;
+
+import java.io.IOException;
+
+/**
+ * MapReduce output committer that commits job output written to Manta with
+ * a {@link MantaCommitProtocol}, so that committing a job snaplinks the task
+ * output into place instead of renaming it. It extends
+ * {@link FileOutputCommitter} because <code>FileOutputFormat</code> expects
+ * its committer to be one, but none of the rename based behavior of the
+ * parent class is used.
+ *
+ * <p>An output format writing to Manta uses it by returning it from
+ * <code>getOutputCommitter()</code>:</p>
+ *
+ * <pre>
+ * public OutputCommitter getOutputCommitter(TaskAttemptContext context) throws IOException {
+ *     return new MantaOutputCommitter(getOutputPath(context), context);
+ * }
+ * </pre>
+ *
+ * <p>Like {@link FileOutputCommitter}, committing a job fails if the output
+ * directory already holds files, unless <code>fs.manta.commit.overwrite</code>
+ * is set in the job configuration. Job recovery isn't supported.</p>
+ */
+@InterfaceAudience.Public
+public class MantaOutputCommitter extends FileOutputCommitter {
+    /**
+     * Job configuration key that allows committing to an output directory
+     * that already holds files.
+     */
+    public static final String OVERWRITE_KEY = "fs.manta.commit.overwrite";
+
+    /**
+     * Protocol that commits the output of the job.
+     */
+    private final MantaCommitProtocol protocol;
+
+    /**
+     * Task attempt the committer was created for.
+     */
+    private final TaskAttemptID attemptId;
+
+    /**
+     * Creates a new instance.
+     *
+     * @param outputPath output directory of the job on a {@link MantaFileSystem}
+     * @param context context of the task attempt
+     * @throws IOException thrown when the filesystem of the output can't be loaded
+     */
+    public MantaOutputCommitter(final Path outputPath, final TaskAttemptContext context)
+            throws IOException {
+        this(mantaFileSystem(outputPath, context), outputPath, context);
+    }
+
+    /**
+     * Creates a new instance.
+     *
+     * @param fs filesystem the output is written to
+     * @param outputPath output directory of the job
+     * @param context context of the task attempt
+     * @throws IOException never thrown, declared by the parent class
+     */
+    public MantaOutputCommitter(final MantaFileSystem fs, final Path outputPath,
+                                final TaskAttemptContext context) throws IOException {
+        // The parent class would set up its rename based paths for a non-null output
+        super(null, context);
+
+        this.attemptId = context.getTaskAttemptID();
+        this.protocol = new MantaCommitProtocol(fs, outputPath, context.getJobID().toString(),
+                context.getConfiguration().getBoolean(OVERWRITE_KEY, false));
+    }
+
+    /**
+     * @param outputPath output directory of the job
+     * @param context context of the task attempt
+     * @return filesystem of the output
+     * @throws IOException thrown when the filesystem can't be loaded
+     */
+    private static MantaFileSystem mantaFileSystem(final Path outputPath,
+                                                   final TaskAttemptContext context)
+            throws IOException {
+        Preconditions.checkNotNull(outputPath, "Output path must not be null");
+
+        final FileSystem fs = outputPath.getFileSystem(context.getConfiguration());
+
+        if (!(fs instanceof MantaFileSystem)) {
+            throw new IOException(String.format("Output %s isn't stored in Manta", outputPath));
+        }
+
+        return (MantaFileSystem)fs;
+    }
+
+    /**
+     * @return staging directory of the task attempt the committer was created for
+     */
+    @Override
+    public Path getWorkPath() {
+        return protocol.getTaskAttemptPath(attemptId.toString());
+    }
+
+    @Override
+    public void setupJob(final JobContext context) throws IOException {
+        protocol.setupJob();
+    }
+
+    @Override
+    public void commitJob(final JobContext context) throws IOException {
+        protocol.commitJob();
+    }
+
+    @Override
+    public void abortJob(final JobContext context, final JobStatus.State state) throws IOException {
+        protocol.abortJob();
+    }
+
+    @Override
+    public void setupTask(final TaskAttemptContext context) throws IOException {
+        protocol.setupTask(context.getTaskAttemptID().toString());
+    }
+
+    /**
+     * @param context context of the task attempt
+     * @return always true, attempts that wrote no files commit an empty manifest
+     */
+    @Override
+    public boolean needsTaskCommit(final TaskAttemptContext context) {
+        return true;
+    }
+
+    @Override
+    public void commitTask(final TaskAttemptContext context) throws IOException {
+        final TaskAttemptID attempt = context.getTaskAttemptID();
+        protocol.commitTask(attempt.getTaskID().toString(), attempt.toString());
+    }
+
+    @Override
+    public void abortTask(final TaskAttemptContext context) throws IOException {
+        protocol.abortTask(context.getTaskAttemptID().toString());
+    }
+
+    /**
+     * @param context context of the job
+     * @return always false, the staged output of a previous attempt isn't recovered
+     */
+    @Override
+    public boolean isRecoverySupported(final JobContext context) {
+        return false;
+    }
+}
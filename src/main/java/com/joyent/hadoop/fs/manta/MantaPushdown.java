@@ -0,0 +1,294 @@
+package com.joyent.hadoop.fs.manta;
+
+import com.google.common.base.Preconditions;
+import com.joyent.manta.client.jobs.MantaJobPhase;
+import org.apache.hadoop.classification.InterfaceAudience;
+import org.apache.hadoop.fs.FileAlreadyExistsException;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.LocatedFileStatus;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.fs.RemoteIterator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Runs shell commands next to the data in Manta instead of reading the data
+ * over the network. A scan is a job with a map phase that runs a command on
+ * every input file, like <code>grep ERROR</code> or an <code>awk</code>
+ * filter, and an optional reduce phase that runs a command once on the
+ * concatenated output of all map tasks, like <code>sort | uniq -c</code>.
+ * Only the output of the last phase is transferred back, so selective scans
+ * over large datasets return quickly.
+ *
+ * <p>Commands follow the conventions of Manta compute: the content of an
+ * input is on standard input, its path is in the
+ * <code>MANTA_INPUT_OBJECT</code> environment variable and the result is
+ * written to standard output. A command that exits with an error fails the
+ * job, so filters like <code>grep</code> that exit with an error when nothing
+ * matches should be written as <code>grep ERROR || true</code>. Directories
+ * given as inputs are expanded to all files below them.</p>
+ *
+ * <p>Outputs are kept in Manta as the commands wrote them, so they may hold
+ * binary data. They are streamed one at a time when they are read and
+ * linked into place when they are written to a file.</p>
+ */
+@InterfaceAudience.Public
+public class MantaPushdown {
+    /**
+     * Logger instance.
+     */
+    private static final Logger LOG = LoggerFactory.getLogger(MantaPushdown.class);
+
+    /**
+     * Filesystem the inputs are read from.
+     */
+    private final MantaFileSystem fs;
+
+    /**
+     * Creates a new instance.
+     *
+     * @param fs filesystem the inputs are read from
+     */
+    public MantaPushdown(final MantaFileSystem fs) {
+        this.fs = Preconditions.checkNotNull(fs, "Filesystem must not be null");
+    }
+
+    /**
+     * Runs a scan and returns its result as a stream.
+     *
+     * @param inputs files and directories to scan
+     * @param map command run on each input file
+     * @param reduce command run once on the concatenated map outputs, null for none
+     * @return concatenated outputs of the last phase, in no particular order
+     * @throws IOException thrown when an input doesn't exist or the job fails
+     */
+    public InputStream open(final Collection<Path> inputs, final String map,
+                            final String reduce) throws IOException {
+        return new JobOutputStream(fs.getRequestLanes(), run(inputs, map, reduce).iterator());
+    }
+
+    /**
+     * Runs a scan and writes its result to a file. The outputs of a scan
+     * without a reduce command are concatenated by a reduce phase running
+     * <code>cat</code>, and the single output is linked to the file without
+     * being transferred.
+     *
+     * @param inputs files and directories to scan
+     * @param map command run on each input file
+     * @param reduce command run once on the concatenated map outputs, null for none
+     * @param output file the concatenated outputs of the last phase are written to
+     * @param overwrite true to replace an existing output file
+     * @return number of bytes written
+     * @throws IOException thrown when an input doesn't exist, the job fails or
+     *                     the output can't be written
+     */
+    public long write(final Collection<Path> inputs, final String map, final String reduce,
+                      final Path output, final boolean overwrite) throws IOException {
+        Preconditions.checkNotNull(output, "Output must not be null");
+
+        if (!overwrite && fs.exists(output)) {
+            throw new FileAlreadyExistsException(output.toString());
+        }
+
+        final List<String> outputs;
+
+        if (reduce == null) {
+            outputs = run(inputs, map, "cat");
+        } else {
+            outputs = run(inputs, map, reduce);
+        }
+
+        final MantaMetadataRequests requests = fs.getMetadataRequests();
+
+        if (outputs.isEmpty()) {
+            final String mantaPath = fs.mantaPath(output);
+            fs.mkdirs(output.getParent());
+            requests.call("upload of " + mantaPath, () -> requests.getClient().put(mantaPath, ""));
+            return 0L;
+        }
+
+        if (outputs.size() != 1) {
+            throw new IOException(String.format("Expected a single output from the reduce phase, "
+                    + "but the scan returned %d", outputs.size()));
+        }
+
+        final String result = outputs.get(0);
+        fs.copy(new Path(result), output, true, null);
+
+        return requests.head(result).getContentLength();
+    }
+
+    /**
+     * Runs a scan.
+     *
+     * @param inputs files and directories to scan
+     * @param map command run on each input file
+     * @param reduce command run once on the concatenated map outputs, null for none
+     * @return Manta paths of the outputs of the last phase
+     * @throws IOException thrown when an input doesn't exist or the job fails
+     */
+    private List<String> run(final Collection<Path> inputs, final String map,
+                             final String reduce) throws IOException {
+        Preconditions.checkNotNull(inputs, "Inputs must not be null");
+        Preconditions.checkArgument(map != null && !map.trim().isEmpty(),
+                "Map command must not be empty");
+
+        final List<String> files = new ArrayList<>(expand(inputs));
+
+        if (files.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        final List<MantaJobPhase> phases = new ArrayList<>();
+        phases.add(new MantaJobPhase().setType("map").setExec(map));
+
+        if (reduce != null) {
+            phases.add(new MantaJobPhase().setType("reduce").setExec(reduce));
+        }
+
+        final String name = String.format("hadoop-pushdown-%s", UUID.randomUUID());
+
+        LOG.debug("Scanning {} files with Manta job {}", files.size(), name);
+
+        return fs.getJobExecutor().runToObjects(name, files, phases);
+    }
+
+    /**
+     * Expands directories to the files below them.
+     *
+     * @param inputs files and directories
+     * @return distinct Manta paths of all files in the order they were found
+     * @throws IOException thrown when an input doesn't exist or can't be listed
+     */
+    private Set<String> expand(final Collection<Path> inputs) throws IOException {
+        final Set<String> files = new LinkedHashSet<>();
+
+        for (Path input : inputs) {
+            final FileStatus status = fs.getFileStatus(input);
+
+            if (!status.isDirectory()) {
+                files.add(fs.mantaPath(input));
+                continue;
+            }
+
+            final RemoteIterator<LocatedFileStatus> itr = fs.listFiles(input, true);
+
+            while (itr.hasNext()) {
+                files.add(fs.mantaPath(itr.next().getPath()));
+            }
+        }
+
+        return files;
+    }
+
+    /**
+     * Concatenates the outputs of a job, opening each one in the bulk lane
+     * only once the previous one has been read.
+     */
+    private static final class JobOutputStream extends InputStream {
+        /**
+         * Lanes the outputs are read in.
+         */
+        private final MantaRequestLanes lanes;
+
+        /**
+         * Manta paths of the outputs that haven't been opened yet.
+         */
+        private final Iterator<String> outputs;
+
+        /**
+         * Output that is read, null before the next one is opened.
+         */
+        private InputStream current;
+
+        /**
+         * Creates a new instance.
+         *
+         * @param lanes lanes the outputs are read in
+         * @param outputs Manta paths of the outputs
+         */
+        JobOutputStream(final MantaRequestLanes lanes, final Iterator<String> outputs) {
+            this.lanes = lanes;
+            this.outputs = outputs;
+        }
+
+        @Override
+        public int read() throws IOException {
+            while (nextOutput()) {
+                final int b = current.read();
+
+                if (b != -1) {
+                    return b;
+                }
+
+                closeOutput();
+            }
+
+            return -1;
+        }
+
+        @Override
+        public int read(final byte[] b, final int off, final int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+
+            while (nextOutput()) {
+                final int read = current.read(b, off, len);
+
+                if (read != -1) {
+                    return read;
+                }
+
+                closeOutput();
+            }
+
+            return -1;
+        }
+
+        /**
+         * Opens the next output unless one is being read.
+         *
+         * @return false once all outputs have been read
+         * @throws IOException thrown when the output can't be opened
+         */
+        private boolean nextOutput() throws IOException {
+            if (current == null && outputs.hasNext()) {
+                current = lanes.stream(outputs.next());
+            }
+
+            return current != null;
+        }
+
+        /**
+         * Closes the output that is read.
+         *
+         * @throws IOException thrown when the output can't be closed
+         */
+        private void closeOutput() throws IOException {
+            try {
+                current.close();
+            } finally {
+                current = null;
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (current != null) {
+                closeOutput();
+            }
+        }
+    }
+}
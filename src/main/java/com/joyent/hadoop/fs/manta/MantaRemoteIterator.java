@@ -1,6 +1,6 @@
 package com.joyent.hadoop.fs.manta;
 
-import com.joyent.manta.client.MantaDirectoryListingIterator;
+import com.google.common.collect.Iterators;
 import com.joyent.manta.client.MantaObject;
 import org.apache.hadoop.fs.BlockLocation;
 import org.apache.hadoop.fs.FileStatus;
@@ -11,13 +11,14 @@ import org.apache.hadoop.fs.PathFilter;
 import org.apache.hadoop.fs.RemoteIterator;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.Iterator;
+import java.util.Map;
 import java.util.NoSuchElementException;
-import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.Stream;
 
 /**
- * Implementation of {@link RemoteIterator} that wraps a {@link MantaDirectoryListingIterator}
+ * Implementation of {@link RemoteIterator} that wraps a {@link MantaDirectoryListing}
  * so that we can stream directory listing results without buffering beyond the each HTTP
  * request to Manta.
  */
@@ -29,14 +30,14 @@ public class MantaRemoteIterator implements RemoteIterator<LocatedFileStatus>,
     private final PathFilter filter;
 
     /**
-     * Wrapped inner iterator resource stream.
+     * Wrapped inner iterator of unfiltered statuses.
      */
-    private final Iterator<MantaObject> inner;
+    private final Iterator<? extends FileStatus> inner;
 
     /**
-     * Stream instance with close() method.
+     * Callback that releases the resources of the listing.
      */
-    private final Stream<MantaObject> closeableStream;
+    private final Runnable closer;
 
     /**
      * Directory root being listed.
@@ -51,7 +52,12 @@ public class MantaRemoteIterator implements RemoteIterator<LocatedFileStatus>,
     /**
      * Look ahead buffer used for prefiltering entries.
      */
-    private AtomicReference<MantaObject> nextRef = new AtomicReference<>();
+    private FileStatus next;
+
+    /**
+     * Flag indicating that the wrapped iterator is exhausted or closed.
+     */
+    private boolean finished = false;
 
     /**
      * Flag indicating that we close the underlying resources when true.
@@ -59,7 +65,7 @@ public class MantaRemoteIterator implements RemoteIterator<LocatedFileStatus>,
     private final boolean autocloseWhenFinished;
 
     /**
-     * Creates a new instance wrapping a {@link MantaDirectoryListingIterator}.
+     * Creates a new instance wrapping a stream of Manta objects.
      *
      * @param filter filter object that will filter out results
      * @param stream backing stream
@@ -73,29 +79,91 @@ public class MantaRemoteIterator implements RemoteIterator<LocatedFileStatus>,
                                final Path path,
                                final FileSystem fs,
                                final boolean autocloseWhenFinished) {
-        this.filter = filter;
+        this(filter, stream.map(obj -> {
+            final Path objectPath = new Path(obj.getPath());
+            return new MantaFileStatus(obj, objectPath, fs.getDefaultBlockSize(objectPath));
+        }).iterator(), stream::close, path, fs, autocloseWhenFinished);
+    }
 
-        if (filter == null) {
-            this.inner = stream.iterator();
-        } else {
-            this.inner = stream.filter(obj -> filter.accept(new Path(obj.getPath()))).iterator();
-        }
+    /**
+     * Creates a new instance that decodes the raw entries of a directory
+     * listing without converting them to Manta response objects first.
+     *
+     * @param filter filter object that will filter out results
+     * @param listing streaming listing of the directory
+     * @param decoder decoder bound to the listed directory
+     * @param path base path that is being iterated
+     * @param fs reference to the underlying filesystem
+     * @param autocloseWhenFinished flag indicate whether or not to close all
+     *                              resources when we have finished iterating
+     */
+    MantaRemoteIterator(final PathFilter filter,
+                        final MantaDirectoryListing listing,
+                        final MantaListingDecoder decoder,
+                        final Path path,
+                        final FileSystem fs,
+                        final boolean autocloseWhenFinished) {
+        this(filter, new DecodingIterator(listing, decoder), listing::close,
+                path, fs, autocloseWhenFinished);
+    }
+
+    /**
+     * Creates a new instance that only returns the files of a directory
+     * listing.
+     *
+     * @param listing streaming listing of the directory
+     * @param decoder decoder bound to the listed directory
+     * @param path base path that is being iterated
+     * @param fs reference to the underlying filesystem
+     * @return iterator closing the listing when finished
+     */
+    static MantaRemoteIterator files(final MantaDirectoryListing listing,
+                                     final MantaListingDecoder decoder,
+                                     final Path path,
+                                     final FileSystem fs) {
+        return new MantaRemoteIterator(null,
+                Iterators.filter(new DecodingIterator(listing, decoder), MantaFileStatus::isFile),
+                listing::close, path, fs, true);
+    }
 
-        this.closeableStream = stream;
+    /**
+     * Creates a new instance wrapping an iterator of statuses.
+     *
+     * @param filter filter object that will filter out results
+     * @param inner iterator of unfiltered statuses
+     * @param closer callback that releases the resources of the listing
+     * @param path base path that is being iterated
+     * @param fs reference to the underlying filesystem
+     * @param autocloseWhenFinished flag indicate whether or not to close all
+     *                              resources when we have finished iterating
+     */
+    private MantaRemoteIterator(final PathFilter filter,
+                                final Iterator<? extends FileStatus> inner,
+                                final Runnable closer,
+                                final Path path,
+                                final FileSystem fs,
+                                final boolean autocloseWhenFinished) {
+        this.filter = filter;
+        this.inner = inner;
+        this.closer = closer;
         this.path = path;
         this.fs = fs;
         this.autocloseWhenFinished = autocloseWhenFinished;
-        this.nextRef.set(nextAcceptable());
     }
 
     @Override
     public void close() {
-        closeableStream.close();
+        finished = true;
+        closer.run();
     }
 
     @Override
     public boolean hasNext() throws IOException {
-        return nextRef.get() != null;
+        if (next == null && !finished) {
+            next = nextAcceptable();
+        }
+
+        return next != null;
     }
 
     @Override
@@ -105,10 +173,9 @@ public class MantaRemoteIterator implements RemoteIterator<LocatedFileStatus>,
             throw new NoSuchElementException(msg);
         }
 
-        final MantaObject object = nextRef.getAndUpdate(stringObjectMap -> nextAcceptable());
-        @SuppressWarnings("unchecked")
-        final Path nextPath = new Path(object.getPath());
-        final FileStatus status = new MantaFileStatus(object, nextPath);
+        final FileStatus status = next;
+        next = null;
+
         final BlockLocation[] locs;
 
         if (status.isFile()) {
@@ -121,21 +188,68 @@ public class MantaRemoteIterator implements RemoteIterator<LocatedFileStatus>,
     }
 
     /**
-     * Iterates the wrapped streaming iterator until an acceptable value is found.
+     * Iterates the wrapped iterator until an acceptable value is found.
      *
      * @return value matching filter or null if no values left in wrapped iterator
+     * @throws IOException thrown when a page of the listing can't be read
      */
-    private MantaObject nextAcceptable() {
-        while (true) {
-            if (!inner.hasNext()) {
-                if (autocloseWhenFinished) {
-                    closeableStream.close();
-                }
+    private FileStatus nextAcceptable() throws IOException {
+        try {
+            while (inner.hasNext()) {
+                final FileStatus status = inner.next();
 
-                return null;
+                if (filter == null || filter.accept(status.getPath())) {
+                    return status;
+                }
             }
+        } catch (UncheckedIOException e) {
+            close();
+            throw e.getCause();
+        }
+
+        finished = true;
+
+        if (autocloseWhenFinished) {
+            close();
+        }
+
+        return null;
+    }
+
+    /**
+     * Adapts a raw directory listing to an iterator of statuses.
+     */
+    private static final class DecodingIterator implements Iterator<MantaFileStatus> {
+        /**
+         * Streaming listing of the directory.
+         */
+        private final Iterator<Map<String, Object>> listing;
+
+        /**
+         * Decoder bound to the listed directory.
+         */
+        private final MantaListingDecoder decoder;
+
+        /**
+         * Creates a new instance.
+         *
+         * @param listing streaming listing of the directory
+         * @param decoder decoder bound to the listed directory
+         */
+        DecodingIterator(final Iterator<Map<String, Object>> listing,
+                         final MantaListingDecoder decoder) {
+            this.listing = listing;
+            this.decoder = decoder;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return listing.hasNext();
+        }
 
-            return inner.next();
+        @Override
+        public MantaFileStatus next() {
+            return decoder.decode(listing.next());
         }
     }
 }
@@ -0,0 +1,100 @@
+package com.joyent.hadoop.fs.manta;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts the metadata requests sent to Manta by a {@link MantaFileSystem},
+ * by type of request. Counters are updated concurrently and can be read at
+ * any time, so the number of requests an operation costs can be measured
+ * by comparing the counters before and after it.
+ *
+ * <p>Only requests sent by the filesystem itself are counted. Listings,
+ * data transfers and the requests of parallel tree operations are not.
+ * Recursive directory creations and moves are delegated to the Manta SDK,
+ * which may send several requests for them, and count once.</p>
+ */
+public final class MantaRequestCounters {
+    /**
+     * Type of a metadata request.
+     */
+    public enum Request {
+        /**
+         * HEAD of an object or directory, including existence checks.
+         */
+        HEAD,
+        /**
+         * PUT creating a directory, or a recursive creation by the Manta SDK.
+         */
+        PUT_DIRECTORY,
+        /**
+         * PUT creating a snaplink.
+         */
+        SNAPLINK,
+        /**
+         * DELETE of an object or directory.
+         */
+        DELETE,
+        /**
+         * Move of an object or directory by the Manta SDK, which may send
+         * several requests.
+         */
+        MOVE
+    }
+
+    /**
+     * Counter of each type of request.
+     */
+    private final Map<Request, LongAdder> counters = new EnumMap<>(Request.class);
+
+    /**
+     * Creates a new instance with all counters at zero.
+     */
+    MantaRequestCounters() {
+        for (Request request : Request.values()) {
+            counters.put(request, new LongAdder());
+        }
+    }
+
+    /**
+     * Counts a request.
+     *
+     * @param request type of the request
+     */
+    void increment(final Request request) {
+        counters.get(request).increment();
+    }
+
+    /**
+     * @param request type of request
+     * @return number of requests of the type sent so far
+     */
+    public long get(final Request request) {
+        return counters.get(request).sum();
+    }
+
+    /**
+     * @return number of requests of all types sent so far
+     */
+    public long getTotal() {
+        long total = 0;
+
+        for (LongAdder counter : counters.values()) {
+            total += counter.sum();
+        }
+
+        return total;
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder builder = new StringBuilder("MantaRequestCounters{");
+
+        for (Map.Entry<Request, LongAdder> entry : counters.entrySet()) {
+            builder.append(entry.getKey()).append('=').append(entry.getValue().sum()).append(", ");
+        }
+
+        return builder.append("total=").append(getTotal()).append('}').toString();
+    }
+}
@@ -0,0 +1,24 @@
+package com.joyent.hadoop.fs.manta;
+
+/**
+ * Lane of requests sent to Manta by a {@link MantaFileSystem}. Each lane can
+ * be limited to a number of concurrent requests and given its own connection
+ * pool, so that bulk transfers can't starve the metadata requests of query
+ * planning. Lanes are declared in order of priority: when the total number of
+ * concurrent requests is limited, waiting requests of a lane are granted
+ * before those of all lanes declared after it.
+ */
+public enum MantaRequestLane {
+    /**
+     * HEADs, directory creations, snaplinks, moves and deletes.
+     */
+    METADATA,
+    /**
+     * Reads of files no larger than the small read threshold.
+     */
+    SMALL_READ,
+    /**
+     * Uploads, copies and reads of files larger than the small read threshold.
+     */
+    BULK
+}
@@ -0,0 +1,365 @@
+package com.joyent.hadoop.fs.manta;
+
+import com.google.common.base.Preconditions;
+import com.joyent.manta.client.MantaClient;
+import com.joyent.manta.client.MantaMetadata;
+import com.joyent.manta.client.MantaObjectInputStream;
+import com.joyent.manta.client.MantaObjectOutputStream;
+import com.joyent.manta.client.MantaObjectResponse;
+import com.joyent.manta.client.MantaSeekableByteChannel;
+import com.joyent.manta.config.ChainedConfigContext;
+import com.joyent.manta.config.ConfigContext;
+import com.joyent.manta.config.StandardConfigContext;
+import com.joyent.manta.http.MantaHttpHeaders;
+import org.apache.commons.io.input.ProxyInputStream;
+import org.apache.commons.io.output.ProxyOutputStream;
+import org.apache.hadoop.fs.FSInputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Sends the data transfers of a {@link MantaFileSystem} in their
+ * {@link MantaRequestLane}. Each lane uses either the default client of the
+ * filesystem or a client with a dedicated connection pool, and every
+ * transfer holds a permit of its lane from the {@link MantaRequestScheduler}
+ * until it completes. Streams hold their permit until they are closed, so
+ * the request limit of a lane also bounds the number of open streams, and a
+ * caller that opens more streams than its lanes admit is rejected after the
+ * wait time of the scheduler.
+ * Uploads and downloads of whole files are also sent through the
+ * {@link MantaConcurrencyLimiter} of the filesystem.
+ */
+final class MantaRequestLanes {
+    /**
+     * Logger instance.
+     */
+    private static final Logger LOG = LoggerFactory.getLogger(MantaRequestLanes.class);
+
+    /**
+     * Reads the content of a downloaded object.
+     *
+     * @param <T> type of the result of the read
+     */
+    @FunctionalInterface
+    interface DownloadReader<T> {
+        /**
+         * Reads the download.
+         *
+         * @param in stream of the downloaded object
+         * @return result of the read
+         * @throws IOException thrown when the download fails
+         */
+        T read(MantaObjectInputStream in) throws IOException;
+    }
+
+    /**
+     * Client used by each lane.
+     */
+    private final Map<MantaRequestLane, MantaClient> clients;
+
+    /**
+     * Default client of the filesystem, closed by the filesystem itself.
+     */
+    private final MantaClient defaultClient;
+
+    /**
+     * Scheduler that grants permits to send requests.
+     */
+    private final MantaRequestScheduler scheduler;
+
+    /**
+     * Limiter that adapts the number of concurrent requests to throttling.
+     */
+    private final MantaConcurrencyLimiter limiter;
+
+    /**
+     * Largest file whose reads are sent in the small read lane.
+     */
+    private final long smallReadThreshold;
+
+    /**
+     * Creates a new instance.
+     *
+     * @param clients client used by each lane, lanes without a client use the default client
+     * @param defaultClient default client of the filesystem
+     * @param scheduler scheduler that grants permits to send requests
+     * @param limiter limiter that adapts the number of concurrent requests to throttling
+     * @param smallReadThreshold largest file whose reads are sent in the small read lane
+     */
+    MantaRequestLanes(final Map<MantaRequestLane, MantaClient> clients,
+                      final MantaClient defaultClient,
+                      final MantaRequestScheduler scheduler,
+                      final MantaConcurrencyLimiter limiter,
+                      final long smallReadThreshold) {
+        Preconditions.checkNotNull(clients, "Lane clients must not be null");
+        this.defaultClient = Preconditions.checkNotNull(defaultClient, "Manta client must not be null");
+        this.scheduler = Preconditions.checkNotNull(scheduler, "Scheduler must not be null");
+        this.limiter = Preconditions.checkNotNull(limiter, "Limiter must not be null");
+        this.smallReadThreshold = smallReadThreshold;
+        this.clients = new EnumMap<>(MantaRequestLane.class);
+
+        for (MantaRequestLane lane : MantaRequestLane.values()) {
+            this.clients.put(lane, clients.getOrDefault(lane, defaultClient));
+        }
+    }
+
+    /**
+     * Creates the lanes of a filesystem from its configuration.
+     *
+     * @param config configuration of the default client
+     * @param hadoopConfig Hadoop specific configuration
+     * @param defaultClient default client of the filesystem
+     * @return new lanes
+     */
+    static MantaRequestLanes newInstance(final ConfigContext config,
+                                         final HadoopConfigurationContext hadoopConfig,
+                                         final MantaClient defaultClient) {
+        final Map<MantaRequestLane, MantaClient> clients = new EnumMap<>(MantaRequestLane.class);
+        final Map<MantaRequestLane, Integer> limits = new EnumMap<>(MantaRequestLane.class);
+
+        for (MantaRequestLane lane : MantaRequestLane.values()) {
+            limits.put(lane, hadoopConfig.getLaneRequests(lane));
+
+            final int connections = hadoopConfig.getLanePoolSize(lane);
+
+            if (connections > 0) {
+                LOG.debug("Using {} dedicated connections for {} requests", connections, lane);
+                clients.put(lane, new MantaClient(new ChainedConfigContext(config,
+                        new StandardConfigContext().setMaximumConnections(connections))));
+            }
+        }
+
+        return new MantaRequestLanes(clients, defaultClient,
+                new MantaRequestScheduler(limits, hadoopConfig.getLaneMaxRequests(),
+                        hadoopConfig.getLaneWait()),
+                MantaConcurrencyLimiter.newInstance(hadoopConfig), hadoopConfig.getSmallReadThreshold());
+    }
+
+    /**
+     * @return scheduler that grants permits to send requests
+     */
+    MantaRequestScheduler getScheduler() {
+        return scheduler;
+    }
+
+    /**
+     * @return limiter that adapts the number of concurrent requests to throttling
+     */
+    MantaConcurrencyLimiter getLimiter() {
+        return limiter;
+    }
+
+    /**
+     * @param lane lane of the requests
+     * @return client used by the lane
+     */
+    MantaClient client(final MantaRequestLane lane) {
+        return clients.get(lane);
+    }
+
+    /**
+     * @param length length of the file that is read
+     * @return lane that reads of the file are sent in
+     */
+    MantaRequestLane readLane(final long length) {
+        if (length <= smallReadThreshold) {
+            return MantaRequestLane.SMALL_READ;
+        }
+
+        return MantaRequestLane.BULK;
+    }
+
+    /**
+     * Opens a file for random reads in the lane determined by its length.
+     *
+     * @param mantaPath path on Manta
+     * @param length length of the file
+     * @return stream that releases its permit when closed
+     * @throws IOException thrown when interrupted while waiting or the file can't be opened
+     */
+    FSInputStream open(final String mantaPath, final long length) throws IOException {
+        final MantaRequestLane lane = readLane(length);
+        final MantaRequestScheduler.Permit permit = scheduler.acquire(lane);
+
+        try {
+            final MantaSeekableByteChannel channel = client(lane).getSeekableByteChannel(mantaPath);
+            return new MantaSeekableInputStream(channel, permit);
+        } catch (IOException | RuntimeException e) {
+            permit.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Opens a whole file for a sequential read in the bulk lane.
+     *
+     * @param mantaPath path on Manta
+     * @return stream that releases its permit when closed
+     * @throws IOException thrown when interrupted while waiting or the file can't be opened
+     */
+    InputStream stream(final String mantaPath) throws IOException {
+        final MantaRequestScheduler.Permit permit = scheduler.acquire(MantaRequestLane.BULK);
+
+        try {
+            return new ProxyInputStream(client(MantaRequestLane.BULK).getAsInputStream(mantaPath)) {
+                @Override
+                public void close() throws IOException {
+                    try {
+                        super.close();
+                    } finally {
+                        permit.close();
+                    }
+                }
+            };
+        } catch (IOException | RuntimeException e) {
+            permit.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Starts an upload in the bulk lane.
+     *
+     * @param mantaPath path on Manta
+     * @param headers headers of the upload
+     * @param metadata metadata of the uploaded object
+     * @return stream that completes the upload and releases its permit when closed
+     * @throws IOException thrown when interrupted while waiting or the upload can't be started
+     */
+    Upload create(final String mantaPath, final MantaHttpHeaders headers,
+                  final MantaMetadata metadata) throws IOException {
+        final MantaRequestScheduler.Permit permit = scheduler.acquire(MantaRequestLane.BULK);
+
+        try {
+            return new Upload(client(MantaRequestLane.BULK).putAsOutputStream(mantaPath, headers, metadata),
+                    permit);
+        } catch (RuntimeException e) {
+            permit.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Stream of an upload that releases its permit when closed and knows
+     * the etag of the object it created afterwards.
+     */
+    static final class Upload extends ProxyOutputStream {
+        /**
+         * Stream of the SDK.
+         */
+        private final MantaObjectOutputStream upload;
+
+        /**
+         * Permit released when the stream is closed.
+         */
+        private final MantaRequestScheduler.Permit permit;
+
+        /**
+         * Creates a new instance.
+         *
+         * @param upload stream of the SDK
+         * @param permit permit released when the stream is closed
+         */
+        private Upload(final MantaObjectOutputStream upload, final MantaRequestScheduler.Permit permit) {
+            super(upload);
+            this.upload = upload;
+            this.permit = permit;
+        }
+
+        /**
+         * @return etag of the uploaded object, null until the upload completed
+         */
+        String getETag() {
+            final MantaObjectResponse response = upload.getObjectResponse();
+
+            if (response == null) {
+                return null;
+            }
+
+            return response.getEtag();
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                super.close();
+            } finally {
+                permit.close();
+            }
+        }
+    }
+
+    /**
+     * Uploads a local file in the bulk lane.
+     *
+     * @param mantaPath path on Manta
+     * @param file local file to upload
+     * @throws IOException thrown when interrupted while waiting or the upload fails
+     */
+    void put(final String mantaPath, final File file) throws IOException {
+        final MantaRequestScheduler.Permit permit = scheduler.acquire(MantaRequestLane.BULK);
+
+        try {
+            limiter.run("upload of " + mantaPath,
+                    () -> client(MantaRequestLane.BULK).put(mantaPath, file));
+        } finally {
+            permit.close();
+        }
+    }
+
+    /**
+     * Downloads a file to the local filesystem in the bulk lane.
+     *
+     * @param mantaPath path on Manta
+     * @param target local file to replace with the download
+     * @throws IOException thrown when interrupted while waiting or the download fails
+     */
+    void copy(final String mantaPath, final Path target) throws IOException {
+        download(mantaPath, in -> Files.copy(in, target, StandardCopyOption.REPLACE_EXISTING));
+    }
+
+    /**
+     * Downloads a whole file in the bulk lane. Downloads that Manta throttles
+     * are read again from the start.
+     *
+     * @param mantaPath path on Manta
+     * @param reader reads the content of the file
+     * @param <T> type of the result of the read
+     * @return result of the read
+     * @throws IOException thrown when interrupted while waiting or the download fails
+     */
+    <T> T download(final String mantaPath, final DownloadReader<T> reader) throws IOException {
+        final MantaRequestScheduler.Permit permit = scheduler.acquire(MantaRequestLane.BULK);
+
+        try {
+            return limiter.run("download of " + mantaPath, () -> {
+                try (MantaObjectInputStream in = client(MantaRequestLane.BULK).getAsInputStream(mantaPath)) {
+                    return reader.read(in);
+                }
+            });
+        } finally {
+            permit.close();
+        }
+    }
+
+    /**
+     * Closes the clients with dedicated connection pools. The default client
+     * is left open.
+     */
+    void close() {
+        for (MantaClient client : clients.values()) {
+            if (client != defaultClient) {
+                client.closeQuietly();
+            }
+        }
+    }
+}
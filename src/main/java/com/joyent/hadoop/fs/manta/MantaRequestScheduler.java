@@ -0,0 +1,262 @@
+package com.joyent.hadoop.fs.manta;
+
+import com.google.common.base.Preconditions;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Grants permits to send requests in a {@link MantaRequestLane}. Each lane
+ * may be limited to a number of concurrent requests, and the requests of all
+ * lanes together may be limited as well. Callers of a lane that reached its
+ * limit wait until a request of the same lane completes. When the total limit
+ * is reached, the next completed request admits a waiting caller of the lane
+ * with the highest priority whose own limit isn't reached, so that metadata
+ * requests overtake queued bulk transfers.
+ *
+ * <p>A limit of zero means unlimited. A scheduler without any limits only
+ * keeps track of the requests in flight. Callers wait for a bounded time and
+ * are rejected afterwards, so that a thread holding permits through open
+ * streams, or a leaked stream, fails the next request instead of blocking
+ * it forever.</p>
+ */
+final class MantaRequestScheduler {
+    /**
+     * Number of lanes.
+     */
+    private static final int LANES = MantaRequestLane.values().length;
+
+    /**
+     * Maximum number of concurrent requests of each lane, 0 for unlimited.
+     */
+    private final int[] limits = new int[LANES];
+
+    /**
+     * Maximum number of concurrent requests of all lanes, 0 for unlimited.
+     */
+    private final int totalLimit;
+
+    /**
+     * Nanoseconds a caller waits for a permit before it is rejected.
+     */
+    private final long waitNanos;
+
+    /**
+     * Number of requests in flight in each lane.
+     */
+    private final int[] inFlight = new int[LANES];
+
+    /**
+     * Number of callers waiting for a permit in each lane.
+     */
+    private final int[] waiting = new int[LANES];
+
+    /**
+     * Number of requests in flight in all lanes.
+     */
+    private int total;
+
+    /**
+     * Lock guarding the counters.
+     */
+    private final ReentrantLock lock = new ReentrantLock();
+
+    /**
+     * Condition signalled whenever a permit is released.
+     */
+    private final Condition released = lock.newCondition();
+
+    /**
+     * Creates a new instance.
+     *
+     * @param laneLimits maximum number of concurrent requests of each lane,
+     *                   0 or absent for unlimited
+     * @param totalLimit maximum number of concurrent requests of all lanes, 0 for unlimited
+     * @param wait milliseconds a caller waits for a permit before it is rejected
+     */
+    MantaRequestScheduler(final Map<MantaRequestLane, Integer> laneLimits, final int totalLimit,
+                          final long wait) {
+        Preconditions.checkNotNull(laneLimits, "Lane limits must not be null");
+        Preconditions.checkArgument(totalLimit >= 0, "Total limit must not be negative");
+        Preconditions.checkArgument(wait >= 0, "Wait must not be negative");
+
+        for (Map.Entry<MantaRequestLane, Integer> limit : laneLimits.entrySet()) {
+            Preconditions.checkArgument(limit.getValue() >= 0,
+                    "Limit of lane %s must not be negative", limit.getKey());
+            limits[limit.getKey().ordinal()] = limit.getValue();
+        }
+
+        this.totalLimit = totalLimit;
+        this.waitNanos = TimeUnit.MILLISECONDS.toNanos(wait);
+    }
+
+    /**
+     * Waits for a permit to send a request in a lane.
+     *
+     * @param lane lane of the request
+     * @return permit that must be closed once the request completed
+     * @throws InterruptedIOException thrown when interrupted while waiting
+     * @throws IOException thrown when no permit was granted within the wait time
+     */
+    Permit acquire(final MantaRequestLane lane) throws IOException {
+        final int index = lane.ordinal();
+
+        lock.lock();
+        try {
+            long remaining = waitNanos;
+            boolean admitted = false;
+            waiting[index]++;
+
+            try {
+                while (!admits(index)) {
+                    if (remaining <= 0L) {
+                        throw new IOException(String.format(
+                                "Rejected %s request after waiting %d ms for a permit, %d requests "
+                                        + "of the lane and %d in total are in flight", lane,
+                                TimeUnit.NANOSECONDS.toMillis(waitNanos), inFlight[index], total));
+                    }
+
+                    remaining = released.awaitNanos(remaining);
+                }
+
+                admitted = true;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException(
+                        String.format("Interrupted while waiting for a %s request permit", lane));
+            } finally {
+                waiting[index]--;
+
+                // Lanes of lower priority may have been held back by this caller
+                if (!admitted) {
+                    released.signalAll();
+                }
+            }
+
+            inFlight[index]++;
+            total++;
+        } finally {
+            lock.unlock();
+        }
+
+        return new Permit(lane);
+    }
+
+    /**
+     * Determines whether a request of a lane can be sent now. Must be called
+     * while holding the lock.
+     *
+     * @param index ordinal of the lane
+     * @return true if neither the lane nor the total limit is reached and no
+     *         lane of higher priority waits for the permit
+     */
+    private boolean admits(final int index) {
+        if (!hasCapacity(index)) {
+            return false;
+        }
+
+        if (totalLimit == 0) {
+            return true;
+        }
+
+        if (total >= totalLimit) {
+            return false;
+        }
+
+        for (int higher = 0; higher < index; higher++) {
+            if (waiting[higher] > 0 && hasCapacity(higher)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * @param index ordinal of the lane
+     * @return true if the lane is below its own limit
+     */
+    private boolean hasCapacity(final int index) {
+        return limits[index] == 0 || inFlight[index] < limits[index];
+    }
+
+    /**
+     * Releases a permit and wakes up the waiting callers.
+     *
+     * @param lane lane of the completed request
+     */
+    private void release(final MantaRequestLane lane) {
+        lock.lock();
+        try {
+            inFlight[lane.ordinal()]--;
+            total--;
+            released.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @param lane lane of the requests
+     * @return number of requests of the lane in flight
+     */
+    int getInFlight(final MantaRequestLane lane) {
+        lock.lock();
+        try {
+            return inFlight[lane.ordinal()];
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @param lane lane of the requests
+     * @return number of callers waiting for a permit of the lane
+     */
+    int getWaiting(final MantaRequestLane lane) {
+        lock.lock();
+        try {
+            return waiting[lane.ordinal()];
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Permit to send a request. Closing the permit more than once has no
+     * further effect, so streams may release their permit from any close.
+     */
+    final class Permit implements Closeable {
+        /**
+         * Lane the permit was granted in.
+         */
+        private final MantaRequestLane lane;
+
+        /**
+         * Flag indicating that the permit was released.
+         */
+        private final AtomicBoolean closed = new AtomicBoolean();
+
+        /**
+         * Creates a new instance.
+         *
+         * @param lane lane the permit was granted in
+         */
+        private Permit(final MantaRequestLane lane) {
+            this.lane = lane;
+        }
+
+        @Override
+        public void close() {
+            if (closed.compareAndSet(false, true)) {
+                release(lane);
+            }
+        }
+    }
+}
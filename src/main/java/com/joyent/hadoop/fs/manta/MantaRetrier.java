@@ -0,0 +1,213 @@
+package com.joyent.hadoop.fs.manta;
+
+import com.google.common.base.Preconditions;
+import com.joyent.manta.exception.MantaClientHttpResponseException;
+import com.joyent.manta.exception.MantaErrorCode;
+import com.joyent.manta.exception.MantaNoHttpResponseException;
+import com.joyent.manta.org.apache.http.NoHttpResponseException;
+import com.joyent.manta.org.apache.http.conn.ConnectTimeoutException;
+import org.apache.http.HttpStatus;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.SocketException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Retries requests that fail with a transient error, waiting with
+ * exponential backoff and jitter between attempts. Parallel tree operations
+ * issue thousands of independent requests, so a single throttled or failed
+ * request shouldn't fail the operation as a whole.
+ *
+ * <p>Every attempt is sent through {@link MantaMetadataRequests}. While the
+ * {@link MantaConcurrencyLimiter} of the requests is enabled, it retries
+ * requests that Manta throttles itself, so they aren't retried here again.
+ * Requests rejected locally by the limiter or by the
+ * {@link MantaRequestScheduler} have already waited for their turn and are
+ * never retried.</p>
+ *
+ * <p>Instances are thread-safe and count the retries of every request run
+ * through them.</p>
+ */
+final class MantaRetrier {
+    /**
+     * Logger instance.
+     */
+    private static final Logger LOG = LoggerFactory.getLogger(MantaRetrier.class);
+
+    /**
+     * Delay before the first retry in milliseconds, doubled on every retry.
+     */
+    private static final long INITIAL_BACKOFF_MILLIS = 100L;
+
+    /**
+     * HTTP status returned when Manta is throttling requests.
+     */
+    private static final int SC_TOO_MANY_REQUESTS = 429;
+
+    /**
+     * Operation that may fail with an {@link IOException}.
+     */
+    @FunctionalInterface
+    interface IOOperation {
+        /**
+         * Runs the operation.
+         *
+         * @throws IOException thrown when the operation fails
+         */
+        void run() throws IOException;
+    }
+
+    /**
+     * Number of times a request failing with a transient error is retried.
+     */
+    private final int retries;
+
+    /**
+     * Requests every attempt is sent through.
+     */
+    private final MantaMetadataRequests requests;
+
+    /**
+     * Number of requests that were retried.
+     */
+    private final LongAdder retried = new LongAdder();
+
+    /**
+     * Creates a new instance.
+     *
+     * @param retries number of times a request failing with a transient error is retried
+     * @param requests requests every attempt is sent through
+     */
+    MantaRetrier(final int retries, final MantaMetadataRequests requests) {
+        Preconditions.checkArgument(retries >= 0, "Retries must not be negative");
+        this.retries = retries;
+        this.requests = Preconditions.checkNotNull(requests, "Requests must not be null");
+    }
+
+    /**
+     * Runs a request, retrying it while it fails with a transient error.
+     * Errors other than errors returned by Manta are only considered
+     * transient when the connection failed.
+     *
+     * @param description description of the request used in log messages
+     * @param request request to run
+     * @throws IOException thrown when the request fails permanently or
+     *                     runs out of retries
+     */
+    void run(final String description, final IOOperation request) throws IOException {
+        for (int attempt = 0;; attempt++) {
+            try {
+                requests.call(description, () -> {
+                    request.run();
+                    return null;
+                });
+                return;
+            } catch (MantaClientHttpResponseException e) {
+                if (!isTransient(e) || attempt >= retries
+                        || (isThrottled(e) && requests.getLimiter().isEnabled())) {
+                    throw e;
+                }
+
+                backoff(description, attempt, e);
+            } catch (IOException e) {
+                if (!isConnectionFailure(e) || attempt >= retries) {
+                    throw e;
+                }
+
+                backoff(description, attempt, e);
+            }
+        }
+    }
+
+    /**
+     * @return number of requests that were retried so far
+     */
+    long getRetries() {
+        return retried.sum();
+    }
+
+    /**
+     * @param e error returned by Manta
+     * @return true if the request may succeed when retried
+     */
+    static boolean isTransient(final MantaClientHttpResponseException e) {
+        final int status = e.getStatusCode();
+
+        // A directory that isn't empty yet may be written to concurrently
+        return status >= HttpStatus.SC_INTERNAL_SERVER_ERROR || status == SC_TOO_MANY_REQUESTS
+                || e.getServerCode() == MantaErrorCode.DIRECTORY_NOT_EMPTY_ERROR;
+    }
+
+    /**
+     * @param e error of a request that Manta didn't answer
+     * @return true if the request failed because the connection to Manta
+     *         couldn't be established or was lost
+     */
+    static boolean isConnectionFailure(final IOException e) {
+        // The SDK wraps some failures of its HTTP client
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof SocketException || cause instanceof NoHttpResponseException
+                    || cause instanceof MantaNoHttpResponseException
+                    || cause instanceof ConnectTimeoutException) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * @param e error returned by Manta
+     * @return true if Manta rejected the request because it is overloaded
+     */
+    static boolean isThrottled(final MantaClientHttpResponseException e) {
+        final int status = e.getStatusCode();
+        return status == HttpStatus.SC_SERVICE_UNAVAILABLE || status == SC_TOO_MANY_REQUESTS;
+    }
+
+    /**
+     * Waits before retrying a failed request.
+     *
+     * @param description description of the failed request
+     * @param attempt number of the failed attempt starting at zero
+     * @param e error of the failed attempt
+     * @throws InterruptedIOException thrown when interrupted while waiting
+     */
+    private void backoff(final String description, final int attempt, final IOException e)
+            throws InterruptedIOException {
+        retried.increment();
+        pause(description, attempt, e);
+    }
+
+    /**
+     * Waits with exponential backoff and jitter before retrying a failed
+     * request, so that callers failing at the same time retry at different
+     * times.
+     *
+     * @param description description of the failed request
+     * @param attempt number of the failed attempt starting at zero
+     * @param e error of the failed attempt
+     * @throws InterruptedIOException thrown when interrupted while waiting
+     */
+    static void pause(final String description, final int attempt, final IOException e)
+            throws InterruptedIOException {
+        final long delay = INITIAL_BACKOFF_MILLIS << attempt;
+        final long jittered = delay / 2 + ThreadLocalRandom.current().nextLong(delay / 2 + 1);
+
+        LOG.debug("Retrying {} in {} ms after: {}", description, jittered, e.getMessage());
+
+        try {
+            Thread.sleep(jittered);
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            final InterruptedIOException interrupted =
+                    new InterruptedIOException("Interrupted while retrying " + description);
+            interrupted.initCause(ie);
+            throw interrupted;
+        }
+    }
+}
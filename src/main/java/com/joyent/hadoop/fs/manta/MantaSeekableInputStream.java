@@ -5,6 +5,7 @@ import org.apache.hadoop.fs.FSInputStream;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.Closeable;
 import java.io.IOException;
 
 /**
@@ -32,6 +33,11 @@ public class MantaSeekableInputStream extends FSInputStream {
      */
     private volatile MantaSeekableByteChannel seekableByteChannel;
 
+    /**
+     * Resource closed after the backing channel, may be null.
+     */
+    private final Closeable onClose;
+
     /**
      * Create a new instance that is backed by a Manta {@link java.nio.channels.SeekableByteChannel}
      * implementation.
@@ -39,7 +45,20 @@ public class MantaSeekableInputStream extends FSInputStream {
      * @param seekableByteChannel seekable byte channel used for random reads
      */
     public MantaSeekableInputStream(final MantaSeekableByteChannel seekableByteChannel) {
+        this(seekableByteChannel, null);
+    }
+
+    /**
+     * Create a new instance that is backed by a Manta {@link java.nio.channels.SeekableByteChannel}
+     * implementation and closes another resource, like a request permit, when closed.
+     *
+     * @param seekableByteChannel seekable byte channel used for random reads
+     * @param onClose resource closed after the backing channel, may be null
+     */
+    public MantaSeekableInputStream(final MantaSeekableByteChannel seekableByteChannel,
+                                    final Closeable onClose) {
         this.seekableByteChannel = seekableByteChannel;
+        this.onClose = onClose;
     }
 
     @Override
@@ -161,6 +180,12 @@ public class MantaSeekableInputStream extends FSInputStream {
 
     @Override
     public synchronized void close() throws IOException {
-        this.seekableByteChannel.close();
+        try {
+            this.seekableByteChannel.close();
+        } finally {
+            if (onClose != null) {
+                onClose.close();
+            }
+        }
     }
 }
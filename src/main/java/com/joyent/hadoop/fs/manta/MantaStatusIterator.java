@@ -0,0 +1,97 @@
+package com.joyent.hadoop.fs.manta;
+
+import com.google.common.base.Preconditions;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.fs.RemoteIterator;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.NoSuchElementException;
+
+/**
+ * Implementation of {@link RemoteIterator} that streams the statuses of a
+ * single directory page by page. Only the page currently being read from
+ * Manta is held in memory, no matter how many entries the directory has.
+ *
+ * <p>The underlying HTTP connection is released once the last entry has been
+ * read. Callers that stop iterating early should call {@link #close()}.</p>
+ */
+public class MantaStatusIterator implements RemoteIterator<FileStatus>, AutoCloseable {
+    /**
+     * Streaming listing of the directory.
+     */
+    private final MantaDirectoryListing listing;
+
+    /**
+     * Decoder bound to the listed directory.
+     */
+    private final MantaListingDecoder decoder;
+
+    /**
+     * Directory being listed.
+     */
+    private final Path path;
+
+    /**
+     * Flag indicating that the listing has been closed.
+     */
+    private boolean closed = false;
+
+    /**
+     * Creates a new instance.
+     *
+     * @param listing streaming listing of the directory
+     * @param decoder decoder bound to the listed directory
+     * @param path directory being listed
+     */
+    MantaStatusIterator(final MantaDirectoryListing listing,
+                        final MantaListingDecoder decoder,
+                        final Path path) {
+        this.listing = Preconditions.checkNotNull(listing, "Listing must not be null");
+        this.decoder = Preconditions.checkNotNull(decoder, "Decoder must not be null");
+        this.path = path;
+    }
+
+    @Override
+    public boolean hasNext() throws IOException {
+        if (closed) {
+            return false;
+        }
+
+        try {
+            if (listing.hasNext()) {
+                return true;
+            }
+        } catch (UncheckedIOException e) {
+            close();
+            throw e.getCause();
+        }
+
+        close();
+        return false;
+    }
+
+    @Override
+    public FileStatus next() throws IOException {
+        if (!hasNext()) {
+            String msg = String.format("No more listings in [%s]", path);
+            throw new NoSuchElementException(msg);
+        }
+
+        try {
+            return decoder.decode(listing.next());
+        } catch (UncheckedIOException e) {
+            close();
+            throw e.getCause();
+        }
+    }
+
+    @Override
+    public void close() {
+        if (!closed) {
+            closed = true;
+            listing.close();
+        }
+    }
+}
@@ -0,0 +1,291 @@
+package com.joyent.hadoop.fs.manta;
+
+/**
+ * Parses the ISO-8601 timestamps that Manta reports in directory listings,
+ * e.g. {@code 2017-03-14T15:09:26.535Z}, into milliseconds since the epoch.
+ *
+ * <p>This replaces a shared {@link java.text.SimpleDateFormat}, which isn't
+ * thread safe and allocates a {@code Date} and several intermediate objects
+ * per call. Parsing is done by hand over the characters of the timestamp, so
+ * it can be called concurrently without locking and doesn't allocate unless
+ * the input is malformed.</p>
+ *
+ * <p>The accepted format is {@code yyyy-MM-dd'T'HH:mm:ss[.fraction]} followed
+ * by {@code Z} or a {@code +hh}, {@code +hhmm} or {@code +hh:mm} offset. The
+ * fraction may have up to nine digits and is truncated to milliseconds.</p>
+ */
+@SuppressWarnings("checkstyle:magicnumber") // Field offsets and calendar arithmetic
+final class MantaTimestampParser {
+    /**
+     * Milliseconds per second.
+     */
+    private static final long MILLIS_PER_SECOND = 1000L;
+
+    /**
+     * Seconds per minute.
+     */
+    private static final long SECONDS_PER_MINUTE = 60L;
+
+    /**
+     * Seconds per hour.
+     */
+    private static final long SECONDS_PER_HOUR = 3600L;
+
+    /**
+     * Seconds per day.
+     */
+    private static final long SECONDS_PER_DAY = 86400L;
+
+    /**
+     * Maximum number of fraction digits accepted.
+     */
+    private static final int MAX_FRACTION_DIGITS = 9;
+
+    /**
+     * Utility class.
+     */
+    private MantaTimestampParser() {
+    }
+
+    /**
+     * Parses a timestamp.
+     *
+     * @param timestamp ISO-8601 timestamp as reported by Manta
+     * @return milliseconds since the epoch
+     * @throws IllegalArgumentException thrown when the timestamp is malformed
+     */
+    static long parse(final CharSequence timestamp) {
+        if (timestamp == null) {
+            throw new IllegalArgumentException("Timestamp must not be null");
+        }
+
+        final int length = timestamp.length();
+
+        // Shortest valid timestamp is yyyy-MM-ddTHH:mm:ssZ
+        if (length < 20) {
+            throw malformed(timestamp);
+        }
+
+        final int year = digits(timestamp, 0, 4);
+        expect(timestamp, 4, '-');
+        final int month = digits(timestamp, 5, 2);
+        expect(timestamp, 7, '-');
+        final int day = digits(timestamp, 8, 2);
+        expect(timestamp, 10, 'T');
+        final int hour = digits(timestamp, 11, 2);
+        expect(timestamp, 13, ':');
+        final int minute = digits(timestamp, 14, 2);
+        expect(timestamp, 16, ':');
+        final int second = digits(timestamp, 17, 2);
+
+        if (month < 1 || month > 12 || day < 1 || day > daysInMonth(year, month)
+                || hour > 23 || minute > 59 || second > 59) {
+            throw malformed(timestamp);
+        }
+
+        int pos = 19;
+        long millis = 0L;
+
+        if (timestamp.charAt(pos) == '.') {
+            pos++;
+            final int start = pos;
+            int fraction = 0;
+
+            while (pos < length && isDigit(timestamp.charAt(pos))) {
+                fraction = fraction * 10 + (timestamp.charAt(pos) - '0');
+                pos++;
+            }
+
+            final int fractionDigits = pos - start;
+
+            if (fractionDigits == 0 || fractionDigits > MAX_FRACTION_DIGITS) {
+                throw malformed(timestamp);
+            }
+
+            // Scale the fraction to milliseconds
+            for (int i = fractionDigits; i < 3; i++) {
+                fraction *= 10;
+            }
+
+            for (int i = 3; i < fractionDigits; i++) {
+                fraction /= 10;
+            }
+
+            millis = fraction;
+        }
+
+        final long offsetSeconds = offsetSeconds(timestamp, pos);
+        final long epochSeconds = daysSinceEpoch(year, month, day) * SECONDS_PER_DAY
+                + hour * SECONDS_PER_HOUR + minute * SECONDS_PER_MINUTE + second - offsetSeconds;
+
+        return epochSeconds * MILLIS_PER_SECOND + millis;
+    }
+
+    /**
+     * Parses the zone designator at the end of a timestamp.
+     *
+     * @param timestamp timestamp being parsed
+     * @param pos position of the zone designator
+     * @return offset from UTC in seconds
+     */
+    private static long offsetSeconds(final CharSequence timestamp, final int pos) {
+        final int length = timestamp.length();
+
+        if (pos >= length) {
+            throw malformed(timestamp);
+        }
+
+        final char sign = timestamp.charAt(pos);
+
+        if (sign == 'Z') {
+            if (pos + 1 != length) {
+                throw malformed(timestamp);
+            }
+
+            return 0L;
+        }
+
+        if (sign != '+' && sign != '-') {
+            throw malformed(timestamp);
+        }
+
+        final int hours = digits(timestamp, pos + 1, 2);
+        final int minutes;
+
+        switch (length - pos) {
+            case 3:
+                minutes = 0;
+                break;
+            case 5:
+                minutes = digits(timestamp, pos + 3, 2);
+                break;
+            case 6:
+                expect(timestamp, pos + 3, ':');
+                minutes = digits(timestamp, pos + 4, 2);
+                break;
+            default:
+                throw malformed(timestamp);
+        }
+
+        if (hours > 23 || minutes > 59) {
+            throw malformed(timestamp);
+        }
+
+        final long offset = hours * SECONDS_PER_HOUR + minutes * SECONDS_PER_MINUTE;
+
+        if (sign == '-') {
+            return -offset;
+        }
+
+        return offset;
+    }
+
+    /**
+     * Computes the number of days between the epoch and a date in the
+     * proleptic Gregorian calendar.
+     *
+     * @param year year
+     * @param month month from 1 to 12
+     * @param day day of month from 1
+     * @return days since 1970-01-01
+     */
+    private static long daysSinceEpoch(final int year, final int month, final int day) {
+        // Count years from March so that the leap day is the last day of the year
+        final int y;
+
+        if (month <= 2) {
+            y = year - 1;
+        } else {
+            y = year;
+        }
+
+        final int era = Math.floorDiv(y, 400);
+        final int yearOfEra = y - era * 400;
+        final int shiftedMonth = (month + 9) % 12;
+        final int dayOfYear = (153 * shiftedMonth + 2) / 5 + day - 1;
+        final int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+
+        // 719468 is the number of days from 0000-03-01 to 1970-01-01
+        return era * 146097L + dayOfEra - 719468L;
+    }
+
+    /**
+     * @param year year
+     * @param month month from 1 to 12
+     * @return number of days in the month
+     */
+    private static int daysInMonth(final int year, final int month) {
+        switch (month) {
+            case 2:
+                if ((year % 4 == 0 && year % 100 != 0) || year % 400 == 0) {
+                    return 29;
+                }
+
+                return 28;
+            case 4:
+            case 6:
+            case 9:
+            case 11:
+                return 30;
+            default:
+                return 31;
+        }
+    }
+
+    /**
+     * Reads a fixed number of decimal digits.
+     *
+     * @param timestamp timestamp being parsed
+     * @param pos position of the first digit
+     * @param count number of digits
+     * @return value of the digits
+     */
+    private static int digits(final CharSequence timestamp, final int pos, final int count) {
+        if (pos + count > timestamp.length()) {
+            throw malformed(timestamp);
+        }
+
+        int value = 0;
+
+        for (int i = pos; i < pos + count; i++) {
+            final char c = timestamp.charAt(i);
+
+            if (!isDigit(c)) {
+                throw malformed(timestamp);
+            }
+
+            value = value * 10 + (c - '0');
+        }
+
+        return value;
+    }
+
+    /**
+     * Verifies that a separator is present.
+     *
+     * @param timestamp timestamp being parsed
+     * @param pos position of the separator
+     * @param expected expected separator
+     */
+    private static void expect(final CharSequence timestamp, final int pos, final char expected) {
+        if (pos >= timestamp.length() || timestamp.charAt(pos) != expected) {
+            throw malformed(timestamp);
+        }
+    }
+
+    /**
+     * @param c character to check
+     * @return true if the character is an ASCII digit
+     */
+    private static boolean isDigit(final char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    /**
+     * @param timestamp malformed timestamp
+     * @return exception describing the malformed timestamp
+     */
+    private static IllegalArgumentException malformed(final CharSequence timestamp) {
+        return new IllegalArgumentException("Malformed ISO-8601 timestamp: " + timestamp);
+    }
+}
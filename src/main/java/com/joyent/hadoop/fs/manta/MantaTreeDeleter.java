@@ -0,0 +1,391 @@
+package com.joyent.hadoop.fs.manta;
+
+import com.google.common.base.Preconditions;
+import com.joyent.manta.client.MantaClient;
+import com.joyent.manta.exception.MantaClientHttpResponseException;
+import org.apache.hadoop.util.Progressable;
+import org.apache.http.HttpStatus;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountedCompleter;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+import static com.joyent.manta.client.MantaClient.SEPARATOR;
+
+/**
+ * Deletes a Manta directory tree with many requests in flight instead of
+ * one object at a time like {@link MantaClient#deleteRecursive(String)}.
+ *
+ * <ul>
+ *     <li>Each directory is listed by its own task and sibling directories
+ *         are listed concurrently.</li>
+ *     <li>Objects are deleted in batches forked while the listing is still
+ *         being read, so a single huge directory is also deleted in
+ *         parallel.</li>
+ *     <li>A directory is deleted as soon as everything below it has been
+ *         deleted, so the tree is removed bottom-up without a second pass.</li>
+ *     <li>Requests that fail with a transient error are retried with
+ *         exponential backoff.</li>
+ * </ul>
+ *
+ * <p>All work runs on a bounded {@link ForkJoinPool}, so the number of
+ * concurrent requests never exceeds its parallelism. The first permanent
+ * failure stops the deletion. Directories above the failure are kept.</p>
+ *
+ * <p>An instance of this class represents a single deletion and is not reusable.</p>
+ */
+class MantaTreeDeleter {
+    /**
+     * Logger instance.
+     */
+    private static final Logger LOG = LoggerFactory.getLogger(MantaTreeDeleter.class);
+
+    /**
+     * Number of objects deleted by a single task.
+     */
+    static final int DELETE_BATCH_SIZE = 64;
+
+    /**
+     * Number of deletions between progress log messages.
+     */
+    private static final long LOG_INTERVAL = 10_000L;
+
+    /**
+     * Requests used to list and delete.
+     */
+    private final MantaMetadataRequests requests;
+
+    /**
+     * Pool that listing and deletion tasks are executed on.
+     */
+    private final ForkJoinPool pool;
+
+    /**
+     * Retries requests that fail with a transient error.
+     */
+    private final MantaRetrier retrier;
+
+    /**
+     * Callback notified after every deletion, may be null.
+     */
+    private final Progressable progress;
+
+    /**
+     * Number of objects deleted.
+     */
+    private final LongAdder objectsDeleted = new LongAdder();
+
+    /**
+     * Number of directories deleted.
+     */
+    private final LongAdder directoriesDeleted = new LongAdder();
+
+    /**
+     * Flag indicating that no further work should be started.
+     */
+    private final AtomicBoolean cancelled = new AtomicBoolean(false);
+
+    /**
+     * First error encountered while deleting.
+     */
+    private final AtomicReference<IOException> failure = new AtomicReference<>();
+
+    /**
+     * Creates a new deleter.
+     *
+     * @param requests requests used to list and delete
+     * @param pool pool that listing and deletion tasks are executed on
+     * @param retries number of times a request failing with a transient error is retried
+     * @param progress callback notified concurrently after every deletion, may be null
+     */
+    MantaTreeDeleter(final MantaMetadataRequests requests, final ForkJoinPool pool, final int retries,
+                     final Progressable progress) {
+        this.requests = Preconditions.checkNotNull(requests, "Requests must not be null");
+        this.pool = Preconditions.checkNotNull(pool, "Worker pool must not be null");
+        this.retrier = new MantaRetrier(retries, requests);
+        this.progress = progress;
+    }
+
+    /**
+     * Deletes a directory and everything below it, waiting for the deletion
+     * to finish.
+     *
+     * @param mantaPath directory to delete
+     * @throws IOException thrown when an object or directory can't be deleted
+     */
+    void delete(final String mantaPath) throws IOException {
+        Preconditions.checkNotNull(mantaPath, "Path must not be null");
+
+        final ForkJoinTask<Void> task = pool.submit(new DirectoryTask(null, mantaPath));
+
+        try {
+            task.get();
+        } catch (InterruptedException e) {
+            cancelled.set(true);
+            Thread.currentThread().interrupt();
+            final InterruptedIOException interrupted =
+                    new InterruptedIOException("Interrupted while deleting " + mantaPath);
+            interrupted.initCause(e);
+            throw interrupted;
+        } catch (ExecutionException e) {
+            throw new IOException("Unable to delete " + mantaPath, e.getCause());
+        }
+
+        final IOException e = failure.get();
+
+        if (e != null) {
+            throw e;
+        }
+
+        LOG.debug("Deleted {} objects and {} directories under [{}] with {} retries",
+                getObjectsDeleted(), getDirectoriesDeleted(), mantaPath, getRetries());
+    }
+
+    /**
+     * @return number of objects deleted so far
+     */
+    long getObjectsDeleted() {
+        return objectsDeleted.sum();
+    }
+
+    /**
+     * @return number of directories deleted so far
+     */
+    long getDirectoriesDeleted() {
+        return directoriesDeleted.sum();
+    }
+
+    /**
+     * @return number of requests that were retried so far
+     */
+    long getRetries() {
+        return retrier.getRetries();
+    }
+
+    /**
+     * Deletes a single path, retrying transient failures. Paths that no
+     * longer exist are considered deleted.
+     *
+     * @param mantaPath path to delete
+     * @param counter counter to increment when the path was deleted
+     * @throws IOException thrown when the path can't be deleted
+     */
+    private void deleteWithRetries(final String mantaPath, final LongAdder counter)
+            throws IOException {
+        retrier.run("delete of [" + mantaPath + "]", () -> {
+            try {
+                requests.getClient().delete(mantaPath);
+            } catch (MantaClientHttpResponseException e) {
+                if (e.getStatusCode() == HttpStatus.SC_NOT_FOUND) {
+                    LOG.trace("Path [{}] was already deleted", mantaPath);
+                    return;
+                }
+
+                throw e;
+            }
+
+            counter.increment();
+            reportProgress();
+        });
+    }
+
+    /**
+     * Notifies the progress callback and periodically logs the number of
+     * deletions.
+     */
+    private void reportProgress() {
+        if (progress != null) {
+            progress.progress();
+        }
+
+        if (LOG.isDebugEnabled()) {
+            final long total = objectsDeleted.sum() + directoriesDeleted.sum();
+
+            if (total % LOG_INTERVAL == 0) {
+                LOG.debug("Deleted {} paths so far", total);
+            }
+        }
+    }
+
+    /**
+     * Records an error and stops the deletion.
+     *
+     * @param e error to record
+     */
+    private void fail(final IOException e) {
+        if (!failure.compareAndSet(null, e)) {
+            failure.get().addSuppressed(e);
+        }
+
+        cancelled.set(true);
+    }
+
+    /**
+     * Runs a unit of work and records any error it throws.
+     *
+     * @param work work to run
+     * @param description description of the work used in error messages
+     */
+    private void runRecordingFailure(final MantaRetrier.IOOperation work, final String description) {
+        try {
+            if (!cancelled.get()) {
+                work.run();
+            }
+        } catch (IOException e) {
+            fail(e);
+        } catch (UncheckedIOException e) {
+            fail(e.getCause());
+        } catch (RuntimeException e) {
+            fail(new IOException("Unexpected error " + description, e));
+        }
+    }
+
+    /**
+     * Task that lists a directory, forks tasks that delete its objects and
+     * subdirectories, and deletes the directory itself once they have all
+     * completed.
+     */
+    private final class DirectoryTask extends CountedCompleter<Void> {
+        private static final long serialVersionUID = -6113830640236520357L;
+
+        /**
+         * Directory to delete.
+         */
+        private final String dir;
+
+        /**
+         * Creates a new task.
+         *
+         * @param parent completer to notify when this task finishes
+         * @param dir directory to delete
+         */
+        DirectoryTask(final CountedCompleter<?> parent, final String dir) {
+            super(parent);
+            this.dir = dir;
+        }
+
+        @Override
+        public void compute() {
+            runRecordingFailure(this::listDirectory, "listing " + dir);
+            tryComplete();
+        }
+
+        @Override
+        public void onCompletion(final CountedCompleter<?> caller) {
+            // Everything below the directory has been deleted at this point
+            runRecordingFailure(() -> deleteWithRetries(dir, directoriesDeleted),
+                    "deleting " + dir);
+        }
+
+        /**
+         * Lists the directory and forks a task for each batch of objects
+         * and each subdirectory.
+         *
+         * @throws IOException thrown when the listing fails
+         */
+        private void listDirectory() throws IOException {
+            final String prefix;
+
+            if (dir.endsWith(SEPARATOR)) {
+                prefix = dir;
+            } else {
+                prefix = dir + SEPARATOR;
+            }
+
+            List<String> batch = new ArrayList<>(DELETE_BATCH_SIZE);
+
+            try (MantaDirectoryListing itr = requests.list(dir, MantaTreeWalker.LISTING_PAGE_SIZE)) {
+                while (!cancelled.get() && itr.hasNext()) {
+                    final Map<String, Object> props = itr.next();
+                    final String childPath = prefix + props.get("name");
+
+                    if ("directory".equals(props.get("type"))) {
+                        addToPendingCount(1);
+                        new DirectoryTask(this, childPath).fork();
+                        continue;
+                    }
+
+                    batch.add(childPath);
+
+                    if (batch.size() == DELETE_BATCH_SIZE) {
+                        addToPendingCount(1);
+                        new ObjectBatchTask(this, batch).fork();
+                        batch = new ArrayList<>(DELETE_BATCH_SIZE);
+                    }
+                }
+            } catch (UncheckedIOException e) {
+                skipIfNotFound(e.getCause());
+            }
+
+            if (!batch.isEmpty()) {
+                addToPendingCount(1);
+                new ObjectBatchTask(this, batch).fork();
+            }
+        }
+
+        /**
+         * Treats a directory that disappeared while deleting as empty.
+         *
+         * @param e error thrown while listing
+         * @throws IOException rethrown error if it isn't a not found error
+         */
+        private void skipIfNotFound(final IOException e) throws IOException {
+            if (e instanceof MantaClientHttpResponseException
+                    && ((MantaClientHttpResponseException)e).getStatusCode() == HttpStatus.SC_NOT_FOUND) {
+                LOG.debug("Directory [{}] was removed while deleting", dir);
+                return;
+            }
+
+            throw e;
+        }
+    }
+
+    /**
+     * Task that deletes a batch of objects one after another.
+     */
+    private final class ObjectBatchTask extends CountedCompleter<Void> {
+        private static final long serialVersionUID = 3326412470046227716L;
+
+        /**
+         * Objects to delete.
+         */
+        private final transient List<String> paths;
+
+        /**
+         * Creates a new task.
+         *
+         * @param parent directory task to notify when this task finishes
+         * @param paths objects to delete
+         */
+        ObjectBatchTask(final CountedCompleter<?> parent, final List<String> paths) {
+            super(parent);
+            this.paths = paths;
+        }
+
+        @Override
+        public void compute() {
+            for (String path : paths) {
+                if (cancelled.get()) {
+                    break;
+                }
+
+                runRecordingFailure(() -> deleteWithRetries(path, objectsDeleted),
+                        "deleting " + path);
+            }
+
+            tryComplete();
+        }
+    }
+}
@@ -0,0 +1,328 @@
+package com.joyent.hadoop.fs.manta;
+
+import com.google.common.base.Preconditions;
+import org.apache.hadoop.util.Progressable;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountedCompleter;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+import static com.joyent.manta.client.MantaClient.SEPARATOR;
+
+/**
+ * Recreates a Manta directory tree at another path by snaplinking every
+ * object instead of copying its data. Snaplinks are metadata-only, so the
+ * cost of linking a tree depends on the number of objects and not on their
+ * size.
+ *
+ * <p>Each destination directory is created before anything is linked into
+ * it. Sibling directories are linked concurrently and objects are linked in
+ * batches forked while the listing is still being read, on a bounded
+ * {@link ForkJoinPool}. Existing destination directories are reused and
+ * existing objects are replaced. The first permanent failure stops
+ * linking.</p>
+ *
+ * <p>An instance of this class represents a single tree and is not reusable.</p>
+ */
+class MantaTreeLinker {
+    /**
+     * Number of objects linked by a single task.
+     */
+    static final int LINK_BATCH_SIZE = 64;
+
+    /**
+     * Requests used to list, create directories and link.
+     */
+    private final MantaMetadataRequests requests;
+
+    /**
+     * Pool that listing and linking tasks are executed on.
+     */
+    private final ForkJoinPool pool;
+
+    /**
+     * Retries requests that fail with a transient error.
+     */
+    private final MantaRetrier retrier;
+
+    /**
+     * Callback notified after every link, may be null.
+     */
+    private final Progressable progress;
+
+    /**
+     * Number of objects linked.
+     */
+    private final LongAdder objectsLinked = new LongAdder();
+
+    /**
+     * Number of directories created.
+     */
+    private final LongAdder directoriesCreated = new LongAdder();
+
+    /**
+     * Flag indicating that no further work should be started.
+     */
+    private final AtomicBoolean cancelled = new AtomicBoolean(false);
+
+    /**
+     * First error encountered while linking.
+     */
+    private final AtomicReference<IOException> failure = new AtomicReference<>();
+
+    /**
+     * Creates a new linker.
+     *
+     * @param requests requests used to list, create directories and link
+     * @param pool pool that listing and linking tasks are executed on
+     * @param retrier retries requests that fail with a transient error
+     * @param progress callback notified concurrently after every link, may be null
+     */
+    MantaTreeLinker(final MantaMetadataRequests requests, final ForkJoinPool pool,
+                    final MantaRetrier retrier, final Progressable progress) {
+        this.requests = Preconditions.checkNotNull(requests, "Requests must not be null");
+        this.pool = Preconditions.checkNotNull(pool, "Worker pool must not be null");
+        this.retrier = Preconditions.checkNotNull(retrier, "Retrier must not be null");
+        this.progress = progress;
+    }
+
+    /**
+     * Creates the destination directories and links every object below the
+     * source to them, waiting for linking to finish. The parent of the
+     * destination must exist.
+     *
+     * @param source directory to link from
+     * @param destination directory to link to
+     * @throws IOException thrown when a directory can't be created or an
+     *                     object can't be linked
+     */
+    void link(final String source, final String destination) throws IOException {
+        Preconditions.checkNotNull(source, "Source must not be null");
+        Preconditions.checkNotNull(destination, "Destination must not be null");
+
+        final ForkJoinTask<Void> task = pool.submit(new DirectoryTask(null, source, destination));
+
+        try {
+            task.get();
+        } catch (InterruptedException e) {
+            cancelled.set(true);
+            Thread.currentThread().interrupt();
+            final InterruptedIOException interrupted =
+                    new InterruptedIOException("Interrupted while linking " + source);
+            interrupted.initCause(e);
+            throw interrupted;
+        } catch (ExecutionException e) {
+            throw new IOException("Unable to link " + source, e.getCause());
+        }
+
+        final IOException e = failure.get();
+
+        if (e != null) {
+            throw e;
+        }
+    }
+
+    /**
+     * @return number of objects linked so far
+     */
+    long getObjectsLinked() {
+        return objectsLinked.sum();
+    }
+
+    /**
+     * @return number of directories created so far
+     */
+    long getDirectoriesCreated() {
+        return directoriesCreated.sum();
+    }
+
+    /**
+     * Notifies the progress callback.
+     */
+    private void reportProgress() {
+        if (progress != null) {
+            progress.progress();
+        }
+    }
+
+    /**
+     * Records an error and stops linking.
+     *
+     * @param e error to record
+     */
+    private void fail(final IOException e) {
+        if (!failure.compareAndSet(null, e)) {
+            failure.get().addSuppressed(e);
+        }
+
+        cancelled.set(true);
+    }
+
+    /**
+     * Runs a unit of work and records any error it throws.
+     *
+     * @param work work to run
+     * @param description description of the work used in error messages
+     */
+    private void runRecordingFailure(final MantaRetrier.IOOperation work, final String description) {
+        try {
+            if (!cancelled.get()) {
+                work.run();
+            }
+        } catch (IOException e) {
+            fail(e);
+        } catch (UncheckedIOException e) {
+            fail(e.getCause());
+        } catch (RuntimeException e) {
+            fail(new IOException("Unexpected error " + description, e));
+        }
+    }
+
+    /**
+     * Task that creates a destination directory, lists the matching source
+     * directory and forks tasks that link its objects and subdirectories.
+     */
+    private final class DirectoryTask extends CountedCompleter<Void> {
+        private static final long serialVersionUID = 2318957046351834475L;
+
+        /**
+         * Directory to link from.
+         */
+        private final String source;
+
+        /**
+         * Directory to link to.
+         */
+        private final String destination;
+
+        /**
+         * Creates a new task.
+         *
+         * @param parent completer to notify when this task finishes
+         * @param source directory to link from
+         * @param destination directory to link to
+         */
+        DirectoryTask(final CountedCompleter<?> parent, final String source,
+                      final String destination) {
+            super(parent);
+            this.source = source;
+            this.destination = destination;
+        }
+
+        @Override
+        public void compute() {
+            runRecordingFailure(this::linkDirectory, "linking " + source);
+            tryComplete();
+        }
+
+        /**
+         * Creates the destination directory before anything is linked into
+         * it, then lists the source and forks a task for each batch of
+         * objects and each subdirectory.
+         *
+         * @throws IOException thrown when the directory can't be created or listed
+         */
+        private void linkDirectory() throws IOException {
+            retrier.run("creation of [" + destination + "]",
+                    () -> requests.getClient().putDirectory(destination));
+            directoriesCreated.increment();
+
+            List<String> batch = new ArrayList<>(LINK_BATCH_SIZE);
+
+            try (MantaDirectoryListing itr = requests.list(source, MantaTreeWalker.LISTING_PAGE_SIZE)) {
+                while (!cancelled.get() && itr.hasNext()) {
+                    final Map<String, Object> props = itr.next();
+                    final String name = (String)props.get("name");
+
+                    if ("directory".equals(props.get("type"))) {
+                        addToPendingCount(1);
+                        new DirectoryTask(this, source + SEPARATOR + name,
+                                destination + SEPARATOR + name).fork();
+                        continue;
+                    }
+
+                    batch.add(name);
+
+                    if (batch.size() == LINK_BATCH_SIZE) {
+                        addToPendingCount(1);
+                        new LinkBatchTask(this, source, destination, batch).fork();
+                        batch = new ArrayList<>(LINK_BATCH_SIZE);
+                    }
+                }
+            }
+
+            if (!batch.isEmpty()) {
+                addToPendingCount(1);
+                new LinkBatchTask(this, source, destination, batch).fork();
+            }
+        }
+    }
+
+    /**
+     * Task that links a batch of objects of a directory one after another.
+     */
+    private final class LinkBatchTask extends CountedCompleter<Void> {
+        private static final long serialVersionUID = -4425873370129358720L;
+
+        /**
+         * Directory to link from.
+         */
+        private final String source;
+
+        /**
+         * Directory to link to.
+         */
+        private final String destination;
+
+        /**
+         * Names of the objects to link.
+         */
+        private final transient List<String> names;
+
+        /**
+         * Creates a new task.
+         *
+         * @param parent directory task to notify when this task finishes
+         * @param source directory to link from
+         * @param destination directory to link to
+         * @param names names of the objects to link
+         */
+        LinkBatchTask(final CountedCompleter<?> parent, final String source,
+                      final String destination, final List<String> names) {
+            super(parent);
+            this.source = source;
+            this.destination = destination;
+            this.names = names;
+        }
+
+        @Override
+        public void compute() {
+            for (String name : names) {
+                if (cancelled.get()) {
+                    break;
+                }
+
+                final String from = source + SEPARATOR + name;
+                final String to = destination + SEPARATOR + name;
+
+                runRecordingFailure(() -> retrier.run("link of [" + from + "]", () -> {
+                    requests.getClient().putSnapLink(to, from, null);
+                    objectsLinked.increment();
+                    reportProgress();
+                }), "linking " + from);
+            }
+
+            tryComplete();
+        }
+    }
+}
@@ -0,0 +1,237 @@
+package com.joyent.hadoop.fs.manta;
+
+import org.apache.hadoop.fs.BlockLocation;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.LocatedFileStatus;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.fs.RemoteIterator;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Implementation of {@link RemoteIterator} that streams the files found by a
+ * {@link MantaTreeWalker} through a bounded queue. Results are returned as
+ * soon as the walker finds them and the walker is throttled when the consumer
+ * falls behind, so memory usage is bounded by the queue capacity rather than
+ * by the size of the tree.
+ *
+ * <p>Calling {@link #close()} before the iterator is exhausted stops the walk.
+ * Producers wait for room in the queue as managed blockers, so that the
+ * shared worker pool compensates for them, and only for a bounded time: an
+ * iterator that is dropped without being closed cancels its own walk once no
+ * result was consumed within the timeout. A consumer that resumes after that
+ * gets the remaining queued results followed by an error.</p>
+ */
+public class MantaTreeRemoteIterator implements RemoteIterator<LocatedFileStatus>,
+        AutoCloseable {
+    /**
+     * Interval in which producers and consumers recheck the state of the
+     * walk while waiting on the queue.
+     */
+    private static final long POLL_INTERVAL_MILLIS = 50L;
+
+    /**
+     * Queue of files found by the walker, but not yet consumed.
+     */
+    private final BlockingQueue<LocatedFileStatus> queue;
+
+    /**
+     * Walker that produces results.
+     */
+    private final MantaTreeWalker walker;
+
+    /**
+     * Directory root being listed.
+     */
+    private final Path path;
+
+    /**
+     * Reference to the invoking {@link FileSystem} instance.
+     */
+    private final FileSystem fs;
+
+    /**
+     * Nanoseconds a producer waits for room in the queue before the walk is
+     * abandoned.
+     */
+    private final long consumerTimeoutNanos;
+
+    /**
+     * Task that completes when the walk has finished.
+     */
+    private final ForkJoinTask<Void> task;
+
+    /**
+     * Look ahead buffer used to answer {@link #hasNext()}.
+     */
+    private LocatedFileStatus next;
+
+    /**
+     * Flag indicating that the iterator has been closed.
+     */
+    private volatile boolean closed = false;
+
+    /**
+     * Creates a new instance and starts walking the tree.
+     *
+     * @param walker walker used to find files
+     * @param mantaPath Manta path of the directory being listed
+     * @param path base path that is being iterated
+     * @param fs reference to the underlying filesystem
+     * @param queueCapacity maximum number of results buffered ahead of the consumer
+     * @param consumerTimeout milliseconds a producer waits for room in the
+     *                        queue before the walk is abandoned
+     */
+    MantaTreeRemoteIterator(final MantaTreeWalker walker,
+                            final String mantaPath,
+                            final Path path,
+                            final FileSystem fs,
+                            final int queueCapacity,
+                            final long consumerTimeout) {
+        this.walker = walker;
+        this.path = path;
+        this.fs = fs;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.consumerTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(consumerTimeout);
+        this.task = walker.start(mantaPath, this::enqueue);
+    }
+
+    @Override
+    public boolean hasNext() throws IOException {
+        if (next != null) {
+            return true;
+        }
+
+        if (closed) {
+            return false;
+        }
+
+        try {
+            while (next == null) {
+                next = queue.poll(POLL_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+
+                /* Once the walk is done every result has been queued, so a
+                 * final non-blocking poll tells us if anything is left. */
+                if (next == null && task.isDone()) {
+                    next = queue.poll();
+                    break;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            close();
+            throw new InterruptedIOException("Interrupted while listing " + path);
+        }
+
+        if (next == null) {
+            walker.throwIfFailed();
+            return false;
+        }
+
+        return true;
+    }
+
+    @Override
+    public LocatedFileStatus next() throws IOException {
+        if (!hasNext()) {
+            String msg = String.format("No more listings in [%s]", path);
+            throw new NoSuchElementException(msg);
+        }
+
+        final LocatedFileStatus status = next;
+        next = null;
+        return status;
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        walker.cancel();
+        queue.clear();
+    }
+
+    /**
+     * Adds a file found by the walker to the queue, waiting for the consumer
+     * if the queue is full. Directories are skipped.
+     *
+     * @param status status of the entry found
+     * @throws IOException thrown when block locations can't be determined,
+     *                     the consumer didn't make room in time or the
+     *                     producer is interrupted
+     */
+    private void enqueue(final MantaFileStatus status) throws IOException {
+        if (!status.isFile()) {
+            return;
+        }
+
+        final BlockLocation[] locs = fs.getFileBlockLocations(status, 0, status.getLen());
+        final LocatedFileStatus located = new LocatedFileStatus(status, locs);
+
+        final Offer offer = new Offer(located);
+
+        try {
+            ForkJoinPool.managedBlock(offer);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while listing " + path);
+        }
+
+        if (!offer.queued && !closed && !walker.isCancelled()) {
+            throw new IOException(String.format("Abandoned listing of [%s], no result "
+                    + "was consumed within %d ms", path,
+                    TimeUnit.NANOSECONDS.toMillis(consumerTimeoutNanos)));
+        }
+    }
+
+    /**
+     * Waits for room in the queue until the result is queued, the walk
+     * stops or the consumer timeout has passed.
+     */
+    private final class Offer implements ForkJoinPool.ManagedBlocker {
+        /**
+         * Result to queue.
+         */
+        private final LocatedFileStatus status;
+
+        /**
+         * Value of {@link System#nanoTime()} at which the producer gives up.
+         */
+        private final long deadline = System.nanoTime() + consumerTimeoutNanos;
+
+        /**
+         * Flag indicating that the result has been queued.
+         */
+        private boolean queued = false;
+
+        /**
+         * Creates a new instance.
+         *
+         * @param status result to queue
+         */
+        Offer(final LocatedFileStatus status) {
+            this.status = status;
+        }
+
+        @Override
+        public boolean block() throws InterruptedException {
+            queued = queue.offer(status, POLL_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+            return isReleasable() || System.nanoTime() - deadline >= 0;
+        }
+
+        @Override
+        public boolean isReleasable() {
+            if (!queued) {
+                queued = queue.offer(status);
+            }
+
+            return queued || closed || walker.isCancelled();
+        }
+    }
+}
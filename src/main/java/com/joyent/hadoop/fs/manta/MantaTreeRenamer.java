@@ -0,0 +1,397 @@
+package com.joyent.hadoop.fs.manta;
+
+import com.google.common.base.Preconditions;
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.joyent.manta.client.MantaClient;
+import com.joyent.manta.exception.MantaClientHttpResponseException;
+import com.joyent.manta.exception.MantaErrorCode;
+import org.apache.commons.io.FilenameUtils;
+import org.apache.hadoop.util.Progressable;
+import org.apache.http.HttpStatus;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.concurrent.ForkJoinPool;
+
+import static com.joyent.manta.client.MantaClient.SEPARATOR;
+
+/**
+ * Renames a Manta directory tree with many requests in flight instead of
+ * one object at a time like {@link MantaClient#move(String, String, boolean)}.
+ * Snaplinks are metadata-only, so a rename is done in two phases:
+ *
+ * <ol>
+ *     <li><em>Linking</em>: the destination directories are created and
+ *         every object is snaplinked to its new path in parallel by a
+ *         {@link MantaTreeLinker}.</li>
+ *     <li><em>Deleting</em>: the source tree is deleted in parallel by a
+ *         {@link MantaTreeDeleter}.</li>
+ * </ol>
+ *
+ * <p>The rename is recorded in a journal object before any change is made,
+ * and the journal is updated when the rename moves to the next phase and
+ * removed once it has finished. Journals are stored in a hidden
+ * <code>.manta-rename</code> directory next to the destination, which is
+ * only visible in listings of the parent while a rename is in progress and
+ * is removed with the last journal in it. A
+ * rename that was interrupted can be finished with {@link #resume(String)}.
+ * While it is still linking, the source tree is intact, so it can also be
+ * undone with {@link #rollback(String)}.</p>
+ *
+ * <p>An instance of this class represents a single rename and is not reusable.</p>
+ */
+class MantaTreeRenamer {
+    /**
+     * Logger instance.
+     */
+    private static final Logger LOG = LoggerFactory.getLogger(MantaTreeRenamer.class);
+
+    /**
+     * Name of the directory journals are stored in, next to the destination.
+     */
+    static final String JOURNAL_DIRECTORY = ".manta-rename";
+
+    /**
+     * Suffix of the name of journal objects.
+     */
+    static final String JOURNAL_SUFFIX = ".rename";
+
+    /**
+     * Serializer for journals.
+     */
+    private static final Gson GSON = new Gson();
+
+    /**
+     * Phase of a rename recorded in its journal.
+     */
+    enum Phase {
+        /**
+         * Destination directories are being created and objects linked.
+         */
+        LINKING,
+        /**
+         * All objects are linked and the source tree is being deleted.
+         */
+        DELETING
+    }
+
+    /**
+     * Requests used to list, link and delete.
+     */
+    private final MantaMetadataRequests requests;
+
+    /**
+     * Pool that listing, linking and deletion tasks are executed on.
+     */
+    private final ForkJoinPool pool;
+
+    /**
+     * Number of times a request failing with a transient error is retried.
+     */
+    private final int retries;
+
+    /**
+     * Retries requests that fail with a transient error.
+     */
+    private final MantaRetrier retrier;
+
+    /**
+     * Callback notified after every link and deletion, may be null.
+     */
+    private final Progressable progress;
+
+    /**
+     * Links the objects of the source to the destination.
+     */
+    private final MantaTreeLinker linker;
+
+    /**
+     * Creates a new renamer.
+     *
+     * @param requests requests used to list, link and delete
+     * @param pool pool that listing, linking and deletion tasks are executed on
+     * @param retries number of times a request failing with a transient error is retried
+     * @param progress callback notified concurrently after every link and deletion, may be null
+     */
+    MantaTreeRenamer(final MantaMetadataRequests requests, final ForkJoinPool pool, final int retries,
+                     final Progressable progress) {
+        this.requests = Preconditions.checkNotNull(requests, "Requests must not be null");
+        this.pool = Preconditions.checkNotNull(pool, "Worker pool must not be null");
+        this.retrier = new MantaRetrier(retries, requests);
+        this.retries = retries;
+        this.progress = progress;
+        this.linker = new MantaTreeLinker(requests, pool, retrier, progress);
+    }
+
+    /**
+     * Renames a directory to a path that doesn't exist yet, waiting for the
+     * rename to finish. Missing parents of the destination are created.
+     *
+     * @param source directory to rename
+     * @param destination new path of the directory
+     * @throws IOException thrown when the rename fails, the journal is kept
+     *                     so that the rename can be resumed or rolled back
+     */
+    void rename(final String source, final String destination) throws IOException {
+        Preconditions.checkNotNull(source, "Source must not be null");
+        Preconditions.checkNotNull(destination, "Destination must not be null");
+
+        // Also creates the missing parents of the destination
+        createJournalDirectory(destination);
+
+        final Journal journal = new Journal(source, destination, Phase.LINKING);
+        writeJournal(journal);
+        finish(journal);
+    }
+
+    /**
+     * Finishes an interrupted rename recorded in a journal.
+     *
+     * @param destination destination of the rename
+     * @return true if a rename was finished, false if there was no journal
+     * @throws IOException thrown when the rename fails again
+     */
+    boolean resume(final String destination) throws IOException {
+        final Journal journal = readJournal(destination);
+
+        if (journal == null) {
+            return false;
+        }
+
+        LOG.info("Resuming rename of [{}] to [{}] while {}", journal.source,
+                journal.destination, journal.phase);
+
+        finish(journal);
+        return true;
+    }
+
+    /**
+     * Undoes an interrupted rename recorded in a journal by deleting
+     * everything that was linked to the destination.
+     *
+     * @param destination destination of the rename
+     * @return true if a rename was rolled back, false if there was no journal
+     * @throws IOException thrown when the rename has already started deleting
+     *                     the source or the destination can't be deleted
+     */
+    boolean rollback(final String destination) throws IOException {
+        final Journal journal = readJournal(destination);
+
+        if (journal == null) {
+            return false;
+        }
+
+        if (journal.phase != Phase.LINKING) {
+            throw new IOException(String.format("Rename of [%s] to [%s] can't be rolled back "
+                    + "because the source is being deleted, resume it instead",
+                    journal.source, journal.destination));
+        }
+
+        LOG.info("Rolling back rename of [{}] to [{}]", journal.source, journal.destination);
+
+        new MantaTreeDeleter(requests, pool, retries, progress).delete(journal.destination);
+        deleteJournal(journal.destination);
+        return true;
+    }
+
+    /**
+     * @return number of objects linked so far
+     */
+    long getObjectsLinked() {
+        return linker.getObjectsLinked();
+    }
+
+    /**
+     * @return number of directories created so far
+     */
+    long getDirectoriesCreated() {
+        return linker.getDirectoriesCreated();
+    }
+
+    /**
+     * @return number of link and directory requests that were retried so far
+     */
+    long getRetries() {
+        return retrier.getRetries();
+    }
+
+    /**
+     * @param destination destination of a rename
+     * @return path of the journal of the rename
+     */
+    static String journalPath(final String destination) {
+        return FilenameUtils.getFullPath(destination) + JOURNAL_DIRECTORY + SEPARATOR
+                + FilenameUtils.getName(destination) + JOURNAL_SUFFIX;
+    }
+
+    /**
+     * Runs the remaining phases of a rename and removes its journal.
+     *
+     * @param journal journal of the rename
+     * @throws IOException thrown when a phase fails
+     */
+    private void finish(final Journal journal) throws IOException {
+        if (journal.phase == Phase.LINKING) {
+            linker.link(journal.source, journal.destination);
+            writeJournal(new Journal(journal.source, journal.destination, Phase.DELETING));
+        }
+
+        new MantaTreeDeleter(requests, pool, retries, progress).delete(journal.source);
+        deleteJournal(journal.destination);
+
+        LOG.debug("Renamed [{}] to [{}] with {} objects and {} directories",
+                journal.source, journal.destination, getObjectsLinked(), getDirectoriesCreated());
+    }
+
+    /**
+     * Stores the journal of a rename, replacing any previous version.
+     *
+     * @param journal journal to store
+     * @throws IOException thrown when the journal can't be stored
+     */
+    private void writeJournal(final Journal journal) throws IOException {
+        final String path = journalPath(journal.destination);
+        final String json = GSON.toJson(journal);
+
+        try {
+            retrier.run("write of [" + path + "]", () -> requests.getClient().put(path, json));
+        } catch (MantaClientHttpResponseException e) {
+            if (e.getServerCode() != MantaErrorCode.DIRECTORY_DOES_NOT_EXIST_ERROR) {
+                throw e;
+            }
+
+            // A concurrent rename into the same parent removed the directory with its last journal
+            LOG.debug("Recreating journal directory of [{}]", journal.destination);
+            createJournalDirectory(journal.destination);
+            retrier.run("write of [" + path + "]", () -> requests.getClient().put(path, json));
+        }
+    }
+
+    /**
+     * Creates the journal directory of a rename and any missing parents.
+     *
+     * @param destination destination of the rename
+     * @throws IOException thrown when the directory can't be created
+     */
+    private void createJournalDirectory(final String destination) throws IOException {
+        final String journals = FilenameUtils.getFullPathNoEndSeparator(journalPath(destination));
+        requests.call("creation of [" + journals + "]", () -> {
+            requests.getClient().putDirectory(journals, true);
+            return null;
+        });
+    }
+
+    /**
+     * Reads the journal of a rename.
+     *
+     * @param destination destination of the rename
+     * @return journal of the rename or null if there is none
+     * @throws IOException thrown when the journal can't be read
+     */
+    private Journal readJournal(final String destination) throws IOException {
+        final String path = journalPath(destination);
+        final String json;
+
+        try {
+            json = requests.call("read of [" + path + "]",
+                    () -> requests.getClient().getAsString(path));
+        } catch (MantaClientHttpResponseException e) {
+            if (e.getStatusCode() == HttpStatus.SC_NOT_FOUND) {
+                return null;
+            }
+
+            throw e;
+        }
+
+        final Journal journal;
+
+        try {
+            journal = GSON.fromJson(json, Journal.class);
+        } catch (JsonParseException e) {
+            throw new IOException("Corrupt rename journal: " + path, e);
+        }
+
+        if (journal == null || journal.source == null || journal.phase == null
+                || !destination.equals(journal.destination)) {
+            throw new IOException("Corrupt rename journal: " + path);
+        }
+
+        return journal;
+    }
+
+    /**
+     * Removes the journal of a finished rename, and the journal directory
+     * unless other renames into the same parent are still in progress. A
+     * rename that created the directory but hasn't written its journal yet
+     * recreates it.
+     *
+     * @param destination destination of the rename
+     * @throws IOException thrown when the journal can't be removed
+     */
+    private void deleteJournal(final String destination) throws IOException {
+        final String path = journalPath(destination);
+
+        try {
+            deleteIfExists(path);
+            deleteIfExists(FilenameUtils.getFullPathNoEndSeparator(path));
+        } catch (MantaClientHttpResponseException e) {
+            if (e.getServerCode() != MantaErrorCode.DIRECTORY_NOT_EMPTY_ERROR) {
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Deletes a path, ignoring paths that don't exist.
+     *
+     * @param path path to delete
+     * @throws IOException thrown when the path can't be deleted
+     */
+    private void deleteIfExists(final String path) throws IOException {
+        try {
+            requests.call("delete of [" + path + "]", () -> {
+                requests.getClient().delete(path);
+                return null;
+            });
+        } catch (MantaClientHttpResponseException e) {
+            if (e.getStatusCode() != HttpStatus.SC_NOT_FOUND) {
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Persistent record of a rename in progress.
+     */
+    static final class Journal {
+        /**
+         * Directory being renamed.
+         */
+        private final String source;
+
+        /**
+         * New path of the directory.
+         */
+        private final String destination;
+
+        /**
+         * Phase the rename is in.
+         */
+        private final Phase phase;
+
+        /**
+         * Creates a new journal.
+         *
+         * @param source directory being renamed
+         * @param destination new path of the directory
+         * @param phase phase the rename is in
+         */
+        Journal(final String source, final String destination, final Phase phase) {
+            this.source = source;
+            this.destination = destination;
+            this.phase = phase;
+        }
+    }
+}
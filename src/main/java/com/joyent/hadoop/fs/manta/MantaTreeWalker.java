@@ -0,0 +1,279 @@
+package com.joyent.hadoop.fs.manta;
+
+import com.google.common.base.Preconditions;
+import com.joyent.manta.exception.MantaClientHttpResponseException;
+import org.apache.http.HttpStatus;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.CountedCompleter;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Walks a Manta directory tree by listing sibling directories concurrently
+ * on a bounded {@link ForkJoinPool}. Every entry found is passed to a
+ * {@link Visitor} as soon as it is read from the listing, so consumers can
+ * start processing results before the walk has finished.
+ *
+ * <p>Each directory is listed by a single {@link CountedCompleter} task that
+ * forks a new task for every subdirectory it finds. Because completers never
+ * block waiting on their children, the number of concurrent listing requests
+ * is bounded by the parallelism of the pool.</p>
+ *
+ * <p>An instance of this class represents a single walk and is not reusable.</p>
+ */
+class MantaTreeWalker {
+    /**
+     * Logger instance.
+     */
+    private static final Logger LOG = LoggerFactory.getLogger(MantaTreeWalker.class);
+
+    /**
+     * Number of entries requested per directory listing page. This is the
+     * maximum allowed by Manta.
+     */
+    static final int LISTING_PAGE_SIZE = 1024;
+
+    /**
+     * Callback invoked for every entry found while walking a tree.
+     * Implementations will be called concurrently from multiple threads.
+     */
+    @FunctionalInterface
+    interface Visitor {
+        /**
+         * Visits a single file or directory entry.
+         *
+         * @param status status of the entry built from the directory listing
+         * @throws IOException thrown when the entry can't be processed, this
+         *                     aborts the walk
+         */
+        void visit(MantaFileStatus status) throws IOException;
+    }
+
+    /**
+     * Requests used to list directories.
+     */
+    private final MantaMetadataRequests requests;
+
+    /**
+     * Pool that directory listing tasks are executed on.
+     */
+    private final ForkJoinPool pool;
+
+    /**
+     * Policy used to determine the block size reported for files.
+     */
+    private final MantaBlockSizePolicy blockSizes;
+
+    /**
+     * Flag indicating that no further directories should be listed.
+     */
+    private final AtomicBoolean cancelled = new AtomicBoolean(false);
+
+    /**
+     * First error encountered while walking.
+     */
+    private final AtomicReference<IOException> failure = new AtomicReference<>();
+
+    /**
+     * Creates a new walker.
+     *
+     * @param requests requests used to list directories
+     * @param pool pool that directory listing tasks are executed on
+     * @param blockSizes policy used to determine the block size reported for files
+     */
+    MantaTreeWalker(final MantaMetadataRequests requests, final ForkJoinPool pool,
+                    final MantaBlockSizePolicy blockSizes) {
+        this.requests = Preconditions.checkNotNull(requests, "Requests must not be null");
+        this.pool = Preconditions.checkNotNull(pool, "Worker pool must not be null");
+        this.blockSizes = Preconditions.checkNotNull(blockSizes, "Block size policy must not be null");
+    }
+
+    /**
+     * Starts walking the tree below the specified directory without waiting
+     * for the walk to finish. The root directory itself is not visited.
+     *
+     * @param mantaPath directory to walk
+     * @param visitor callback invoked for every entry found
+     * @return task that completes when the walk has finished or was cancelled
+     */
+    ForkJoinTask<Void> start(final String mantaPath, final Visitor visitor) {
+        Preconditions.checkNotNull(mantaPath, "Path must not be null");
+        Preconditions.checkNotNull(visitor, "Visitor must not be null");
+
+        return pool.submit(new DirectoryTask(null, mantaPath, visitor, true));
+    }
+
+    /**
+     * Walks the tree below the specified directory and waits for all entries
+     * to be visited.
+     *
+     * @param mantaPath directory to walk
+     * @param visitor callback invoked for every entry found
+     * @throws IOException thrown when a listing or a visitor fails
+     */
+    void walk(final String mantaPath, final Visitor visitor) throws IOException {
+        final ForkJoinTask<Void> task = start(mantaPath, visitor);
+
+        try {
+            task.get();
+        } catch (InterruptedException e) {
+            cancel();
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while walking " + mantaPath, e);
+        } catch (ExecutionException e) {
+            throw new IOException("Unable to walk " + mantaPath, e.getCause());
+        }
+
+        throwIfFailed();
+    }
+
+    /**
+     * Stops listing any further directories. Listings already in progress
+     * stop at the next entry.
+     */
+    void cancel() {
+        cancelled.set(true);
+    }
+
+    /**
+     * @return true if the walk was cancelled or aborted because of an error
+     */
+    boolean isCancelled() {
+        return cancelled.get();
+    }
+
+    /**
+     * Rethrows the first error encountered during the walk, if any.
+     *
+     * @throws IOException first error encountered
+     */
+    void throwIfFailed() throws IOException {
+        final IOException e = failure.get();
+
+        if (e != null) {
+            throw e;
+        }
+    }
+
+    /**
+     * Records an error and aborts the rest of the walk.
+     *
+     * @param e error to record
+     */
+    private void fail(final IOException e) {
+        if (!failure.compareAndSet(null, e)) {
+            failure.get().addSuppressed(e);
+        }
+
+        cancel();
+    }
+
+    /**
+     * Task that lists a single directory and forks a task per subdirectory.
+     */
+    private final class DirectoryTask extends CountedCompleter<Void> {
+        private static final long serialVersionUID = 2941768359718326537L;
+
+        /**
+         * Directory to list.
+         */
+        private final String dir;
+
+        /**
+         * Callback invoked for every entry found.
+         */
+        private final transient Visitor visitor;
+
+        /**
+         * Flag indicating that this task lists the root of the walk.
+         */
+        private final boolean root;
+
+        /**
+         * Creates a new task.
+         *
+         * @param parent completer to notify when this task finishes
+         * @param dir directory to list
+         * @param visitor callback invoked for every entry found
+         * @param root true if the task lists the root of the walk
+         */
+        DirectoryTask(final CountedCompleter<?> parent, final String dir,
+                      final Visitor visitor, final boolean root) {
+            super(parent);
+            this.dir = dir;
+            this.visitor = visitor;
+            this.root = root;
+        }
+
+        @Override
+        public void compute() {
+            try {
+                listDirectory();
+            } catch (IOException e) {
+                fail(e);
+            } catch (UncheckedIOException e) {
+                fail(e.getCause());
+            } catch (RuntimeException e) {
+                fail(new IOException("Unexpected error listing " + dir, e));
+            }
+
+            tryComplete();
+        }
+
+        /**
+         * Lists the directory, visits each entry and forks a task for each
+         * subdirectory.
+         *
+         * @throws IOException thrown when the listing or visitor fails
+         */
+        private void listDirectory() throws IOException {
+            if (isCancelled()) {
+                return;
+            }
+
+            final MantaListingDecoder decoder = new MantaListingDecoder(dir, blockSizes);
+
+            try (MantaDirectoryListing itr = requests.list(dir, LISTING_PAGE_SIZE)) {
+                while (!isCancelled() && itr.hasNext()) {
+                    final MantaFileStatus status = decoder.decode(itr.next());
+
+                    visitor.visit(status);
+
+                    if (status.isDirectory()) {
+                        addToPendingCount(1);
+                        new DirectoryTask(this, status.getPath().toUri().getPath(),
+                                visitor, false).fork();
+                    }
+                }
+            } catch (UncheckedIOException e) {
+                handleListingError(e.getCause());
+            } catch (MantaClientHttpResponseException e) {
+                handleListingError(e);
+            }
+        }
+
+        /**
+         * Decides if a listing error should abort the walk. Subdirectories
+         * that disappear while we are walking are skipped.
+         *
+         * @param e error thrown while listing
+         * @throws IOException rethrown error if it should abort the walk
+         */
+        private void handleListingError(final IOException e) throws IOException {
+            if (!root && e instanceof MantaClientHttpResponseException
+                    && ((MantaClientHttpResponseException)e).getStatusCode() == HttpStatus.SC_NOT_FOUND) {
+                LOG.debug("Directory [{}] was removed while walking", dir);
+                return;
+            }
+
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,491 @@
+package com.joyent.hadoop.fs.manta;
+
+import com.joyent.manta.client.MantaClient;
+import com.joyent.manta.client.MantaDirectoryListingIterator;
+import com.joyent.manta.client.MantaObject;
+import com.joyent.manta.client.MantaObjectInputStream;
+import com.joyent.manta.client.MantaObjectResponse;
+import com.joyent.manta.exception.MantaClientHttpResponseException;
+import com.joyent.manta.exception.MantaErrorCode;
+import com.joyent.manta.exception.MantaObjectException;
+import com.joyent.manta.http.MantaHttpHeaders;
+import com.joyent.manta.org.apache.http.HttpVersion;
+import com.joyent.manta.org.apache.http.message.BasicStatusLine;
+import org.apache.commons.io.FilenameUtils;
+import org.apache.hadoop.conf.Configuration;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.lang.reflect.InvocationTargetException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.RETURNS_DEFAULTS;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * In-memory directory tree that backs a mocked {@link MantaClient} so that
+ * listing logic can be tested without a live Manta.
+ */
+public class FakeMantaTree {
+    private static final String MTIME = "2017-03-14T15:09:26.535Z";
+
+    private static final String DIRECTORY_CONTENT_TYPE = "application/x-json-stream; type=directory";
+
+    private final Map<String, List<Map<String, Object>>> dirs = new ConcurrentHashMap<>();
+
+    private final Map<String, int[]> failures = new ConcurrentHashMap<>();
+
+    private final Map<String, String> racingDeletes = new ConcurrentHashMap<>();
+
+    private final Map<String, String> contents = new ConcurrentHashMap<>();
+
+    public FakeMantaTree(final String root) {
+        dirs.put(root, Collections.synchronizedList(new ArrayList<>()));
+    }
+
+    public FakeMantaTree dir(final String path) {
+        addEntry(path, "directory", 0L);
+        dirs.put(path, Collections.synchronizedList(new ArrayList<>()));
+        return this;
+    }
+
+    public FakeMantaTree file(final String path, final long size) {
+        addEntry(path, "object", size);
+        return this;
+    }
+
+    public FakeMantaTree file(final String path, final String content) {
+        addEntry(path, "object", content.length());
+        contents.put(path, content);
+        return this;
+    }
+
+    public boolean isDirectory(final String path) {
+        return dirs.containsKey(path);
+    }
+
+    public List<Map<String, Object>> children(final String path) {
+        return dirs.get(path);
+    }
+
+    /**
+     * @return mocked client whose streaming listings are served from this tree
+     */
+    public MantaClient mockClient() throws IOException {
+        final MantaClient client = mock(MantaClient.class);
+
+        when(client.streamingIterator(anyString(), anyInt())).thenAnswer(invocation -> {
+            final String path = invocation.getArgument(0);
+            return listing(path);
+        });
+
+        when(client.listObjects(anyString())).thenAnswer(invocation -> {
+            final String path = invocation.getArgument(0);
+            return objects(path);
+        });
+
+        when(client.existsAndIsAccessible(anyString())).thenAnswer(invocation -> {
+            final String path = invocation.getArgument(0);
+            return exists(path);
+        });
+
+        when(client.head(anyString())).thenAnswer(invocation -> {
+            final String path = invocation.getArgument(0);
+            return head(path);
+        });
+
+        doAnswer(invocation -> {
+            final String path = invocation.getArgument(0);
+            delete(path);
+            return null;
+        }).when(client).delete(anyString());
+
+        when(client.putDirectory(anyString())).thenAnswer(invocation -> {
+            final String path = invocation.getArgument(0);
+            return putDirectory(path);
+        });
+
+        doAnswer(invocation -> {
+            final String path = invocation.getArgument(0);
+            putDirectories(path);
+            return null;
+        }).when(client).putDirectory(anyString(), eq(true));
+
+        doAnswer(invocation -> {
+            final String link = invocation.getArgument(0);
+            final String object = invocation.getArgument(1);
+            putSnapLink(link, object);
+            return null;
+        }).when(client).putSnapLink(anyString(), anyString(), any());
+
+        when(client.put(anyString(), anyString())).thenAnswer(invocation -> {
+            final String path = invocation.getArgument(0);
+            final String content = invocation.getArgument(1);
+            put(path, content);
+            return null;
+        });
+
+        when(client.getAsString(anyString())).thenAnswer(invocation -> {
+            final String path = invocation.getArgument(0);
+            return getAsString(path);
+        });
+
+        when(client.getAsInputStream(anyString())).thenAnswer(invocation -> {
+            final String path = invocation.getArgument(0);
+            return getAsInputStream(path);
+        });
+
+        return client;
+    }
+
+    /**
+     * Makes the next deletes of a path fail before they reach the tree.
+     *
+     * @param path path whose deletes fail
+     * @param times number of deletes that fail
+     * @param status HTTP status of the failures
+     * @return this tree
+     */
+    public FakeMantaTree failDeletes(final String path, final int times, final int status) {
+        failures.put("delete " + path, new int[] {times, status});
+        return this;
+    }
+
+    /**
+     * Makes the next snaplinks of an object fail before they reach the tree.
+     *
+     * @param object object whose links fail
+     * @param times number of links that fail
+     * @param status HTTP status of the failures
+     * @return this tree
+     */
+    public FakeMantaTree failLinks(final String object, final int times, final int status) {
+        failures.put("link " + object, new int[] {times, status});
+        return this;
+    }
+
+    /**
+     * Makes the next string put of a path first delete another path, like a
+     * concurrent client would between two requests.
+     *
+     * @param path path whose next put is raced
+     * @param deleted path deleted before the put reaches the tree
+     * @return this tree
+     */
+    public FakeMantaTree deleteBeforePut(final String path, final String deleted) {
+        racingDeletes.put(path, deleted);
+        return this;
+    }
+
+    /**
+     * @param path path of an object
+     * @return content stored with a string put, or null if there is none
+     */
+    public String content(final String path) {
+        return contents.get(path);
+    }
+
+    /**
+     * @param path path to check
+     * @return true if the path is a directory or an object in the tree
+     */
+    public boolean contains(final String path) {
+        return exists(path);
+    }
+
+    /**
+     * Creates a filesystem backed by a client, with the Manta user "user".
+     *
+     * @param client client used for all remote operations
+     * @param conf Hadoop configuration, the Manta user is added to it
+     * @return initialized filesystem
+     */
+    public static MantaFileSystem fileSystem(final MantaClient client, final Configuration conf) {
+        conf.set("manta.user", "user");
+
+        final MantaFileSystem fs = new MantaFileSystem();
+        fs.initialize(URI.create("manta:///"), new HadoopConfigurationContext(conf), client);
+        fs.setConf(conf);
+        return fs;
+    }
+
+    private void injectFailure(final String operation, final String path) throws IOException {
+        final int[] failure = failures.get(operation + " " + path);
+
+        if (failure != null) {
+            synchronized (failure) {
+                if (failure[0] > 0) {
+                    failure[0]--;
+                    throw new MantaClientHttpResponseException(path).setStatusLine(
+                            new BasicStatusLine(HttpVersion.HTTP_1_1, failure[1], "Injected"));
+                }
+            }
+        }
+    }
+
+    private boolean putDirectory(final String path) throws IOException {
+        if (dirs.containsKey(path)) {
+            return false;
+        }
+
+        if (!dirs.containsKey(FilenameUtils.getFullPathNoEndSeparator(path))) {
+            throw notFound(path);
+        }
+
+        if (exists(path)) {
+            throw new MantaClientHttpResponseException(path).setStatusLine(
+                    new BasicStatusLine(HttpVersion.HTTP_1_1, 400, "Bad Request"));
+        }
+
+        dir(path);
+        return true;
+    }
+
+    private void putDirectories(final String path) throws IOException {
+        if (dirs.containsKey(path)) {
+            return;
+        }
+
+        putDirectories(FilenameUtils.getFullPathNoEndSeparator(path));
+        putDirectory(path);
+    }
+
+    private synchronized void putSnapLink(final String link, final String object) throws IOException {
+        injectFailure("link", object);
+
+        if (dirs.containsKey(object)) {
+            throw error(object, 400, MantaErrorCode.LINK_NOT_OBJECT_ERROR);
+        }
+
+        if (!exists(object)) {
+            throw error(object, 404, MantaErrorCode.SOURCE_OBJECT_NOT_FOUND_ERROR);
+        }
+
+        if (!dirs.containsKey(FilenameUtils.getFullPathNoEndSeparator(link))) {
+            throw error(link, 404, MantaErrorCode.DIRECTORY_DOES_NOT_EXIST_ERROR);
+        }
+
+        final long size = head(object).getContentLength();
+        final String content = contents.get(object);
+
+        put(link, size);
+
+        if (content != null) {
+            contents.put(link, content);
+        }
+    }
+
+    private void put(final String path, final String content) throws IOException {
+        final String deleted = racingDeletes.remove(path);
+
+        if (deleted != null) {
+            delete(deleted);
+        }
+
+        put(path, content.length());
+        contents.put(path, content);
+    }
+
+    private void put(final String path, final long size) throws IOException {
+        final List<Map<String, Object>> siblings = dirs.get(FilenameUtils.getFullPathNoEndSeparator(path));
+
+        if (siblings == null) {
+            throw error(path, 404, MantaErrorCode.DIRECTORY_DOES_NOT_EXIST_ERROR);
+        }
+
+        if (dirs.containsKey(path)) {
+            throw notFound(path);
+        }
+
+        final String name = FilenameUtils.getName(path);
+        siblings.removeIf(props -> props.get("name").equals(name));
+        file(path, size);
+    }
+
+    private String getAsString(final String path) throws IOException {
+        final String content = contents.get(path);
+
+        if (content == null) {
+            throw notFound(path);
+        }
+
+        return content;
+    }
+
+    private MantaObjectInputStream getAsInputStream(final String path) throws IOException {
+        final InputStream content = new ByteArrayInputStream(
+                getAsString(path).getBytes(StandardCharsets.UTF_8));
+
+        // Reads are served by the content, everything else by the defaults of the mock
+        return mock(MantaObjectInputStream.class, invocation -> {
+            try {
+                return InputStream.class.getMethod(invocation.getMethod().getName(),
+                        invocation.getMethod().getParameterTypes()).invoke(content, invocation.getArguments());
+            } catch (NoSuchMethodException e) {
+                return RETURNS_DEFAULTS.answer(invocation);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        });
+    }
+
+    private void delete(final String path) throws IOException {
+        injectFailure("delete", path);
+
+        final List<Map<String, Object>> children = dirs.get(path);
+
+        if (children != null && !children.isEmpty()) {
+            final MantaClientHttpResponseException notEmpty = new MantaClientHttpResponseException(path)
+                    .setStatusLine(new BasicStatusLine(HttpVersion.HTTP_1_1, 400, "Bad Request"));
+            notEmpty.setServerCode(MantaErrorCode.DIRECTORY_NOT_EMPTY_ERROR);
+            throw notEmpty;
+        }
+
+        final List<Map<String, Object>> siblings = dirs.get(FilenameUtils.getFullPathNoEndSeparator(path));
+        final String name = FilenameUtils.getName(path);
+
+        final boolean listed = siblings != null
+                && siblings.removeIf(props -> props.get("name").equals(name));
+
+        contents.remove(path);
+
+        // The root of the tree isn't listed in any parent
+        if (dirs.remove(path) == null && !listed) {
+            throw notFound(path);
+        }
+    }
+
+    private boolean exists(final String path) {
+        try {
+            head(path);
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private Stream<MantaObject> objects(final String path) throws IOException {
+        final List<Map<String, Object>> children = dirs.get(path);
+
+        if (children == null) {
+            throw notFound(path);
+        }
+
+        final List<MantaObject> objects = new ArrayList<>();
+
+        for (Map<String, Object> props : new ArrayList<>(children)) {
+            objects.add(head(path + "/" + props.get("name")));
+        }
+
+        return objects.stream();
+    }
+
+    private MantaObjectResponse head(final String path) throws IOException {
+        final MantaHttpHeaders headers = new MantaHttpHeaders();
+
+        if (dirs.containsKey(path)) {
+            headers.setContentType(DIRECTORY_CONTENT_TYPE);
+            return new MantaObjectResponse(path, headers);
+        }
+
+        final List<Map<String, Object>> siblings = dirs.get(FilenameUtils.getFullPathNoEndSeparator(path));
+
+        if (siblings != null) {
+            synchronized (siblings) {
+                for (Map<String, Object> props : siblings) {
+                    if (props.get("name").equals(FilenameUtils.getName(path))) {
+                        headers.setContentType("application/octet-stream");
+                        headers.setContentLength((Long)props.get("size"));
+                        headers.setETag((String)props.get("etag"));
+                        return new MantaObjectResponse(path, headers);
+                    }
+                }
+            }
+        }
+
+        throw notFound(path);
+    }
+
+    private static MantaClientHttpResponseException error(final String path, final int status,
+                                                          final MantaErrorCode code) {
+        final MantaClientHttpResponseException e = new MantaClientHttpResponseException(path)
+                .setStatusLine(new BasicStatusLine(HttpVersion.HTTP_1_1, status, code.getCode()));
+        e.setServerCode(code);
+        return e;
+    }
+
+    private static MantaClientHttpResponseException notFound(final String path) {
+        return new MantaClientHttpResponseException(path).setStatusLine(
+                new BasicStatusLine(HttpVersion.HTTP_1_1, 404, "Not Found"));
+    }
+
+    private MantaDirectoryListingIterator listing(final String path) {
+        final List<Map<String, Object>> children = dirs.get(path);
+        final MantaDirectoryListingIterator listing = mock(MantaDirectoryListingIterator.class);
+
+        if (children == null && exists(path)) {
+            // The SDK rejects listings of objects by their content type
+            when(listing.hasNext()).thenThrow(new MantaObjectException(
+                    String.format("Expected directory path, but was file path: %s", path)));
+            return listing;
+        }
+
+        if (children == null) {
+            final MantaClientHttpResponseException notFound = notFound(path);
+            when(listing.hasNext()).thenAnswer(invocation -> {
+                throw new UncheckedIOException(notFound);
+            });
+            return listing;
+        }
+
+        final Iterator<Map<String, Object>> itr = new ArrayList<>(children).iterator();
+        when(listing.hasNext()).thenAnswer(invocation -> itr.hasNext());
+        when(listing.next()).thenAnswer(invocation -> itr.next());
+
+        return listing;
+    }
+
+    private void addEntry(final String path, final String type, final long size) {
+        final String parent = FilenameUtils.getFullPathNoEndSeparator(path);
+        final List<Map<String, Object>> siblings = dirs.get(parent);
+
+        if (siblings == null) {
+            throw new IllegalArgumentException("Parent directory doesn't exist: " + parent);
+        }
+
+        final Map<String, Object> props = new LinkedHashMap<>();
+        props.put("name", FilenameUtils.getName(path));
+        props.put("type", type);
+        props.put("mtime", MTIME);
+
+        if (type.equals("object")) {
+            props.put("size", size);
+            props.put("etag", UUID.randomUUID().toString());
+            props.put("durability", 2);
+        }
+
+        // Writing an existing object replaces it
+        synchronized (siblings) {
+            siblings.removeIf(sibling -> sibling.get("name").equals(props.get("name")));
+            siblings.add(props);
+        }
+    }
+}
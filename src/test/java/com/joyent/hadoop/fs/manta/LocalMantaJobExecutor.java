@@ -0,0 +1,151 @@
+package com.joyent.hadoop.fs.manta;
+
+import com.joyent.manta.client.jobs.MantaJobPhase;
+import org.apache.commons.io.IOUtils;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * Stand-in for Manta compute that runs the commands of job phases locally
+ * with <code>/bin/sh</code>. Inputs of later phases keep the name of the
+ * original input they were derived from.
+ */
+public class LocalMantaJobExecutor implements MantaJobExecutor {
+    private final Function<String, String> objects;
+
+    private final String outputDir;
+
+    private final BiConsumer<String, String> writer;
+
+    private final AtomicInteger jobs = new AtomicInteger();
+
+    /**
+     * @param objects content of an object by path, or null if it doesn't exist
+     */
+    public LocalMantaJobExecutor(final Function<String, String> objects) {
+        this(objects, null, null);
+    }
+
+    /**
+     * @param objects content of an object by path, or null if it doesn't exist
+     * @param outputDir directory the outputs of jobs are stored in
+     * @param writer stores the content of an output by path
+     */
+    public LocalMantaJobExecutor(final Function<String, String> objects, final String outputDir,
+                                 final BiConsumer<String, String> writer) {
+        this.objects = objects;
+        this.outputDir = outputDir;
+        this.writer = writer;
+    }
+
+    /**
+     * @return number of jobs run so far
+     */
+    public int getJobs() {
+        return jobs.get();
+    }
+
+    @Override
+    public List<String> run(final String name, final List<String> inputs,
+                            final List<MantaJobPhase> phases) throws IOException {
+        jobs.incrementAndGet();
+
+        List<String> names = new ArrayList<>(inputs);
+        List<String> contents = new ArrayList<>(inputs.size());
+
+        for (String input : inputs) {
+            final String content = objects.apply(input);
+
+            if (content == null) {
+                throw new FileNotFoundException(input);
+            }
+
+            contents.add(content);
+        }
+
+        for (MantaJobPhase phase : phases) {
+            if ("reduce".equals(phase.getType())) {
+                contents = Collections.singletonList(exec(phase.getExec(), name, String.join("", contents)));
+                names = Collections.singletonList(name);
+            } else {
+                final List<String> outputs = new ArrayList<>(contents.size());
+
+                for (int i = 0; i < contents.size(); i++) {
+                    outputs.add(exec(phase.getExec(), names.get(i), contents.get(i)));
+                }
+
+                contents = outputs;
+            }
+        }
+
+        return contents;
+    }
+
+    @Override
+    public List<String> runToObjects(final String name, final List<String> inputs,
+                                     final List<MantaJobPhase> phases) throws IOException {
+        if (writer == null) {
+            throw new UnsupportedOperationException("No output directory");
+        }
+
+        final List<String> contents = run(name, inputs, phases);
+        final List<String> paths = new ArrayList<>(contents.size());
+
+        for (String content : contents) {
+            final String path = String.format("%s/%s.%d", outputDir, name, paths.size());
+            writer.accept(path, content);
+            paths.add(path);
+        }
+
+        return paths;
+    }
+
+    private static String exec(final String command, final String input, final String content)
+            throws IOException {
+        final ProcessBuilder builder = new ProcessBuilder("/bin/sh", "-c", command);
+        builder.environment().put("MANTA_INPUT_OBJECT", input);
+        builder.redirectError(ProcessBuilder.Redirect.INHERIT);
+
+        final Process process = builder.start();
+        final CompletableFuture<byte[]> output = CompletableFuture.supplyAsync(() -> {
+            try (InputStream in = process.getInputStream()) {
+                return IOUtils.toByteArray(in);
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        });
+
+        try (OutputStream out = process.getOutputStream()) {
+            out.write(content.getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            // The command may exit without reading all of its input
+        }
+
+        try {
+            final int status = process.waitFor();
+
+            if (status != 0) {
+                throw new IOException(String.format("Task on [%s] exited with status %d", input, status));
+            }
+
+            return new String(output.get(), StandardCharsets.UTF_8);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        } catch (ExecutionException e) {
+            throw new IOException(e.getCause());
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package com.joyent.hadoop.fs.manta;
+
+import com.joyent.manta.client.MantaClient;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.Path;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+public class MantaBatchTest {
+    private static final String ROOT = "/user/stor/batch";
+
+    private ForkJoinPool pool;
+
+    @Before
+    public void setup() {
+        pool = new ForkJoinPool(4);
+    }
+
+    @After
+    public void cleanup() {
+        pool.shutdownNow();
+    }
+
+    @Test
+    public void resultsAreReturnedInOrder() throws IOException {
+        final List<Path> paths = new ArrayList<>();
+
+        for (int i = 0; i < 200; i++) {
+            paths.add(new Path(ROOT, "file-" + i));
+        }
+
+        final List<MantaBatchResult<String>> results = MantaBatch.run(pool, paths, path -> {
+            if (path.getName().endsWith("7")) {
+                throw new FileNotFoundException(path.toString());
+            }
+
+            return path.getName();
+        });
+
+        assertEquals(paths.size(), results.size());
+
+        for (int i = 0; i < paths.size(); i++) {
+            final MantaBatchResult<String> result = results.get(i);
+            assertEquals(paths.get(i), result.getPath());
+
+            if (i % 10 == 7) {
+                assertFalse(result.isSuccess());
+                assertTrue(result.getError() instanceof FileNotFoundException);
+            } else {
+                assertEquals("file-" + i, result.get());
+            }
+        }
+    }
+
+    @Test
+    public void concurrencyIsBoundedByPool() throws IOException {
+        final AtomicInteger inFlight = new AtomicInteger();
+        final AtomicInteger maxInFlight = new AtomicInteger();
+        final List<Path> paths = new ArrayList<>();
+
+        for (int i = 0; i < 100; i++) {
+            paths.add(new Path(ROOT, "file-" + i));
+        }
+
+        MantaBatch.run(pool, paths, path -> {
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+
+            try {
+                Thread.sleep(2L);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                inFlight.decrementAndGet();
+            }
+
+            return null;
+        });
+
+        assertTrue("Max in flight: " + maxInFlight, maxInFlight.get() <= 4);
+    }
+
+    @Test
+    public void runtimeErrorsAreReportedPerPath() throws IOException {
+        final List<MantaBatchResult<Object>> results = MantaBatch.run(pool,
+                Arrays.asList(new Path(ROOT, "a"), new Path(ROOT, "b")), path -> {
+                    if (path.getName().equals("a")) {
+                        throw new IllegalStateException("boom");
+                    }
+
+                    return path;
+                });
+
+        assertFalse(results.get(0).isSuccess());
+        assertTrue(results.get(0).getError().getCause() instanceof IllegalStateException);
+        assertTrue(results.get(1).isSuccess());
+    }
+
+    @Test
+    public void fileSystemResolvesStatusesConcurrently() throws IOException {
+        final FakeMantaTree tree = new FakeMantaTree(ROOT)
+                .dir(ROOT + "/dir")
+                .file(ROOT + "/dir/file", 12L);
+        final MantaClient client = tree.mockClient();
+
+        try (MantaFileSystem fs = FakeMantaTree.fileSystem(client, new Configuration(false))) {
+            final List<MantaBatchResult<FileStatus>> results = fs.getFileStatuses(Arrays.asList(
+                    new Path(ROOT + "/dir/file"), new Path(ROOT + "/missing"), new Path(ROOT + "/dir")));
+
+            assertEquals(12L, results.get(0).get().getLen());
+            assertTrue(results.get(1).getError() instanceof FileNotFoundException);
+            assertTrue(results.get(2).get().isDirectory());
+
+            try {
+                results.get(1).get();
+                fail("Expected missing path to fail");
+            } catch (FileNotFoundException e) {
+                assertEquals(ROOT + "/missing", e.getMessage());
+            }
+        }
+    }
+
+    @Test
+    public void fileSystemDeletesWithoutExistenceChecks() throws IOException {
+        final FakeMantaTree tree = new FakeMantaTree(ROOT)
+                .dir(ROOT + "/full")
+                .dir(ROOT + "/full/nested")
+                .file(ROOT + "/full/nested/file", 1L)
+                .dir(ROOT + "/empty")
+                .file(ROOT + "/file", 1L);
+        final MantaClient client = tree.mockClient();
+
+        try (MantaFileSystem fs = FakeMantaTree.fileSystem(client, new Configuration(false))) {
+            final List<Path> paths = Arrays.asList(new Path(ROOT + "/full"),
+                    new Path(ROOT + "/empty"), new Path(ROOT + "/file"), new Path(ROOT + "/missing"));
+
+            final List<MantaBatchResult<Boolean>> nonRecursive = fs.delete(paths, false);
+
+            assertFalse(nonRecursive.get(0).isSuccess());
+            assertTrue(nonRecursive.get(1).get());
+            assertTrue(nonRecursive.get(2).get());
+            assertFalse(nonRecursive.get(3).get());
+            assertTrue(tree.contains(ROOT + "/full/nested/file"));
+
+            final List<MantaBatchResult<Boolean>> recursive = fs.delete(paths, true);
+
+            assertTrue(recursive.get(0).get());
+            assertFalse(recursive.get(1).get());
+            assertFalse(recursive.get(2).get());
+            assertFalse(tree.contains(ROOT + "/full"));
+
+            verify(client, never()).head(anyString());
+            verify(client, never()).existsAndIsAccessible(anyString());
+        }
+    }
+}
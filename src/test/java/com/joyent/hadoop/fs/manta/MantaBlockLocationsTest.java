@@ -0,0 +1,97 @@
+package com.joyent.hadoop.fs.manta;
+
+import org.apache.hadoop.fs.BlockLocation;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.Path;
+import org.junit.Test;
+
+import java.io.IOException;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class MantaBlockLocationsTest {
+    private static FileStatus file(final long length, final long blockSize) {
+        return new FileStatus(length, false, 2, blockSize, 0L, new Path("/user/stor/file"));
+    }
+
+    @Test
+    public void nullStatusHasNoLocations() {
+        assertNull(MantaBlockLocations.of(null, 0, 10));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void negativeStartIsRejected() {
+        MantaBlockLocations.of(file(10, 0), -1, 10);
+    }
+
+    @Test
+    public void unknownBlockSizeIsSingleBlock() throws IOException {
+        final BlockLocation[] locations = MantaBlockLocations.of(file(1000, 0), 0, 1000);
+
+        assertEquals(1, locations.length);
+        assertEquals(0L, locations[0].getOffset());
+        assertEquals(1000L, locations[0].getLength());
+        assertArrayEquals(new String[] {"localhost"}, locations[0].getHosts());
+    }
+
+    @Test
+    public void rangeBeyondEndOfFileHasNoLocations() {
+        assertEquals(0, MantaBlockLocations.of(file(100, 0), 100, 10).length);
+    }
+
+    @Test
+    public void directoriesHaveNoLocations() {
+        final FileStatus dir = new FileStatus(1, true, 1, 0, 0L, new Path("/user/stor/dir"));
+        assertEquals(0, MantaBlockLocations.of(dir, 0, 1).length);
+    }
+
+    @Test
+    public void fileIsSplitOnBlockSize() {
+        final BlockLocation[] locations = MantaBlockLocations.of(file(250, 100), 0, 250);
+
+        assertEquals(3, locations.length);
+        assertEquals(0L, locations[0].getOffset());
+        assertEquals(100L, locations[1].getOffset());
+        assertEquals(200L, locations[2].getOffset());
+        assertEquals(50L, locations[2].getLength());
+    }
+
+    @Test
+    public void onlyBlocksOverlappingRangeAreReturned() {
+        final BlockLocation[] locations = MantaBlockLocations.of(file(1000, 100), 150, 100);
+
+        assertEquals(2, locations.length);
+        assertEquals(100L, locations[0].getOffset());
+        assertEquals(200L, locations[1].getOffset());
+    }
+
+    @Test
+    public void hostArraysAreNotShared() throws IOException {
+        final BlockLocation[] first = MantaBlockLocations.of(file(10, 0), 0, 10);
+        first[0].getHosts()[0] = "modified";
+
+        final BlockLocation[] second = MantaBlockLocations.of(file(20, 0), 0, 20);
+
+        assertArrayEquals(new String[] {"localhost"}, second[0].getHosts());
+    }
+
+    @Test
+    public void blockCountIsClamped() {
+        final long length = MantaBlockLocations.MAX_BLOCKS_PER_FILE * 10;
+        final BlockLocation[] locations = MantaBlockLocations.of(file(length, 1), 0, Long.MAX_VALUE);
+
+        assertEquals(MantaBlockLocations.MAX_BLOCKS_PER_FILE, locations.length);
+        assertEquals(10L, locations[1].getOffset());
+        assertEquals(10L, locations[locations.length - 1].getLength());
+    }
+
+    @Test
+    public void unboundedRangeReachesEndOfFile() {
+        final BlockLocation[] locations = MantaBlockLocations.of(file(1000, 100), 150, Long.MAX_VALUE);
+
+        assertEquals(9, locations.length);
+        assertEquals(900L, locations[8].getOffset());
+    }
+}
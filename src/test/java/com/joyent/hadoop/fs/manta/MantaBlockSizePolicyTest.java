@@ -0,0 +1,75 @@
+package com.joyent.hadoop.fs.manta;
+
+import org.apache.hadoop.conf.Configuration;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+
+public class MantaBlockSizePolicyTest {
+    private static final String HOME = "/testuser";
+
+    private static MantaBlockSizePolicy policy(final String prefixes) {
+        final Configuration conf = new Configuration(false);
+        conf.set(HadoopConfigurationContext.BLOCK_SIZE_KEY, "64m");
+        conf.set(HadoopConfigurationContext.BLOCK_SIZE_PREFIXES_KEY, prefixes);
+
+        final HadoopConfigurationContext context = new HadoopConfigurationContext(conf);
+        return new MantaBlockSizePolicy(context.getBlockSize(),
+                context.getBlockSizePrefixes(), HOME);
+    }
+
+    @Test
+    public void defaultsTo128MiB() {
+        final HadoopConfigurationContext context =
+                new HadoopConfigurationContext(new Configuration(false));
+
+        assertEquals(128L * 1024 * 1024, context.getBlockSize());
+        assertEquals(Collections.emptyMap(), context.getBlockSizePrefixes());
+    }
+
+    @Test
+    public void parsesPrefixesWithUnits() {
+        final HadoopConfigurationContext context;
+        final Configuration conf = new Configuration(false);
+        conf.set(HadoopConfigurationContext.BLOCK_SIZE_PREFIXES_KEY,
+                " /~~/stor/logs = 256m, /testuser/stor/archive=1g");
+        context = new HadoopConfigurationContext(conf);
+
+        final Map<String, Long> prefixes = context.getBlockSizePrefixes();
+
+        assertEquals(Long.valueOf(256L * 1024 * 1024), prefixes.get("/~~/stor/logs"));
+        assertEquals(Long.valueOf(1024L * 1024 * 1024), prefixes.get("/testuser/stor/archive"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsMalformedPrefixes() {
+        policy("/testuser/stor/logs");
+    }
+
+    @Test
+    public void usesDefaultWhenNoPrefixMatches() {
+        final MantaBlockSizePolicy policy = policy("/testuser/stor/logs=256m");
+
+        assertEquals(64L * 1024 * 1024, policy.blockSizeFor("/testuser/stor/other/file"));
+    }
+
+    @Test
+    public void mostSpecificPrefixWins() {
+        final MantaBlockSizePolicy policy = policy(
+                "/~~/stor/logs=256m,/~~/stor/logs/2026/=1g");
+
+        assertEquals(256L * 1024 * 1024, policy.blockSizeFor("/testuser/stor/logs/2025/a.gz"));
+        assertEquals(1024L * 1024 * 1024, policy.blockSizeFor("/testuser/stor/logs/2026/a.gz"));
+        assertEquals(1024L * 1024 * 1024, policy.blockSizeFor("/testuser/stor/logs/2026"));
+    }
+
+    @Test
+    public void prefixesOnlyMatchWholePathComponents() {
+        final MantaBlockSizePolicy policy = policy("/testuser/stor/logs=256m");
+
+        assertEquals(64L * 1024 * 1024, policy.blockSizeFor("/testuser/stor/logs-old/a.gz"));
+    }
+}
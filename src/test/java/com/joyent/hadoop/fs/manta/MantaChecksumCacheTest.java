@@ -0,0 +1,128 @@
+package com.joyent.hadoop.fs.manta;
+
+import com.joyent.manta.client.MantaClient;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+
+public class MantaChecksumCacheTest {
+    private static final String ROOT = "/user/stor";
+
+    private static final String ARCHIVE = ROOT + "/archive.tar";
+
+    private static final String CONTENT = "a large archive that is checksummed remotely";
+
+    @Rule
+    public TemporaryFolder temporary = new TemporaryFolder();
+
+    private static MantaFileSystem fileSystem(final MantaClient client, final File cacheFile,
+                                              final LocalMantaJobExecutor executor) {
+        final Configuration conf = new Configuration(false);
+        conf.set(HadoopConfigurationContext.CHECKSUM_CACHE_FILE_KEY, cacheFile.getPath());
+
+        final MantaFileSystem fs = FakeMantaTree.fileSystem(client, conf);
+        fs.setJobExecutor(executor);
+        return fs;
+    }
+
+    @Test
+    public void reusesChecksumsOfUnchangedObjects() throws IOException {
+        final FakeMantaTree tree = new FakeMantaTree(ROOT).file(ARCHIVE, 2_000_000L);
+        final MantaClient client = tree.mockClient();
+        final LocalMantaJobExecutor executor = new LocalMantaJobExecutor(path -> CONTENT);
+        final File cacheFile = new File(temporary.getRoot(), "checksums");
+
+        try (MantaFileSystem fs = fileSystem(client, cacheFile, executor)) {
+            final byte[] expected = DigestUtils.md5(CONTENT.substring(0, 7).getBytes(StandardCharsets.UTF_8));
+
+            assertArrayEquals(expected, fs.getFileChecksum(new Path(ARCHIVE), 7).getBytes());
+            assertArrayEquals(expected, fs.getFileChecksum(new Path(ARCHIVE), 7).getBytes());
+            assertEquals(1, executor.getJobs());
+
+            // Another range is another checksum
+            fs.getFileChecksum(new Path(ARCHIVE), 8);
+            assertEquals(2, executor.getJobs());
+        }
+
+        // A new process starts with the persisted checksums
+        try (MantaFileSystem fs = fileSystem(client, cacheFile, executor)) {
+            fs.getFileChecksum(new Path(ARCHIVE), 7);
+            fs.getFileChecksum(new Path(ARCHIVE), 8);
+            assertEquals(2, executor.getJobs());
+
+            // Rewriting the object changes its etag
+            client.delete(ARCHIVE);
+            tree.file(ARCHIVE, 2_000_000L);
+
+            fs.getFileChecksum(new Path(ARCHIVE), 7);
+            assertEquals(3, executor.getJobs());
+        }
+    }
+
+    @Test
+    public void skipsChecksumsOfObjectsReplacedWhileRead() throws IOException {
+        final FakeMantaTree tree = new FakeMantaTree(ROOT).file(ARCHIVE, 2_000_000L);
+        final MantaClient client = tree.mockClient();
+        final AtomicBoolean replace = new AtomicBoolean(true);
+        final LocalMantaJobExecutor executor = new LocalMantaJobExecutor(path -> {
+            if (replace.get()) {
+                tree.file(ARCHIVE, 2_000_000L);
+            }
+
+            return CONTENT;
+        });
+        final File cacheFile = new File(temporary.getRoot(), "checksums");
+
+        try (MantaFileSystem fs = fileSystem(client, cacheFile, executor)) {
+            fs.getFileChecksum(new Path(ARCHIVE), 7);
+            fs.getFileChecksum(new Path(ARCHIVE), 7);
+            assertEquals(2, executor.getJobs());
+            assertFalse(cacheFile.exists());
+
+            replace.set(false);
+            fs.getFileChecksum(new Path(ARCHIVE), 7);
+            fs.getFileChecksum(new Path(ARCHIVE), 7);
+            assertEquals(3, executor.getJobs());
+        }
+    }
+
+    @Test
+    public void evictsAndCompactsLeastRecentlyUsedEntries() throws IOException {
+        final File cacheFile = new File(temporary.getRoot(), "checksums");
+        final MantaChecksumCache cache = new MantaChecksumCache(2, cacheFile);
+
+        for (int i = 0; i < 4; i++) {
+            cache.put(ROOT + "/file " + i, "etag" + i, 10L, new MantaChecksum(DigestUtils.md5("" + i)));
+        }
+
+        assertEquals(4, Files.readAllLines(cacheFile.toPath()).size());
+
+        // The file is compacted while the cache is used once it grows too long
+        cache.put(ROOT + "/file 4", "etag4", 10L, new MantaChecksum(DigestUtils.md5("4")));
+        assertEquals(2, Files.readAllLines(cacheFile.toPath()).size());
+
+        assertNull(cache.get(ROOT + "/file 2", "etag2", 10L));
+        assertArrayEquals(DigestUtils.md5("3"), cache.get(ROOT + "/file 3", "etag3", 10L).getBytes());
+        assertNull(cache.get(ROOT + "/file 3", "etag3", 11L));
+        assertNull(cache.get(ROOT + "/file 3", "other", 10L));
+
+        final MantaChecksumCache reloaded = new MantaChecksumCache(2, cacheFile);
+        assertArrayEquals(DigestUtils.md5("4"), reloaded.get(ROOT + "/file 4", "etag4", 10L).getBytes());
+        assertNull(reloaded.get(ROOT + "/file 0", "etag0", 10L));
+        assertEquals(2, Files.readAllLines(cacheFile.toPath()).size());
+    }
+}
@@ -0,0 +1,87 @@
+package com.joyent.hadoop.fs.manta;
+
+import com.joyent.manta.client.jobs.MantaJobPhase;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class MantaChecksumJobTest {
+    private static final String ROOT = "/user/stor";
+
+    private static byte[] md5(final String content, final int length) {
+        return DigestUtils.md5(content.substring(0, Math.min(length, content.length()))
+                .getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void checksumsManyFilesWithOneJob() throws IOException {
+        final FakeMantaTree tree = new FakeMantaTree(ROOT).dir(ROOT + "/archive");
+        final List<Path> files = new ArrayList<>();
+
+        for (int i = 0; i < 20; i++) {
+            final String path = ROOT + "/archive/part " + i;
+            tree.file(path, "content of file number " + i);
+            files.add(new Path(path));
+        }
+
+        // Requesting a file twice checksums it once
+        files.add(new Path(ROOT + "/archive/part 3"));
+
+        final LocalMantaJobExecutor executor = new LocalMantaJobExecutor(tree::content);
+
+        try (MantaFileSystem fs = FakeMantaTree.fileSystem(tree.mockClient(), new Configuration(false))) {
+            fs.setJobExecutor(executor);
+
+            final Map<Path, MantaChecksum> checksums = fs.getFileChecksums(files, 18);
+
+            assertEquals(20, checksums.size());
+
+            for (int i = 0; i < 20; i++) {
+                final Path path = new Path(ROOT + "/archive/part " + i);
+                assertArrayEquals(md5("content of file number " + i, 18), checksums.get(path).getBytes());
+            }
+
+            assertEquals(files.subList(0, 20), new ArrayList<>(checksums.keySet()));
+            assertTrue(fs.getFileChecksums(new ArrayList<>(), 18).isEmpty());
+        }
+
+        assertEquals(1, executor.getJobs());
+    }
+
+    @Test
+    public void failsWhenAFileIsNotChecksummed() throws IOException {
+        final FakeMantaTree tree = new FakeMantaTree(ROOT).file(ROOT + "/a", "a");
+
+        // Drops the output of every input but the first one
+        final MantaChecksumJob job = new MantaChecksumJob(new LocalMantaJobExecutor(tree::content) {
+            @Override
+            public List<String> run(final String name, final List<String> inputs,
+                                    final List<MantaJobPhase> phases) throws IOException {
+                return super.run(name, inputs.subList(0, 1), phases);
+            }
+        });
+
+        assertEquals(1, job.run(Collections.singletonList(ROOT + "/a"), 1).size());
+
+        try {
+            job.run(Arrays.asList(ROOT + "/a", ROOT + "/b"), 1);
+            fail("Expected a missing checksum to fail the batch");
+        } catch (IOException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains(ROOT + "/b"));
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.joyent.hadoop.fs.manta;
+
+import com.joyent.manta.client.MantaClient;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.junit.Test;
+
+import java.io.IOException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+public class MantaCommitProtocolTest {
+    private static final String ROOT = "/user/stor";
+
+    private static final String OUTPUT = ROOT + "/export";
+
+    private static void write(final FakeMantaTree tree, final MantaCommitProtocol committer,
+                              final String attemptId, final String... files) {
+        final String attempt = committer.getTaskAttemptPath(attemptId).toString();
+
+        for (String file : files) {
+            tree.file(attempt + "/" + file, file.length());
+        }
+    }
+
+    @Test
+    public void commitsTasksWithSnaplinks() throws IOException {
+        final FakeMantaTree tree = new FakeMantaTree(ROOT);
+        final MantaClient client = tree.mockClient();
+
+        try (MantaFileSystem fs = FakeMantaTree.fileSystem(client, new Configuration(false))) {
+            final MantaCommitProtocol committer = new MantaCommitProtocol(fs, new Path(OUTPUT), "job_1");
+            committer.setupJob();
+
+            for (String attempt : new String[] {"attempt_0_0", "attempt_0_1", "attempt_1_0", "attempt_2_0"}) {
+                committer.setupTask(attempt);
+            }
+
+            write(tree, committer, "attempt_0_0", "part-0", "stale");
+            write(tree, committer, "attempt_0_1", "part-0");
+            write(tree, committer, "attempt_1_0", "part-1");
+            tree.dir(committer.getTaskAttemptPath("attempt_1_0") + "/day=1");
+            write(tree, committer, "attempt_1_0", "day=1/part-1");
+            write(tree, committer, "attempt_2_0", "part-2");
+
+            assertEquals(2, committer.commitTask("task_0", "attempt_0_0"));
+            // The last committed attempt of a task wins
+            assertEquals(1, committer.commitTask("task_0", "attempt_0_1"));
+            assertEquals(2, committer.commitTask("task_1", "attempt_1_0"));
+            committer.abortTask("attempt_2_0");
+
+            assertEquals(3, committer.commitJob());
+        }
+
+        assertTrue(tree.contains(OUTPUT + "/part-0"));
+        assertTrue(tree.contains(OUTPUT + "/part-1"));
+        assertTrue(tree.contains(OUTPUT + "/day=1/part-1"));
+        assertFalse(tree.contains(OUTPUT + "/stale"));
+        assertFalse(tree.contains(OUTPUT + "/part-2"));
+        assertFalse(tree.contains(OUTPUT + "/_temporary"));
+        assertTrue(tree.content(OUTPUT + "/_SUCCESS").contains("day=1/part-1"));
+
+        verify(client, times(3)).putSnapLink(anyString(), anyString(), any());
+        verify(client, never()).move(anyString(), anyString(), anyBoolean());
+    }
+
+    @Test
+    public void rejectsFilesCommittedByTwoTasks() throws IOException {
+        final FakeMantaTree tree = new FakeMantaTree(ROOT);
+        final MantaClient client = tree.mockClient();
+
+        try (MantaFileSystem fs = FakeMantaTree.fileSystem(client, new Configuration(false))) {
+            final MantaCommitProtocol committer = new MantaCommitProtocol(fs, new Path(OUTPUT), "job_2");
+            committer.setupJob();
+            committer.setupTask("attempt_0_0");
+            committer.setupTask("attempt_1_0");
+            write(tree, committer, "attempt_0_0", "part-0");
+            write(tree, committer, "attempt_1_0", "part-0");
+            committer.commitTask("task_0", "attempt_0_0");
+            committer.commitTask("task_1", "attempt_1_0");
+
+            try {
+                committer.commitJob();
+                fail("Expected conflicting tasks to fail the job commit");
+            } catch (IOException e) {
+                assertTrue(tree.contains(committer.getJobStagingPath().toString()));
+            }
+
+            committer.abortJob();
+        }
+
+        assertFalse(tree.contains(OUTPUT + "/_temporary"));
+        assertFalse(tree.contains(OUTPUT + "/part-0"));
+    }
+}
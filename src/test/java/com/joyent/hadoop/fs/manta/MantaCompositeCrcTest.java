@@ -0,0 +1,141 @@
+package com.joyent.hadoop.fs.manta;
+
+import com.joyent.manta.client.MantaClient;
+import com.joyent.manta.client.MantaMetadata;
+import com.joyent.manta.client.MantaObjectResponse;
+import com.joyent.manta.http.MantaHttpHeaders;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileChecksum;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.DataInputBuffer;
+import org.apache.hadoop.io.DataOutputBuffer;
+import org.apache.hadoop.util.PureJavaCrc32C;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class MantaCompositeCrcTest {
+    private static final String PATH = "/user/stor/sync/file.bin";
+
+    private static int crc32c(final byte[] data, final int off, final int len) {
+        final PureJavaCrc32C crc = new PureJavaCrc32C();
+        crc.update(data, off, len);
+        return (int)crc.getValue();
+    }
+
+    @Test
+    public void combinesConsecutiveRanges() {
+        final byte[] check = "123456789".getBytes(StandardCharsets.US_ASCII);
+        assertEquals(0xE3069283, crc32c(check, 0, check.length));
+
+        final byte[] data = new byte[100_000];
+        new Random(47).nextBytes(data);
+        final int whole = crc32c(data, 0, data.length);
+
+        for (int split : new int[] {0, 1, 7, 4096, 65_537, data.length - 1, data.length}) {
+            final int combined = MantaCompositeCrc.combine(crc32c(data, 0, split),
+                    crc32c(data, split, data.length - split), data.length - split);
+            assertEquals("Split at " + split, whole, combined);
+        }
+    }
+
+    @Test
+    public void serializesLikeHdfs() throws IOException {
+        final MantaCompositeCrc crc = new MantaCompositeCrc(0xE3069283);
+
+        assertEquals("COMPOSITE-CRC32C", crc.getAlgorithmName());
+        assertArrayEquals(new byte[] {(byte)0xE3, 0x06, (byte)0x92, (byte)0x83}, crc.getBytes());
+        assertEquals("COMPOSITE-CRC32C:0xe3069283", crc.toString());
+
+        final DataOutputBuffer out = new DataOutputBuffer();
+        crc.write(out);
+        assertEquals(4, out.getLength());
+
+        final DataInputBuffer in = new DataInputBuffer();
+        in.reset(out.getData(), out.getLength());
+        final MantaCompositeCrc read = new MantaCompositeCrc(0);
+        read.readFields(in);
+
+        assertEquals(crc, read);
+    }
+
+    @Test
+    public void outputStreamRecordsCrcBlockByBlock() throws IOException {
+        final MantaClient client = mock(MantaClient.class);
+        final byte[] data = new byte[1000];
+        new Random(7).nextBytes(data);
+
+        final MantaAttributesOutputStream out = new MantaAttributesOutputStream(
+                new ByteArrayOutputStream(), () -> "uploaded", new MantaMetadataRequests(client), PATH,
+                new MantaHttpHeaders(), new MantaMetadata(), 64L);
+        out.write(data[0]);
+        out.write(data, 1, 200);
+        out.write(data, 201, data.length - 201);
+        out.close();
+
+        final ArgumentCaptor<MantaMetadata> captor = ArgumentCaptor.forClass(MantaMetadata.class);
+        verify(client).putMetadata(eq(PATH), any(MantaHttpHeaders.class), captor.capture());
+
+        final MantaHttpHeaders headers = new MantaHttpHeaders();
+        headers.setContentLength((long)data.length);
+
+        final MantaObjectResponse written = new MantaObjectResponse(PATH, headers, captor.getValue());
+        assertEquals(crc32c(data, 0, data.length), MantaFileAttributes.compositeCrc(written).getCrc());
+        assertArrayEquals(DigestUtils.md5(data), MantaFileAttributes.md5(written));
+    }
+
+    @Test
+    public void returnsRecordedCrcWhenConfigured() throws IOException {
+        final byte[] md5 = DigestUtils.md5("content");
+        final MantaHttpHeaders headers = new MantaHttpHeaders();
+        headers.setContentType("application/octet-stream");
+        headers.setContentMD5(Base64.getEncoder().encodeToString(md5));
+
+        final MantaMetadata metadata = new MantaMetadata();
+        metadata.put(MantaFileAttributes.COMPOSITE_CRC_HEADER, "e3069283");
+
+        final MantaClient client = mock(MantaClient.class);
+        when(client.head(PATH)).thenReturn(new MantaObjectResponse(PATH, headers, metadata));
+        when(client.head(PATH + ".md5")).thenReturn(new MantaObjectResponse(PATH, headers));
+
+        final Configuration conf = new Configuration(false);
+        conf.setBoolean(HadoopConfigurationContext.COMPOSITE_CRC_KEY, true);
+
+        try (MantaFileSystem fs = FakeMantaTree.fileSystem(client, conf)) {
+            assertEquals(new MantaCompositeCrc(0xE3069283), fs.getFileChecksum(new Path(PATH)));
+
+            // Files written by other tools fall back to their MD5
+            final FileChecksum fallback = fs.getFileChecksum(new Path(PATH + ".md5"));
+            assertEquals("md5", fallback.getAlgorithmName());
+            assertArrayEquals(md5, fallback.getBytes());
+        }
+
+        try (MantaFileSystem fs = FakeMantaTree.fileSystem(client, new Configuration(false))) {
+            assertEquals("md5", fs.getFileChecksum(new Path(PATH)).getAlgorithmName());
+        }
+    }
+
+    @Test
+    public void ignoresMalformedCrcs() {
+        final MantaMetadata metadata = new MantaMetadata();
+        metadata.put(MantaFileAttributes.COMPOSITE_CRC_HEADER, "1ffffffff");
+
+        assertNull(MantaFileAttributes.compositeCrc(
+                new MantaObjectResponse(PATH, new MantaHttpHeaders(), metadata)));
+    }
+}
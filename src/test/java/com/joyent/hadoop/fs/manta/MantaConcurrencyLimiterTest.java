@@ -0,0 +1,192 @@
+package com.joyent.hadoop.fs.manta;
+
+import com.joyent.manta.client.MantaClient;
+import com.joyent.manta.client.MantaObjectResponse;
+import com.joyent.manta.exception.MantaClientHttpResponseException;
+import com.joyent.manta.org.apache.http.HttpVersion;
+import com.joyent.manta.org.apache.http.message.BasicStatusLine;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.when;
+
+public class MantaConcurrencyLimiterTest {
+    private static final String ROOT = "/user/stor";
+
+    private static MantaClientHttpResponseException throttled(final int status) {
+        return new MantaClientHttpResponseException(ROOT).setStatusLine(
+                new BasicStatusLine(HttpVersion.HTTP_1_1, status, "Injected"));
+    }
+
+    @Test
+    public void halvesLimitOncePerRoundTripAndRetries() throws IOException {
+        final MantaConcurrencyLimiter limiter = new MantaConcurrencyLimiter(8, 1, 1, 1000L);
+        final AtomicInteger outer = new AtomicInteger();
+        final AtomicInteger inner = new AtomicInteger();
+
+        // Both requests are throttled while in flight together
+        final String result = limiter.run("outer", () -> {
+            if (outer.incrementAndGet() == 1) {
+                limiter.run("inner", () -> {
+                    if (inner.incrementAndGet() == 1) {
+                        throw throttled(503);
+                    }
+
+                    return null;
+                });
+
+                throw throttled(429);
+            }
+
+            return "done";
+        });
+
+        assertEquals("done", result);
+        assertEquals(4, limiter.getLimit());
+        assertEquals(2, limiter.getThrottled());
+        assertEquals(2, limiter.getRetries());
+        assertEquals(0, limiter.getInFlight());
+
+        // Other errors are returned immediately
+        try {
+            limiter.run("missing", () -> {
+                throw throttled(404);
+            });
+            fail("Expected the error to be returned");
+        } catch (MantaClientHttpResponseException e) {
+            assertEquals(404, e.getStatusCode());
+        }
+
+        assertEquals(2, limiter.getThrottled());
+    }
+
+    @Test
+    public void growsBackWhileSaturated() throws IOException {
+        final MantaConcurrencyLimiter limiter = new MantaConcurrencyLimiter(4, 2, 0, 1000L);
+
+        for (int i = 0; i < 3; i++) {
+            try {
+                limiter.run("throttled", () -> {
+                    throw throttled(503);
+                });
+            } catch (MantaClientHttpResponseException e) {
+                assertEquals(503, e.getStatusCode());
+            }
+        }
+
+        // Never drops below the minimum
+        assertEquals(2, limiter.getLimit());
+
+        // Requests below the limit don't raise it
+        limiter.run("single", () -> null);
+        assertEquals(2, limiter.getLimit());
+
+        for (int i = 0; i < 3; i++) {
+            limiter.run("outer", () -> limiter.run("inner", () -> null));
+        }
+
+        assertEquals(3, limiter.getLimit());
+    }
+
+    @Test
+    public void rejectsCallersThatWaitTooLong() throws Exception {
+        final MantaConcurrencyLimiter limiter = new MantaConcurrencyLimiter(1, 1, 0, 50L);
+        final CountDownLatch holding = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(1);
+
+        final Thread holder = new Thread(() -> {
+            try {
+                limiter.run("holder", () -> {
+                    holding.countDown();
+                    try {
+                        return done.await(10, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        throw new InterruptedIOException();
+                    }
+                });
+            } catch (IOException e) {
+                throw new AssertionError(e);
+            }
+        });
+        holder.start();
+        holding.await();
+
+        try {
+            limiter.run("rejected", () -> null);
+            fail("Expected the caller to be rejected");
+        } catch (IOException e) {
+            assertTrue(e.getMessage().contains("rejected"));
+        } finally {
+            done.countDown();
+            holder.join(10_000);
+        }
+
+        assertEquals(1, limiter.getRejections());
+        assertEquals(0, limiter.getInFlight());
+    }
+
+    @Test
+    public void throttledParallelDeleteDecreasesLimit() throws IOException {
+        final Configuration conf = new Configuration(false);
+        conf.setInt(HadoopConfigurationContext.LIMITER_MAX_REQUESTS_KEY, 64);
+
+        final String dir = ROOT + "/output";
+        final FakeMantaTree tree = new FakeMantaTree(ROOT).dir(dir);
+
+        for (int i = 0; i < 500; i++) {
+            tree.file(dir + "/part-" + i, i);
+        }
+
+        for (int i = 0; i < 500; i += 100) {
+            tree.failDeletes(dir + "/part-" + i, 1, 503);
+        }
+
+        try (MantaFileSystem fs = FakeMantaTree.fileSystem(tree.mockClient(), conf)) {
+            final MantaConcurrencyLimiter limiter = fs.getConcurrencyLimiter();
+
+            assertTrue(fs.delete(new Path(dir), true));
+            assertFalse(tree.contains(dir));
+
+            // Throttled deletes are retried by the limiter alone
+            assertEquals(5, limiter.getThrottled());
+            assertEquals(5, limiter.getRetries());
+            assertTrue(limiter.getLimit() < 64);
+            assertEquals(0, limiter.getInFlight());
+        }
+    }
+
+    @Test
+    public void filesystemRetriesThrottledMetadataRequests() throws IOException {
+        final Configuration conf = new Configuration(false);
+        conf.setInt(HadoopConfigurationContext.LIMITER_MAX_REQUESTS_KEY, 16);
+
+        final MantaClient client = new FakeMantaTree(ROOT).dir(ROOT + "/busy").mockClient();
+        final MantaObjectResponse busy = client.head(ROOT + "/busy");
+        when(client.head(ROOT + "/busy")).thenThrow(throttled(503)).thenReturn(busy);
+
+        try (MantaFileSystem fs = FakeMantaTree.fileSystem(client, conf)) {
+            final MantaConcurrencyLimiter limiter = fs.getConcurrencyLimiter();
+
+            assertTrue(limiter.isEnabled());
+            assertTrue(fs.isDirectory(new Path(ROOT + "/busy")));
+            assertEquals(8, limiter.getLimit());
+            assertEquals(1, limiter.getRetries());
+        }
+
+        try (MantaFileSystem fs = FakeMantaTree.fileSystem(client, new Configuration(false))) {
+            assertFalse(fs.getConcurrencyLimiter().isEnabled());
+            assertEquals(0, fs.getConcurrencyLimiter().getLimit());
+        }
+    }
+}
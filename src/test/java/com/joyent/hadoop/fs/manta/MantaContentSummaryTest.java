@@ -0,0 +1,84 @@
+package com.joyent.hadoop.fs.manta;
+
+import com.joyent.manta.client.MantaClient;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.ContentSummary;
+import org.apache.hadoop.fs.Path;
+import org.junit.Test;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+public class MantaContentSummaryTest {
+    private static final String ARCHIVE = "/user/stor/archive";
+
+    private static FakeMantaTree archive() {
+        final FakeMantaTree tree = new FakeMantaTree(ARCHIVE);
+
+        for (int year = 0; year < 4; year++) {
+            final String yearDir = ARCHIVE + "/y" + year;
+            tree.dir(yearDir);
+
+            for (int month = 0; month < 12; month++) {
+                final String monthDir = yearDir + "/m" + month;
+                tree.dir(monthDir);
+
+                for (int f = 0; f < 10; f++) {
+                    tree.file(monthDir + "/f" + f, 100L);
+                }
+            }
+        }
+
+        return tree.dir(ARCHIVE + "/empty");
+    }
+
+    @Test
+    public void summarizesDirectoryTree() throws IOException {
+        final MantaClient client = archive().mockClient();
+
+        try (MantaFileSystem fs = FakeMantaTree.fileSystem(client, new Configuration(false))) {
+            final ContentSummary summary = fs.getContentSummary(new Path(ARCHIVE));
+
+            assertEquals(480L * 100L, summary.getLength());
+            assertEquals(480L, summary.getFileCount());
+            // archive itself, empty, 4 years and 48 months
+            assertEquals(54L, summary.getDirectoryCount());
+            // every fake object has a durability level of 2
+            assertEquals(2L * 480L * 100L, summary.getSpaceConsumed());
+
+            // 1 listing per directory and no per-file requests
+            verify(client, times(54)).streamingIterator(anyString(), anyInt());
+            verify(client, never()).listObjects(anyString());
+        }
+    }
+
+    @Test
+    public void summarizesSingleFile() throws IOException {
+        final MantaClient client = archive().mockClient();
+
+        try (MantaFileSystem fs = FakeMantaTree.fileSystem(client, new Configuration(false))) {
+            final ContentSummary summary = fs.getContentSummary(new Path(ARCHIVE + "/y0/m0/f0"));
+
+            assertEquals(100L, summary.getLength());
+            assertEquals(1L, summary.getFileCount());
+            assertEquals(0L, summary.getDirectoryCount());
+            verify(client, never()).streamingIterator(anyString(), anyInt());
+        }
+    }
+
+    @Test(expected = FileNotFoundException.class)
+    public void missingPathIsNotFound() throws IOException {
+        final MantaClient client = archive().mockClient();
+
+        try (MantaFileSystem fs = FakeMantaTree.fileSystem(client, new Configuration(false))) {
+            fs.getContentSummary(new Path(ARCHIVE + "/missing"));
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package com.joyent.hadoop.fs.manta;
+
+import com.joyent.manta.client.MantaClient;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileAlreadyExistsException;
+import org.apache.hadoop.fs.Path;
+import org.junit.Test;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+public class MantaCopyTest {
+    private static final String ROOT = "/user/stor";
+
+    private static final String DATASET = ROOT + "/dataset";
+
+    private static FakeMantaTree dataset() {
+        final FakeMantaTree tree = new FakeMantaTree(ROOT).dir(DATASET);
+
+        for (int day = 0; day < 3; day++) {
+            final String dayDir = DATASET + "/day=" + day;
+            tree.dir(dayDir);
+
+            for (int f = 0; f < 100; f++) {
+                tree.file(dayDir + "/part-" + f, f);
+            }
+        }
+
+        return tree.file(DATASET + "/_SUCCESS", 0L);
+    }
+
+    @Test
+    public void copiesTreesWithSnaplinks() throws IOException {
+        final FakeMantaTree tree = dataset();
+        final MantaClient client = tree.mockClient();
+        final AtomicLong progress = new AtomicLong();
+
+        try (MantaFileSystem fs = FakeMantaTree.fileSystem(client, new Configuration(false))) {
+            assertTrue(fs.copy(new Path(DATASET), new Path(ROOT + "/test/copy"), false,
+                    progress::incrementAndGet));
+        }
+
+        assertEquals(301, progress.get());
+        assertTrue(tree.contains(DATASET + "/day=2/part-99"));
+        assertTrue(tree.contains(ROOT + "/test/copy/day=2/part-99"));
+        assertEquals(100, tree.children(ROOT + "/test/copy/day=0").size());
+        verify(client, times(301)).putSnapLink(anyString(), anyString(), any());
+        verify(client, never()).getAsInputStream(anyString());
+    }
+
+    @Test
+    public void createsParentsOfFileCopiesOnlyWhenMissing() throws IOException {
+        final FakeMantaTree tree = dataset();
+        final MantaClient client = tree.mockClient();
+
+        try (MantaFileSystem fs = FakeMantaTree.fileSystem(client, new Configuration(false))) {
+            final Path file = new Path(DATASET + "/day=0/part-7");
+
+            assertTrue(fs.copy(file, new Path(DATASET + "/day=1/part-7-copy"), false, null));
+            verify(client, never()).putDirectory(anyString(), anyBoolean());
+
+            assertTrue(fs.copy(file, new Path(ROOT + "/test/nested/part-7"), false, null));
+            verify(client).putDirectory(ROOT + "/test/nested", true);
+        }
+
+        assertTrue(tree.contains(DATASET + "/day=1/part-7-copy"));
+        assertTrue(tree.contains(ROOT + "/test/nested/part-7"));
+    }
+
+    @Test
+    public void resolvesDestinationsLikeFileUtil() throws IOException {
+        final FakeMantaTree tree = dataset().dir(ROOT + "/target").file(ROOT + "/existing", 1L);
+        final MantaClient client = tree.mockClient();
+
+        try (MantaFileSystem fs = FakeMantaTree.fileSystem(client, new Configuration(false))) {
+            final Path file = new Path(DATASET + "/day=0/part-7");
+
+            fs.copy(file, new Path(ROOT + "/target"), false, null);
+            assertTrue(tree.contains(ROOT + "/target/part-7"));
+
+            try {
+                fs.copy(file, new Path(ROOT + "/existing"), false, null);
+                fail("Expected an existing file not to be replaced");
+            } catch (FileAlreadyExistsException e) {
+                assertEquals(1L, tree.children(ROOT).stream()
+                        .filter(props -> props.get("name").equals("existing"))
+                        .findFirst().get().get("size"));
+            }
+
+            fs.copy(file, new Path(ROOT + "/existing"), true, null);
+            assertEquals(7L, tree.children(ROOT).stream()
+                    .filter(props -> props.get("name").equals("existing"))
+                    .findFirst().get().get("size"));
+
+            try {
+                fs.copy(new Path(ROOT + "/missing"), new Path(ROOT + "/target"), true, null);
+                fail("Expected a missing source not to be copied");
+            } catch (FileNotFoundException e) {
+                assertEquals(ROOT + "/missing", e.getMessage());
+            }
+        }
+    }
+
+    @Test
+    public void copiesBetweenFileSystemsOfTheSameAccount() throws IOException {
+        final FakeMantaTree tree = dataset();
+        final MantaClient client = tree.mockClient();
+
+        // The source filesystem answers lookups in the dataset from a listing
+        final Configuration srcConf = new Configuration(false);
+        srcConf.setInt(HadoopConfigurationContext.STATUS_LISTING_THRESHOLD_KEY, 2);
+        srcConf.set(HadoopConfigurationContext.STATUS_LISTING_VALIDITY_KEY, "1m");
+
+        try (MantaFileSystem src = FakeMantaTree.fileSystem(client, srcConf);
+             MantaFileSystem dst = FakeMantaTree.fileSystem(client, new Configuration(false))) {
+            assertTrue(src.getFileStatus(new Path(DATASET + "/day=0")).isDirectory());
+            assertTrue(src.getFileStatus(new Path(DATASET + "/day=1")).isDirectory());
+
+            assertTrue(MantaFileSystem.copy(src, new Path(DATASET + "/day=1"), dst,
+                    new Path(ROOT + "/moved"), true, false, new Configuration(false)));
+
+            try {
+                src.getFileStatus(new Path(DATASET + "/day=1"));
+                fail("Expected the deleted source to be gone from the listing of the source filesystem");
+            } catch (FileNotFoundException e) {
+                assertEquals(DATASET + "/day=1", e.getMessage());
+            }
+        }
+
+        assertFalse(tree.contains(DATASET + "/day=1"));
+        assertEquals(100, tree.children(ROOT + "/moved").size());
+        verify(client, times(100)).putSnapLink(anyString(), anyString(), any());
+    }
+
+    @Test
+    public void rejectsCopiesIntoTheSourceTree() throws IOException {
+        final FakeMantaTree tree = dataset();
+        final MantaClient client = tree.mockClient();
+
+        try (MantaFileSystem fs = FakeMantaTree.fileSystem(client, new Configuration(false))) {
+            for (String dst : new String[] {DATASET, DATASET + "/day=0/nested"}) {
+                try {
+                    fs.copy(new Path(DATASET), new Path(dst), false, null);
+                    fail("Expected a copy into the source tree to be rejected: " + dst);
+                } catch (IOException e) {
+                    assertTrue(e.getMessage().contains("itself"));
+                }
+            }
+
+            // A sibling sharing the name as a prefix is outside the tree
+            assertTrue(fs.copy(new Path(DATASET + "/day=0"), new Path(DATASET + "/day=0-copy"),
+                    false, null));
+        }
+
+        assertFalse(tree.contains(DATASET + "/dataset"));
+        assertFalse(tree.contains(DATASET + "/day=0/nested"));
+        assertEquals(100, tree.children(DATASET + "/day=0-copy").size());
+        verify(client, times(100)).putSnapLink(anyString(), anyString(), any());
+    }
+}
@@ -0,0 +1,86 @@
+package com.joyent.hadoop.fs.manta;
+
+import com.joyent.manta.client.MantaClient;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+public class MantaDirectoryCreatorTest {
+    private static final String ROOT = "/user/stor";
+
+    private static final String TABLE = ROOT + "/warehouse/events";
+
+    @Test
+    public void createsEachDirectoryOnce() throws IOException {
+        final FakeMantaTree tree = new FakeMantaTree(ROOT);
+        final MantaClient client = tree.mockClient();
+        final List<Path> partitions = new ArrayList<>();
+
+        for (int year = 0; year < 2; year++) {
+            for (int month = 0; month < 12; month++) {
+                for (int day = 0; day < 10; day++) {
+                    partitions.add(new Path(TABLE + "/year=" + year + "/month=" + month + "/day=" + day));
+                }
+            }
+        }
+
+        // Requesting a directory twice or a parent of another one costs nothing extra
+        partitions.add(new Path(TABLE + "/year=0"));
+        partitions.add(new Path(TABLE + "/year=1/month=3/day=3"));
+        partitions.add(new Path(ROOT));
+
+        try (MantaFileSystem fs = FakeMantaTree.fileSystem(client, new Configuration(false))) {
+            final List<MantaBatchResult<Boolean>> results = fs.mkdirs(partitions);
+
+            assertEquals(partitions.size(), results.size());
+
+            for (int i = 0; i < results.size(); i++) {
+                assertEquals(partitions.get(i), results.get(i).getPath());
+                assertTrue(results.get(i).get());
+            }
+        }
+
+        assertTrue(tree.contains(TABLE + "/year=1/month=11/day=9"));
+        // warehouse, events, 2 years, 24 months and 240 days
+        verify(client, times(2 + 2 + 24 + 240)).putDirectory(anyString());
+        verify(client, never()).putDirectory(anyString(), anyBoolean());
+        verify(client, never()).existsAndIsAccessible(anyString());
+        verify(client, never()).head(anyString());
+    }
+
+    @Test
+    public void failsDirectoriesBelowFailedParents() throws IOException {
+        final FakeMantaTree tree = new FakeMantaTree(ROOT).file(ROOT + "/blocked", 1L);
+        final MantaClient client = tree.mockClient();
+
+        try (MantaFileSystem fs = FakeMantaTree.fileSystem(client, new Configuration(false))) {
+            final List<Path> paths = new ArrayList<>();
+            paths.add(new Path(ROOT + "/blocked/a/b"));
+            paths.add(new Path(ROOT + "/open/a"));
+            paths.add(new Path(ROOT + "/blocked/c"));
+
+            final List<MantaBatchResult<Boolean>> results = fs.mkdirs(paths);
+
+            assertFalse(results.get(0).isSuccess());
+            assertTrue(results.get(1).get());
+            assertFalse(results.get(2).isSuccess());
+            assertTrue(tree.contains(ROOT + "/open/a"));
+        }
+
+        // blocked fails, so nothing below it is attempted
+        verify(client, times(3)).putDirectory(anyString());
+    }
+}
@@ -0,0 +1,149 @@
+package com.joyent.hadoop.fs.manta;
+
+import com.joyent.manta.client.MantaClient;
+import com.joyent.manta.client.MantaMetadata;
+import com.joyent.manta.client.MantaObjectResponse;
+import com.joyent.manta.exception.MantaClientHttpResponseException;
+import com.joyent.manta.http.MantaHttpHeaders;
+import com.joyent.manta.org.apache.http.HttpVersion;
+import com.joyent.manta.org.apache.http.message.BasicStatusLine;
+import org.apache.commons.codec.binary.Hex;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class MantaFileAttributesTest {
+    private static final String PATH = "/user/stor/attributes/file.txt";
+
+    private static MantaObjectResponse response(final long contentLength,
+                                                final MantaMetadata metadata) {
+        final MantaHttpHeaders headers = new MantaHttpHeaders();
+        headers.setContentType("application/octet-stream");
+        headers.setContentLength(contentLength);
+
+        return new MantaObjectResponse(PATH, headers, metadata);
+    }
+
+    @Test
+    public void statusReportsVirtualBlockSize() {
+        final MantaMetadata metadata = MantaFileAttributes.newMetadata(256L * 1024 * 1024);
+        metadata.put(MantaFileAttributes.LENGTH_HEADER, "10");
+
+        final MantaFileStatus status = new MantaFileStatus(response(12L, metadata),
+                new Path(PATH), 64L * 1024 * 1024);
+
+        // The same as a status decoded from a listing, which has no metadata
+        assertEquals(64L * 1024 * 1024, status.getBlockSize());
+        assertEquals(status.getBlockSize(), new MantaFileStatus(12L, false, (short)1,
+                64L * 1024 * 1024, 0L, new Path(PATH)).getBlockSize());
+        // The Content-Length always wins over the recorded length
+        assertEquals(12L, status.getLen());
+    }
+
+    @Test
+    public void statusFallsBackWithoutAttributes() {
+        final MantaFileStatus status = new MantaFileStatus(response(12L, new MantaMetadata()),
+                new Path(PATH), 64L * 1024 * 1024);
+
+        assertEquals(64L * 1024 * 1024, status.getBlockSize());
+        assertEquals(12L, status.getLen());
+    }
+
+    @Test
+    public void ignoresMalformedAttributes() {
+        final MantaMetadata metadata = new MantaMetadata();
+        metadata.put(MantaFileAttributes.BLOCK_SIZE_HEADER, "lots");
+        metadata.put(MantaFileAttributes.MD5_HEADER, "not-hex");
+
+        final MantaObjectResponse response = response(12L, metadata);
+
+        assertNull(MantaFileAttributes.blockSize(response));
+        assertNull(MantaFileAttributes.md5(response));
+    }
+
+    @Test
+    public void checksumPrefersRecordedMd5OfCurrentContent() throws IOException {
+        final byte[] stored = DigestUtils.md5("ciphertext");
+        final byte[] written = DigestUtils.md5("plaintext");
+        final MantaMetadata metadata = new MantaMetadata();
+        metadata.put(MantaFileAttributes.LENGTH_HEADER, "9");
+        metadata.put(MantaFileAttributes.MD5_HEADER, Hex.encodeHexString(written));
+
+        final MantaClient client = mock(MantaClient.class);
+        final MantaObjectResponse current = response(9L, metadata);
+        current.getHttpHeaders().setContentMD5(Base64.getEncoder().encodeToString(stored));
+        final MantaObjectResponse stale = response(12L, metadata);
+        stale.getHttpHeaders().setContentMD5(Base64.getEncoder().encodeToString(stored));
+        when(client.head(PATH)).thenReturn(current).thenReturn(stale);
+
+        try (MantaFileSystem fs = FakeMantaTree.fileSystem(client, new Configuration(false))) {
+            assertArrayEquals(written, fs.getFileChecksum(new Path(PATH)).getBytes());
+
+            // A recorded MD5 whose length doesn't match describes other content
+            assertArrayEquals(stored, fs.getFileChecksum(new Path(PATH)).getBytes());
+        }
+    }
+
+    @Test
+    public void outputStreamRecordsLengthAndMd5() throws IOException {
+        final MantaClient client = mock(MantaClient.class);
+        final ByteArrayOutputStream upload = new ByteArrayOutputStream();
+        final MantaMetadata metadata = MantaFileAttributes.newMetadata(1024L);
+        final byte[] data = "persisted attributes".getBytes(StandardCharsets.UTF_8);
+
+        final MantaAttributesOutputStream out = new MantaAttributesOutputStream(upload,
+                () -> "uploaded", new MantaMetadataRequests(client), PATH, new MantaHttpHeaders(),
+                metadata, 0L);
+        out.write(data[0]);
+        out.write(data, 1, data.length - 1);
+        out.close();
+        out.close();
+
+        final ArgumentCaptor<MantaHttpHeaders> headers = ArgumentCaptor.forClass(MantaHttpHeaders.class);
+        final ArgumentCaptor<MantaMetadata> captor = ArgumentCaptor.forClass(MantaMetadata.class);
+        verify(client, times(1)).putMetadata(eq(PATH), headers.capture(), captor.capture());
+
+        final MantaObjectResponse written = response(data.length, captor.getValue());
+
+        // The update only applies to the object this stream uploaded
+        assertEquals("uploaded", headers.getValue().getIfMatch());
+
+        assertArrayEquals(data, upload.toByteArray());
+        assertEquals(Long.valueOf(1024L), MantaFileAttributes.blockSize(written));
+        assertEquals(Long.valueOf(data.length), MantaFileAttributes.length(written));
+        assertArrayEquals(DigestUtils.md5(data), MantaFileAttributes.md5(written));
+    }
+
+    @Test
+    public void attributesOfReplacedUploadsAreDropped() throws IOException {
+        final MantaClient client = mock(MantaClient.class);
+        when(client.putMetadata(eq(PATH), any(MantaHttpHeaders.class), any(MantaMetadata.class)))
+                .thenThrow(new MantaClientHttpResponseException(PATH).setStatusLine(
+                        new BasicStatusLine(HttpVersion.HTTP_1_1, 412, "Precondition Failed")));
+
+        final MantaAttributesOutputStream out = new MantaAttributesOutputStream(new ByteArrayOutputStream(),
+                () -> "uploaded", new MantaMetadataRequests(client), PATH, new MantaHttpHeaders(),
+                new MantaMetadata(), 0L);
+        out.write(1);
+        out.close();
+
+        verify(client).putMetadata(eq(PATH), any(MantaHttpHeaders.class), any(MantaMetadata.class));
+    }
+}
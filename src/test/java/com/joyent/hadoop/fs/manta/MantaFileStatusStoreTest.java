@@ -0,0 +1,119 @@
+package com.joyent.hadoop.fs.manta;
+
+import com.joyent.manta.client.MantaClient;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.Path;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class MantaFileStatusStoreTest {
+    private static final String DIR = "/user/stor/table";
+
+    private static void assertSameStatus(final FileStatus expected, final FileStatus actual) {
+        assertEquals(expected.getPath(), actual.getPath());
+        assertEquals(expected.isDirectory(), actual.isDirectory());
+        assertEquals(expected.getLen(), actual.getLen());
+        assertEquals(expected.getReplication(), actual.getReplication());
+        assertEquals(expected.getBlockSize(), actual.getBlockSize());
+        assertEquals(expected.getModificationTime(), actual.getModificationTime());
+    }
+
+    private static void roundTrips(final boolean offHeap) {
+        final MantaFileStatusStore store = new MantaFileStatusStore(offHeap);
+        final FileStatus[] statuses = new FileStatus[5000];
+
+        for (int i = 0; i < statuses.length; i++) {
+            final String parent = DIR + "/part=" + (i % 7);
+            final boolean dir = i % 100 == 0;
+            final long blockSize = (i % 3 == 0) ? 64L << 20 : 256L << 20;
+
+            statuses[i] = new MantaFileStatus(i * 1000L, dir, (short)(i % 6 + 1),
+                    blockSize, 1489504166535L + i, new Path(parent + "/file-é-" + i));
+            store.add(statuses[i]);
+        }
+
+        assertEquals(statuses.length, store.size());
+        assertEquals(7, store.parentCount());
+        assertEquals(offHeap, store.isOffHeap());
+
+        int i = 0;
+
+        for (FileStatus status : store) {
+            assertSameStatus(statuses[i], status);
+            i++;
+        }
+
+        assertEquals(statuses.length, i);
+        assertSameStatus(statuses[4999], store.toArray()[4999]);
+    }
+
+    @Test
+    public void roundTripsOnHeap() {
+        roundTrips(false);
+    }
+
+    @Test
+    public void roundTripsOffHeap() {
+        roundTrips(true);
+    }
+
+    @Test
+    public void keepsQualifiedAndRootPaths() {
+        final MantaFileStatusStore store = new MantaFileStatusStore(false);
+        store.add(new MantaFileStatus(false, new Path("manta:/user/stor/a")));
+        store.add(new MantaFileStatus(false, new Path("/top")));
+        store.add(new MantaFileStatus(true, new Path("/")));
+
+        assertEquals(new Path("manta:/user/stor/a"), store.getPath(0));
+        assertEquals(new Path("/top"), store.getPath(1));
+        assertEquals(new Path("/"), store.getPath(2));
+        assertEquals("top", store.getName(1));
+    }
+
+    @Test
+    public void listsDirectoriesIntoStore() throws IOException {
+        final FakeMantaTree tree = new FakeMantaTree(DIR).dir(DIR + "/part=1").dir(DIR + "/part=2");
+
+        for (int i = 0; i < 1500; i++) {
+            tree.file(DIR + "/part=" + (i % 2 + 1) + "/file-" + i, i);
+        }
+
+        tree.file(DIR + "/_SUCCESS", 0L);
+
+        final MantaClient client = tree.mockClient();
+        final Configuration conf = new Configuration(false);
+        conf.setBoolean(HadoopConfigurationContext.COMPACT_LISTING_OFF_HEAP_KEY, true);
+
+        try (MantaFileSystem fs = FakeMantaTree.fileSystem(client, conf)) {
+            final MantaFileStatusStore flat = fs.listStatusCompact(new Path(DIR), false);
+
+            assertTrue(flat.isOffHeap());
+            assertEquals(3, flat.size());
+            assertEquals(1, flat.parentCount());
+
+            final FileStatus[] expected = fs.listStatus(new Path(DIR));
+
+            for (int i = 0; i < expected.length; i++) {
+                assertSameStatus(expected[i], flat.get(i));
+            }
+
+            final MantaFileStatusStore deep = fs.listStatusCompact(new Path(DIR), true);
+            final Set<Path> paths = new HashSet<>();
+
+            for (FileStatus status : deep) {
+                paths.add(status.getPath());
+            }
+
+            assertEquals(1503, deep.size());
+            assertEquals(1503, paths.size());
+            assertTrue(paths.contains(new Path(DIR + "/part=2/file-1499")));
+        }
+    }
+}
@@ -227,7 +227,7 @@ public class MantaFileSystemIT {
 
         Path path = new Path(testPathPrefix);
 
-        try (MantaRemoteIterator itr = (MantaRemoteIterator)fs.listFiles(path, true)) {
+        try (MantaTreeRemoteIterator itr = (MantaTreeRemoteIterator)fs.listFiles(path, true)) {
             List<LocatedFileStatus> results = new ArrayList<>(6);
 
             while (itr.hasNext()) {
@@ -0,0 +1,161 @@
+package com.joyent.hadoop.fs.manta;
+
+import com.joyent.manta.client.MantaClient;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.Path;
+import org.junit.Test;
+
+import java.io.IOException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+public class MantaGlobberTest {
+    private static final String LOGS = "/user/stor/logs";
+
+    private static FakeMantaTree logs() {
+        final FakeMantaTree tree = new FakeMantaTree(LOGS).dir(LOGS + "/2026");
+
+        for (int month = 1; month <= 3; month++) {
+            final String monthDir = LOGS + "/2026/0" + month;
+            tree.dir(monthDir);
+
+            for (int day = 1; day <= 5; day++) {
+                final String dayDir = monthDir + "/0" + day;
+                tree.dir(dayDir)
+                    .file(dayDir + "/host-a.gz", 1L)
+                    .file(dayDir + "/host-b.gz", 2L)
+                    .file(dayDir + "/other.txt", 3L);
+            }
+        }
+
+        tree.file(LOGS + "/2026/README", 4L);
+
+        return tree;
+    }
+
+    private static MantaFileSystem fileSystem(final MantaClient client) {
+        return FakeMantaTree.fileSystem(client, new Configuration(false));
+    }
+
+    @Test
+    public void expandsWildcardLevelsWithoutLookups() throws IOException {
+        final MantaClient client = logs().mockClient();
+
+        try (MantaFileSystem fs = fileSystem(client)) {
+            final FileStatus[] matches = fs.globStatus(new Path(LOGS + "/2026/*/*/host-*.gz"));
+
+            assertEquals(30, matches.length);
+            assertEquals(new Path("manta:" + LOGS + "/2026/01/01/host-a.gz"), matches[0].getPath());
+            assertEquals(new Path("manta:" + LOGS + "/2026/03/05/host-b.gz"), matches[29].getPath());
+
+            // 1 listing of 2026 + 3 month listings + 15 day listings
+            verify(client, times(19)).streamingIterator(anyString(), anyInt());
+            verify(client, never()).head(anyString());
+        }
+    }
+
+    @Test
+    public void trailingLiteralComponentsAreLookedUp() throws IOException {
+        final MantaClient client = logs().mockClient();
+
+        try (MantaFileSystem fs = fileSystem(client)) {
+            final FileStatus[] matches = fs.globStatus(new Path(LOGS + "/2026/0[12]/*/host-a.gz"));
+
+            assertEquals(10, matches.length);
+
+            for (FileStatus status : matches) {
+                assertEquals("host-a.gz", status.getPath().getName());
+                assertEquals(1L, status.getLen());
+            }
+
+            verify(client, times(10)).head(anyString());
+        }
+    }
+
+    @Test
+    public void matchesKeepTheHomeAliasOfThePattern() throws IOException {
+        try (MantaFileSystem fs = fileSystem(logs().mockClient())) {
+            final FileStatus[] matches = fs.globStatus(new Path("/~~/stor/logs/2026/0[12]/*/host-a.gz"));
+
+            // The same form as the generic globber, which lists below the pattern as given
+            assertEquals(10, matches.length);
+            assertEquals(new Path("manta:/~~/stor/logs/2026/01/01/host-a.gz"), matches[0].getPath());
+
+            final FileStatus[] literal = fs.globStatus(new Path("/~~/stor/logs/2026/README"));
+
+            assertEquals(1, literal.length);
+            assertEquals(new Path("manta:/~~/stor/logs/2026/README"), literal[0].getPath());
+        }
+    }
+
+    @Test
+    public void appliesUserFilter() throws IOException {
+        final MantaClient client = logs().mockClient();
+
+        try (MantaFileSystem fs = fileSystem(client)) {
+            final FileStatus[] matches = fs.globStatus(new Path(LOGS + "/2026/*/0?/*"),
+                    path -> path.getName().endsWith(".txt"));
+
+            assertEquals(15, matches.length);
+        }
+    }
+
+    @Test
+    public void missingPathsFollowHadoopSemantics() throws IOException {
+        final MantaClient client = logs().mockClient();
+
+        try (MantaFileSystem fs = fileSystem(client)) {
+            assertNull(fs.globStatus(new Path(LOGS + "/2025/01")));
+            assertEquals(0, fs.globStatus(new Path(LOGS + "/2025/*")).length);
+            assertEquals(0, fs.globStatus(new Path(LOGS + "/2026/*/99/*")).length);
+
+            final FileStatus[] literal = fs.globStatus(new Path(LOGS + "/2026/README"));
+            assertNotNull(literal);
+            assertEquals(1, literal.length);
+            assertFalse(literal[0].isDirectory());
+        }
+    }
+
+    @Test
+    public void literalFileAfterWildcardMatchesNothing() throws IOException {
+        final FakeMantaTree tree = logs();
+        tree.dir(LOGS + "/2027").dir(LOGS + "/2027/README").file(LOGS + "/2027/README/notes", 5L);
+        final MantaClient client = tree.mockClient();
+
+        try (MantaFileSystem fs = fileSystem(client)) {
+            final FileStatus[] matches = fs.globStatus(new Path(LOGS + "/*/README/*"));
+            assertEquals(1, matches.length);
+            assertEquals(LOGS + "/2027/README/notes", matches[0].getPath().toUri().getPath());
+
+            assertEquals(0, fs.globStatus(new Path(LOGS + "/2026/*/01/host-a.gz/*")).length);
+        }
+    }
+
+    @Test
+    public void braceAlternationUsesGenericGlobber() throws IOException {
+        assertFalse(MantaGlobber.isSupported(LOGS + "/2026/{01,02}/*"));
+        assertFalse(MantaGlobber.isSupported("/*/stor"));
+        assertTrue(MantaGlobber.isSupported(LOGS + "/2026/*/0[1-3]"));
+
+        final MantaClient client = logs().mockClient();
+
+        try (MantaFileSystem fs = fileSystem(client)) {
+            final FileStatus[] generic = fs.globStatus(new Path(LOGS + "/2026/{01,02}/01/host-a.gz"));
+            final FileStatus[] manta = fs.globStatus(new Path(LOGS + "/2026/0[12]/01/host-a.gz"));
+
+            assertEquals(2, generic.length);
+            assertEquals(generic[0].getPath(), manta[0].getPath());
+            assertEquals(generic[1].getPath(), manta[1].getPath());
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package com.joyent.hadoop.fs.manta;
+
+import com.joyent.manta.client.MantaClient;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.junit.Test;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+
+import static com.joyent.hadoop.fs.manta.MantaRequestCounters.Request.DELETE;
+import static com.joyent.hadoop.fs.manta.MantaRequestCounters.Request.HEAD;
+import static com.joyent.hadoop.fs.manta.MantaRequestCounters.Request.PUT_DIRECTORY;
+import static com.joyent.hadoop.fs.manta.MantaRequestCounters.Request.SNAPLINK;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class MantaLeanMutationsTest {
+    private static final String ROOT = "/user/stor";
+
+    private static FakeMantaTree tree() {
+        return new FakeMantaTree(ROOT)
+                .dir(ROOT + "/dir")
+                .file(ROOT + "/dir/a", 1L)
+                .file(ROOT + "/dir/b", 2L)
+                .file(ROOT + "/dir/c", 3L)
+                .dir(ROOT + "/full")
+                .file(ROOT + "/full/x", 1L);
+    }
+
+    private static MantaFileSystem fileSystem(final MantaClient client, final boolean lean) {
+        final Configuration conf = new Configuration(false);
+        conf.setBoolean(HadoopConfigurationContext.LEAN_MUTATIONS_KEY, lean);
+        return FakeMantaTree.fileSystem(client, conf);
+    }
+
+    @Test
+    public void derivesResultsFromMutations() throws IOException {
+        final FakeMantaTree tree = tree();
+
+        try (MantaFileSystem fs = fileSystem(tree.mockClient(), true)) {
+            final MantaRequestCounters counters = fs.getRequestCounters();
+
+            assertTrue(fs.delete(new Path(ROOT + "/dir/a"), false));
+            assertFalse(fs.delete(new Path(ROOT + "/dir/a"), false));
+            assertEquals(2, counters.get(DELETE));
+
+            assertTrue(fs.mkdirs(new Path(ROOT + "/dir/new")));
+            assertEquals(1, counters.get(PUT_DIRECTORY));
+
+            assertTrue(fs.rename(new Path(ROOT + "/dir/b"), new Path(ROOT + "/dir/new/b")));
+            assertEquals(1, counters.get(SNAPLINK));
+            assertEquals(3, counters.get(DELETE));
+
+            // Every mutation costs a single request without any HEAD
+            assertEquals(0, counters.get(HEAD));
+            assertEquals(5, counters.getTotal());
+
+            assertTrue(tree.contains(ROOT + "/dir/new/b"));
+            assertFalse(tree.contains(ROOT + "/dir/b"));
+            assertFalse(tree.contains(ROOT + "/dir/a"));
+        }
+    }
+
+    @Test
+    public void createsMissingParentsOnDemand() throws IOException {
+        final FakeMantaTree tree = tree();
+
+        try (MantaFileSystem fs = fileSystem(tree.mockClient(), true)) {
+            final MantaRequestCounters counters = fs.getRequestCounters();
+
+            assertTrue(fs.mkdirs(new Path(ROOT + "/x/y/z")));
+            assertEquals(2, counters.get(PUT_DIRECTORY));
+            assertTrue(tree.isDirectory(ROOT + "/x/y/z"));
+
+            assertTrue(fs.rename(new Path(ROOT + "/dir/c"), new Path(ROOT + "/p/q/c")));
+            assertEquals(2, counters.get(SNAPLINK));
+            assertEquals(3, counters.get(PUT_DIRECTORY));
+            assertTrue(tree.contains(ROOT + "/p/q/c"));
+
+            try {
+                fs.rename(new Path(ROOT + "/dir/missing"), new Path(ROOT + "/dir/other"));
+                fail("Expected a missing source not to be moved");
+            } catch (FileNotFoundException e) {
+                assertEquals(ROOT + "/dir/missing", e.getMessage());
+            }
+
+            // Directories fall back to a tree rename
+            assertTrue(fs.rename(new Path(ROOT + "/full"), new Path(ROOT + "/moved")));
+            assertTrue(tree.contains(ROOT + "/moved/x"));
+            assertFalse(tree.contains(ROOT + "/full"));
+
+            assertTrue(fs.delete(new Path(ROOT + "/moved"), true));
+            assertFalse(tree.contains(ROOT + "/moved"));
+
+            try {
+                fs.delete(new Path(ROOT + "/x"), false);
+                fail("Expected a directory that isn't empty not to be deleted");
+            } catch (IOException e) {
+                assertTrue(tree.contains(ROOT + "/x/y/z"));
+            }
+        }
+    }
+
+    @Test
+    public void checksExistenceByDefault() throws IOException {
+        final FakeMantaTree tree = tree();
+
+        try (MantaFileSystem fs = fileSystem(tree.mockClient(), false)) {
+            final MantaRequestCounters counters = fs.getRequestCounters();
+
+            assertTrue(fs.delete(new Path(ROOT + "/dir/a"), false));
+            assertTrue(fs.mkdirs(new Path(ROOT + "/dir/new")));
+
+            assertEquals(2, counters.get(HEAD));
+            assertEquals(4, counters.getTotal());
+        }
+    }
+
+    @Test
+    public void missingPathsAreNotFiles() throws IOException {
+        try (MantaFileSystem fs = fileSystem(tree().mockClient(), false)) {
+            assertTrue(fs.isFile(new Path(ROOT + "/dir/a")));
+            assertFalse(fs.isFile(new Path(ROOT + "/dir")));
+            assertFalse(fs.isFile(new Path(ROOT + "/missing")));
+            assertEquals(3, fs.getRequestCounters().get(HEAD));
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.joyent.hadoop.fs.manta;
+
+import com.joyent.manta.client.MantaObjectConversionFunction;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.Path;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+
+public class MantaListingDecoderTest {
+    private static final String DIR = "/user/stor/logs";
+
+    private static final long DEFAULT_BLOCK_SIZE = 64L * 1024 * 1024;
+
+    private static Map<String, Object> entry(final String name, final String type,
+                                             final Long size, final Integer durability) {
+        final Map<String, Object> props = new LinkedHashMap<>();
+        props.put("name", name);
+        props.put("type", type);
+        props.put("mtime", "2017-03-14T15:09:26.535Z");
+
+        if (size != null) {
+            props.put("size", size);
+        }
+
+        if (durability != null) {
+            props.put("durability", durability);
+        }
+
+        props.put("path", DIR + "/" + name);
+
+        return props;
+    }
+
+    private static FileStatus legacy(final Map<String, Object> props,
+                                     final MantaBlockSizePolicy blockSizes) {
+        final String path = props.get("path").toString();
+
+        return new MantaFileStatus(new MantaObjectConversionFunction().apply(props),
+                new Path(path), blockSizes.blockSizeFor(path));
+    }
+
+    private static void assertSameStatus(final FileStatus expected, final FileStatus actual) {
+        assertEquals(expected.getPath(), actual.getPath());
+        assertEquals(expected.isDirectory(), actual.isDirectory());
+        assertEquals(expected.getLen(), actual.getLen());
+        assertEquals(expected.getReplication(), actual.getReplication());
+        assertEquals(expected.getBlockSize(), actual.getBlockSize());
+        assertEquals(expected.getModificationTime(), actual.getModificationTime());
+    }
+
+    @Test
+    public void matchesConvertedObjects() {
+        final MantaBlockSizePolicy blockSizes = new MantaBlockSizePolicy(DEFAULT_BLOCK_SIZE,
+                Collections.singletonMap("/user/stor", 256L * 1024 * 1024), "/user");
+        final MantaListingDecoder decoder = new MantaListingDecoder(DIR, blockSizes);
+
+        final Map<String, Object> file = entry("host-a.gz", "object", 12L, 3);
+        final Map<String, Object> empty = entry("empty", "object", 0L, null);
+        final Map<String, Object> dir = entry("2026", "directory", null, null);
+
+        assertSameStatus(legacy(file, blockSizes), decoder.decode(file));
+        assertSameStatus(legacy(empty, blockSizes), decoder.decode(empty));
+        assertSameStatus(legacy(dir, blockSizes), decoder.decode(dir));
+        assertEquals(256L * 1024 * 1024, decoder.decode(file).getBlockSize());
+    }
+
+    @Test
+    public void resolvesBlockSizePerEntryWhenPrefixIsBelowDirectory() {
+        final MantaBlockSizePolicy blockSizes = new MantaBlockSizePolicy(DEFAULT_BLOCK_SIZE,
+                Collections.singletonMap(DIR + "/archive", 1024L * 1024 * 1024), "/user");
+        final MantaListingDecoder decoder = new MantaListingDecoder(DIR + "/", blockSizes);
+
+        assertEquals(-1L, blockSizes.blockSizeForChildrenOf(DIR));
+        assertEquals(1024L * 1024 * 1024,
+                decoder.decode(entry("archive", "object", 1L, 2)).getBlockSize());
+        assertEquals(DEFAULT_BLOCK_SIZE,
+                decoder.decode(entry("archived", "object", 1L, 2)).getBlockSize());
+        assertEquals(new Path(DIR + "/archived"),
+                decoder.decode(entry("archived", "object", 1L, 2)).getPath());
+    }
+}
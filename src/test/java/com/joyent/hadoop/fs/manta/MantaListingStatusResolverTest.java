@@ -0,0 +1,203 @@
+package com.joyent.hadoop.fs.manta;
+
+import com.joyent.manta.client.MantaClient;
+import com.joyent.manta.client.MantaMetadata;
+import com.joyent.manta.client.MantaObjectOutputStream;
+import com.joyent.manta.http.MantaHttpHeaders;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.Path;
+import org.junit.Test;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class MantaListingStatusResolverTest {
+    private static final String ROOT = "/user/stor/partitions";
+
+    private static final MantaBlockSizePolicy BLOCK_SIZES =
+            new MantaBlockSizePolicy(0L, Collections.emptyMap(), "/user");
+
+    private final AtomicLong now = new AtomicLong();
+
+    private static FakeMantaTree partitions(final int count) {
+        final FakeMantaTree tree = new FakeMantaTree(ROOT);
+
+        for (int i = 0; i < count; i++) {
+            tree.file(ROOT + "/part-" + i, i);
+        }
+
+        return tree.dir(ROOT + "/nested");
+    }
+
+    private MantaListingStatusResolver resolver(final MantaClient client, final int maxEntries) {
+        return new MantaListingStatusResolver(new MantaMetadataRequests(client), BLOCK_SIZES, 3, 1000L,
+                maxEntries, now::get);
+    }
+
+    private static MantaFileStatus resolve(final MantaListingStatusResolver resolver,
+                                           final String mantaPath) throws FileNotFoundException {
+        return resolver.resolve(mantaPath, new Path(mantaPath));
+    }
+
+    @Test
+    public void listsParentOnceThresholdIsReached() throws IOException {
+        final MantaClient client = partitions(10).mockClient();
+        final MantaListingStatusResolver resolver = resolver(client, 100);
+
+        assertNull(resolve(resolver, ROOT + "/part-0"));
+        assertNull(resolve(resolver, ROOT + "/part-1"));
+
+        final MantaFileStatus status = resolve(resolver, ROOT + "/part-2");
+        assertNotNull(status);
+        assertEquals(2L, status.getLen());
+
+        for (int i = 3; i < 10; i++) {
+            assertEquals(i, resolve(resolver, ROOT + "/part-" + i).getLen());
+        }
+
+        assertTrue(resolve(resolver, ROOT + "/nested").isDirectory());
+        verify(client, times(1)).streamingIterator(anyString(), anyInt());
+    }
+
+    @Test
+    public void missingSiblingsAreReportedFromListing() throws IOException {
+        final MantaClient client = partitions(3).mockClient();
+        final MantaListingStatusResolver resolver = resolver(client, 100);
+
+        for (int i = 0; i < 3; i++) {
+            resolve(resolver, ROOT + "/part-" + i);
+        }
+
+        try {
+            resolve(resolver, ROOT + "/part-99");
+            fail("Expected missing sibling to be reported");
+        } catch (FileNotFoundException e) {
+            assertEquals(ROOT + "/part-99", e.getMessage());
+        }
+    }
+
+    @Test
+    public void listingExpiresAfterValidityWindow() throws IOException {
+        final MantaClient client = partitions(5).mockClient();
+        final MantaListingStatusResolver resolver = resolver(client, 100);
+
+        for (int i = 0; i < 3; i++) {
+            resolve(resolver, ROOT + "/part-" + i);
+        }
+
+        now.addAndGet(TimeUnit.SECONDS.toNanos(2));
+
+        assertNull(resolve(resolver, ROOT + "/part-3"));
+        verify(client, times(1)).streamingIterator(anyString(), anyInt());
+    }
+
+    @Test
+    public void invalidationDiscardsListingsOfAncestors() throws IOException {
+        final MantaClient client = partitions(5).mockClient();
+        final MantaListingStatusResolver resolver = resolver(client, 100);
+
+        for (int i = 0; i < 3; i++) {
+            resolve(resolver, ROOT + "/part-" + i);
+        }
+
+        resolver.invalidate(ROOT + "/part-4");
+
+        // The lookup window is still open, so the next lookup lists again
+        assertNotNull(resolve(resolver, ROOT + "/part-3"));
+        verify(client, times(2)).streamingIterator(anyString(), anyInt());
+    }
+
+    @Test
+    public void largeDirectoriesAreNotCached() throws IOException {
+        final MantaClient client = partitions(20).mockClient();
+        final MantaListingStatusResolver resolver = resolver(client, 10);
+
+        for (int i = 0; i < 20; i++) {
+            assertNull(resolve(resolver, ROOT + "/part-" + i));
+        }
+
+        verify(client, times(1)).streamingIterator(anyString(), anyInt());
+    }
+
+    @Test
+    public void fileSystemAnswersSiblingLookupsFromListing() throws IOException {
+        final MantaClient client = partitions(10).mockClient();
+        final Configuration conf = new Configuration(false);
+        conf.setInt(HadoopConfigurationContext.STATUS_LISTING_THRESHOLD_KEY, 2);
+        conf.set(HadoopConfigurationContext.STATUS_LISTING_VALIDITY_KEY, "1m");
+
+        try (MantaFileSystem fs = FakeMantaTree.fileSystem(client, conf)) {
+            for (int i = 0; i < 10; i++) {
+                final FileStatus status = fs.getFileStatus(new Path(ROOT + "/part-" + i));
+                assertEquals(i, status.getLen());
+            }
+
+            verify(client, times(1)).head(anyString());
+            verify(client, times(1)).streamingIterator(anyString(), anyInt());
+        }
+    }
+
+    @Test
+    public void createdFileIsFoundAfterSiblingsWereListed() throws IOException {
+        final FakeMantaTree tree = partitions(3);
+        final MantaClient client = tree.mockClient();
+        final String created = ROOT + "/part-3";
+        final MantaObjectOutputStream upload = mock(MantaObjectOutputStream.class);
+        doAnswer(invocation -> tree.file(created, 0L)).when(upload).close();
+        when(client.putAsOutputStream(eq(created), any(MantaHttpHeaders.class), any(MantaMetadata.class)))
+                .thenReturn(upload);
+
+        final Configuration conf = new Configuration(false);
+        conf.setInt(HadoopConfigurationContext.STATUS_LISTING_THRESHOLD_KEY, 2);
+        conf.set(HadoopConfigurationContext.STATUS_LISTING_VALIDITY_KEY, "1m");
+
+        try (MantaFileSystem fs = FakeMantaTree.fileSystem(client, conf)) {
+            final OutputStream out = fs.create(new Path(created));
+
+            // Lists the parent while the upload is still in progress
+            for (int i = 0; i < 3; i++) {
+                fs.getFileStatus(new Path(ROOT + "/part-" + i));
+            }
+
+            out.close();
+
+            assertEquals(0L, fs.getFileStatus(new Path(created)).getLen());
+            verify(client, times(2)).streamingIterator(anyString(), anyInt());
+        }
+    }
+
+    @Test
+    public void disabledByDefault() throws IOException {
+        final MantaClient client = partitions(5).mockClient();
+
+        try (MantaFileSystem fs = FakeMantaTree.fileSystem(client, new Configuration(false))) {
+            for (int i = 0; i < 5; i++) {
+                fs.getFileStatus(new Path(ROOT + "/part-" + i));
+            }
+
+            verify(client, times(5)).head(anyString());
+            verify(client, never()).streamingIterator(anyString(), anyInt());
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.joyent.hadoop.fs.manta;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileAlreadyExistsException;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.mapreduce.JobContext;
+import org.apache.hadoop.mapreduce.JobStatus;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.apache.hadoop.mapreduce.TaskAttemptID;
+import org.apache.hadoop.mapreduce.task.JobContextImpl;
+import org.apache.hadoop.mapreduce.task.TaskAttemptContextImpl;
+import org.junit.Test;
+
+import java.io.IOException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class MantaOutputCommitterTest {
+    private static final String ROOT = "/user/stor";
+
+    private static final String OUTPUT = ROOT + "/export";
+
+    private static void runJob(final FakeMantaTree tree, final MantaFileSystem fs,
+                               final Configuration conf, final String job,
+                               final String content) throws IOException {
+        final TaskAttemptContext task = new TaskAttemptContextImpl(conf,
+                TaskAttemptID.forName("attempt_" + job + "_m_000000_0"));
+        final JobContext context = new JobContextImpl(conf, task.getJobID());
+        final MantaOutputCommitter committer = new MantaOutputCommitter(fs, new Path(OUTPUT), task);
+
+        assertFalse(committer.isRecoverySupported(context));
+        committer.setupJob(context);
+        committer.setupTask(task);
+        tree.file(committer.getWorkPath() + "/part-m-00000", content);
+
+        assertTrue(committer.needsTaskCommit(task));
+        committer.commitTask(task);
+
+        try {
+            committer.commitJob(context);
+        } catch (IOException e) {
+            committer.abortJob(context, JobStatus.State.FAILED);
+            throw e;
+        }
+    }
+
+    @Test
+    public void commitsMapReduceJobs() throws IOException {
+        final FakeMantaTree tree = new FakeMantaTree(ROOT);
+        final Configuration conf = new Configuration(false);
+
+        try (MantaFileSystem fs = FakeMantaTree.fileSystem(tree.mockClient(), conf)) {
+            runJob(tree, fs, conf, "200707121733_0001", "first");
+            assertEquals("first", tree.content(OUTPUT + "/part-m-00000"));
+            assertFalse(tree.contains(OUTPUT + "/_temporary"));
+
+            // Like FileOutputCommitter, committed output isn't replaced by default
+            try {
+                runJob(tree, fs, conf, "200707121733_0002", "second");
+                fail("Expected the commit to an existing output to fail");
+            } catch (FileAlreadyExistsException e) {
+                assertEquals("first", tree.content(OUTPUT + "/part-m-00000"));
+                assertFalse(tree.contains(OUTPUT + "/_temporary"));
+            }
+
+            conf.setBoolean(MantaOutputCommitter.OVERWRITE_KEY, true);
+            runJob(tree, fs, conf, "200707121733_0003", "third");
+            assertEquals("third", tree.content(OUTPUT + "/part-m-00000"));
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package com.joyent.hadoop.fs.manta;
+
+import com.joyent.manta.client.MantaClient;
+import org.apache.commons.io.IOUtils;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileAlreadyExistsException;
+import org.apache.hadoop.fs.Path;
+import org.junit.Test;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+public class MantaPushdownTest {
+    private static final String ROOT = "/user/stor";
+
+    private static final String LOGS = ROOT + "/logs";
+
+    private static final String JOBS = ROOT + "/jobs";
+
+    private static FakeMantaTree logs() {
+        final FakeMantaTree tree = new FakeMantaTree(ROOT).dir(LOGS).dir(JOBS);
+
+        for (int day = 1; day <= 3; day++) {
+            tree.dir(LOGS + "/day=" + day);
+
+            for (int host = 0; host < 4; host++) {
+                final StringBuilder content = new StringBuilder();
+
+                for (int line = 0; line < 50; line++) {
+                    if (line == day + host) {
+                        content.append("ERROR host").append(host).append(" day").append(day).append('\n');
+                    } else {
+                        content.append("INFO request ").append(line).append('\n');
+                    }
+                }
+
+                tree.file(LOGS + "/day=" + day + "/host" + host + ".log", content.toString());
+            }
+        }
+
+        return tree;
+    }
+
+    private static LocalMantaJobExecutor executor(final FakeMantaTree tree) {
+        return new LocalMantaJobExecutor(tree::content, JOBS, tree::file);
+    }
+
+    private static MantaFileSystem fileSystem(final MantaClient client,
+                                              final LocalMantaJobExecutor executor) {
+        final MantaFileSystem fs = FakeMantaTree.fileSystem(client, new Configuration(false));
+        fs.setJobExecutor(executor);
+        return fs;
+    }
+
+    @Test
+    public void returnsOnlyMatchingRows() throws IOException {
+        final FakeMantaTree tree = logs();
+        final LocalMantaJobExecutor executor = executor(tree);
+
+        try (MantaFileSystem fs = fileSystem(tree.mockClient(), executor)) {
+            final MantaPushdown pushdown = new MantaPushdown(fs);
+            final MantaRequestScheduler scheduler = fs.getRequestLanes().getScheduler();
+            final List<Path> inputs = Arrays.asList(new Path(LOGS + "/day=1"),
+                    new Path(LOGS + "/day=2/host3.log"));
+
+            try (InputStream in = pushdown.open(inputs, "grep ERROR || true", null)) {
+                // Outputs are only opened once they are read
+                assertEquals(0, scheduler.getInFlight(MantaRequestLane.BULK));
+                assertEquals('E', in.read());
+                assertEquals(1, scheduler.getInFlight(MantaRequestLane.BULK));
+
+                final List<String> lines = IOUtils.readLines(in, StandardCharsets.UTF_8);
+                lines.set(0, "E" + lines.get(0));
+                Collections.sort(lines);
+
+                assertEquals(Arrays.asList("ERROR host0 day1", "ERROR host1 day1", "ERROR host2 day1",
+                        "ERROR host3 day1", "ERROR host3 day2"), lines);
+            }
+
+            assertEquals(0, scheduler.getInFlight(MantaRequestLane.BULK));
+
+            try (InputStream in = pushdown.open(Collections.singletonList(new Path(LOGS)),
+                    "grep ERROR || true", "wc -l | tr -d ' '")) {
+                assertEquals("12\n", IOUtils.toString(in, StandardCharsets.UTF_8));
+            }
+        }
+
+        assertEquals(2, executor.getJobs());
+    }
+
+    @Test
+    public void writesResultsToAnOutputFile() throws IOException {
+        final FakeMantaTree tree = logs();
+        final Path output = new Path(ROOT + "/reports/errors.txt");
+        final MantaClient client = tree.mockClient();
+
+        try (MantaFileSystem fs = fileSystem(client, executor(tree))) {
+            final MantaPushdown pushdown = new MantaPushdown(fs);
+            final List<Path> inputs = Collections.singletonList(new Path(LOGS + "/day=3"));
+
+            assertEquals(17L, pushdown.write(inputs, "grep ERROR || true", "sort | head -1", output, false));
+            assertEquals("ERROR host0 day3\n", tree.content(ROOT + "/reports/errors.txt"));
+
+            // Map outputs are concatenated remotely and linked into place
+            assertEquals(68L, pushdown.write(inputs, "grep ERROR || true", null, output, true));
+            assertEquals(4, tree.content(ROOT + "/reports/errors.txt").split("\n").length);
+            verify(client, never()).put(anyString(), anyString());
+
+            try {
+                pushdown.write(inputs, "grep ERROR || true", null, output, false);
+                fail("Expected an existing output not to be replaced");
+            } catch (FileAlreadyExistsException e) {
+                assertTrue(e.getMessage().contains("errors.txt"));
+            }
+
+            try {
+                pushdown.open(Collections.singletonList(new Path(LOGS + "/day=9")), "cat", null);
+                fail("Expected a missing input to fail the scan");
+            } catch (FileNotFoundException e) {
+                assertTrue(e.getMessage().contains("day=9"));
+            }
+        }
+    }
+}
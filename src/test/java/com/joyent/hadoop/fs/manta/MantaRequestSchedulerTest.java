@@ -0,0 +1,209 @@
+package com.joyent.hadoop.fs.manta;
+
+import com.joyent.manta.client.MantaClient;
+import com.joyent.manta.client.MantaDirectoryListingIterator;
+import com.joyent.manta.client.MantaMetadata;
+import com.joyent.manta.client.MantaObjectOutputStream;
+import com.joyent.manta.http.MantaHttpHeaders;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class MantaRequestSchedulerTest {
+    private static final String ROOT = "/user/stor";
+
+    private static void awaitWaiting(final MantaRequestScheduler scheduler,
+                                     final MantaRequestLane lane, final int expected) throws InterruptedException {
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+
+        while (scheduler.getWaiting(lane) != expected) {
+            assertTrue("Timed out waiting for " + expected + " " + lane + " callers",
+                    System.nanoTime() < deadline);
+            Thread.sleep(5);
+        }
+    }
+
+    private static Thread acquireLater(final MantaRequestScheduler scheduler, final MantaRequestLane lane,
+                                       final List<MantaRequestLane> granted) {
+        final Thread thread = new Thread(() -> {
+            try (MantaRequestScheduler.Permit permit = scheduler.acquire(lane)) {
+                granted.add(lane);
+            } catch (IOException e) {
+                granted.add(null);
+            }
+        });
+        thread.start();
+        return thread;
+    }
+
+    @Test
+    public void grantsMetadataBeforeQueuedBulkTransfers() throws Exception {
+        final MantaRequestScheduler scheduler = new MantaRequestScheduler(
+                Collections.emptyMap(), 1, 10_000L);
+        final List<MantaRequestLane> granted = new CopyOnWriteArrayList<>();
+
+        final MantaRequestScheduler.Permit running = scheduler.acquire(MantaRequestLane.BULK);
+
+        final Thread bulk = acquireLater(scheduler, MantaRequestLane.BULK, granted);
+        awaitWaiting(scheduler, MantaRequestLane.BULK, 1);
+        final Thread metadata = acquireLater(scheduler, MantaRequestLane.METADATA, granted);
+        awaitWaiting(scheduler, MantaRequestLane.METADATA, 1);
+
+        running.close();
+        // Closing twice must not release a second permit
+        running.close();
+
+        bulk.join(10_000);
+        metadata.join(10_000);
+
+        assertEquals(MantaRequestLane.METADATA, granted.get(0));
+        assertEquals(MantaRequestLane.BULK, granted.get(1));
+        assertEquals(0, scheduler.getInFlight(MantaRequestLane.BULK));
+    }
+
+    @Test
+    public void limitsLanesIndependently() throws Exception {
+        final Map<MantaRequestLane, Integer> limits = new EnumMap<>(MantaRequestLane.class);
+        limits.put(MantaRequestLane.BULK, 2);
+        final MantaRequestScheduler scheduler = new MantaRequestScheduler(limits, 0, 10_000L);
+        final List<MantaRequestLane> granted = new CopyOnWriteArrayList<>();
+
+        final MantaRequestScheduler.Permit first = scheduler.acquire(MantaRequestLane.BULK);
+        final MantaRequestScheduler.Permit second = scheduler.acquire(MantaRequestLane.BULK);
+
+        final Thread bulk = acquireLater(scheduler, MantaRequestLane.BULK, granted);
+        awaitWaiting(scheduler, MantaRequestLane.BULK, 1);
+
+        // Saturated bulk transfers don't hold back other lanes
+        for (int i = 0; i < 10; i++) {
+            scheduler.acquire(MantaRequestLane.METADATA);
+        }
+
+        assertEquals(10, scheduler.getInFlight(MantaRequestLane.METADATA));
+        assertTrue(granted.isEmpty());
+
+        first.close();
+        bulk.join(10_000);
+        assertEquals(Collections.singletonList(MantaRequestLane.BULK), granted);
+        second.close();
+
+        final MantaRequestScheduler.Permit third = scheduler.acquire(MantaRequestLane.BULK);
+        final MantaRequestScheduler.Permit fourth = scheduler.acquire(MantaRequestLane.BULK);
+        final Thread interrupted = acquireLater(scheduler, MantaRequestLane.BULK, granted);
+        awaitWaiting(scheduler, MantaRequestLane.BULK, 1);
+        interrupted.interrupt();
+        interrupted.join(10_000);
+
+        assertEquals(Arrays.asList(MantaRequestLane.BULK, null), granted);
+        assertEquals(0, scheduler.getWaiting(MantaRequestLane.BULK));
+        third.close();
+        fourth.close();
+    }
+
+    @Test
+    public void uploadsHoldBulkPermitsUntilClosed() throws IOException {
+        final Configuration conf = new Configuration(false);
+        conf.setInt(HadoopConfigurationContext.BULK_LANE_REQUESTS_KEY, 1);
+        conf.setLong(HadoopConfigurationContext.LANE_WAIT_KEY, 100L);
+
+        final MantaClient client = new FakeMantaTree(ROOT).mockClient();
+        when(client.putAsOutputStream(any(), any(MantaHttpHeaders.class), any(MantaMetadata.class)))
+                .thenReturn(mock(MantaObjectOutputStream.class));
+
+        try (MantaFileSystem fs = FakeMantaTree.fileSystem(client, conf)) {
+            final MantaRequestScheduler scheduler = fs.getRequestLanes().getScheduler();
+
+            try (OutputStream out = fs.create(new Path(ROOT + "/out.bin"))) {
+                assertEquals(1, scheduler.getInFlight(MantaRequestLane.BULK));
+                assertEquals(0, scheduler.getInFlight(MantaRequestLane.METADATA));
+                assertFalse(fs.exists(new Path(ROOT + "/missing")));
+
+                // A second writer of the same thread is rejected instead of waiting forever
+                try {
+                    fs.create(new Path(ROOT + "/second.bin"));
+                    fail("Expected the second upload to be rejected");
+                } catch (IOException e) {
+                    assertTrue(e.getMessage().startsWith("Rejected BULK request"));
+                }
+
+                assertEquals(0, scheduler.getWaiting(MantaRequestLane.BULK));
+            }
+
+            assertEquals(0, scheduler.getInFlight(MantaRequestLane.BULK));
+        }
+    }
+
+    @Test
+    public void listingPagesHoldMetadataPermits() throws IOException {
+        final Configuration conf = new Configuration(false);
+        conf.setInt(HadoopConfigurationContext.METADATA_LANE_REQUESTS_KEY, 1);
+
+        final FakeMantaTree tree = new FakeMantaTree(ROOT).dir(ROOT + "/dir");
+
+        for (int i = 0; i < 5; i++) {
+            tree.file(ROOT + "/dir/part-" + i, i);
+        }
+
+        final MantaClient client = tree.mockClient();
+        final AtomicReference<MantaRequestScheduler> lanes = new AtomicReference<>();
+        final List<Integer> inFlight = new CopyOnWriteArrayList<>();
+
+        final MantaDirectoryListingIterator listing = client.streamingIterator(ROOT + "/dir", 1);
+        final MantaDirectoryListingIterator recording = mock(MantaDirectoryListingIterator.class);
+        when(recording.hasNext()).thenAnswer(invocation -> {
+            inFlight.add(lanes.get().getInFlight(MantaRequestLane.METADATA));
+            return listing.hasNext();
+        });
+        when(recording.next()).thenAnswer(invocation -> listing.next());
+        when(client.streamingIterator(eq(ROOT + "/dir"), anyInt())).thenReturn(recording);
+
+        try (MantaFileSystem fs = FakeMantaTree.fileSystem(client, conf)) {
+            lanes.set(fs.getRequestLanes().getScheduler());
+
+            assertEquals(5, fs.listStatus(new Path(ROOT + "/dir")).length);
+            assertFalse(inFlight.isEmpty());
+            assertEquals(Collections.singleton(1), new HashSet<>(inFlight));
+            assertEquals(0, lanes.get().getInFlight(MantaRequestLane.METADATA));
+        }
+    }
+
+    @Test
+    public void defaultsToUnlimitedSharedLanes() {
+        final HadoopConfigurationContext hadoopConfig =
+                new HadoopConfigurationContext(new Configuration(false));
+        final MantaClient client = mock(MantaClient.class);
+        final MantaRequestLanes lanes = MantaRequestLanes.newInstance(hadoopConfig, hadoopConfig, client);
+
+        for (MantaRequestLane lane : MantaRequestLane.values()) {
+            assertEquals(0, hadoopConfig.getLaneRequests(lane));
+            assertTrue(lanes.client(lane) == client);
+        }
+
+        assertEquals(MantaRequestLane.SMALL_READ, lanes.readLane(1024L * 1024L));
+        assertEquals(MantaRequestLane.BULK, lanes.readLane(1024L * 1024L + 1));
+        assertEquals(0, hadoopConfig.getLaneMaxRequests());
+        lanes.close();
+    }
+}
@@ -0,0 +1,77 @@
+package com.joyent.hadoop.fs.manta;
+
+import com.joyent.manta.client.MantaClient;
+import com.joyent.manta.exception.MantaIOException;
+import com.joyent.manta.org.apache.http.NoHttpResponseException;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+
+public class MantaRetrierTest {
+    private static final String PATH = "/user/stor/retried";
+
+    @Test
+    public void retriesConnectionFailures() throws IOException {
+        final MantaRetrier retrier = new MantaRetrier(3, new MantaMetadataRequests(mock(MantaClient.class)));
+        final AtomicInteger attempts = new AtomicInteger();
+
+        retrier.run("put of [" + PATH + "]", () -> {
+            switch (attempts.incrementAndGet()) {
+                case 1:
+                    throw new ConnectException("Connection refused");
+                case 2:
+                    throw new MantaIOException(new NoHttpResponseException("Manta failed to respond"));
+                default:
+            }
+        });
+
+        assertEquals(3, attempts.get());
+        assertEquals(2, retrier.getRetries());
+    }
+
+    @Test
+    public void rethrowsOtherFailures() {
+        final MantaRetrier retrier = new MantaRetrier(3, new MantaMetadataRequests(mock(MantaClient.class)));
+        final AtomicInteger attempts = new AtomicInteger();
+
+        try {
+            retrier.run("put of [" + PATH + "]", () -> {
+                attempts.incrementAndGet();
+                throw new IOException("Unreadable local file");
+            });
+            fail("Expected the failure to be rethrown");
+        } catch (IOException e) {
+            assertEquals(1, attempts.get());
+            assertEquals(0, retrier.getRetries());
+        }
+    }
+
+    @Test
+    public void rethrowsLimiterRejections() throws IOException {
+        final MantaConcurrencyLimiter limiter = new MantaConcurrencyLimiter(1, 1, 0, 50L);
+        final MantaMetadataRequests requests = new MantaMetadataRequests(mock(MantaClient.class),
+                new MantaRequestScheduler(Collections.emptyMap(), 0, 0L), limiter);
+        final MantaRetrier retrier = new MantaRetrier(3, requests);
+
+        // The outer request holds the only slot while the inner one waits for it
+        retrier.run("outer", () -> {
+            try {
+                retrier.run("inner", () -> fail("Expected the inner request to be rejected"));
+                fail("Expected the inner request to be rejected");
+            } catch (IOException e) {
+                assertTrue(e.getMessage().startsWith("Rejected inner"));
+            }
+        });
+
+        assertEquals(1, limiter.getRejections());
+        assertEquals(0, retrier.getRetries());
+    }
+}
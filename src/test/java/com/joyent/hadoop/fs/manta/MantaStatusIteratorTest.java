@@ -0,0 +1,147 @@
+package com.joyent.hadoop.fs.manta;
+
+import com.joyent.manta.client.MantaClient;
+import com.joyent.manta.client.MantaDirectoryListingIterator;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.fs.RawLocalFileSystem;
+import org.apache.hadoop.fs.RemoteIterator;
+import org.junit.Test;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class MantaStatusIteratorTest {
+    private static final String DIR = "/user/stor/big";
+
+    private static final MantaBlockSizePolicy BLOCK_SIZES =
+            new MantaBlockSizePolicy(0L, Collections.emptyMap(), "/user");
+
+    private static Map<String, Object> entry(final String name) {
+        final Map<String, Object> props = new HashMap<>();
+        props.put("name", name);
+        props.put("type", "object");
+        props.put("size", 7L);
+        props.put("mtime", "2017-03-14T15:09:26.535Z");
+        return props;
+    }
+
+    private static MantaDirectoryListing listing(final MantaDirectoryListingIterator itr) {
+        final MantaClient client = mock(MantaClient.class);
+        when(client.streamingIterator(DIR, MantaTreeWalker.LISTING_PAGE_SIZE)).thenReturn(itr);
+        return new MantaMetadataRequests(client).list(DIR, MantaTreeWalker.LISTING_PAGE_SIZE);
+    }
+
+    @Test
+    public void streamsDirectoryEntries() throws IOException {
+        final FakeMantaTree tree = new FakeMantaTree(DIR);
+
+        for (int i = 0; i < 2500; i++) {
+            tree.file(DIR + "/file-" + i, i);
+        }
+
+        final MantaClient client = tree.mockClient();
+
+        try (MantaFileSystem fs = FakeMantaTree.fileSystem(client, new Configuration(false))) {
+            final RemoteIterator<FileStatus> itr = fs.listStatusIterator(new Path(DIR));
+            int count = 0;
+
+            while (itr.hasNext()) {
+                final FileStatus status = itr.next();
+                assertEquals(new Path(DIR + "/file-" + count), status.getPath());
+                assertEquals(count, status.getLen());
+                count++;
+            }
+
+            assertEquals(2500, count);
+            assertEquals(2500, fs.listStatus(new Path(DIR)).length);
+            verify(client, times(2)).streamingIterator(eq(DIR), eq(MantaTreeWalker.LISTING_PAGE_SIZE));
+        }
+    }
+
+    @Test
+    public void rootListsHomeDirectory() throws IOException {
+        final MantaClient client = new FakeMantaTree(DIR).mockClient();
+
+        try (MantaFileSystem fs = FakeMantaTree.fileSystem(client, new Configuration(false))) {
+            final RemoteIterator<FileStatus> itr = fs.listStatusIterator(new Path("/"));
+
+            assertTrue(itr.hasNext());
+            assertEquals(fs.getHomeDirectory(), itr.next().getPath());
+            assertFalse(itr.hasNext());
+        }
+    }
+
+    @Test(expected = FileNotFoundException.class)
+    public void missingDirectoryIsNotFound() throws IOException {
+        final MantaClient client = new FakeMantaTree(DIR).mockClient();
+
+        try (MantaFileSystem fs = FakeMantaTree.fileSystem(client, new Configuration(false))) {
+            fs.listStatusIterator(new Path(DIR + "/missing"));
+        }
+    }
+
+    @Test
+    public void closesListingWhenExhaustedOrFailed() throws IOException {
+        final MantaDirectoryListingIterator listing = mock(MantaDirectoryListingIterator.class);
+        when(listing.hasNext()).thenReturn(true, false);
+        when(listing.next()).thenReturn(entry("a"));
+
+        final MantaStatusIterator itr = new MantaStatusIterator(listing(listing),
+                new MantaListingDecoder(DIR, BLOCK_SIZES), new Path(DIR));
+
+        assertEquals(new Path(DIR + "/a"), itr.next().getPath());
+        assertFalse(itr.hasNext());
+        assertFalse(itr.hasNext());
+        verify(listing, times(1)).close();
+
+        final MantaDirectoryListingIterator failing = mock(MantaDirectoryListingIterator.class);
+        when(failing.hasNext()).thenThrow(new UncheckedIOException(new IOException("reset")));
+
+        try {
+            new MantaStatusIterator(listing(failing), new MantaListingDecoder(DIR, BLOCK_SIZES),
+                    new Path(DIR)).hasNext();
+            fail("Expected listing error to be rethrown");
+        } catch (IOException e) {
+            assertEquals("reset", e.getMessage());
+        }
+
+        verify(failing, times(1)).close();
+    }
+
+    @Test
+    public void locatedIteratorRethrowsListingErrors() throws IOException {
+        final MantaDirectoryListingIterator failing = mock(MantaDirectoryListingIterator.class);
+        when(failing.hasNext()).thenReturn(true).thenThrow(new UncheckedIOException(new IOException("reset")));
+        when(failing.next()).thenReturn(entry("a"));
+
+        final MantaRemoteIterator itr = MantaRemoteIterator.files(listing(failing),
+                new MantaListingDecoder(DIR, BLOCK_SIZES), new Path(DIR), new RawLocalFileSystem());
+
+        try {
+            while (itr.hasNext()) {
+                itr.next();
+            }
+            fail("Expected the failed page to be rethrown");
+        } catch (IOException e) {
+            assertEquals("reset", e.getMessage());
+        }
+
+        verify(failing, times(1)).close();
+    }
+}
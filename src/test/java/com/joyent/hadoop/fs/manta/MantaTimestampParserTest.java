@@ -0,0 +1,121 @@
+package com.joyent.hadoop.fs.manta;
+
+import com.joyent.manta.client.MantaObjectResponse;
+import org.apache.hadoop.fs.Path;
+import org.junit.Test;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.TimeZone;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class MantaTimestampParserTest {
+    private static SimpleDateFormat formatter() {
+        final SimpleDateFormat format = new SimpleDateFormat(MantaObjectResponse.PATTERN_ISO_8601);
+        format.setTimeZone(TimeZone.getTimeZone("UTC"));
+        return format;
+    }
+
+    @Test
+    public void matchesSimpleDateFormat() throws ParseException {
+        final SimpleDateFormat format = formatter();
+        final Random random = new Random(4242L);
+
+        for (int i = 0; i < 10_000; i++) {
+            // Between 1900 and 2100
+            final long millis = -2208988800000L + (long)(random.nextDouble() * 6311433600000L);
+            final String timestamp = format.format(millis);
+
+            assertEquals(timestamp, format.parse(timestamp).getTime(),
+                    MantaTimestampParser.parse(timestamp));
+        }
+    }
+
+    @Test
+    public void parsesKnownValues() {
+        assertEquals(0L, MantaTimestampParser.parse("1970-01-01T00:00:00.000Z"));
+        assertEquals(1489504166535L, MantaTimestampParser.parse("2017-03-14T15:09:26.535Z"));
+        assertEquals(951782400000L, MantaTimestampParser.parse("2000-02-29T00:00:00Z"));
+        assertEquals(-1L, MantaTimestampParser.parse("1969-12-31T23:59:59.999Z"));
+    }
+
+    @Test
+    public void parsesOffsetsAndFractions() {
+        final long expected = 1489504166535L;
+
+        assertEquals(expected, MantaTimestampParser.parse("2017-03-14T16:09:26.535+01"));
+        assertEquals(expected, MantaTimestampParser.parse("2017-03-14T16:39:26.535+0130"));
+        assertEquals(expected, MantaTimestampParser.parse("2017-03-14T10:09:26.535-05:00"));
+        assertEquals(expected - 35L, MantaTimestampParser.parse("2017-03-14T15:09:26.5Z"));
+        assertEquals(expected, MantaTimestampParser.parse("2017-03-14T15:09:26.535999999Z"));
+    }
+
+    @Test
+    public void rejectsMalformedTimestamps() {
+        final String[] malformed = {
+                "", "2017-03-14", "2017-03-14 15:09:26.535Z", "2017-13-14T15:09:26.535Z",
+                "2017-02-29T15:09:26.535Z", "2017-03-14T24:09:26.535Z", "2017-03-14T15:09:26.Z",
+                "2017-03-14T15:09:26.535", "2017-03-14T15:09:26.535ZZ", "2017-03-14T15:09:26.535+1",
+                "2017-03-14T15:09:2x.535Z"
+        };
+
+        for (String timestamp : malformed) {
+            try {
+                MantaTimestampParser.parse(timestamp);
+                fail("Expected [" + timestamp + "] to be rejected");
+            } catch (IllegalArgumentException e) {
+                // expected
+            }
+        }
+
+        assertEquals(0L, new MantaFileStatus(Collections.singletonMap("mtime", "yesterday"),
+                new Path("/user/stor/file")).getModificationTime());
+    }
+
+    @Test
+    public void parsesConcurrently() throws Exception {
+        final SimpleDateFormat format = formatter();
+        final List<String> timestamps = new ArrayList<>();
+        final List<Long> expected = new ArrayList<>();
+
+        for (int i = 0; i < 1000; i++) {
+            final long millis = 1489504166535L + i * 86_399_999L;
+            timestamps.add(format.format(millis));
+            expected.add(millis);
+        }
+
+        final ExecutorService executor = Executors.newFixedThreadPool(8);
+
+        try {
+            final List<Future<?>> futures = new ArrayList<>();
+
+            for (int t = 0; t < 8; t++) {
+                futures.add(executor.submit(() -> {
+                    for (int round = 0; round < 20; round++) {
+                        for (int i = 0; i < timestamps.size(); i++) {
+                            assertEquals(expected.get(i).longValue(),
+                                    MantaFileStatus.modificationTime(timestamps.get(i)));
+                        }
+                    }
+                    return null;
+                }));
+            }
+
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package com.joyent.hadoop.fs.manta;
+
+import com.joyent.manta.client.MantaClient;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+public class MantaTreeDeleterTest {
+    private static final String ROOT = "/user/stor/tmp";
+
+    private ForkJoinPool pool;
+
+    @Before
+    public void setup() {
+        pool = new ForkJoinPool(4);
+    }
+
+    @After
+    public void cleanup() {
+        pool.shutdownNow();
+    }
+
+    private static FakeMantaTree jobOutput() {
+        final FakeMantaTree tree = new FakeMantaTree(ROOT);
+
+        for (int task = 0; task < 5; task++) {
+            final String taskDir = ROOT + "/attempt-" + task;
+            tree.dir(taskDir).dir(taskDir + "/nested");
+
+            for (int f = 0; f < 150; f++) {
+                tree.file(taskDir + "/part-" + f, f);
+            }
+
+            tree.file(taskDir + "/nested/_SUCCESS", 0L);
+        }
+
+        return tree;
+    }
+
+    @Test
+    public void deletesTreeBottomUp() throws IOException {
+        final FakeMantaTree tree = jobOutput();
+        final MantaClient client = tree.mockClient();
+        final AtomicLong progress = new AtomicLong();
+
+        final MantaTreeDeleter deleter = new MantaTreeDeleter(new MantaMetadataRequests(client), pool, 3,
+                progress::incrementAndGet);
+        deleter.delete(ROOT);
+
+        assertFalse(tree.contains(ROOT));
+        assertEquals(5 * 151, deleter.getObjectsDeleted());
+        // root, 5 attempts and their nested directories
+        assertEquals(11, deleter.getDirectoriesDeleted());
+        assertEquals(5 * 151 + 11, progress.get());
+        // directories are only deleted after they are empty, so nothing is retried
+        assertEquals(0, deleter.getRetries());
+        verify(client, times(5 * 151 + 11)).delete(anyString());
+        verify(client, never()).deleteRecursive(anyString());
+    }
+
+    @Test
+    public void retriesTransientFailures() throws IOException {
+        final FakeMantaTree tree = jobOutput().failDeletes(ROOT + "/attempt-2/part-7", 2, 503);
+        final MantaClient client = tree.mockClient();
+
+        final MantaTreeDeleter deleter = new MantaTreeDeleter(new MantaMetadataRequests(client), pool, 3,
+                null);
+        deleter.delete(ROOT);
+
+        assertFalse(tree.contains(ROOT));
+        assertEquals(2, deleter.getRetries());
+    }
+
+    @Test
+    public void keepsParentsOfPermanentFailures() throws IOException {
+        final String forbidden = ROOT + "/attempt-3/part-42";
+        final FakeMantaTree tree = jobOutput().failDeletes(forbidden, 1, 403);
+        final MantaClient client = tree.mockClient();
+
+        final MantaTreeDeleter deleter = new MantaTreeDeleter(new MantaMetadataRequests(client), pool, 3,
+                null);
+
+        try {
+            deleter.delete(ROOT);
+            fail("Expected the forbidden delete to fail the deletion");
+        } catch (IOException e) {
+            assertEquals(0, deleter.getRetries());
+        }
+
+        assertTrue(tree.contains(forbidden));
+        assertTrue(tree.contains(ROOT + "/attempt-3"));
+        assertTrue(tree.contains(ROOT));
+    }
+
+    @Test
+    public void fileSystemDeletesRecursivelyWithProgress() throws IOException {
+        final FakeMantaTree tree = jobOutput();
+        final MantaClient client = tree.mockClient();
+        final AtomicLong progress = new AtomicLong();
+
+        try (MantaFileSystem fs = FakeMantaTree.fileSystem(client, new Configuration(false))) {
+            assertTrue(fs.delete(new Path(ROOT + "/attempt-0"), true, progress::incrementAndGet));
+            assertEquals(151 + 2, progress.get());
+            assertFalse(tree.contains(ROOT + "/attempt-0"));
+            assertTrue(tree.contains(ROOT + "/attempt-1"));
+
+            assertTrue(fs.delete(new Path(ROOT + "/attempt-1/part-0"), false));
+            assertFalse(fs.delete(new Path(ROOT + "/attempt-1/part-0"), false));
+            verify(client, never()).existsAndIsAccessible(anyString());
+        }
+    }
+}
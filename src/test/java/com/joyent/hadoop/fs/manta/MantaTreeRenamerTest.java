@@ -0,0 +1,176 @@
+package com.joyent.hadoop.fs.manta;
+
+import com.joyent.manta.client.MantaClient;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.junit.Test;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+public class MantaTreeRenamerTest {
+    private static final String ROOT = "/user/stor/job";
+
+    private static final String SOURCE = ROOT + "/_temporary";
+
+    private static final String DESTINATION = ROOT + "/output/final";
+
+    private static final String JOURNAL = ROOT + "/output/.manta-rename/final.rename";
+
+    private static FakeMantaTree jobOutput() {
+        final FakeMantaTree tree = new FakeMantaTree(ROOT).dir(SOURCE);
+
+        for (int task = 0; task < 4; task++) {
+            final String taskDir = SOURCE + "/attempt-" + task;
+            tree.dir(taskDir).dir(taskDir + "/nested");
+
+            for (int f = 0; f < 100; f++) {
+                tree.file(taskDir + "/part-" + f, f);
+            }
+
+            tree.file(taskDir + "/nested/_SUCCESS", 0L);
+        }
+
+        return tree;
+    }
+
+    private static void assertRenamed(final FakeMantaTree tree) {
+        assertFalse(tree.contains(SOURCE));
+        assertFalse(tree.contains(JOURNAL));
+        assertFalse(tree.contains(ROOT + "/output/.manta-rename"));
+
+        for (int task = 0; task < 4; task++) {
+            assertEquals(101, tree.children(DESTINATION + "/attempt-" + task).size());
+            assertTrue(tree.contains(DESTINATION + "/attempt-" + task + "/nested/_SUCCESS"));
+        }
+    }
+
+    @Test
+    public void renamesDirectoryByLinkingInParallel() throws IOException {
+        final FakeMantaTree tree = jobOutput();
+        final MantaClient client = tree.mockClient();
+
+        try (MantaFileSystem fs = FakeMantaTree.fileSystem(client, new Configuration(false))) {
+            assertTrue(fs.rename(new Path(SOURCE), new Path(DESTINATION)));
+        }
+
+        assertRenamed(tree);
+        verify(client, times(4 * 101)).putSnapLink(anyString(), anyString(), any());
+        verify(client, never()).move(anyString(), anyString(), anyBoolean());
+    }
+
+    @Test
+    public void recreatesJournalDirectoryRemovedByConcurrentRename() throws IOException {
+        // Another rename into the same parent finishes between creating the directory and the journal
+        final FakeMantaTree tree = jobOutput().deleteBeforePut(JOURNAL, ROOT + "/output/.manta-rename");
+
+        try (MantaFileSystem fs = FakeMantaTree.fileSystem(tree.mockClient(), new Configuration(false))) {
+            assertTrue(fs.rename(new Path(SOURCE), new Path(DESTINATION)));
+        }
+
+        assertRenamed(tree);
+    }
+
+    @Test
+    public void refusesToRenameIntoItsOwnSubtree() throws IOException {
+        final MantaClient client = jobOutput().mockClient();
+
+        for (boolean lean : new boolean[] {false, true}) {
+            final Configuration conf = new Configuration(false);
+            conf.setBoolean(HadoopConfigurationContext.LEAN_MUTATIONS_KEY, lean);
+
+            try (MantaFileSystem fs = FakeMantaTree.fileSystem(client, conf)) {
+                assertFalse(fs.rename(new Path(SOURCE), new Path(SOURCE + "/attempt-0/moved")));
+            }
+        }
+
+        verify(client, never()).putSnapLink(anyString(), anyString(), any());
+        verify(client, never()).move(anyString(), anyString(), anyBoolean());
+    }
+
+    @Test
+    public void rollsBackWhileLinking() throws IOException {
+        final FakeMantaTree tree = jobOutput().failLinks(SOURCE + "/attempt-2/part-9", 1, 403);
+        final MantaClient client = tree.mockClient();
+
+        try (MantaFileSystem fs = FakeMantaTree.fileSystem(client, new Configuration(false))) {
+            try {
+                fs.rename(new Path(SOURCE), new Path(DESTINATION));
+                fail("Expected the forbidden link to fail the rename");
+            } catch (IOException e) {
+                assertTrue(tree.content(JOURNAL).contains("LINKING"));
+            }
+
+            final AtomicLong progress = new AtomicLong();
+            assertTrue(fs.rollbackRename(new Path(DESTINATION), progress::incrementAndGet));
+            assertTrue(progress.get() > 0);
+            assertFalse(fs.rollbackRename(new Path(DESTINATION), null));
+        }
+
+        assertFalse(tree.contains(DESTINATION));
+        assertNull(tree.content(JOURNAL));
+        assertEquals(101, tree.children(SOURCE + "/attempt-2").size());
+    }
+
+    @Test
+    public void resumesWhileDeleting() throws IOException {
+        final FakeMantaTree tree = jobOutput().failDeletes(SOURCE + "/attempt-1/part-3", 1, 403);
+        final MantaClient client = tree.mockClient();
+
+        try (MantaFileSystem fs = FakeMantaTree.fileSystem(client, new Configuration(false))) {
+            try {
+                fs.rename(new Path(SOURCE), new Path(DESTINATION));
+                fail("Expected the forbidden delete to fail the rename");
+            } catch (IOException e) {
+                assertTrue(tree.content(JOURNAL).contains("DELETING"));
+            }
+
+            try {
+                fs.rollbackRename(new Path(DESTINATION), null);
+                fail("Expected a rename that is deleting its source not to be rolled back");
+            } catch (IOException e) {
+                assertTrue(tree.contains(JOURNAL));
+            }
+
+            assertTrue(fs.resumeRename(new Path(DESTINATION), null));
+            assertFalse(fs.resumeRename(new Path(DESTINATION), null));
+        }
+
+        assertRenamed(tree);
+    }
+
+    @Test
+    public void movesFilesAndExistingDestinations() throws IOException {
+        final FakeMantaTree tree = jobOutput().dir(ROOT + "/existing");
+        final MantaClient client = tree.mockClient();
+
+        try (MantaFileSystem fs = FakeMantaTree.fileSystem(client, new Configuration(false))) {
+            assertTrue(fs.rename(new Path(SOURCE + "/attempt-0/part-0"), new Path(ROOT + "/part-0")));
+            assertTrue(fs.rename(new Path(SOURCE), new Path(ROOT + "/existing")));
+
+            try {
+                fs.rename(new Path(ROOT + "/missing"), new Path(DESTINATION));
+                fail("Expected a missing source not to be renamed");
+            } catch (FileNotFoundException e) {
+                assertEquals(ROOT + "/missing", e.getMessage());
+            }
+        }
+
+        verify(client).move(SOURCE + "/attempt-0/part-0", ROOT + "/part-0", true);
+        verify(client).move(SOURCE, ROOT + "/existing", true);
+        verify(client, never()).putSnapLink(anyString(), anyString(), any());
+    }
+}
@@ -0,0 +1,184 @@
+package com.joyent.hadoop.fs.manta;
+
+import com.joyent.manta.client.MantaClient;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.LocatedFileStatus;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.fs.RawLocalFileSystem;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class MantaTreeWalkerTest {
+    private static final String ROOT = "/user/stor/walk";
+
+    private static final MantaBlockSizePolicy BLOCK_SIZES =
+            new MantaBlockSizePolicy(0L, Collections.emptyMap(), "/user");
+
+    private ForkJoinPool pool;
+
+    @Before
+    public void setup() {
+        pool = new ForkJoinPool(4);
+    }
+
+    @After
+    public void cleanup() {
+        pool.shutdownNow();
+    }
+
+    private static FakeMantaTree wideTree(final int dirCount, final int filesPerDir) {
+        final FakeMantaTree tree = new FakeMantaTree(ROOT);
+
+        for (int d = 0; d < dirCount; d++) {
+            final String dir = ROOT + "/part-" + d;
+            tree.dir(dir);
+            tree.dir(dir + "/nested");
+
+            for (int f = 0; f < filesPerDir; f++) {
+                tree.file(dir + "/file-" + f, f);
+                tree.file(dir + "/nested/file-" + f, f);
+            }
+        }
+
+        tree.file(ROOT + "/top-level", 42L);
+
+        return tree;
+    }
+
+    @Test
+    public void visitsEveryEntryInTree() throws IOException {
+        final MantaClient client = wideTree(20, 10).mockClient();
+        final Set<String> visited = ConcurrentHashMap.newKeySet();
+
+        final MantaTreeWalker walker =
+                new MantaTreeWalker(new MantaMetadataRequests(client), pool, BLOCK_SIZES);
+        walker.walk(ROOT, status -> visited.add(status.getPath().toString()));
+
+        // 20 dirs + 20 nested dirs + 20 * 10 * 2 files + 1 top-level file
+        assertEquals(441, visited.size());
+        assertTrue(visited.contains(ROOT + "/part-7/nested/file-3"));
+        assertTrue(visited.contains(ROOT + "/part-19"));
+        assertTrue(visited.contains(ROOT + "/top-level"));
+    }
+
+    @Test
+    public void propagatesVisitorFailures() throws IOException {
+        final MantaClient client = wideTree(5, 5).mockClient();
+
+        final MantaTreeWalker walker =
+                new MantaTreeWalker(new MantaMetadataRequests(client), pool, BLOCK_SIZES);
+
+        try {
+            walker.walk(ROOT, status -> {
+                if (status.getPath().getName().equals("file-3")) {
+                    throw new IOException("visitor failure");
+                }
+            });
+            fail("Expected walk to fail");
+        } catch (IOException e) {
+            assertEquals("visitor failure", e.getMessage());
+        }
+    }
+
+    @Test
+    public void iteratorStreamsOnlyFiles() throws IOException {
+        final MantaClient client = wideTree(10, 10).mockClient();
+        final MantaTreeWalker walker =
+                new MantaTreeWalker(new MantaMetadataRequests(client), pool, BLOCK_SIZES);
+        final Set<Path> results = new HashSet<>();
+
+        try (MantaTreeRemoteIterator itr = new MantaTreeRemoteIterator(walker, ROOT,
+                new Path(ROOT), new RawLocalFileSystem(), 8, 60_000L)) {
+            while (itr.hasNext()) {
+                final LocatedFileStatus status = itr.next();
+                assertTrue(status.isFile());
+                assertTrue("Duplicate result: " + status.getPath(), results.add(status.getPath()));
+            }
+        }
+
+        assertEquals(201, results.size());
+    }
+
+    @Test
+    public void closingIteratorStopsWalk() throws IOException {
+        final MantaClient client = wideTree(50, 50).mockClient();
+        final MantaTreeWalker walker =
+                new MantaTreeWalker(new MantaMetadataRequests(client), pool, BLOCK_SIZES);
+
+        final MantaTreeRemoteIterator itr = new MantaTreeRemoteIterator(walker, ROOT,
+                new Path(ROOT), new RawLocalFileSystem(), 2, 60_000L);
+
+        assertTrue(itr.hasNext());
+        itr.next();
+        itr.close();
+
+        assertTrue(walker.isCancelled());
+        assertFalse(itr.hasNext());
+    }
+
+    @Test
+    public void abandonedIteratorCancelsItsWalk() throws Exception {
+        final MantaClient client = wideTree(20, 20).mockClient();
+        final MantaTreeWalker walker =
+                new MantaTreeWalker(new MantaMetadataRequests(client), pool, BLOCK_SIZES);
+
+        final MantaTreeRemoteIterator itr = new MantaTreeRemoteIterator(walker, ROOT,
+                new Path(ROOT), new RawLocalFileSystem(), 2, 100L);
+        itr.next();
+
+        final long deadline = System.currentTimeMillis() + 10_000L;
+
+        while (!walker.isCancelled() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20L);
+        }
+
+        assertTrue(walker.isCancelled());
+
+        // A consumer that comes back gets the queued results and then the error
+        try {
+            while (itr.hasNext()) {
+                itr.next();
+            }
+            fail("Expected the abandoned listing to fail");
+        } catch (IOException e) {
+            assertTrue(e.getMessage().startsWith("Abandoned listing"));
+        }
+    }
+
+    @Test(timeout = 30_000L)
+    public void abandonedIteratorsDontStallWorkers() throws IOException {
+        final Configuration conf = new Configuration(false);
+        conf.setInt(HadoopConfigurationContext.PARALLELISM_KEY, 2);
+        conf.setInt(HadoopConfigurationContext.LIST_QUEUE_SIZE_KEY, 1);
+
+        final FakeMantaTree tree = wideTree(10, 10);
+        tree.dir(ROOT + "/doomed");
+
+        for (int i = 0; i < 50; i++) {
+            tree.file(ROOT + "/doomed/file-" + i, i);
+        }
+
+        try (MantaFileSystem fs = FakeMantaTree.fileSystem(tree.mockClient(), conf)) {
+            // Dropped without being drained or closed
+            for (int i = 0; i < 4; i++) {
+                assertTrue(fs.listFiles(new Path(ROOT + "/part-" + i), true).hasNext());
+            }
+
+            assertTrue(fs.delete(new Path(ROOT + "/doomed"), true));
+            assertFalse(tree.contains(ROOT + "/doomed"));
+        }
+    }
+}